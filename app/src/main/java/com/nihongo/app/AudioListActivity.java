@@ -9,20 +9,28 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import com.nihongo.core.TimeFormat;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.Mp3Info;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.List;
 
 public class AudioListActivity extends AppCompatActivity {
 
     private int lessonNum;
-    private ArrayList<String> files = new ArrayList<>();
+    private List<Track> tracks;
+    private TrackDurations durations;
+    private TextView audioCount;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_audio_list);
+        Metrics.whenDrawn(findViewById(android.R.id.content), () -> Metrics.stop(Metrics.LESSON_OPEN));
 
         lessonNum = getIntent().getIntExtra("lesson", 1);
         
@@ -33,100 +41,144 @@ public class AudioListActivity extends AppCompatActivity {
         TextView headerSub = findViewById(R.id.headerSub);
         headerSub.setText("Lesson " + lessonNum);
         
-        TextView audioCount = findViewById(R.id.audioCount);
+        audioCount = findViewById(R.id.audioCount);
+        durations = TrackDurations.get(this);
 
         loadAudioFiles();
 
-        if (files.isEmpty()) {
+        if (tracks.isEmpty()) {
             Toast.makeText(this, getString(R.string.no_audio_files) + " - Lesson " + lessonNum, Toast.LENGTH_LONG).show();
             audioCount.setText(getString(R.string.no_audio_files));
         } else {
-            audioCount.setText(files.size() + " audio files");
+            updateAudioCount();
         }
 
         RecyclerView recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setHasFixedSize(true);
-        recyclerView.setAdapter(new AudioAdapter());
+        AudioAdapter adapter = new AudioAdapter();
+        recyclerView.setAdapter(adapter);
+        ListFrameTimer.attach(this, recyclerView);
+        adapter.submitList(rows());
+
+        // Durations come from MP3 headers; already-scanned lessons show them immediately
+        durations.scan(tracks, () -> {
+            if (!isDestroyed()) {
+                // Only rows whose duration arrived are bound again
+                adapter.submitList(rows());
+                updateAudioCount();
+            }
+        });
+    }
+
+    private List<AudioRow> rows() {
+        List<AudioRow> rows = new ArrayList<>(tracks.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            Mp3Info info = durations.getCached(track);
+            rows.add(new AudioRow(i, track, info != null ? info.durationMs : -1));
+        }
+        return rows;
+    }
+
+    private void updateAudioCount() {
+        int totalMs = durations.getTotalDurationMs(tracks);
+        if (totalMs >= 0) {
+            audioCount.setText(tracks.size() + " audio files · " + TimeFormat.format(totalMs));
+        } else {
+            audioCount.setText(tracks.size() + " audio files");
+        }
     }
 
     private void loadAudioFiles() {
+        Metrics.beginSection("AudioListActivity.loadAudioFiles");
         try {
-            String folder = "audio/lesson_" + lessonNum;
-            String[] assetFiles = getAssets().list(folder);
-            
-            if (assetFiles != null) {
-                for (String f : assetFiles) {
-                    if (f.endsWith(".mp3")) {
-                        files.add("lesson_" + lessonNum + "/" + f);
-                    }
-                }
-            }
-            
-            // Sort files: main first, then q1, q2, q3...
-            Collections.sort(files, (f1, f2) -> {
-                if (f1.contains("main")) return -1;
-                if (f2.contains("main")) return 1;
-                return f1.compareTo(f2);
-            });
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, getString(R.string.error_loading) + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            // Tracks come pre-sorted from the generated catalog: main first, then q1, q2, q3...
+            tracks = Lessons.catalog().getTracks(lessonNum);
+        } finally {
+            Metrics.endSection();
+        }
+    }
+
+    /** One row of the list: a track, and its duration once the header has been read. */
+    private static final class AudioRow {
+        final int index;
+        final Track track;
+        final int durationMs;
+
+        AudioRow(int index, Track track, int durationMs) {
+            this.index = index;
+            this.track = track;
+            this.durationMs = durationMs;
         }
     }
 
-    private class AudioAdapter extends RecyclerView.Adapter<AudioAdapter.AudioViewHolder> {
+    private static final DiffUtil.ItemCallback<AudioRow> SAME_ROW = new DiffUtil.ItemCallback<AudioRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AudioRow oldItem, @NonNull AudioRow newItem) {
+            return oldItem.track == newItem.track;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AudioRow oldItem, @NonNull AudioRow newItem) {
+            return oldItem.durationMs == newItem.durationMs;
+        }
+    };
+
+    private class AudioAdapter extends ListAdapter<AudioRow, AudioAdapter.AudioViewHolder> {
+
+        // Measured for the first row's title view, once there is one
+        private PrecomputedTitles titles;
+
+        AudioAdapter() {
+            super(SAME_ROW);
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).index;
+        }
 
         @NonNull
         @Override
         public AudioViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.item_audio, parent, false);
-            return new AudioViewHolder(view);
+            AudioViewHolder holder = new AudioViewHolder(view);
+            if (titles == null) {
+                titles = new PrecomputedTitles(holder.titleView);
+                String[] texts = new String[tracks.size()];
+                for (int i = 0; i < texts.length; i++) {
+                    texts[i] = tracks.get(i).listTitle;
+                }
+                titles.precompute(texts);
+            }
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(@NonNull AudioViewHolder holder, int position) {
-            String item = files.get(position);
-            String displayName = item.substring(item.lastIndexOf("/") + 1).replace(".mp3", "");
-            
-            // Format display name in Japanese style (Minna no Nihongo)
-            if (displayName.contains("main")) {
-                holder.titleView.setText("🎵 会話 (Kaiwa)");  // Main Dialogue
-            } else if (displayName.contains("_q")) {
-                String qNum = displayName.replaceAll(".*_q", "");
-                holder.titleView.setText("❓ 問題" + qNum + " (Mondai " + qNum + ")");  // Question
-            } else if (displayName.contains("renshu") || displayName.contains("practice")) {
-                holder.titleView.setText("📝 練習 (Renshuu)");  // Practice
-            } else if (displayName.contains("vocab") || displayName.contains("tango")) {
-                holder.titleView.setText("📖 単語 (Tango)");  // Vocabulary
-            } else if (displayName.contains("bunpou") || displayName.contains("grammar")) {
-                holder.titleView.setText("📚 文法 (Bunpou)");  // Grammar
-            } else {
-                holder.titleView.setText("🎶 " + displayName.toUpperCase());
-            }
+            AudioRow row = getItem(position);
+            titles.bind(holder.titleView, row.index);
+            holder.durationView.setText(row.durationMs >= 0 ? TimeFormat.format(row.durationMs) : "");
             
             holder.itemView.setOnClickListener(v -> {
+                Metrics.start(Metrics.TAP_TO_AUDIO);
                 Intent intent = new Intent(AudioListActivity.this, PlayerActivity.class);
-                intent.putStringArrayListExtra("files", files);
-                intent.putExtra("index", position);
-                intent.putExtra("lesson", lessonNum);
+                intent.putExtra(PlayerActivity.EXTRA_TRACK, row.track.path);
                 startActivity(intent);
             });
         }
 
-        @Override
-        public int getItemCount() {
-            return files.size();
-        }
-
         class AudioViewHolder extends RecyclerView.ViewHolder {
             final TextView titleView;
+            final TextView durationView;
 
             AudioViewHolder(@NonNull View itemView) {
                 super(itemView);
                 titleView = itemView.findViewById(R.id.audioTitle);
+                durationView = itemView.findViewById(R.id.audioDuration);
             }
         }
     }
@@ -0,0 +1,83 @@
+package com.nihongo.app;
+
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.VoiceClarity;
+import java.io.IOException;
+
+/**
+ * The subset of MediaPlayer that {@link PlaybackEngine} drives. Keeping the engine
+ * behind this interface lets its threading be tested on the JVM with a fake player.
+ */
+interface AudioPlayer {
+
+    /** Player events, delivered on the thread that created the player. */
+    interface Callback {
+        void onPrepared(AudioPlayer player);
+
+        void onCompletion(AudioPlayer player);
+
+        /** The player was started by its predecessor via {@link #setNext}. */
+        void onStartedAsNext(AudioPlayer player);
+
+        /** A {@link #seekTo} has finished; seeks are not queued by the player itself. */
+        void onSeekComplete(AudioPlayer player);
+
+        void onError(AudioPlayer player, int what, int extra);
+    }
+
+    interface Factory {
+        AudioPlayer create(Callback callback);
+    }
+
+    /** Players that can repeat a section of what they just played without seeking. */
+    interface Looping {
+        /**
+         * Repeats {@code startMs..endMs} until {@link #clearLoop}, a seek or a reset.
+         *
+         * @return false if the section is not available for looping; nothing changes then
+         */
+        boolean setLoop(int startMs, int endMs);
+
+        /** Silence after each repetition. */
+        void setLoopGap(int gapMs);
+
+        /** Continues from where playback was when the loop was set. */
+        void clearLoop();
+    }
+
+    /** Players that can change speed without changing pitch. */
+    interface Stretching {
+        /** Takes effect within milliseconds, and stays for later data sources; callable in any state. */
+        void setSpeed(float speed);
+    }
+
+    /** Players that can run what they play through a {@link VoiceClarity} chain. */
+    interface Clarifying {
+        /** Takes effect within milliseconds, and stays for later data sources; callable in any state. */
+        void setVoiceClarity(VoiceClarity.Settings settings);
+    }
+
+    void setDataSource(Track track) throws IOException;
+
+    void prepareAsync();
+
+    void start();
+
+    void pause();
+
+    /** Seeks to the start of the frame that contains the position, as exactly as the player can. */
+    void seekTo(int positionMs);
+
+    /** Chains a prepared player to start when this one completes, or clears the chain if null. */
+    void setNext(AudioPlayer next);
+
+    boolean isPlaying();
+
+    int getCurrentPosition();
+
+    int getDuration();
+
+    void reset();
+
+    void release();
+}
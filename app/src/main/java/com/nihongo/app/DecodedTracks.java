@@ -0,0 +1,153 @@
+package com.nihongo.app;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.media.MediaCodec;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.DecodeCursor;
+import com.nihongo.core.pcm.PcmCache;
+import com.nihongo.core.pcm.PcmClip;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Process-wide {@link PcmCache} of decoded question tracks, which are short and
+ * replayed over and over. {@link PcmPlayer} plays a cached track straight from
+ * memory, without a decoder, and caches the ones it decodes from start to end;
+ * neighbours of the playing track are decoded ahead of time on a background thread,
+ * so stepping back and forth within a lesson starts at once.
+ */
+final class DecodedTracks {
+
+    private static final String TAG = "DecodedTracks";
+    // A one-minute question decodes to about 10 MB of 44.1 kHz stereo
+    private static final long BUDGET_BYTES = 48L << 20;
+    private static final long LOW_RAM_BUDGET_BYTES = 16L << 20;
+    private static final long TIMEOUT_US = 10_000;
+
+    private static DecodedTracks instance;
+
+    private final Context context;
+    private final PcmCache cache;
+    private final Handler handler;
+
+    private DecodedTracks(Context context) {
+        this.context = context.getApplicationContext();
+        ActivityManager activities = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        cache = new PcmCache(activities.isLowRamDevice() ? LOW_RAM_BUDGET_BYTES : BUDGET_BYTES);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    static synchronized DecodedTracks get(Context context) {
+        if (instance == null) {
+            instance = new DecodedTracks(context);
+        }
+        return instance;
+    }
+
+    static boolean isCacheable(Track track) {
+        return track.kind == Track.Kind.QUESTION;
+    }
+
+    /** The decoded track, or null on a miss or for tracks that are not cached at all. */
+    PcmClip get(Track track) {
+        return isCacheable(track) ? cache.get(track.path) : null;
+    }
+
+    void put(Track track, PcmClip clip) {
+        if (isCacheable(track) && cache.put(track.path, clip)) {
+            Log.d(TAG, "Cached " + track.path + ": " + cache);
+        }
+    }
+
+    /** Hit, miss and eviction counts, for tuning the budget. */
+    PcmCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Decodes the given tracks in the background unless they are cached already.
+     * Replaces whatever earlier calls still had queued; null entries are skipped.
+     */
+    void prefetch(Track... tracks) {
+        handler.removeCallbacksAndMessages(null);
+        for (Track track : tracks) {
+            if (track != null && isCacheable(track)) {
+                handler.post(() -> {
+                    if (!cache.contains(track.path)) {
+                        decodeQuietly(track);
+                    }
+                });
+            }
+        }
+    }
+
+    private void decodeQuietly(Track track) {
+        try {
+            put(track, decode(track));
+        } catch (IOException | RuntimeException e) {
+            // Not fatal: the track is decoded while it plays instead
+            Log.w(TAG, "Could not prefetch " + track.path, e);
+        }
+    }
+
+    private PcmClip decode(Track track) throws IOException {
+        try (Mp3Asset asset = Mp3Asset.open(context, track)) {
+            PcmClip clip = new PcmClip(asset.sampleRate, asset.channels, asset.getPcmFrameCapacity(), true);
+            DecodeCursor cursor = new DecodeCursor(asset.index);
+            cursor.seekToSample(0);
+            MediaCodec codec = asset.createDecoder();
+            try {
+                MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+                short[] decoded = new short[0];
+                boolean inputDone = false;
+                while (true) {
+                    if (!inputDone) {
+                        int in = codec.dequeueInputBuffer(0);
+                        if (in >= 0 && cursor.hasNext()) {
+                            ByteBuffer buffer = codec.getInputBuffer(in);
+                            buffer.clear();
+                            buffer.limit(cursor.length());
+                            asset.readFully(buffer, cursor.offset());
+                            codec.queueInputBuffer(in, 0, cursor.length(), cursor.presentationTimeUs(), 0);
+                            cursor.advance();
+                        } else if (in >= 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        }
+                    }
+                    int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                    if (out < 0) {
+                        continue;
+                    }
+                    ByteBuffer buffer = codec.getOutputBuffer(out);
+                    buffer.position(info.offset);
+                    buffer.limit(info.offset + info.size);
+                    ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                    int count = samples.remaining();
+                    if (decoded.length < count) {
+                        decoded = new short[count];
+                    }
+                    samples.get(decoded, 0, count);
+                    codec.releaseOutputBuffer(out, false);
+                    if (!clip.append(decoded, 0, count)) {
+                        throw new IOException("More audio than indexed in " + track.path);
+                    }
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        return clip;
+                    }
+                }
+            } finally {
+                codec.release();
+            }
+        }
+    }
+}
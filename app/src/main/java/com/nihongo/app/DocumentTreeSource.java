@@ -0,0 +1,66 @@
+package com.nihongo.app;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.DocumentsContract.Document;
+import com.nihongo.core.library.FolderSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link FolderSource} over a document tree the user picked in the system file
+ * picker, such as a folder on an SD card or in a cloud drive. Ids are document URIs,
+ * which {@link TrackFiles} opens through the content resolver.
+ */
+final class DocumentTreeSource implements FolderSource {
+
+    private static final String[] COLUMNS = {
+            Document.COLUMN_DOCUMENT_ID, Document.COLUMN_DISPLAY_NAME, Document.COLUMN_MIME_TYPE,
+            Document.COLUMN_SIZE, Document.COLUMN_LAST_MODIFIED,
+    };
+
+    private final ContentResolver resolver;
+    private final Uri tree;
+
+    DocumentTreeSource(ContentResolver resolver, Uri tree) {
+        this.resolver = resolver;
+        this.tree = tree;
+    }
+
+    @Override
+    public String getKey() {
+        return "tree-" + Integer.toHexString(tree.toString().hashCode());
+    }
+
+    @Override
+    public String getRootId() {
+        return DocumentsContract.buildDocumentUriUsingTree(tree, DocumentsContract.getTreeDocumentId(tree)).toString();
+    }
+
+    @Override
+    public List<Entry> list(String directoryId) throws IOException {
+        Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(tree,
+                DocumentsContract.getDocumentId(Uri.parse(directoryId)));
+        // One query per directory, which returns everything the scanner needs
+        try (Cursor cursor = resolver.query(children, COLUMNS, null, null, null)) {
+            if (cursor == null) {
+                throw new IOException("Cannot list " + directoryId);
+            }
+            List<Entry> entries = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                Uri document = DocumentsContract.buildDocumentUriUsingTree(tree, cursor.getString(0));
+                entries.add(new Entry(document.toString(), cursor.getString(1),
+                        Document.MIME_TYPE_DIR.equals(cursor.getString(2)),
+                        cursor.isNull(3) ? 0 : cursor.getLong(3),
+                        cursor.isNull(4) ? 0 : cursor.getLong(4)));
+            }
+            return entries;
+        } catch (SecurityException e) {
+            // Access was revoked, or the tree's provider is gone
+            throw new IOException("No access to " + tree, e);
+        }
+    }
+}
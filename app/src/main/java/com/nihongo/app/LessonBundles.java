@@ -0,0 +1,146 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.bundle.LessonBundle;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bundled tracks as ranges of their lesson's {@link LessonBundle}, when the build
+ * packed them (-PlessonBundles=true). A lesson is opened and mapped once; its tracks
+ * are then handed out as duplicates of that descriptor, or as slices of the map for
+ * code that reads the bytes itself, with no asset lookup per track. The current and
+ * the last lesson stay open. Without bundles every method returns null and tracks
+ * open as separate assets.
+ */
+final class LessonBundles {
+
+    private static final String TAG = "LessonBundles";
+    // The lesson playing and the one before it, for going back across the boundary
+    private static final int MAX_OPEN_LESSONS = 2;
+
+    private static LessonBundles instance;
+
+    private final AssetManager assets;
+    private final boolean available;
+    private final Map<Integer, OpenLesson> open = new LinkedHashMap<Integer, OpenLesson>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, OpenLesson> eldest) {
+            if (size() <= MAX_OPEN_LESSONS) {
+                return false;
+            }
+            // Descriptors and slices already handed out stay valid
+            eldest.getValue().close();
+            return true;
+        }
+    };
+
+    private LessonBundles(Context context) {
+        assets = context.getApplicationContext().getAssets();
+        available = hasBundles(assets);
+    }
+
+    static synchronized LessonBundles get(Context context) {
+        if (instance == null) {
+            instance = new LessonBundles(context);
+        }
+        return instance;
+    }
+
+    /** The track's bytes within its lesson bundle; the caller closes it. Null if it is not bundled. */
+    synchronized AssetFileDescriptor openFd(Track track) throws IOException {
+        OpenLesson lesson = open(track);
+        int entry = lesson != null ? lesson.table.indexOf(fileName(track)) : -1;
+        if (entry < 0) {
+            return null;
+        }
+        return new AssetFileDescriptor(lesson.afd.getParcelFileDescriptor().dup(),
+                lesson.afd.getStartOffset() + lesson.table.getOffset(entry), lesson.table.getLength(entry));
+    }
+
+    /** The track's bytes as a read-only slice of its mapped lesson bundle, or null if it is not bundled. */
+    synchronized ByteBuffer map(Track track) throws IOException {
+        OpenLesson lesson = open(track);
+        int entry = lesson != null ? lesson.table.indexOf(fileName(track)) : -1;
+        if (entry < 0) {
+            return null;
+        }
+        ByteBuffer slice = lesson.mapped.duplicate();
+        slice.position((int) lesson.table.getOffset(entry));
+        slice.limit(slice.position() + lesson.table.getLength(entry));
+        return slice.slice();
+    }
+
+    private OpenLesson open(Track track) throws IOException {
+        if (!available || !track.isBundled()) {
+            return null;
+        }
+        OpenLesson lesson = open.get(track.lesson);
+        if (lesson == null) {
+            lesson = OpenLesson.open(assets, track.lesson);
+            open.put(track.lesson, lesson);
+        }
+        return lesson;
+    }
+
+    private static String fileName(Track track) {
+        return track.path.substring(track.path.indexOf('/') + 1);
+    }
+
+    private static boolean hasBundles(AssetManager assets) {
+        try {
+            String[] names = assets.list(LessonBundle.ASSET_DIR);
+            return names != null && names.length > 0;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not list lesson bundles", e);
+            return false;
+        }
+    }
+
+    private static final class OpenLesson {
+        final AssetFileDescriptor afd;
+        final LessonBundle table;
+        final MappedByteBuffer mapped;
+
+        private OpenLesson(AssetFileDescriptor afd, LessonBundle table, MappedByteBuffer mapped) {
+            this.afd = afd;
+            this.table = table;
+            this.mapped = mapped;
+        }
+
+        // Bundles are stored uncompressed, so openFd() gives their range of the APK
+        static OpenLesson open(AssetManager assets, int lesson) throws IOException {
+            AssetFileDescriptor afd = assets.openFd(LessonBundle.assetPath(lesson));
+            try {
+                // Not closed: that would close the descriptor the asset owns
+                FileChannel channel = new FileInputStream(afd.getFileDescriptor()).getChannel();
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), afd.getLength());
+                LessonBundle table = LessonBundle.readFrom(new BufferedInputStream(
+                        Channels.newInputStream(channel.position(afd.getStartOffset()))));
+                return new OpenLesson(afd, table, mapped);
+            } catch (IOException | RuntimeException e) {
+                afd.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                afd.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close lesson bundle", e);
+            }
+        }
+    }
+}
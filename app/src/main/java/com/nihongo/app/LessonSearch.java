@@ -0,0 +1,74 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.nihongo.core.search.SearchIndex;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lesson search index that :app:generateSearchIndex bundles, read once per
+ * process on a background thread and then queried on the main thread only.
+ */
+final class LessonSearch {
+
+    interface Callback {
+        /** Called on the main thread; {@code index} is null if it could not be read. */
+        void onLoaded(SearchIndex index);
+    }
+
+    private static final String TAG = "LessonSearch";
+
+    // Main thread only
+    private static SearchIndex index;
+    private static boolean loading;
+    private static final List<Callback> waiting = new ArrayList<>();
+
+    private LessonSearch() {}
+
+    /** Hands the index to {@code callback}, right away if it is loaded already. */
+    static void load(Context context, Callback callback) {
+        if (index != null) {
+            callback.onLoaded(index);
+            return;
+        }
+        waiting.add(callback);
+        if (loading) {
+            return;
+        }
+        loading = true;
+        AssetManager assets = context.getApplicationContext().getAssets();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        new Thread(() -> {
+            SearchIndex loaded = read(assets);
+            mainHandler.post(() -> {
+                loading = false;
+                index = loaded;
+                for (Callback waiter : waiting) {
+                    waiter.onLoaded(loaded);
+                }
+                waiting.clear();
+            });
+        }, TAG).start();
+    }
+
+    /** Forgets a callback whose screen went away before the index was loaded. */
+    static void cancel(Callback callback) {
+        waiting.remove(callback);
+    }
+
+    private static SearchIndex read(AssetManager assets) {
+        try (InputStream in = new BufferedInputStream(assets.open(SearchIndex.LESSONS_ASSET))) {
+            return SearchIndex.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "No lesson search index", e);
+            return null;
+        }
+    }
+}
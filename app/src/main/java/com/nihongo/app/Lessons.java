@@ -0,0 +1,35 @@
+package com.nihongo.app;
+
+import com.nihongo.core.LessonCatalog;
+
+/**
+ * The catalog of lessons: the bundled ones, generated from assets/audio at build
+ * time, plus whatever {@link UserLibrary} has found in the user's lesson folders.
+ */
+final class Lessons {
+
+    private static final LessonCatalog BUNDLED = new LessonCatalog(LessonCatalogData.FILES);
+
+    private static volatile LessonCatalog catalog = BUNDLED;
+
+    private Lessons() {}
+
+    static LessonCatalog catalog() {
+        return catalog;
+    }
+
+    /** Only the bundled lessons, which user tracks are added to. */
+    static LessonCatalog bundled() {
+        return BUNDLED;
+    }
+
+    /** Called by {@link UserLibrary} on the main thread; bundled tracks stay the same instances. */
+    static void setCatalog(LessonCatalog updated) {
+        catalog = updated;
+    }
+
+    /** The lesson's Japanese title from src/main/lesson-titles.tsv, or null if it has none. */
+    static String title(int lesson) {
+        return lesson >= 1 && lesson <= LessonCatalogData.TITLES.length ? LessonCatalogData.TITLES[lesson - 1] : null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.nihongo.app;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.FrameMetrics;
+import android.view.Window;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Times the frames drawn while a list scrolls, into {@link Metrics#LIST_FRAME}.
+ * Frames longer than one refresh interval count as janky. The metrics come from
+ * the platform's {@link FrameMetrics}, delivered on a background thread.
+ */
+final class ListFrameTimer extends RecyclerView.OnScrollListener implements Window.OnFrameMetricsAvailableListener {
+
+    private static Handler handler;
+
+    private final long frameNanos;
+    private volatile boolean scrolling;
+
+    private ListFrameTimer(Activity activity) {
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        frameNanos = (long) (1_000_000_000L / Math.max(refreshRate, 1f));
+    }
+
+    /** Times {@code list} for as long as {@code activity}'s window exists. */
+    static void attach(Activity activity, RecyclerView list) {
+        ListFrameTimer timer = new ListFrameTimer(activity);
+        list.addOnScrollListener(timer);
+        activity.getWindow().addOnFrameMetricsAvailableListener(timer, handler());
+    }
+
+    private static synchronized Handler handler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("ListFrameTimer", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        scrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        if (!scrolling) {
+            return;
+        }
+        long total = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        Metrics.record(Metrics.LIST_FRAME, total / 1000);
+        if (total > frameNanos) {
+            Metrics.increment(Metrics.JANKY_LIST_FRAMES);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.history.LessonProgress;
+import com.nihongo.core.history.ListeningEvent;
+import com.nihongo.core.history.ListeningHistory;
+import com.nihongo.core.history.ListeningJournal;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records listening history to a {@link ListeningJournal} without touching disk on
+ * the calling thread. Events are queued and written in batches by a background
+ * thread a few seconds later; consecutive position checkpoints collapse into the
+ * latest one. The journal is replayed once at startup and compacted whenever it
+ * grows past a few KB, so that replay stays short.
+ *
+ * <p>Alongside it, per-lesson {@link LessonProgress} is updated as each track
+ * completes and saved with the next batch, so the lesson list never has to
+ * count the history.
+ */
+final class ListeningLog {
+
+    interface ResumeCallback {
+        /** Called on the main thread; {@code resume} is null if nothing was played yet. */
+        void onResumePointLoaded(ListeningHistory.ResumePoint resume);
+    }
+
+    interface ProgressCallback {
+        /** Called on the main thread with counters for the current catalog. */
+        void onProgressLoaded(LessonProgress.Counts counts);
+    }
+
+    private static final String TAG = "ListeningLog";
+    private static final String FILE_NAME = "listening.journal";
+    private static final String PROGRESS_FILE_NAME = "progress.bin";
+    private static final long FLUSH_DELAY_MS = 3000;
+    private static final long COMPACT_BYTES = 16 * 1024;
+
+    private static ListeningLog instance;
+
+    private final ListeningJournal journal;
+    private final File progressFile;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    // Guarded by pending
+    private final List<ListeningEvent> pending = new ArrayList<>();
+    private boolean flushScheduled;
+
+    // Background thread only
+    private ListeningHistory history;
+    private LessonProgress progress;
+    private boolean progressChanged;
+
+    private volatile ListeningHistory.ResumePoint resumePoint;
+    private volatile LessonProgress.Counts counts;
+    // The catalog counts were made for
+    private volatile LessonCatalog countsCatalog;
+    private volatile boolean loaded;
+
+    static synchronized ListeningLog get(Context context) {
+        if (instance == null) {
+            instance = new ListeningLog(context.getApplicationContext().getFilesDir());
+        }
+        return instance;
+    }
+
+    private ListeningLog(File dir) {
+        journal = new ListeningJournal(new File(dir, FILE_NAME));
+        progressFile = new File(dir, PROGRESS_FILE_NAME);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(this::load);
+    }
+
+    void trackStarted(String path) {
+        enqueue(ListeningEvent.started(path, System.currentTimeMillis()));
+    }
+
+    void checkpoint(int positionMs) {
+        enqueue(ListeningEvent.position(positionMs, System.currentTimeMillis()));
+    }
+
+    /** Records a track heard to the end; {@code durationMs} counts towards the time listened. */
+    void trackCompleted(String path, int durationMs) {
+        enqueue(ListeningEvent.completed(path, System.currentTimeMillis()));
+        // Counted right away so the lesson list is current; saved with the batch
+        handler.post(() -> {
+            currentProgress().complete(path, durationMs);
+            progressChanged = true;
+            publish();
+        });
+    }
+
+    /** Writes queued events now rather than after the batching delay, e.g. on pause. */
+    void flushNow() {
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            handler.removeCallbacks(flushTask);
+            flushScheduled = true;
+        }
+        handler.post(flushTask);
+    }
+
+    /**
+     * Delivers the resume point as of the last write, waiting for the startup replay
+     * if it is still running.
+     */
+    void loadResumePoint(ResumeCallback callback) {
+        if (loaded) {
+            callback.onResumePointLoaded(resumePoint);
+            return;
+        }
+        handler.post(() -> {
+            ListeningHistory.ResumePoint resume = resumePoint;
+            mainHandler.post(() -> callback.onResumePointLoaded(resume));
+        });
+    }
+
+    /**
+     * Delivers the lesson counters as of the last completed track, carried over to
+     * the current catalog if lesson folders changed it.
+     */
+    void loadProgress(ProgressCallback callback) {
+        if (loaded && countsCatalog == Lessons.catalog()) {
+            callback.onProgressLoaded(counts);
+            return;
+        }
+        handler.post(() -> {
+            currentProgress();
+            publish();
+            LessonProgress.Counts current = counts;
+            mainHandler.post(() -> callback.onProgressLoaded(current));
+        });
+    }
+
+    private void enqueue(ListeningEvent event) {
+        synchronized (pending) {
+            int last = pending.size() - 1;
+            if (event.type == ListeningEvent.POSITION && last >= 0
+                    && pending.get(last).type == ListeningEvent.POSITION) {
+                pending.set(last, event);
+            } else {
+                pending.add(event);
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                handler.postDelayed(flushTask, FLUSH_DELAY_MS);
+            }
+        }
+    }
+
+    private void load() {
+        try {
+            history = journal.load();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read listening history", e);
+            history = new ListeningHistory();
+        }
+        progress = readProgress();
+        publish();
+        loaded = true;
+    }
+
+    private LessonProgress readProgress() {
+        LessonCatalog catalog = Lessons.catalog();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(progressFile))) {
+            return LessonProgress.readFrom(in, catalog, history);
+        } catch (FileNotFoundException e) {
+            // First launch with progress: everything completed so far is in the history
+            progressChanged = true;
+            return LessonProgress.fromHistory(catalog, history);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read lesson progress", e);
+            progressChanged = true;
+            return LessonProgress.fromHistory(catalog, history);
+        }
+    }
+
+    private LessonProgress currentProgress() {
+        LessonCatalog catalog = Lessons.catalog();
+        if (progress.getCatalog() != catalog) {
+            // Rebuilt from the history: tracks the old catalog lacked, such as user
+            // lessons published after the progress was loaded, keep their completion
+            progress = progress.forCatalog(catalog, history);
+            progressChanged = true;
+        }
+        return progress;
+    }
+
+    private void flush() {
+        List<ListeningEvent> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (ListeningEvent event : batch) {
+            history.apply(event);
+        }
+        publish();
+        try {
+            journal.append(batch);
+            if (journal.size() > COMPACT_BYTES) {
+                journal.compact(history);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write listening history", e);
+        }
+        if (progressChanged) {
+            progressChanged = false;
+            writeProgress();
+        }
+    }
+
+    private void writeProgress() {
+        File temp = new File(progressFile.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            OutputStream out = new BufferedOutputStream(stream);
+            progress.writeTo(out);
+            out.flush();
+            // Synced first, or a crash just after the rename can leave the counters empty
+            stream.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temp, e);
+            return;
+        }
+        // Replaced in one step, so a crash mid-write leaves the old counters
+        if (!temp.renameTo(progressFile)) {
+            Log.w(TAG, "Could not replace " + progressFile);
+        }
+    }
+
+    private void publish() {
+        resumePoint = history.getResumePoint();
+        countsCatalog = progress.getCatalog();
+        counts = progress.counts();
+    }
+}
@@ -1,143 +1,378 @@
 package com.nihongo.app;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.EditText;
 import android.widget.TextView;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.Track;
+import com.nihongo.core.history.LessonProgress;
+import com.nihongo.core.history.ListeningHistory;
+import com.nihongo.core.search.SearchIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String FAHIM_FB = "https://www.facebook.com/fahimahamed4";
     private static final String FAHAD_FB = "https://www.facebook.com/fahadahamed4";
 
-    // Japanese lesson titles for Minna no Nihongo (みんなの日本語)
-    // Official lesson titles from the textbook - All 50 lessons
-    private static final String[] LESSON_TITLES_JP = {
-        "はじめまして",                    // Lesson 1: Nice to meet you
-        "これは何ですか",                  // Lesson 2: What is this?
-        "ここはデパートです",              // Lesson 3: This is a department store
-        "今何時ですか",                    // Lesson 4: What time is it?
-        "甲子園へ行きますか",              // Lesson 5: Do you go to Koshien?
-        "いっしょに行きませんか",          // Lesson 6: Won't you go together?
-        "いらっしゃいませ",                // Lesson 7: Welcome
-        "そろそろ失礼します",              // Lesson 8: I should be leaving
-        "残念ですが",                      // Lesson 9: Unfortunately...
-        "あります",                        // Lesson 10: There is/are
-        "いくつありますか",                // Lesson 11: How many are there?
-        "お祭りはどうでしたか",            // Lesson 12: How was the festival?
-        "別々にお願いします",              // Lesson 13: Separately please
-        "みどり町までお願いします",        // Lesson 14: To Midori town please
-        "ご家族は",                        // Lesson 15: Your family?
-        "使い方を教えてください",          // Lesson 16: Please teach me how to use
-        "どうしましたか",                  // Lesson 17: What happened?
-        "趣味は何ですか",                  // Lesson 18: What are your hobbies?
-        "ダイエットは明日から",            // Lesson 19: Diet starts tomorrow
-        "夏休みはどうでしたか",            // Lesson 20: How was summer vacation?
-        "わたしもそう思います",            // Lesson 21: I think so too
-        "どんなアパートがいいですか",      // Lesson 22: What kind of apartment?
-        "どうやって行きますか",            // Lesson 23: How do you get there?
-        "手伝ってくれませんか",            // Lesson 24: Would you help me?
-        "いろいろお世話になりました",      // Lesson 25: Thank you for everything
-        "どこかで会ったことが",            // Lesson 26: Have we met somewhere?
-        "何でも相談してください",          // Lesson 27: Please consult me
-        "最近どうですか",                  // Lesson 28: How are things lately?
-        "夢がかなう",                      // Lesson 29: Dreams come true
-        "せっかくですから",                // Lesson 30: Since we've come this far
-        "このごろすごく元気ですね",        // Lesson 31: You're very energetic lately
-        "味はどうですか",                  // Lesson 32: How's the taste?
-        "何をしているんですか",            // Lesson 33: What are you doing?
-        "旅行はいかがでしたか",            // Lesson 34: How was your trip?
-        "とにかく急いで",                  // Lesson 35: Anyway, hurry!
-        "地震です",                        // Lesson 36: It's an earthquake!
-        "いつできますか",                  // Lesson 37: When will it be ready?
-        "直しておいてください",            // Lesson 38: Please fix it
-        "残業で遅くなりました",            // Lesson 39: Late due to overtime
-        "サービスはいかがですか",          // Lesson 40: How about the service?
-        "とてもきれいですね",              // Lesson 41: It's very beautiful
-        "いただいた荷物",                  // Lesson 42: The package I received
-        "お元気で",                        // Lesson 43: Take care
-        "ニュースを見ましたか",            // Lesson 44: Did you watch the news?
-        "ぶつかったらどうしますか",        // Lesson 45: What if we collide?
-        "来てください",                    // Lesson 46: Please come
-        "女の人はどなたですか",            // Lesson 47: Who is the woman?
-        "やりがいがあります",              // Lesson 48: It's rewarding
-        "帰りたいですね",                  // Lesson 49: I want to go home
-        "心から感謝します"                 // Lesson 50: Grateful from the heart
+    private TextView continueView;
+    private TextView listeningTotalView;
+    private MetricsOverlay metricsOverlay;
+    private EditText searchView;
+    private LessonAdapter adapter;
+    private SearchIndex searchIndex;
+    private final LessonSearch.Callback onSearchLoaded = index -> {
+        searchIndex = index;
+        filterLessons(searchView.getText());
     };
-
-    private static final int LESSON_COUNT = 50;
+    // User folders can add lessons after the bundled ones
+    private final Runnable onCatalogChanged = () -> {
+        adapter.setLessonCount(Lessons.catalog().getLessonCount());
+        filterLessons(searchView.getText());
+        ListeningLog.get(this).loadProgress(this::showProgress);
+    };
+    private final ActivityResultLauncher<Uri> pickFolder = registerForActivityResult(
+            new ActivityResultContracts.OpenDocumentTree(), tree -> {
+                if (tree != null) {
+                    UserLibrary.get(this).addTree(tree);
+                }
+            });
+    // Playback works either way; without it the media notification is just not shown
+    private final ActivityResultLauncher<String> requestNotifications = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(), granted -> {});
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        Metrics.beginSection("MainActivity.onCreate");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        Metrics.onFirstScreen(findViewById(android.R.id.content), savedInstanceState != null);
 
         RecyclerView recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setHasFixedSize(true);
-        recyclerView.setAdapter(new LessonAdapter());
+        adapter = new LessonAdapter();
+        recyclerView.setAdapter(adapter);
+        ListFrameTimer.attach(this, recyclerView);
+
+        continueView = findViewById(R.id.continueListening);
+        listeningTotalView = findViewById(R.id.listeningTotal);
+        searchView = findViewById(R.id.searchLessons);
+        searchView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filterLessons(s);
+            }
+        });
+        // Read off the main thread; typing before it is there filters once it arrives
+        LessonSearch.load(this, onSearchLoaded);
+        UserLibrary library = UserLibrary.get(this);
+        library.addListener(onCatalogChanged);
+        library.refresh();
+        findViewById(R.id.addFolder).setOnClickListener(v -> pickFolder.launch(null));
         
         // Developer click listeners
         findViewById(R.id.devFahim).setOnClickListener(v -> openUrl(FAHIM_FB));
         findViewById(R.id.devFahad).setOnClickListener(v -> openUrl(FAHAD_FB));
+
+        if (MetricsOverlay.isAvailable(this)) {
+            findViewById(R.id.header).setOnLongClickListener(v -> {
+                toggleMetricsOverlay();
+                return true;
+            });
+        }
+        if (savedInstanceState == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestNotifications.launch(Manifest.permission.POST_NOTIFICATIONS);
+        }
+        Metrics.endSection();
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        ListeningLog log = ListeningLog.get(this);
+        log.loadResumePoint(this::showResumePoint);
+        log.loadProgress(this::showProgress);
+    }
+
+    @Override
+    protected void onDestroy() {
+        LessonSearch.cancel(onSearchLoaded);
+        UserLibrary.get(this).removeListener(onCatalogChanged);
+        if (metricsOverlay != null) {
+            metricsOverlay.dismiss();
+        }
+        super.onDestroy();
+    }
+
+    private void toggleMetricsOverlay() {
+        if (metricsOverlay == null) {
+            metricsOverlay = MetricsOverlay.show(this);
+        } else {
+            metricsOverlay.dismiss();
+            metricsOverlay = null;
+        }
+    }
+
+    private void filterLessons(CharSequence query) {
+        if (query.length() == 0 || searchIndex == null) {
+            adapter.showAll();
+        } else {
+            adapter.show(searchIndex, query);
+        }
+    }
+
+    private void showResumePoint(ListeningHistory.ResumePoint resume) {
+        LessonCatalog catalog = Lessons.catalog();
+        Track track = resume != null ? catalog.findTrack(resume.path) : null;
+        int positionMs = 0;
+        if (track != null) {
+            if (resume.completed) {
+                // Finished last time: continue with whatever comes after it
+                track = catalog.trackAfter(track, true);
+            } else {
+                positionMs = resume.positionMs;
+            }
+        }
+        if (isFinishing() || track == null) {
+            continueView.setVisibility(View.GONE);
+            return;
+        }
+        Track target = track;
+        int startMs = positionMs;
+        continueView.setText(getString(R.string.continue_format,
+                getString(R.string.lesson_format, target.lesson), target.playerTitle));
+        continueView.setVisibility(View.VISIBLE);
+        continueView.setOnClickListener(v -> {
+            Metrics.start(Metrics.TAP_TO_AUDIO);
+            Intent intent = new Intent(MainActivity.this, PlayerActivity.class);
+            intent.putExtra(PlayerActivity.EXTRA_TRACK, target.path);
+            intent.putExtra(PlayerActivity.EXTRA_POSITION, startMs);
+            startActivity(intent);
+        });
+    }
+
+    private void showProgress(LessonProgress.Counts counts) {
+        if (isFinishing()) {
+            return;
+        }
+        adapter.setProgress(counts);
+        if (counts.getListenedMs() <= 0) {
+            listeningTotalView.setVisibility(View.GONE);
+            return;
+        }
+        listeningTotalView.setText(getString(R.string.listened_format,
+                formatListened(counts.getListenedMs()), counts.getTotalCompleted()));
+        listeningTotalView.setVisibility(View.VISIBLE);
+    }
+
+    private static String formatListened(long ms) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(ms);
+        return minutes < 60 ? minutes + " min" : minutes / 60 + " h " + minutes % 60 + " min";
+    }
+
     private void openUrl(String url) {
         Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
         startActivity(intent);
     }
 
-    private class LessonAdapter extends RecyclerView.Adapter<LessonAdapter.LessonViewHolder> {
+    // A row shows nothing but its lesson, so the number is both identity and content
+    private static final DiffUtil.ItemCallback<Integer> SAME_LESSON = new DiffUtil.ItemCallback<Integer>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Integer oldItem, @NonNull Integer newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Integer oldItem, @NonNull Integer newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private String lessonTitle(int lessonNum) {
+        return getString(R.string.lesson_format, lessonNum);
+    }
+
+    private static String lessonSubtitle(int lessonNum) {
+        String title = Lessons.title(lessonNum);
+        return title != null ? title : "Lesson " + lessonNum;
+    }
+
+    private class LessonAdapter extends ListAdapter<Integer, LessonAdapter.LessonViewHolder> {
+
+        // Rebinds just the progress badge of a row
+        private final Object payloadProgress = new Object();
+
+        private List<Integer> allLessons = new ArrayList<>();
+        // lessonNumbers[lesson - 1] and so on, made once per lesson count so binding makes nothing
+        private String[] lessonNumbers = new String[0];
+        private String[] lessonTitles = new String[0];
+        private String[] lessonSubtitles = new String[0];
+        // badges[lesson - 1], made once per progress update; null hides the badge
+        private String[] badges = new String[0];
+        // Search results, reused by every query
+        private int[] results = new int[0];
+        // Measured for the first row's text views, once there is one
+        private PrecomputedTitles titles;
+        private PrecomputedTitles subtitles;
+
+        LessonAdapter() {
+            super(SAME_LESSON);
+            setHasStableIds(true);
+            setLessonCount(Lessons.catalog().getLessonCount());
+        }
+
+        void setLessonCount(int count) {
+            if (count == allLessons.size()) {
+                return;
+            }
+            // A new list, so that DiffUtil sees the rows that were added
+            List<Integer> lessons = new ArrayList<>(count);
+            String[] numberTexts = new String[count];
+            String[] titleTexts = new String[count];
+            String[] subtitleTexts = new String[count];
+            for (int i = 1; i <= count; i++) {
+                lessons.add(i);
+                numberTexts[i - 1] = String.valueOf(i);
+                titleTexts[i - 1] = lessonTitle(i);
+                subtitleTexts[i - 1] = lessonSubtitle(i);
+            }
+            allLessons = lessons;
+            lessonNumbers = numberTexts;
+            lessonTitles = titleTexts;
+            lessonSubtitles = subtitleTexts;
+            if (titles != null) {
+                titles.precompute(lessonTitles);
+                subtitles.precompute(lessonSubtitles);
+            }
+            showAll();
+        }
+
+        void showAll() {
+            submitList(allLessons);
+        }
+
+        void setProgress(LessonProgress.Counts counts) {
+            String[] updated = new String[Lessons.catalog().getLessonCount()];
+            for (int lesson = 1; lesson <= updated.length; lesson++) {
+                int completed = counts.getCompleted(lesson);
+                int tracks = counts.getTracks(lesson);
+                if (completed > 0) {
+                    updated[lesson - 1] = getString(completed == tracks
+                            ? R.string.lesson_done_format : R.string.lesson_progress_format, completed, tracks);
+                }
+            }
+            badges = updated;
+            notifyItemRangeChanged(0, getItemCount(), payloadProgress);
+        }
+
+        void show(SearchIndex index, CharSequence query) {
+            if (results.length < index.size()) {
+                results = new int[index.size()];
+            }
+            int count = index.search(query, results);
+            List<Integer> shown = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                shown.add(results[i]);
+            }
+            submitList(shown);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position);
+        }
 
         @NonNull
         @Override
         public LessonViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.item_lesson, parent, false);
-            return new LessonViewHolder(view);
+            LessonViewHolder holder = new LessonViewHolder(view);
+            view.setOnClickListener(v -> {
+                int position = holder.getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                int lessonNum = getItem(position);
+                Metrics.start(Metrics.LESSON_OPEN);
+                Intent intent = new Intent(MainActivity.this, AudioListActivity.class);
+                intent.putExtra("lesson", lessonNum);
+                startActivity(intent);
+            });
+            if (titles == null) {
+                titles = new PrecomputedTitles(holder.titleView);
+                subtitles = new PrecomputedTitles(holder.subtitleView);
+                // Rows on the first screen bind plain text; the rest are measured before they scroll in
+                titles.precompute(lessonTitles);
+                subtitles.precompute(lessonSubtitles);
+            }
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(@NonNull LessonViewHolder holder, int position) {
-            int lessonNum = position + 1;
-            holder.numView.setText(String.valueOf(lessonNum));
-            holder.titleView.setText(getString(R.string.lesson_format, lessonNum));
-            
-            if (position < LESSON_TITLES_JP.length) {
-                holder.subtitleView.setText(LESSON_TITLES_JP[position]);
+            int lessonNum = getItem(position);
+            holder.numView.setText(lessonNumbers[lessonNum - 1]);
+            titles.bind(holder.titleView, lessonNum - 1);
+            subtitles.bind(holder.subtitleView, lessonNum - 1);
+            bindProgress(holder, lessonNum);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull LessonViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
             } else {
-                holder.subtitleView.setText("Lesson " + lessonNum);
+                bindProgress(holder, getItem(position));
             }
-            
-            holder.itemView.setOnClickListener(v -> {
-                Intent intent = new Intent(MainActivity.this, AudioListActivity.class);
-                intent.putExtra("lesson", lessonNum);
-                startActivity(intent);
-            });
         }
 
-        @Override
-        public int getItemCount() {
-            return LESSON_COUNT;
+        private void bindProgress(LessonViewHolder holder, int lessonNum) {
+            String badge = lessonNum <= badges.length ? badges[lessonNum - 1] : null;
+            holder.progressView.setText(badge);
+            holder.progressView.setVisibility(badge != null ? View.VISIBLE : View.GONE);
         }
 
         class LessonViewHolder extends RecyclerView.ViewHolder {
             final TextView numView;
             final TextView titleView;
             final TextView subtitleView;
+            final TextView progressView;
 
             LessonViewHolder(@NonNull View itemView) {
                 super(itemView);
                 numView = itemView.findViewById(R.id.lessonNumber);
                 titleView = itemView.findViewById(R.id.lessonTitle);
                 subtitleView = itemView.findViewById(R.id.lessonSubtitle);
+                progressView = itemView.findViewById(R.id.lessonProgress);
             }
         }
     }
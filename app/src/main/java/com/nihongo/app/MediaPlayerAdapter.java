@@ -0,0 +1,145 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.audiofx.LoudnessEnhancer;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.SeekIndex;
+import java.io.IOException;
+
+/**
+ * {@link AudioPlayer} backed by a platform MediaPlayer. Create it on the engine's
+ * worker thread so that MediaPlayer delivers its callbacks to that thread's looper.
+ * Each track plays at its {@link TrackGains} gain: cuts through the player's volume,
+ * boosts through a {@link LoudnessEnhancer}, whose limiter keeps peaks in range.
+ */
+final class MediaPlayerAdapter implements AudioPlayer {
+
+    private static final String TAG = "MediaPlayerAdapter";
+
+    private final Context context;
+    private final AssetManager assets;
+    private final MediaPlayer mediaPlayer = new MediaPlayer();
+    private SeekIndex seekIndex;
+    // Created for the first track that needs a boost; stays on the player's audio session
+    private LoudnessEnhancer enhancer;
+
+    MediaPlayerAdapter(Context context, Callback callback) {
+        this.context = context;
+        this.assets = context.getAssets();
+        // MediaPlayer holds this wake lock only while it is actually playing
+        mediaPlayer.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
+        mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build());
+        mediaPlayer.setOnPreparedListener(mp -> callback.onPrepared(this));
+        mediaPlayer.setOnCompletionListener(mp -> callback.onCompletion(this));
+        mediaPlayer.setOnSeekCompleteListener(mp -> callback.onSeekComplete(this));
+        mediaPlayer.setOnInfoListener((mp, what, extra) -> {
+            if (what == MediaPlayer.MEDIA_INFO_STARTED_AS_NEXT) {
+                callback.onStartedAsNext(this);
+                return true;
+            }
+            return false;
+        });
+        mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+            callback.onError(this, what, extra);
+            return true;
+        });
+    }
+
+    @Override
+    public void setDataSource(Track track) throws IOException {
+        try (AssetFileDescriptor afd = TrackFiles.openFd(context, track)) {
+            mediaPlayer.setDataSource(afd);
+        }
+        seekIndex = SeekIndexes.open(assets, track);
+        applyGain(TrackGains.gainDb(assets, track));
+    }
+
+    private void applyGain(double gainDb) {
+        float volume = gainDb < 0 ? (float) Math.pow(10, gainDb / 20) : 1f;
+        mediaPlayer.setVolume(volume, volume);
+        if (gainDb <= 0 && enhancer == null) {
+            return;
+        }
+        try {
+            if (enhancer == null) {
+                enhancer = new LoudnessEnhancer(mediaPlayer.getAudioSessionId());
+            }
+            enhancer.setTargetGain(gainDb > 0 ? (int) Math.round(gainDb * 100) : 0);
+            enhancer.setEnabled(gainDb > 0);
+        } catch (RuntimeException e) {
+            // Not every device has the effect; the track then plays at its recorded level
+            Log.w(TAG, "Could not boost by " + gainDb + " dB", e);
+        }
+    }
+
+    @Override
+    public void prepareAsync() {
+        mediaPlayer.prepareAsync();
+    }
+
+    @Override
+    public void start() {
+        mediaPlayer.start();
+    }
+
+    @Override
+    public void pause() {
+        mediaPlayer.pause();
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        // Aim at a frame boundary, and have the player decode up to it rather than
+        // stopping at the nearest point of the VBR table of contents
+        int target = seekIndex != null ? seekIndex.snapMs(positionMs) : positionMs;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            mediaPlayer.seekTo(target, MediaPlayer.SEEK_CLOSEST);
+        } else {
+            mediaPlayer.seekTo(target);
+        }
+    }
+
+    @Override
+    public void setNext(AudioPlayer next) {
+        mediaPlayer.setNextMediaPlayer(next != null ? ((MediaPlayerAdapter) next).mediaPlayer : null);
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer.isPlaying();
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return mediaPlayer.getCurrentPosition();
+    }
+
+    @Override
+    public int getDuration() {
+        return mediaPlayer.getDuration();
+    }
+
+    @Override
+    public void reset() {
+        mediaPlayer.reset();
+        seekIndex = null;
+    }
+
+    @Override
+    public void release() {
+        if (enhancer != null) {
+            enhancer.release();
+        }
+        mediaPlayer.release();
+    }
+}
@@ -0,0 +1,123 @@
+package com.nihongo.app;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import com.nihongo.core.metrics.MetricsRecorder;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Latencies the user feels, recorded in every build: cold start, opening a lesson,
+ * tapping a track until it plays, the gap between one track and the next, and
+ * frame times while scrolling. The matching code runs inside {@link Trace}
+ * sections, so a system trace shows where the time went; the numbers here say how
+ * often it happens.
+ */
+final class Metrics {
+
+    /** Process start to the first frame of the lesson list. */
+    static final int COLD_START = 0;
+    /** Lesson tap to the first frame of its track list. */
+    static final int LESSON_OPEN = 1;
+    /** Play request, from any screen, to the track reported started. */
+    static final int TAP_TO_AUDIO = 2;
+    /** End of one track to the start of the next when playing on. */
+    static final int TRACK_TRANSITION = 3;
+    /** Frame time while the lesson or track list scrolls; see {@link ListFrameTimer}. */
+    static final int LIST_FRAME = 4;
+
+    static final int TRACKS_STARTED = 0;
+    static final int TRACK_ERRORS = 1;
+    static final int JANKY_LIST_FRAMES = 2;
+
+    private static final MetricsRecorder recorder = new MetricsRecorder(
+            new String[] {"cold_start", "lesson_open", "tap_to_audio", "track_transition", "list_frame"},
+            new String[] {"tracks_started", "track_errors", "janky_list_frames"});
+    private static boolean coldStartSeen;
+
+    private Metrics() {}
+
+    static MetricsRecorder recorder() {
+        return recorder;
+    }
+
+    static void start(int metric) {
+        recorder.start(metric, System.nanoTime());
+    }
+
+    static void startIfIdle(int metric) {
+        recorder.startIfIdle(metric, System.nanoTime());
+    }
+
+    static void stop(int metric) {
+        recorder.stop(metric, System.nanoTime());
+    }
+
+    static void cancel(int metric) {
+        recorder.cancel(metric);
+    }
+
+    static void record(int metric, long micros) {
+        recorder.record(metric, micros);
+    }
+
+    static void increment(int counter) {
+        recorder.increment(counter);
+    }
+
+    static void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    static void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * Records the time since the process started, at the first frame of the first
+     * screen created from scratch; later screens and recreated ones are warm starts.
+     */
+    static void onFirstScreen(View content, boolean recreated) {
+        if (coldStartSeen) {
+            return;
+        }
+        coldStartSeen = true;
+        if (!recreated) {
+            whenDrawn(content, () -> recorder.record(COLD_START,
+                    (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1000));
+        }
+    }
+
+    /** Runs {@code action} on the main thread right after {@code view} first draws. */
+    static void whenDrawn(View view, Runnable action) {
+        view.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                ViewTreeObserver.OnDrawListener self = this;
+                // Listeners cannot be removed while the tree is dispatching to them
+                view.post(() -> {
+                    view.getViewTreeObserver().removeOnDrawListener(self);
+                    action.run();
+                });
+            }
+        });
+    }
+
+    /** Writes the report to {@code file}, replacing what was there. */
+    static void export(File file) throws IOException {
+        try (Writer out = new FileWriter(file)) {
+            recorder.writeReport(out);
+        }
+    }
+}
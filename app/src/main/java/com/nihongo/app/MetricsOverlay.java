@@ -0,0 +1,91 @@
+package com.nihongo.app;
+
+import android.app.Activity;
+import android.content.pm.ApplicationInfo;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * The {@link Metrics} report over the screen, refreshed every second; debuggable
+ * builds only. Long-pressing it writes the report to metrics.txt in the app's
+ * external files directory, where {@code adb pull} can reach it.
+ */
+final class MetricsOverlay {
+
+    private static final String TAG = "Metrics";
+    private static final long REFRESH_MS = 1000;
+
+    private final Activity activity;
+    private final TextView view;
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            view.setText(report());
+            view.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    private MetricsOverlay(Activity activity) {
+        this.activity = activity;
+        view = new TextView(activity);
+        view.setTextSize(TypedValue.COMPLEX_UNIT_SP, 10);
+        view.setTypeface(Typeface.MONOSPACE);
+        view.setTextColor(Color.WHITE);
+        view.setBackgroundColor(0xC0000000);
+        view.setOnLongClickListener(v -> {
+            export();
+            return true;
+        });
+    }
+
+    static boolean isAvailable(Activity activity) {
+        return (activity.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    static MetricsOverlay show(Activity activity) {
+        MetricsOverlay overlay = new MetricsOverlay(activity);
+        FrameLayout.LayoutParams params = new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM);
+        ((ViewGroup) activity.findViewById(android.R.id.content)).addView(overlay.view, params);
+        overlay.refresh.run();
+        return overlay;
+    }
+
+    void dismiss() {
+        view.removeCallbacks(refresh);
+        ((ViewGroup) view.getParent()).removeView(view);
+    }
+
+    private void export() {
+        File file = new File(activity.getExternalFilesDir(null), "metrics.txt");
+        try {
+            // A few hundred bytes; not worth a thread in a debug build
+            Metrics.export(file);
+            Toast.makeText(activity, "Metrics written to " + file, Toast.LENGTH_SHORT).show();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + file, e);
+            Toast.makeText(activity, "Could not write metrics: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private static String report() {
+        StringWriter out = new StringWriter();
+        try {
+            Metrics.recorder().writeReport(out);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+}
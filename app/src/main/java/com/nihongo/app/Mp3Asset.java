@@ -0,0 +1,129 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.Mp3HeaderParser;
+import com.nihongo.core.mp3.SeekIndex;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An MP3 asset opened for decoding frame by frame: its {@link SeekIndex}, format,
+ * and positional reads that leave the shared asset file descriptor untouched. User
+ * tracks open the same way through {@link TrackFiles}; tracks packed in a lesson
+ * bundle are read straight from its memory map instead.
+ */
+final class Mp3Asset implements Closeable {
+
+    final Track track;
+    final SeekIndex index;
+    final int sampleRate;
+    final int channels;
+
+    // Either a slice of the mapped lesson bundle, or the file and a channel on it
+    private final ByteBuffer mapped;
+    private final AssetFileDescriptor afd;
+    private final FileChannel channel;
+
+    private Mp3Asset(Track track, ByteBuffer mapped, AssetFileDescriptor afd, FileChannel channel,
+                     SeekIndex index, int sampleRate, int channels) {
+        this.track = track;
+        this.mapped = mapped;
+        this.afd = afd;
+        this.channel = channel;
+        this.index = index;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    static Mp3Asset open(Context context, Track track) throws IOException {
+        ByteBuffer mapped = LessonBundles.get(context).map(track);
+        if (mapped != null) {
+            return open(context, track, mapped, null, null, mapped.capacity());
+        }
+        AssetFileDescriptor afd = TrackFiles.openFd(context, track);
+        try {
+            FileChannel channel = new FileInputStream(afd.getFileDescriptor()).getChannel();
+            return open(context, track, null, afd, channel, afd.getLength());
+        } catch (IOException | RuntimeException e) {
+            afd.close();
+            throw e;
+        }
+    }
+
+    private static Mp3Asset open(Context context, Track track, ByteBuffer mapped, AssetFileDescriptor afd,
+                                 FileChannel channel, long length) throws IOException {
+        SeekIndex index = SeekIndexes.open(context.getAssets(), track);
+        if (index == null) {
+            // Without a bundled index the file is walked once, as the build would have
+            byte[] data = new byte[(int) length];
+            readFully(mapped, afd, channel, track, ByteBuffer.wrap(data), 0);
+            index = SeekIndex.scan(data);
+        }
+        if (index.getFrameCount() == 0) {
+            throw new IOException("No audio frames in " + track.path);
+        }
+        Mp3HeaderParser.FrameHeader header = new Mp3HeaderParser.FrameHeader();
+        ByteBuffer first = ByteBuffer.allocate(4);
+        readFully(mapped, afd, channel, track, first, index.getFrameOffset(0));
+        if (!header.decode(first.array(), 0)) {
+            throw new IOException("Seek index does not match " + track.path);
+        }
+        return new Mp3Asset(track, mapped, afd, channel, index, header.sampleRate, header.channels);
+    }
+
+    /** Total frames of PCM the whole file decodes to, at most. */
+    int getPcmFrameCapacity() {
+        return index.getFrameCount() * index.getSamplesPerFrame();
+    }
+
+    /** A started MP3 decoder for this asset's format. */
+    MediaCodec createDecoder() throws IOException {
+        MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_MPEG, sampleRate, channels);
+        MediaCodec codec = MediaCodec.createDecoderByType(MediaFormat.MIMETYPE_AUDIO_MPEG);
+        codec.configure(format, null, null, 0);
+        codec.start();
+        return codec;
+    }
+
+    /** Fills the buffer from {@code offset} in the MP3 file. */
+    void readFully(ByteBuffer buffer, long offset) throws IOException {
+        readFully(mapped, afd, channel, track, buffer, offset);
+    }
+
+    private static void readFully(ByteBuffer mapped, AssetFileDescriptor afd, FileChannel channel, Track track,
+                                  ByteBuffer buffer, long offset) throws IOException {
+        if (mapped != null) {
+            if (offset + buffer.remaining() > mapped.capacity()) {
+                throw new EOFException(track.path);
+            }
+            ByteBuffer source = mapped.duplicate();
+            source.position((int) offset);
+            source.limit((int) offset + buffer.remaining());
+            buffer.put(source);
+            return;
+        }
+        long base = afd.getStartOffset() + offset;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, base + buffer.position()) < 0) {
+                throw new EOFException(track.path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closing the channel's stream would close the descriptor the asset still owns;
+        // a mapped bundle stays open for the lesson's other tracks
+        if (afd != null) {
+            afd.close();
+        }
+    }
+}
@@ -0,0 +1,801 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.DecodeCursor;
+import com.nihongo.core.mp3.SeekIndex;
+import com.nihongo.core.pcm.LoopRenderer;
+import com.nihongo.core.pcm.PcmClip;
+import com.nihongo.core.pcm.PcmRingBuffer;
+import com.nihongo.core.pcm.TimeStretcher;
+import com.nihongo.core.pcm.VoiceClarity;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * {@link AudioPlayer} that decodes with MediaCodec and plays through an AudioTrack,
+ * so that it knows exactly which sample is playing. A decoder thread feeds frames
+ * straight from the asset, located through the track's {@link SeekIndex}, and
+ * writes PCM into a {@link PcmRingBuffer}; an output thread renders from the ring
+ * through a {@link LoopRenderer} into the AudioTrack. A/B loops are served from the
+ * renderer's history, so they repeat instantly and exactly, with an optional pause
+ * after each pass for shadowing. Last in the chain, a {@link TimeStretcher} slows
+ * down or speeds up what is rendered without changing its pitch, and the output
+ * thread can run it through a {@link VoiceClarity} chain on its way to the track.
+ *
+ * <p>Tracks found in {@link DecodedTracks} play straight from memory instead, with no
+ * decoder at all, and seek exactly to the sample; a cacheable track decoded from
+ * start to end without a seek is added to it.
+ *
+ * <p>Like {@link MediaPlayerAdapter}, create it on the engine's worker thread:
+ * callbacks are posted to that thread's looper.
+ */
+final class PcmPlayer implements AudioPlayer, AudioPlayer.Looping, AudioPlayer.Stretching,
+        AudioPlayer.Clarifying {
+
+    private static final String TAG = "PcmPlayer";
+
+    /** How far back the start of an A/B loop may lie. */
+    static final int HISTORY_MS = 30_000;
+    private static final int RING_MS = 1000;
+    private static final int CHUNK_FRAMES = 1024;
+    private static final long TIMEOUT_US = 10_000;
+    // How often a write retries while the track is full
+    private static final long WRITE_RETRY_MS = 5;
+    // The wake lock lapses on its own if a renewal is ever missed
+    private static final long WAKE_LOCK_TIMEOUT_MS = 10 * 60_000;
+    private static final long WAKE_LOCK_RENEW_MS = 5 * 60_000;
+
+    private final Context context;
+    private final AssetManager assets;
+    private final DecodedTracks decodedTracks;
+    private final Callback callback;
+    private final Handler handler = new Handler(Looper.myLooper());
+    private final PowerManager.WakeLock wakeLock;
+    private final Runnable renewWakeLock = new Runnable() {
+        @Override
+        public void run() {
+            if (isPlaying()) {
+                wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+                handler.postDelayed(this, WAKE_LOCK_RENEW_MS);
+            }
+        }
+    };
+
+    private Track track;
+    private Session session;
+    private PcmPlayer next;
+    // Read by the decoder thread when a session opens
+    private volatile float speed = 1f;
+    private volatile VoiceClarity.Settings clarity = VoiceClarity.Settings.OFF;
+
+    PcmPlayer(Context context, Callback callback) {
+        this.context = context;
+        this.assets = context.getAssets();
+        this.decodedTracks = DecodedTracks.get(context);
+        this.callback = callback;
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "nihongo:" + TAG);
+        wakeLock.setReferenceCounted(false);
+    }
+
+    @Override
+    public void setDataSource(Track track) throws IOException {
+        // Fail here rather than in prepare for a missing asset, as MediaPlayer does
+        TrackFiles.openFd(context, track).close();
+        this.track = track;
+    }
+
+    @Override
+    public void prepareAsync() {
+        if (track == null || session != null) {
+            throw new IllegalStateException("prepareAsync called in the wrong state");
+        }
+        session = new Session(track, TrackGains.gainFactor(assets, track));
+        session.decoderThread.start();
+    }
+
+    @Override
+    public void start() {
+        prepared().start();
+        holdWakeLock();
+    }
+
+    @Override
+    public void pause() {
+        prepared().pause();
+        releaseWakeLock();
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        prepared().seekTo(positionMs);
+        handler.post(() -> callback.onSeekComplete(this));
+    }
+
+    @Override
+    public void setNext(AudioPlayer next) {
+        synchronized (this) {
+            this.next = (PcmPlayer) next;
+        }
+    }
+
+    @Override
+    public boolean isPlaying() {
+        Session s = session;
+        return s != null && s.isPlaying();
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        Session s = session;
+        return s != null ? s.getPositionMs() : 0;
+    }
+
+    @Override
+    public int getDuration() {
+        Session s = session;
+        return s != null ? s.getDurationMs() : 0;
+    }
+
+    @Override
+    public boolean setLoop(int startMs, int endMs) {
+        return prepared().setLoop(startMs, endMs);
+    }
+
+    @Override
+    public void setLoopGap(int gapMs) {
+        prepared().setLoopGap(gapMs);
+    }
+
+    @Override
+    public void clearLoop() {
+        prepared().clearLoop();
+    }
+
+    @Override
+    public void setSpeed(float speed) {
+        this.speed = speed;
+        Session s = session;
+        if (s != null) {
+            s.setSpeed(speed);
+        }
+    }
+
+    @Override
+    public void setVoiceClarity(VoiceClarity.Settings settings) {
+        clarity = settings;
+        Session s = session;
+        if (s != null) {
+            s.setVoiceClarity(settings);
+        }
+    }
+
+    @Override
+    public void reset() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+        track = null;
+        synchronized (this) {
+            next = null;
+        }
+        releaseWakeLock();
+    }
+
+    @Override
+    public void release() {
+        reset();
+    }
+
+    private Session prepared() {
+        Session s = session;
+        if (s == null || !s.isPrepared()) {
+            throw new IllegalStateException("not prepared");
+        }
+        return s;
+    }
+
+    private void holdWakeLock() {
+        handler.removeCallbacks(renewWakeLock);
+        wakeLock.acquire(WAKE_LOCK_TIMEOUT_MS);
+        handler.postDelayed(renewWakeLock, WAKE_LOCK_RENEW_MS);
+    }
+
+    private void releaseWakeLock() {
+        handler.removeCallbacks(renewWakeLock);
+        wakeLock.release();
+    }
+
+    /** Runs on the worker when the last rendered frame has been played. */
+    private void onPlayedToEnd(Session finished) {
+        if (finished != session) {
+            return;
+        }
+        releaseWakeLock();
+        PcmPlayer chained;
+        synchronized (this) {
+            chained = next;
+        }
+        if (chained != null && chained.session != null && chained.session.isPrepared()) {
+            chained.start();
+            callback.onStartedAsNext(chained);
+        }
+        callback.onCompletion(this);
+    }
+
+    /** Decoder, output and their shared state for one prepared data source. */
+    private final class Session implements AudioTrack.OnPlaybackPositionUpdateListener {
+
+        final Track track;
+        // Loudness normalisation, applied to the output so cached clips stay as decoded
+        final float gain;
+        final Object lock = new Object();
+        final Thread decoderThread = new Thread(this::runDecoder, TAG + "-decoder");
+        final Thread outputThread = new Thread(this::runOutput, TAG + "-output");
+
+        // Set up by the decoder thread before prepared is published. A cached track has
+        // a clip and its reader as the source; otherwise the decoder fills the ring.
+        PcmClip clip;
+        PcmClip.Reader clipReader;
+        Mp3Asset asset;
+        SeekIndex index;
+        DecodeCursor cursor;
+        MediaCodec codec;
+        PcmRingBuffer ring;
+        LoopRenderer.Source source;
+        AudioTrack audioTrack;
+        LoopRenderer renderer;
+        TimeStretcher stretcher;
+        // Output thread only, apart from its settings
+        VoiceClarity clarity;
+        int sampleRate;
+        int channels;
+
+        // Guarded by lock
+        boolean prepared;
+        boolean closed;
+        boolean playing;
+        boolean decodeEnded;
+        // Everything decoded since the start, for the cache; dropped by a seek
+        PcmClip capture;
+        // The renderer has nothing more and the stretcher was told so
+        boolean stretchEnded;
+        // All audio is rendered and waiting to be heard; then completed once it has been
+        boolean drained;
+        boolean completed;
+        long renderedFrames;
+        // Bumped by every seek; decoded or rendered audio from an older epoch is stale
+        volatile int epoch;
+
+        Session(Track track, float gain) {
+            this.track = track;
+            this.gain = gain;
+        }
+
+        // ---- Worker thread ----
+
+        boolean isPrepared() {
+            synchronized (lock) {
+                return prepared;
+            }
+        }
+
+        boolean isPlaying() {
+            synchronized (lock) {
+                return playing;
+            }
+        }
+
+        void start() {
+            synchronized (lock) {
+                if (completed) {
+                    // Like MediaPlayer, starting again after the end plays from the top
+                    restartAt(0);
+                }
+                playing = true;
+                lock.notifyAll();
+            }
+            audioTrack.play();
+        }
+
+        void pause() {
+            synchronized (lock) {
+                playing = false;
+            }
+            audioTrack.pause();
+        }
+
+        void seekTo(int positionMs) {
+            long sample = clip != null ? toFrame(positionMs) : index.getFrameStartSample(index.frameAt(positionMs));
+            synchronized (lock) {
+                restartAt(sample);
+                if (playing) {
+                    audioTrack.play();
+                }
+                lock.notifyAll();
+            }
+        }
+
+        private void restartAt(long sample) {
+            // Drop what the track still holds from before; this also zeroes its head position
+            audioTrack.pause();
+            audioTrack.flush();
+            epoch++;
+            if (clip != null) {
+                clipReader.seek(sample);
+            } else {
+                ring.clear();
+                cursor.seekToSample(sample);
+                capture = null;
+                decodeEnded = false;
+            }
+            renderer.reset(sample);
+            stretcher.reset();
+            stretchEnded = false;
+            drained = false;
+            completed = false;
+            renderedFrames = 0;
+            audioTrack.setNotificationMarkerPosition(0);
+        }
+
+        boolean setLoop(int startMs, int endMs) {
+            synchronized (lock) {
+                boolean looping = renderer.setLoop(toFrame(startMs), toFrame(endMs));
+                if (looping && drained) {
+                    // The end was already rendered: go on from the loop instead of completing
+                    drained = false;
+                    stretchEnded = false;
+                    audioTrack.setNotificationMarkerPosition(0);
+                }
+                lock.notifyAll();
+                return looping;
+            }
+        }
+
+        void setLoopGap(int gapMs) {
+            synchronized (lock) {
+                renderer.setGapFrames((int) toFrame(gapMs));
+            }
+        }
+
+        void clearLoop() {
+            synchronized (lock) {
+                renderer.clearLoop();
+                lock.notifyAll();
+            }
+        }
+
+        void setSpeed(float speed) {
+            synchronized (lock) {
+                // Before prepared the decoder thread applies the player's speed itself
+                if (prepared) {
+                    stretcher.setSpeed(speed);
+                }
+            }
+        }
+
+        void setVoiceClarity(VoiceClarity.Settings settings) {
+            synchronized (lock) {
+                // Before prepared the decoder thread applies the player's settings itself
+                if (prepared) {
+                    clarity.setSettings(settings);
+                }
+            }
+        }
+
+        int getPositionMs() {
+            synchronized (lock) {
+                if (!prepared) {
+                    return 0;
+                }
+                long played = audioTrack.getPlaybackHeadPosition() & 0xffffffffL;
+                // Output frames still in the track stand for speed times as many input frames
+                long pending = Math.max(0, renderedFrames - played);
+                long behind = stretcher.getLatencyFrames() + Math.round(pending * (double) stretcher.getSpeed());
+                return (int) (renderer.positionBefore((int) behind) * 1000 / sampleRate);
+            }
+        }
+
+        int getDurationMs() {
+            synchronized (lock) {
+                if (!prepared) {
+                    return 0;
+                }
+                return clip != null ? clip.getDurationMs() : index.getDurationMs();
+            }
+        }
+
+        void close() {
+            synchronized (lock) {
+                closed = true;
+                playing = false;
+                lock.notifyAll();
+            }
+            if (isPrepared()) {
+                audioTrack.stop();
+            }
+            joinQuietly(decoderThread);
+            joinQuietly(outputThread);
+            if (codec != null) {
+                codec.release();
+            }
+            if (audioTrack != null) {
+                audioTrack.release();
+            }
+            closeQuietly(asset);
+        }
+
+        private long toFrame(int ms) {
+            return (long) ms * sampleRate / 1000;
+        }
+
+        @Override
+        public void onMarkerReached(AudioTrack t) {
+            onPlayedOut();
+        }
+
+        private void onPlayedOut() {
+            synchronized (lock) {
+                if (closed || !drained || completed) {
+                    return;
+                }
+                completed = true;
+                playing = false;
+            }
+            audioTrack.pause();
+            onPlayedToEnd(this);
+        }
+
+        @Override
+        public void onPeriodicNotification(AudioTrack t) {}
+
+        // ---- Decoder thread ----
+
+        private void runDecoder() {
+            try {
+                open();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not prepare " + track.path, e);
+                postError(MediaPlayer.MEDIA_ERROR_IO);
+                return;
+            }
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                stretcher.setSpeed(speed);
+                clarity.setSettings(PcmPlayer.this.clarity);
+                prepared = true;
+            }
+            outputThread.start();
+            handler.post(() -> {
+                if (session == this) {
+                    callback.onPrepared(PcmPlayer.this);
+                }
+            });
+            if (clip != null) {
+                return;
+            }
+            try {
+                decode();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Decoding failed for " + track.path, e);
+                postError(MediaPlayer.MEDIA_ERROR_MALFORMED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void open() throws IOException {
+            clip = decodedTracks.get(track);
+            if (clip != null) {
+                sampleRate = clip.sampleRate;
+                channels = clip.channels;
+                clipReader = clip.reader();
+                source = clipReader;
+                // Nothing to wait for: the whole track is there
+                decodeEnded = true;
+            } else {
+                asset = Mp3Asset.open(context, track);
+                index = asset.index;
+                sampleRate = asset.sampleRate;
+                channels = asset.channels;
+                cursor = new DecodeCursor(index);
+                cursor.seekToSample(0);
+                ring = new PcmRingBuffer(sampleRate * channels * RING_MS / 1000);
+                source = ring;
+                codec = asset.createDecoder();
+                if (DecodedTracks.isCacheable(track)) {
+                    capture = new PcmClip(sampleRate, channels, asset.getPcmFrameCapacity(), true);
+                }
+            }
+            renderer = new LoopRenderer(channels, sampleRate / 1000 * HISTORY_MS);
+            stretcher = new TimeStretcher(sampleRate, channels);
+            clarity = new VoiceClarity(sampleRate, channels);
+
+            int channelMask = channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+            int minBuffer = AudioTrack.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+            audioTrack = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(sampleRate)
+                            .setChannelMask(channelMask)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .build())
+                    .setBufferSizeInBytes(minBuffer * 2)
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .build();
+            audioTrack.setPlaybackPositionUpdateListener(this, handler);
+        }
+
+        private void decode() throws IOException, InterruptedException {
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            short[] decoded = new short[0];
+            int decoderEpoch = 0;
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (true) {
+                boolean flush = false;
+                synchronized (lock) {
+                    // Everything is decoded: nothing to do until a seek or close
+                    while (!closed && outputDone && epoch == decoderEpoch) {
+                        lock.wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    if (epoch != decoderEpoch) {
+                        decoderEpoch = epoch;
+                        flush = true;
+                    }
+                }
+                if (flush) {
+                    codec.flush();
+                    inputDone = false;
+                    outputDone = false;
+                }
+
+                if (!inputDone) {
+                    inputDone = queueNextFrame(decoderEpoch);
+                }
+
+                int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (out == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    int outChannels = codec.getOutputFormat().getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    if (outChannels != channels) {
+                        throw new IOException("Decoder switched to " + outChannels + " channels");
+                    }
+                } else if (out >= 0) {
+                    ByteBuffer buffer = codec.getOutputBuffer(out);
+                    buffer.position(info.offset);
+                    buffer.limit(info.offset + info.size);
+                    ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                    int count = samples.remaining();
+                    if (decoded.length < count) {
+                        decoded = new short[count];
+                    }
+                    samples.get(decoded, 0, count);
+                    codec.releaseOutputBuffer(out, false);
+                    boolean end = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    if (write(decoded, count, decoderEpoch) && end) {
+                        outputDone = true;
+                        synchronized (lock) {
+                            if (epoch == decoderEpoch) {
+                                decodeEnded = true;
+                                if (capture != null) {
+                                    decodedTracks.put(track, capture);
+                                    capture = null;
+                                }
+                                lock.notifyAll();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /** Queues the cursor's next frame, or end of stream; returns true once input is done. */
+        private boolean queueNextFrame(int decoderEpoch) throws IOException {
+            int in = codec.dequeueInputBuffer(0);
+            if (in < 0) {
+                return false;
+            }
+            long offset;
+            int length;
+            long presentationUs;
+            synchronized (lock) {
+                if (epoch != decoderEpoch) {
+                    // The flush at the top of the loop takes the buffer back
+                    return false;
+                }
+                if (!cursor.hasNext()) {
+                    codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    return true;
+                }
+                offset = cursor.offset();
+                length = cursor.length();
+                presentationUs = cursor.presentationTimeUs();
+                cursor.advance();
+            }
+            ByteBuffer buffer = codec.getInputBuffer(in);
+            buffer.clear();
+            buffer.limit(length);
+            asset.readFully(buffer, offset);
+            codec.queueInputBuffer(in, 0, length, presentationUs, 0);
+            return false;
+        }
+
+        /** Moves decoded samples into the ring, waiting for room; false if they went stale. */
+        private boolean write(short[] samples, int count, int decoderEpoch) throws InterruptedException {
+            synchronized (lock) {
+                if (epoch != decoderEpoch) {
+                    return false;
+                }
+                // Pre-roll frames from before the seek target are decoded only to be dropped
+                int pos = cursor.trim(count / channels) * channels;
+                if (capture != null && !capture.append(samples, pos, count - pos)) {
+                    capture = null;
+                }
+                while (pos < count) {
+                    pos += ring.write(samples, pos, count - pos);
+                    lock.notifyAll();
+                    if (pos < count) {
+                        lock.wait();
+                        if (closed || epoch != decoderEpoch) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+
+        // ---- Output thread ----
+
+        private void runOutput() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+            short[] chunk = new short[CHUNK_FRAMES * channels];
+            short[] out = new short[CHUNK_FRAMES * channels];
+            try {
+                while (true) {
+                    int count;
+                    int chunkEpoch;
+                    synchronized (lock) {
+                        while (!closed && !canRender()) {
+                            lock.wait();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        int room = Math.min(chunk.length, stretcher.inputRoom());
+                        if (!stretchEnded && room > 0) {
+                            int rendered = renderer.render(source, chunk, 0, room);
+                            if (rendered > 0) {
+                                stretcher.write(chunk, 0, rendered);
+                            } else {
+                                // Decoding ended and the ring is empty: flush what the stretcher holds
+                                stretcher.endOfInput();
+                                stretchEnded = true;
+                            }
+                        }
+                        count = stretcher.read(out, 0, out.length);
+                        renderedFrames += count / channels;
+                        chunkEpoch = epoch;
+                        lock.notifyAll();
+                        if (count == 0) {
+                            if (stretchEnded) {
+                                // Complete once all is heard
+                                drained = true;
+                                if (renderedFrames > 0) {
+                                    audioTrack.setNotificationMarkerPosition((int) renderedFrames);
+                                } else {
+                                    // Nothing left to hear, e.g. after a seek to the end, and a
+                                    // marker at 0 would never fire
+                                    handler.post(this::onPlayedOut);
+                                }
+                            }
+                            continue;
+                        }
+                    }
+                    if (chunkEpoch == epoch) {
+                        if (gain != 1f) {
+                            applyGain(out, count, gain);
+                        }
+                        // After the gain, so the compressor sees every track at the same loudness
+                        clarity.process(out, 0, count);
+                        writeToTrack(out, count, chunkEpoch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Writes a chunk unless a seek has made it stale. Writes don't block, so they can
+         * run under the lock that seeks flush the track under: audio from before a seek
+         * never lands after its flush.
+         */
+        private void writeToTrack(short[] samples, int count, int chunkEpoch) throws InterruptedException {
+            synchronized (lock) {
+                int pos = 0;
+                while (!closed && epoch == chunkEpoch) {
+                    int written = audioTrack.write(samples, pos, count - pos, AudioTrack.WRITE_NON_BLOCKING);
+                    if (written < 0) {
+                        Log.w(TAG, "Write failed: " + written);
+                        return;
+                    }
+                    pos += written;
+                    if (pos == count) {
+                        return;
+                    }
+                    // The track is full: it drains while playing; start or seek wakes a paused one
+                    lock.wait(playing ? WRITE_RETRY_MS : 0);
+                }
+            }
+        }
+
+        private void applyGain(short[] samples, int count, float gain) {
+            for (int i = 0; i < count; i++) {
+                // Gains leave headroom for each track's peak; clipping here means a bad table
+                int value = Math.round(samples[i] * gain);
+                samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+
+        private boolean canRender() {
+            return playing && !drained
+                    && (renderer.isLooping() || decodeEnded || ring.available() > 0);
+        }
+
+        private void postError(int extra) {
+            handler.post(() -> {
+                if (session == this) {
+                    callback.onError(PcmPlayer.this, MediaPlayer.MEDIA_ERROR_UNKNOWN, extra);
+                }
+            });
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        if (!thread.isAlive()) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing was written through it
+        }
+    }
+}
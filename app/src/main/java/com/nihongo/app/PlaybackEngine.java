@@ -0,0 +1,561 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.VoiceClarity;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gapless, double-buffered playback running on its own worker thread.
+ *
+ * <p>Every call from the UI is posted to the worker, which owns the two players and
+ * all playback state; asset opening and preparation never run on the main thread.
+ * While one player is playing, the track that follows it (possibly the first track
+ * of the next lesson) is prepared on the other and chained with
+ * {@link AudioPlayer#setNext}, so the platform starts it the moment the current one
+ * completes. Listener callbacks are posted back to the main executor.
+ *
+ * <p>Each {@link #play} bumps a generation counter; queued or in-flight requests from
+ * an older generation are dropped, so tapping next several times quickly only
+ * prepares the final target. Seeks go through a {@link SeekCoordinator} for the same
+ * reason: a SeekBar drag is reduced to its latest position.
+ *
+ * <p>A/B loops need a player that implements {@link AudioPlayer.Looping}; a seek or
+ * a track change ends the loop. Speed changes need {@link AudioPlayer.Stretching} and
+ * voice clarity {@link AudioPlayer.Clarifying}; unlike loops, both carry over to the
+ * following tracks.
+ */
+final class PlaybackEngine {
+
+    interface TrackSequence {
+        /** Track to play after the given one, or null to stop there. */
+        Track next(Track track);
+    }
+
+    /** Called on the main executor. */
+    interface Listener {
+        void onTrackStarted(Track track, int durationMs);
+
+        void onPlayingChanged(boolean playing);
+
+        /** The track played to its end, whether or not another one follows. */
+        void onTrackCompleted(Track track);
+
+        void onSequenceFinished(Track lastTrack);
+
+        /** Answers every {@link #setLoop}, and reports a loop ended by a seek or a new track. */
+        void onLoopChanged(boolean looping);
+
+        void onError(Track track, Exception e);
+    }
+
+    private final AudioPlayer.Factory playerFactory;
+    private final TrackSequence sequence;
+    private final Listener listener;
+    private final Executor worker;
+    private final Executor main;
+    private final Runnable onReleased;
+    private final SeekCoordinator seeks;
+
+    private final AtomicInteger requestedGeneration = new AtomicInteger();
+    private volatile boolean released;
+    private volatile AudioPlayer published;
+    private volatile boolean playing;
+    private volatile long lastHandoffLatencyMs = -1;
+    private volatile boolean looping;
+    private volatile float speed = 1f;
+    private volatile VoiceClarity.Settings clarity = VoiceClarity.Settings.OFF;
+
+    // Worker-confined state
+    private AudioPlayer current;
+    private AudioPlayer next;
+    private Track currentTrack;
+    private Track preparingTrack;
+    private Track nextTrack;
+    private int preparingGeneration;
+    private int preparingStartMs;
+    // Paused while preparing: the track is prepared but not started
+    private boolean pausePending;
+    private boolean nextPreparing;
+    private boolean nextChained;
+    private long completedAtNanos;
+    private long startedAsNextAtNanos;
+
+    PlaybackEngine(AudioPlayer.Factory playerFactory, TrackSequence sequence, Listener listener,
+                   Executor worker, Executor main, Runnable onReleased) {
+        this.playerFactory = playerFactory;
+        this.sequence = sequence;
+        this.listener = listener;
+        this.worker = worker;
+        this.main = main;
+        this.onReleased = onReleased;
+        this.seeks = new SeekCoordinator(worker);
+    }
+
+    /**
+     * Creates an engine on a dedicated audio-priority HandlerThread, backed by
+     * MediaPlayer or, with {@code decodeToPcm}, by {@link PcmPlayer}, which can loop.
+     */
+    static PlaybackEngine create(Context context, boolean decodeToPcm, TrackSequence sequence, Listener listener) {
+        HandlerThread thread = new HandlerThread("PlaybackEngine", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        Handler workerHandler = new Handler(thread.getLooper());
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        AudioPlayer.Factory factory = decodeToPcm
+                ? callback -> new PcmPlayer(context, callback)
+                : callback -> new MediaPlayerAdapter(context, callback);
+        return new PlaybackEngine(factory, sequence, listener, workerHandler::post, mainHandler::post, thread::quitSafely);
+    }
+
+    // ---- Public API, callable from any thread ----
+
+    void play(Track track) {
+        play(track, 0);
+    }
+
+    /** Plays the track from the given position, e.g. to resume where the user left off. */
+    void play(Track track, int startPositionMs) {
+        final int generation = requestedGeneration.incrementAndGet();
+        worker.execute(() -> {
+            if (!released && generation == requestedGeneration.get()) {
+                startTrack(track, generation, startPositionMs);
+            }
+        });
+    }
+
+    /** Pauses the playing track; a track still preparing stays paused once prepared. */
+    void pause() {
+        worker.execute(() -> {
+            if (preparingTrack != null) {
+                pausePending = true;
+                publishPlaying(false);
+            } else if (current != null && current.isPlaying()) {
+                current.pause();
+                publishPlaying(false);
+            }
+        });
+    }
+
+    void resume() {
+        worker.execute(() -> {
+            if (preparingTrack != null) {
+                pausePending = false;
+            } else if (current != null && currentTrack != null && preparingTrack == null && !current.isPlaying()) {
+                current.start();
+                publishPlaying(true);
+            }
+        });
+    }
+
+    void seekTo(int positionMs) {
+        if (looping) {
+            // Queued ahead of the seek, so the loop is gone before the player moves
+            clearLoop();
+        }
+        seeks.request(positionMs);
+    }
+
+    /**
+     * Repeats {@code startMs..endMs} of the playing track, with {@code gapMs} of
+     * silence after each pass. The listener is told whether it took effect.
+     */
+    void setLoop(int startMs, int endMs, int gapMs) {
+        worker.execute(() -> {
+            AudioPlayer.Looping player = loopingPlayer();
+            if (player != null) {
+                // A refused loop must not leave an older one running
+                player.clearLoop();
+                player.setLoopGap(gapMs);
+            }
+            boolean started = player != null && player.setLoop(startMs, endMs);
+            looping = started;
+            main.execute(() -> {
+                if (!released) {
+                    listener.onLoopChanged(started);
+                }
+            });
+        });
+    }
+
+    void setLoopGap(int gapMs) {
+        worker.execute(() -> {
+            AudioPlayer.Looping player = loopingPlayer();
+            if (player != null) {
+                player.setLoopGap(gapMs);
+            }
+        });
+    }
+
+    void clearLoop() {
+        worker.execute(() -> {
+            AudioPlayer.Looping player = loopingPlayer();
+            if (player != null && looping) {
+                player.clearLoop();
+            }
+            endLoop();
+        });
+    }
+
+    /**
+     * Asks the sequence again for the track after the current one, after the order
+     * changed, so that it is not the old next track that plays without a gap.
+     */
+    void refreshNext() {
+        worker.execute(() -> {
+            if (!released && current != null && currentTrack != null && preparingTrack == null) {
+                cancelNext();
+                preloadNext();
+            }
+        });
+    }
+
+    /** Plays at {@code speed} times normal speed, at the same pitch, until changed again. */
+    void setSpeed(float speed) {
+        this.speed = speed;
+        worker.execute(() -> {
+            if (current != null) {
+                applySpeed(current);
+                applySpeed(next);
+            }
+        });
+    }
+
+    float getSpeed() {
+        return speed;
+    }
+
+    /** Runs all audio through a voice clarity chain with these settings, until changed again. */
+    void setVoiceClarity(VoiceClarity.Settings settings) {
+        clarity = settings;
+        worker.execute(() -> {
+            if (current != null) {
+                applyClarity(current);
+                applyClarity(next);
+            }
+        });
+    }
+
+    VoiceClarity.Settings getVoiceClarity() {
+        return clarity;
+    }
+
+    void release() {
+        released = true;
+        worker.execute(() -> {
+            // Hidden from polls first: a released player throws
+            published = null;
+            if (current != null) {
+                current.release();
+                next.release();
+                current = null;
+                next = null;
+            }
+            seeks.attach(null);
+            playing = false;
+            onReleased.run();
+        });
+    }
+
+    boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Position of the playing track; safe to poll from the UI thread. While a seek is
+     * under way this is its target, so a dragged SeekBar does not jump back.
+     */
+    int getCurrentPosition() {
+        int target = seeks.getTargetPosition();
+        if (target != SeekCoordinator.NONE) {
+            return target;
+        }
+        AudioPlayer player = published;
+        if (player == null) {
+            return 0;
+        }
+        try {
+            return player.getCurrentPosition();
+        } catch (IllegalStateException e) {
+            // Released by the worker between the read and the call
+            return 0;
+        }
+    }
+
+    /** Time between the last track completing and its successor starting, or -1 if none yet. */
+    long getLastHandoffLatencyMs() {
+        return lastHandoffLatencyMs;
+    }
+
+    // ---- Worker thread ----
+
+    private AudioPlayer.Looping loopingPlayer() {
+        AudioPlayer player = published;
+        return player instanceof AudioPlayer.Looping ? (AudioPlayer.Looping) player : null;
+    }
+
+    private void applySpeed(AudioPlayer player) {
+        if (player instanceof AudioPlayer.Stretching) {
+            ((AudioPlayer.Stretching) player).setSpeed(speed);
+        }
+    }
+
+    private void applyClarity(AudioPlayer player) {
+        if (player instanceof AudioPlayer.Clarifying) {
+            ((AudioPlayer.Clarifying) player).setVoiceClarity(clarity);
+        }
+    }
+
+    private void endLoop() {
+        if (!looping) {
+            return;
+        }
+        looping = false;
+        main.execute(() -> {
+            if (!released) {
+                listener.onLoopChanged(false);
+            }
+        });
+    }
+
+    private void ensurePlayers() {
+        if (current == null) {
+            AudioPlayer.Callback callback = new PlayerCallback();
+            current = playerFactory.create(callback);
+            next = playerFactory.create(callback);
+            applySpeed(current);
+            applySpeed(next);
+            applyClarity(current);
+            applyClarity(next);
+        }
+    }
+
+    private void startTrack(Track track, int generation, int startPositionMs) {
+        ensurePlayers();
+        pausePending = false;
+        if (nextChained && track == nextTrack) {
+            // Already prepared as the next track: switch over without a prepare
+            current.setNext(null);
+            swapPlayers();
+            if (startPositionMs > 0) {
+                current.seekTo(startPositionMs);
+            }
+            current.start();
+            onStarted(startPositionMs, true);
+            return;
+        }
+
+        cancelNext();
+        current.reset();
+        // playing stays as it was: a track switch keeps the session active
+        published = null;
+        endLoop();
+        seeks.attach(null);
+        preparingTrack = track;
+        preparingGeneration = generation;
+        preparingStartMs = startPositionMs;
+        try {
+            current.setDataSource(track);
+            current.prepareAsync();
+        } catch (IOException | RuntimeException e) {
+            preparingTrack = null;
+            publishPlaying(false);
+            postError(track, e);
+        }
+    }
+
+    /**
+     * @param seekingToMs position of a seek issued just before start, or 0
+     * @param started false if the track was left paused
+     */
+    private void onStarted(int seekingToMs, boolean started) {
+        // A new player holds no loop
+        endLoop();
+        published = current;
+        seeks.attach(current, seekingToMs);
+        Track track = currentTrack;
+        int duration = current.getDuration();
+        publishPlaying(started);
+        main.execute(() -> {
+            if (!released) {
+                listener.onTrackStarted(track, duration);
+            }
+        });
+        preloadNext();
+    }
+
+    private void preloadNext() {
+        nextTrack = sequence.next(currentTrack);
+        if (nextTrack == null) {
+            return;
+        }
+        try {
+            next.reset();
+            next.setDataSource(nextTrack);
+            nextPreparing = true;
+            next.prepareAsync();
+        } catch (IOException | RuntimeException e) {
+            // Not fatal: the track is prepared the regular way when it is reached
+            nextPreparing = false;
+        }
+    }
+
+    private void cancelNext() {
+        if (nextChained) {
+            try {
+                current.setNext(null);
+            } catch (IllegalStateException ignored) {
+                // current is already idle, nothing is chained anymore
+            }
+        }
+        next.reset();
+        nextTrack = null;
+        nextPreparing = false;
+        nextChained = false;
+    }
+
+    private void swapPlayers() {
+        AudioPlayer finished = current;
+        current = next;
+        currentTrack = nextTrack;
+        next = finished;
+        next.reset();
+        nextTrack = null;
+        nextPreparing = false;
+        nextChained = false;
+    }
+
+    private void publishPlaying(boolean isPlaying) {
+        if (playing == isPlaying) {
+            return;
+        }
+        playing = isPlaying;
+        main.execute(() -> {
+            if (!released) {
+                listener.onPlayingChanged(isPlaying);
+            }
+        });
+    }
+
+    private void postError(Track track, Exception e) {
+        main.execute(() -> {
+            if (!released) {
+                listener.onError(track, e);
+            }
+        });
+    }
+
+    private void reportHandoff() {
+        if (completedAtNanos == 0 || startedAsNextAtNanos == 0) {
+            return;
+        }
+        lastHandoffLatencyMs = Math.abs(startedAsNextAtNanos - completedAtNanos) / 1_000_000L;
+        completedAtNanos = 0;
+        startedAsNextAtNanos = 0;
+    }
+
+    private final class PlayerCallback implements AudioPlayer.Callback {
+
+        @Override
+        public void onPrepared(AudioPlayer player) {
+            if (released) {
+                return;
+            }
+            if (player == current && preparingTrack != null) {
+                if (preparingGeneration != requestedGeneration.get()) {
+                    // A newer request is queued and will reset this player
+                    return;
+                }
+                currentTrack = preparingTrack;
+                preparingTrack = null;
+                if (preparingStartMs > 0) {
+                    // Seek while still prepared so not a moment of the start is heard
+                    current.seekTo(preparingStartMs);
+                }
+                if (pausePending) {
+                    pausePending = false;
+                    onStarted(preparingStartMs, false);
+                } else {
+                    current.start();
+                    onStarted(preparingStartMs, true);
+                }
+            } else if (player == next && nextPreparing) {
+                nextPreparing = false;
+                try {
+                    current.setNext(next);
+                    nextChained = true;
+                } catch (IllegalStateException ignored) {
+                    // Chaining failed; the track is prepared the regular way when reached
+                }
+            }
+        }
+
+        @Override
+        public void onCompletion(AudioPlayer player) {
+            if (released || player != current || preparingTrack != null) {
+                return;
+            }
+            Track finished = currentTrack;
+            main.execute(() -> {
+                if (!released) {
+                    listener.onTrackCompleted(finished);
+                }
+            });
+            if (nextChained) {
+                // The platform has already started the next player
+                completedAtNanos = System.nanoTime();
+                swapPlayers();
+                reportHandoff();
+                onStarted(0, true);
+            } else if (nextTrack != null) {
+                // Preload did not finish in time: fall back to a regular prepare
+                startTrack(nextTrack, requestedGeneration.get(), 0);
+            } else {
+                publishPlaying(false);
+                main.execute(() -> {
+                    if (!released) {
+                        listener.onSequenceFinished(finished);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void onStartedAsNext(AudioPlayer player) {
+            startedAsNextAtNanos = System.nanoTime();
+            reportHandoff();
+        }
+
+        @Override
+        public void onSeekComplete(AudioPlayer player) {
+            if (!released) {
+                seeks.onSeekComplete(player);
+            }
+        }
+
+        @Override
+        public void onError(AudioPlayer player, int what, int extra) {
+            if (released) {
+                return;
+            }
+            Track track = player == current ? (preparingTrack != null ? preparingTrack : currentTrack) : nextTrack;
+            if (player == current) {
+                preparingTrack = null;
+                publishPlaying(false);
+                postError(track, new IOException("MediaPlayer error " + what + "/" + extra));
+            } else {
+                // A failed preload only loses gaplessness
+                if (nextChained) {
+                    current.setNext(null);
+                }
+                nextPreparing = false;
+                nextChained = false;
+            }
+        }
+    }
+}
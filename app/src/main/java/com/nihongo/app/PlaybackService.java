@@ -0,0 +1,630 @@
+package com.nihongo.app;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.ServiceInfo;
+import android.graphics.drawable.Icon;
+import android.media.MediaMetadata;
+import android.media.session.MediaSession;
+import android.media.session.PlaybackState;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+import com.nihongo.core.PlaybackQueue;
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.SegmentIndex;
+import com.nihongo.core.pcm.VoiceClarity;
+
+/**
+ * Long-lived home of the {@link PlaybackEngine}. Activities bind to it and attach a
+ * listener; the engine and its prepared players outlive any PlayerActivity, so
+ * re-entering the player screen does not prepare anything again. While audio is
+ * playing the service runs in the foreground with a media notification, and the
+ * MediaPlayer's own wake mode keeps the CPU awake only for as long as it plays.
+ * Track starts, completions and a position checkpoint every few seconds go to the
+ * {@link ListeningLog}, so playback can resume mid-track after the process dies.
+ * What plays on after a track is up to the service's {@link PlaybackQueue}. A
+ * track's {@link SegmentIndex} gives sentence navigation and, if asked for,
+ * shortens long pauses.
+ */
+public class PlaybackService extends Service implements PlaybackEngine.Listener {
+
+    static final String ACTION_PLAY = "com.nihongo.app.action.PLAY";
+    static final String ACTION_PAUSE = "com.nihongo.app.action.PAUSE";
+    static final String ACTION_NEXT = "com.nihongo.app.action.NEXT";
+    static final String ACTION_PREVIOUS = "com.nihongo.app.action.PREVIOUS";
+
+    private static final String TAG = "PlaybackService";
+    private static final String CHANNEL_ID = "playback";
+    private static final int NOTIFICATION_ID = 1;
+    private static final long CHECKPOINT_INTERVAL_MS = 5000;
+    private static final String PREFS = "player";
+    private static final String PREF_PCM_ENGINE = "pcm_engine";
+    private static final String PREF_SPEED = "speed";
+    private static final String PREF_CLARITY_PRESENCE = "clarity_presence";
+    private static final String PREF_CLARITY_COMPRESSION = "clarity_compression";
+    private static final String PREF_SKIP_SILENCES = "skip_silences";
+    // Taps within this much of a sentence start go to the sentence before
+    private static final int SENTENCE_GRACE_MS = 1000;
+    // Pauses of at least MIN_SKIPPED_SILENCE_MS are cut to KEPT_SILENCE_MS, which is
+    // still time to take in the sentence
+    private static final int MIN_SKIPPED_SILENCE_MS = 1500;
+    private static final int KEPT_SILENCE_MS = 600;
+    private static final long SILENCE_POLL_MS = 100;
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable checkpointTask = new Runnable() {
+        @Override
+        public void run() {
+            checkpoint();
+            handler.postDelayed(this, CHECKPOINT_INTERVAL_MS);
+        }
+    };
+    private final Runnable silenceTask = new Runnable() {
+        @Override
+        public void run() {
+            skipSilence();
+            handler.postDelayed(this, SILENCE_POLL_MS);
+        }
+    };
+
+    private PlaybackEngine engine;
+    // Replaced, never changed; the engine reads it on its own thread
+    private volatile PlaybackQueue queue = PlaybackQueue.all(Lessons.catalog());
+    private boolean decodeToPcm;
+    private float speed;
+    private VoiceClarity.Settings clarity;
+    private boolean skipSilences;
+    private MediaSession session;
+    private ListeningLog listeningLog;
+    private PlaybackEngine.Listener uiListener;
+    private boolean bound;
+    private boolean foreground;
+
+    private Track currentTrack;
+    private int durationMs;
+    // Of the current track; null if it has none
+    private SegmentIndex segments;
+    private boolean playing;
+    private boolean looping;
+    private int loopStartMs;
+    private int loopEndMs;
+
+    class LocalBinder extends Binder {
+        PlaybackService getService() {
+            return PlaybackService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        listeningLog = ListeningLog.get(this);
+        SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+        decodeToPcm = prefs.getBoolean(PREF_PCM_ENGINE, false);
+        speed = prefs.getFloat(PREF_SPEED, 1f);
+        clarity = new VoiceClarity.Settings(prefs.getFloat(PREF_CLARITY_PRESENCE, 0f),
+                prefs.getFloat(PREF_CLARITY_COMPRESSION, 0f));
+        skipSilences = prefs.getBoolean(PREF_SKIP_SILENCES, false);
+        engine = createEngine();
+
+        session = new MediaSession(this, TAG);
+        session.setCallback(new MediaSession.Callback() {
+            @Override
+            public void onPlay() {
+                resume();
+            }
+
+            @Override
+            public void onPause() {
+                pause();
+            }
+
+            @Override
+            public void onSkipToNext() {
+                skipToNext();
+            }
+
+            @Override
+            public void onSkipToPrevious() {
+                skipToPrevious();
+            }
+
+            @Override
+            public void onSeekTo(long pos) {
+                seekTo((int) pos);
+            }
+        });
+        session.setActive(true);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.playback_channel), NotificationManager.IMPORTANCE_LOW);
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_PLAY.equals(action)) {
+            resume();
+        } else if (ACTION_PAUSE.equals(action)) {
+            pause();
+        } else if (ACTION_NEXT.equals(action)) {
+            skipToNext();
+        } else if (ACTION_PREVIOUS.equals(action)) {
+            skipToPrevious();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        bound = true;
+        return binder;
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        bound = false;
+        uiListener = null;
+        stopIfIdle();
+        return true;
+    }
+
+    @Override
+    public void onRebind(Intent intent) {
+        bound = true;
+    }
+
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        stopIfIdle();
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(checkpointTask);
+        handler.removeCallbacks(silenceTask);
+        checkpoint();
+        listeningLog.flushNow();
+        if (decodeToPcm) {
+            Log.i(TAG, "PCM cache: " + DecodedTracks.get(this).getCache());
+        }
+        engine.release();
+        session.release();
+        super.onDestroy();
+    }
+
+    private PlaybackEngine createEngine() {
+        PlaybackEngine created = PlaybackEngine.create(this, decodeToPcm,
+                track -> queue.after(track), this);
+        created.setSpeed(speed);
+        created.setVoiceClarity(clarity);
+        return created;
+    }
+
+    // ---- Controls, called on the main thread ----
+
+    /** Listener for the attached screen, or null to detach. It is not called for past events. */
+    void setListener(PlaybackEngine.Listener listener) {
+        uiListener = listener;
+    }
+
+    void play(Track track) {
+        play(track, 0);
+    }
+
+    void play(Track track, int startPositionMs) {
+        // A choice, not playing on; screens that saw the tap have started timing already
+        Metrics.cancel(Metrics.TRACK_TRANSITION);
+        Metrics.startIfIdle(Metrics.TAP_TO_AUDIO);
+        if (!queue.contains(track)) {
+            // Picked from outside the queue: back to playing everything in order
+            queue = PlaybackQueue.all(Lessons.catalog());
+        }
+        engine.play(track, startPositionMs);
+    }
+
+    PlaybackQueue getQueue() {
+        return queue;
+    }
+
+    /** Plays on through {@code queue} after the current track, which keeps playing. */
+    void setQueue(PlaybackQueue queue) {
+        this.queue = queue;
+        engine.refreshNext();
+    }
+
+    void pause() {
+        engine.pause();
+    }
+
+    void resume() {
+        if (currentTrack != null) {
+            engine.resume();
+        }
+    }
+
+    void seekTo(int positionMs) {
+        engine.seekTo(positionMs);
+        if (currentTrack != null) {
+            listeningLog.checkpoint(positionMs);
+        }
+    }
+
+    /** A/B loops, speed changes and voice clarity need the PCM engine; see {@link #switchToPcmEngine}. */
+    boolean canLoop() {
+        return decodeToPcm;
+    }
+
+    /**
+     * Moves playback to the PCM engine, which can loop, change speed and clarify voices,
+     * and keeps using it from now on. The current track carries on from where it is,
+     * and a paused one is prepared there and stays paused.
+     */
+    void switchToPcmEngine() {
+        if (decodeToPcm) {
+            return;
+        }
+        decodeToPcm = true;
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit().putBoolean(PREF_PCM_ENGINE, true).apply();
+        int position = engine.getCurrentPosition();
+        boolean wasPlaying = engine.isPlaying();
+        engine.release();
+        engine = createEngine();
+        if (currentTrack != null) {
+            engine.play(currentTrack, position);
+            if (!wasPlaying) {
+                // Queued behind the play, so the track is prepared but never started
+                engine.pause();
+            }
+        }
+    }
+
+    /** Changes speed without changing pitch, switching to the PCM engine if needed; remembered. */
+    void setSpeed(float speed) {
+        this.speed = speed;
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit().putFloat(PREF_SPEED, speed).apply();
+        if (!decodeToPcm) {
+            // The new engine picks the speed up as it is created
+            switchToPcmEngine();
+        } else {
+            engine.setSpeed(speed);
+        }
+    }
+
+    float getSpeed() {
+        return speed;
+    }
+
+    /** Changes voice clarity while playing, switching to the PCM engine if needed; remembered. */
+    void setVoiceClarity(VoiceClarity.Settings settings) {
+        clarity = settings;
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit()
+                .putFloat(PREF_CLARITY_PRESENCE, settings.presenceDb)
+                .putFloat(PREF_CLARITY_COMPRESSION, settings.compression)
+                .apply();
+        if (!decodeToPcm) {
+            if (!settings.isOff()) {
+                switchToPcmEngine();
+            }
+        } else {
+            engine.setVoiceClarity(settings);
+        }
+    }
+
+    VoiceClarity.Settings getVoiceClarity() {
+        return clarity;
+    }
+
+    void setLoop(int startMs, int endMs, int gapMs) {
+        loopStartMs = startMs;
+        loopEndMs = endMs;
+        engine.setLoop(startMs, endMs, gapMs);
+    }
+
+    void setLoopGap(int gapMs) {
+        engine.setLoopGap(gapMs);
+    }
+
+    void clearLoop() {
+        engine.clearLoop();
+    }
+
+    boolean isLooping() {
+        return looping;
+    }
+
+    int getLoopStart() {
+        return loopStartMs;
+    }
+
+    int getLoopEnd() {
+        return loopEndMs;
+    }
+
+    /** Whether the current track has sentences to navigate by. */
+    boolean hasSentences() {
+        return segments != null && segments.getSegmentCount() > 0;
+    }
+
+    /** Sentences of the current track, or null if it has none. */
+    SegmentIndex getSentences() {
+        return segments;
+    }
+
+    /** Back to the start of this sentence, or of the one before near its start. */
+    void previousSentence() {
+        if (segments != null) {
+            seekTo(segments.previousStartMs(engine.getCurrentPosition(), SENTENCE_GRACE_MS));
+        }
+    }
+
+    /** On to the next sentence; does nothing in the last one. */
+    void nextSentence() {
+        int start = segments != null ? segments.nextStartMs(engine.getCurrentPosition()) : -1;
+        if (start >= 0) {
+            seekTo(start);
+        }
+    }
+
+    /** Shortens long pauses while playing; remembered. */
+    void setSkipSilences(boolean skip) {
+        skipSilences = skip;
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit().putBoolean(PREF_SKIP_SILENCES, skip).apply();
+        updateSilenceTask();
+    }
+
+    boolean isSkippingSilences() {
+        return skipSilences;
+    }
+
+    void skipToNext() {
+        Track next = currentTrack != null ? queue.after(currentTrack) : null;
+        if (next != null) {
+            play(next);
+        }
+    }
+
+    void skipToPrevious() {
+        Track previous = currentTrack != null ? queue.before(currentTrack) : null;
+        if (previous != null) {
+            play(previous);
+        }
+    }
+
+    Track getCurrentTrack() {
+        return currentTrack;
+    }
+
+    int getDuration() {
+        return durationMs;
+    }
+
+    boolean isPlaying() {
+        return playing;
+    }
+
+    int getCurrentPosition() {
+        return engine.getCurrentPosition();
+    }
+
+    long getLastHandoffLatencyMs() {
+        return engine.getLastHandoffLatencyMs();
+    }
+
+    // ---- PlaybackEngine.Listener, called on the main thread ----
+
+    @Override
+    public void onTrackStarted(Track track, int durationMs) {
+        currentTrack = track;
+        this.durationMs = durationMs;
+        // A few hundred bytes, small enough to read here on the main thread
+        segments = SegmentIndexes.open(getAssets(), track);
+        Metrics.increment(Metrics.TRACKS_STARTED);
+        Metrics.stop(Metrics.TAP_TO_AUDIO);
+        Metrics.stop(Metrics.TRACK_TRANSITION);
+        listeningLog.trackStarted(track.path);
+        if (decodeToPcm) {
+            // So that previous and next start from memory; the current one caches as it plays
+            DecodedTracks.get(this).prefetch(queue.before(track), queue.after(track));
+        }
+        session.setMetadata(new MediaMetadata.Builder()
+                .putString(MediaMetadata.METADATA_KEY_TITLE, track.playerTitle)
+                .putString(MediaMetadata.METADATA_KEY_ALBUM, getString(R.string.lesson_format, track.lesson))
+                .putLong(MediaMetadata.METADATA_KEY_DURATION, durationMs)
+                .build());
+        updateSession();
+        if (uiListener != null) {
+            uiListener.onTrackStarted(track, durationMs);
+        }
+    }
+
+    @Override
+    public void onPlayingChanged(boolean playing) {
+        this.playing = playing;
+        handler.removeCallbacks(checkpointTask);
+        if (playing) {
+            handler.postDelayed(checkpointTask, CHECKPOINT_INTERVAL_MS);
+        } else {
+            // Paused or stopped: this may be the last chance before the process goes away
+            checkpoint();
+            listeningLog.flushNow();
+        }
+        updateSilenceTask();
+        updateSession();
+        if (uiListener != null) {
+            uiListener.onPlayingChanged(playing);
+        }
+    }
+
+    @Override
+    public void onTrackCompleted(Track track) {
+        Metrics.start(Metrics.TRACK_TRANSITION);
+        // Completion is reported before the next track starts, so the duration is still this one's
+        listeningLog.trackCompleted(track.path, track == currentTrack ? durationMs : 0);
+        if (uiListener != null) {
+            uiListener.onTrackCompleted(track);
+        }
+    }
+
+    @Override
+    public void onLoopChanged(boolean looping) {
+        this.looping = looping;
+        if (uiListener != null) {
+            uiListener.onLoopChanged(looping);
+        }
+    }
+
+    @Override
+    public void onSequenceFinished(Track lastTrack) {
+        Metrics.cancel(Metrics.TRACK_TRANSITION);
+        if (uiListener != null) {
+            uiListener.onSequenceFinished(lastTrack);
+        } else {
+            stopIfIdle();
+        }
+    }
+
+    @Override
+    public void onError(Track track, Exception e) {
+        Log.e(TAG, "Could not play " + track.path, e);
+        Metrics.increment(Metrics.TRACK_ERRORS);
+        Metrics.cancel(Metrics.TAP_TO_AUDIO);
+        Metrics.cancel(Metrics.TRACK_TRANSITION);
+        if (uiListener != null) {
+            uiListener.onError(track, e);
+        } else {
+            Toast.makeText(this, getString(R.string.error_loading) + ": " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    // ---- Session and notification ----
+
+    private void updateSession() {
+        session.setPlaybackState(new PlaybackState.Builder()
+                .setActions(PlaybackState.ACTION_PLAY | PlaybackState.ACTION_PAUSE
+                        | PlaybackState.ACTION_PLAY_PAUSE | PlaybackState.ACTION_SEEK_TO
+                        | PlaybackState.ACTION_SKIP_TO_NEXT | PlaybackState.ACTION_SKIP_TO_PREVIOUS)
+                .setState(playing ? PlaybackState.STATE_PLAYING : PlaybackState.STATE_PAUSED,
+                        engine.getCurrentPosition(), playing ? speed : 0f)
+                .build());
+
+        if (currentTrack == null) {
+            return;
+        }
+        Notification notification = buildNotification();
+        if (playing) {
+            if (!foreground) {
+                // Started service so playback survives the last unbind
+                startService(new Intent(this, PlaybackService.class));
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+            } else {
+                startForeground(NOTIFICATION_ID, notification);
+            }
+            foreground = true;
+        } else {
+            if (foreground) {
+                stopForeground(STOP_FOREGROUND_DETACH);
+                foreground = false;
+            }
+            getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, notification);
+        }
+    }
+
+    private Notification buildNotification() {
+        Notification.Builder builder = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? new Notification.Builder(this, CHANNEL_ID)
+                : legacyNotificationBuilder();
+        return builder
+                .setSmallIcon(android.R.drawable.ic_media_play)
+                .setContentTitle(currentTrack.playerTitle)
+                .setContentText(getString(R.string.lesson_format, currentTrack.lesson) + " - Minna no Nihongo")
+                .setContentIntent(playerIntent())
+                .setDeleteIntent(actionIntent(ACTION_PAUSE))
+                .setVisibility(Notification.VISIBILITY_PUBLIC)
+                .setOngoing(playing)
+                .addAction(action(android.R.drawable.ic_media_previous, "Previous", ACTION_PREVIOUS))
+                .addAction(playing
+                        ? action(android.R.drawable.ic_media_pause, "Pause", ACTION_PAUSE)
+                        : action(android.R.drawable.ic_media_play, "Play", ACTION_PLAY))
+                .addAction(action(android.R.drawable.ic_media_next, "Next", ACTION_NEXT))
+                .setStyle(new Notification.MediaStyle()
+                        .setMediaSession(session.getSessionToken())
+                        .setShowActionsInCompactView(0, 1, 2))
+                .build();
+    }
+
+    // Channels only exist from O on; before it this constructor is the only one there is
+    @SuppressWarnings("deprecation")
+    private Notification.Builder legacyNotificationBuilder() {
+        return new Notification.Builder(this);
+    }
+
+    private Notification.Action action(int icon, String title, String action) {
+        return new Notification.Action.Builder(Icon.createWithResource(this, icon), title, actionIntent(action)).build();
+    }
+
+    private PendingIntent actionIntent(String action) {
+        Intent intent = new Intent(this, PlaybackService.class).setAction(action);
+        return PendingIntent.getService(this, action.hashCode(), intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    // Opens the player on the current track; PlayerActivity sees it is already playing and just attaches
+    private PendingIntent playerIntent() {
+        Intent intent = new Intent(this, PlayerActivity.class)
+                .putExtra(PlayerActivity.EXTRA_TRACK, currentTrack.path)
+                .addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(this, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private void updateSilenceTask() {
+        handler.removeCallbacks(silenceTask);
+        if (playing && skipSilences) {
+            handler.postDelayed(silenceTask, SILENCE_POLL_MS);
+        }
+    }
+
+    private void skipSilence() {
+        if (segments == null || looping) {
+            return;
+        }
+        // While a seek is under way this is its target, so a skip is not asked for twice
+        int target = segments.skipTargetMs(engine.getCurrentPosition(), MIN_SKIPPED_SILENCE_MS, KEPT_SILENCE_MS);
+        if (target >= 0) {
+            engine.seekTo(target);
+        }
+    }
+
+    private void checkpoint() {
+        if (currentTrack != null) {
+            listeningLog.checkpoint(engine.getCurrentPosition());
+        }
+    }
+
+    private void stopIfIdle() {
+        if (!playing && !bound) {
+            if (foreground) {
+                stopForeground(STOP_FOREGROUND_REMOVE);
+                foreground = false;
+            }
+            getSystemService(NotificationManager.class).cancel(NOTIFICATION_ID);
+            stopSelf();
+        }
+    }
+}
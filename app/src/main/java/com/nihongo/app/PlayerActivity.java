@@ -1,69 +1,179 @@
 package com.nihongo.app;
 
-import android.media.AudioAttributes;
-import android.media.MediaPlayer;
+import android.Manifest;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.os.PowerManager;
+import android.os.IBinder;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import java.io.IOException;
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Locale;
+import androidx.recyclerview.widget.RecyclerView;
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.PlaybackQueue;
+import com.nihongo.core.TimeFormat;
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.SegmentIndex;
+import com.nihongo.core.pcm.VoiceClarity;
+import com.nihongo.core.shadowing.ShadowingScorer;
+import com.nihongo.core.transcript.Transcript;
 
 public class PlayerActivity extends AppCompatActivity {
 
-    private static final int MAX_LESSON = 50;
+    /**
+     * {@link Track#path} of the track to play. Not its index: user lessons shift the
+     * indexes of later tracks, and the catalog may have changed since the intent was made.
+     */
+    static final String EXTRA_TRACK = "track";
+    /** Where to start the track, in milliseconds; for the "Continue" banner. */
+    static final String EXTRA_POSITION = "position";
+
+    private static final String TAG = "PlayerActivity";
+    private static final int NO_MARK = -1;
+    // Pause after each pass of a loop, in loop lengths: time to repeat the sentence aloud
+    private static final float[] SHADOW_PAUSES = {0f, 1f, 1.5f, 2f};
+    private static final String[] SHADOW_PAUSE_LABELS = {"Pause: off", "Pause: ×1", "Pause: ×1.5", "Pause: ×2"};
+    private static final float[] SPEEDS = {0.6f, 0.75f, 0.9f, 1f, 1.25f, 1.5f};
+    private static final String[] SPEED_LABELS = {"Speed ×0.6", "Speed ×0.75", "Speed ×0.9", "Speed ×1", "Speed ×1.25", "Speed ×1.5"};
+    // Presence boost and compression, for listening over noise
+    private static final VoiceClarity.Settings[] CLARITIES = {
+            VoiceClarity.Settings.OFF, new VoiceClarity.Settings(4f, 0.4f), new VoiceClarity.Settings(8f, 0.8f)};
+    private static final String[] CLARITY_LABELS = {"Clarity: off", "Clarity: mild", "Clarity: strong"};
+    private static final int REQUEST_RECORD_AUDIO = 1;
+    // Recording time for shadowing: twice the sentence, and a moment to begin
+    private static final int SHADOW_SLACK_MS = 2000;
     
-    private MediaPlayer mediaPlayer;
-    private ArrayList<String> files;
-    private int currentIndex;
+    private final LessonCatalog catalog = Lessons.catalog();
+    private PlaybackService service;
+    private boolean bound;
+    private boolean restoring;
+    // The track shown, or asked for and not started yet
+    private Track track;
     private int lessonNum;
-    private boolean autoPlayEnabled = true;
+    // Resume position for the first track only, from the "Continue" banner
+    private int startPositionMs;
+
+    // A/B loop: the first tap marks A, the second marks B and starts looping
+    private Track loopTrack;
+    private int loopStartMs = NO_MARK;
+    private int loopEndMs = NO_MARK;
+    private boolean looping;
+    private int shadowPause;
+
+    // Shadowing: the sentence being recorded or scored
+    private final ShadowingRecorder recorder = new ShadowingRecorder();
+    private Track shadowTrack;
+    private int shadowStartMs;
+    private int shadowEndMs;
+    private boolean scoring;
 
     private SeekBar seekBar;
     private TextView titleView, timeTotal, timeCurrent, subtitleView;
     private Button btnPlay, btnPause;
     private TextView lessonIndicator;
-    private Handler handler;
-    private PowerManager.WakeLock wakeLock;
-    private UpdateRunnable updateRunnable;
+    private Button btnLoop, btnShadowPause, btnSpeed, btnClarity;
+    private Button btnPrevSentence, btnNextSentence, btnSkipSilences, btnShadow;
+    private View artView;
+    private ProgressRenderer progressRenderer;
+    private TranscriptView transcriptView;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((PlaybackService.LocalBinder) binder).getService();
+            service.setListener(playbackListener);
+            updateSpeedButton();
+            updateClarityButton();
+            updateSkipSilencesButton();
+            attachOrPlay();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    };
+
+    private final PlaybackEngine.Listener playbackListener = new PlaybackEngine.Listener() {
+        @Override
+        public void onTrackStarted(Track track, int durationMs) {
+            onPlayerTrackStarted(track, durationMs);
+        }
+
+        @Override
+        public void onPlayingChanged(boolean playing) {
+            onPlayerPlayingChanged(playing);
+        }
+
+        @Override
+        public void onTrackCompleted(Track track) {
+            // Recorded by the service; nothing to show per track
+        }
+
+        @Override
+        public void onSequenceFinished(Track lastTrack) {
+            onTrackCompleted();
+        }
+
+        @Override
+        public void onLoopChanged(boolean looping) {
+            onPlayerLoopChanged(looping);
+        }
+
+        @Override
+        public void onError(Track track, Exception e) {
+            Toast.makeText(PlayerActivity.this, getString(R.string.error_loading) + ": " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_player);
 
-        files = getIntent().getStringArrayListExtra("files");
-        
-        // Safety check for files
-        if (files == null || files.isEmpty()) {
+        String path = getIntent().getStringExtra(EXTRA_TRACK);
+        track = path != null ? catalog.findTrack(path) : null;
+        if (track == null) {
+            Log.w(TAG, "Not in the catalog: " + path);
             Toast.makeText(this, R.string.no_audio_files, Toast.LENGTH_LONG).show();
             finish();
             return;
         }
-        
-        currentIndex = getIntent().getIntExtra("index", 0);
-        lessonNum = getIntent().getIntExtra("lesson", 1);
-        
-        // Validate index bounds
-        if (currentIndex < 0 || currentIndex >= files.size()) {
-            currentIndex = 0;
-        }
+        lessonNum = track.lesson;
+        startPositionMs = getIntent().getIntExtra(EXTRA_POSITION, 0);
 
         initViews();
-        initMediaPlayer();
         initControls();
         
-        // Start playing
-        playCurrentTrack();
+        // Playback lives in the service; playing starts (or resumes showing) once bound
+        restoring = savedInstanceState != null;
+        bound = bindService(new Intent(this, PlaybackService.class), connection, BIND_AUTO_CREATE);
+    }
+
+    private void attachOrPlay() {
+        Track current = service.getCurrentTrack();
+        if (current != null && (restoring || current == track)) {
+            // Already loaded in the service: just show it, no re-prepare
+            lessonNum = current.lesson;
+            updateLessonInfo();
+            onPlayerTrackStarted(current, service.getDuration());
+            onPlayerPlayingChanged(service.isPlaying());
+            if (service.isLooping()) {
+                loopTrack = current;
+                loopStartMs = service.getLoopStart();
+                loopEndMs = service.getLoopEnd();
+                looping = true;
+                updateLoopButtons();
+            }
+        } else {
+            playCurrentTrack();
+        }
     }
 
     private void initViews() {
@@ -75,110 +185,65 @@ public class PlayerActivity extends AppCompatActivity {
         btnPlay = findViewById(R.id.play);
         btnPause = findViewById(R.id.pause);
         lessonIndicator = findViewById(R.id.lessonIndicator);
+        btnLoop = findViewById(R.id.abLoop);
+        btnShadowPause = findViewById(R.id.shadowPause);
+        btnSpeed = findViewById(R.id.speed);
+        btnClarity = findViewById(R.id.clarity);
+        btnPrevSentence = findViewById(R.id.prevSentence);
+        btnNextSentence = findViewById(R.id.nextSentence);
+        btnSkipSilences = findViewById(R.id.skipSilences);
+        btnShadow = findViewById(R.id.shadow);
+        artView = findViewById(R.id.art);
         
         updateLessonInfo();
         
-        handler = new Handler(Looper.getMainLooper());
-        updateRunnable = new UpdateRunnable(this);
+        ProgressRenderer.PositionSource position = () -> service != null ? service.getCurrentPosition() : 0;
+        progressRenderer = new ProgressRenderer(position, seekBar, timeCurrent);
+        RecyclerView transcriptList = findViewById(R.id.transcript);
+        transcriptView = new TranscriptView(position, transcriptList, this::seekToLine);
     }
     
     private void updateLessonInfo() {
         subtitleView.setText(getString(R.string.lesson_format, lessonNum) + " - Minna no Nihongo");
         if (lessonIndicator != null) {
-            lessonIndicator.setText("Lesson " + lessonNum + " / " + MAX_LESSON);
+            lessonIndicator.setText("Lesson " + lessonNum + " / " + catalog.getLessonCount());
         }
     }
 
-    private void initMediaPlayer() {
-        mediaPlayer = new MediaPlayer();
-        mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_MEDIA)
-                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                .build());
-        mediaPlayer.setOnCompletionListener(mp -> onTrackCompleted());
-        
-        // Acquire wake lock
-        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
-        wakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MinnanoNihongo:Audio");
-    }
-    
     private void onTrackCompleted() {
-        // Check if there are more tracks in current lesson
-        if (currentIndex < files.size() - 1) {
-            // Play next track in current lesson
-            playNext();
-        } else if (autoPlayEnabled && lessonNum < MAX_LESSON) {
-            // All tracks in current lesson completed, go to next lesson
-            goToNextLesson();
-        } else if (lessonNum >= MAX_LESSON) {
+        // Nothing was chained after the last track
+        if (catalog.firstTrackAfterLesson(lessonNum) == null) {
             // All lessons completed!
             Toast.makeText(this, "🎉 Congratulations! All lessons completed!", Toast.LENGTH_LONG).show();
-            updatePlayPauseButtons(false);
-            releaseWakeLock();
         }
     }
     
+    // The service's queue, which the screen navigates the same way playback moves on
+    private PlaybackQueue queue() {
+        return service != null ? service.getQueue() : PlaybackQueue.all(catalog);
+    }
+
     private void goToNextLesson() {
-        lessonNum++;
-        currentIndex = 0;
-        
-        // Load audio files for new lesson
-        loadLessonFiles();
-        
-        if (!files.isEmpty()) {
-            updateLessonInfo();
-            Toast.makeText(this, "▶ Starting Lesson " + lessonNum, Toast.LENGTH_SHORT).show();
-            playCurrentTrack();
+        // Lessons with nothing queued are skipped by the queue
+        Track first = queue().firstOfLessonAfter(lessonNum);
+        if (first != null) {
+            Toast.makeText(this, "▶ Starting Lesson " + first.lesson, Toast.LENGTH_SHORT).show();
+            playTrack(first);
         } else {
-            // No files in this lesson, try next
-            if (lessonNum < MAX_LESSON) {
-                goToNextLesson();
-            } else {
-                Toast.makeText(this, "🎉 All lessons completed!", Toast.LENGTH_LONG).show();
-            }
+            Toast.makeText(this, "This is the last lesson", Toast.LENGTH_SHORT).show();
         }
     }
     
     private void goToPreviousLesson() {
-        if (lessonNum > 1) {
-            lessonNum--;
-            loadLessonFiles();
-            currentIndex = 0;
-            
-            if (!files.isEmpty()) {
-                updateLessonInfo();
-                Toast.makeText(this, "◀ Going to Lesson " + lessonNum, Toast.LENGTH_SHORT).show();
-                playCurrentTrack();
-            }
+        Track first = queue().firstOfLessonBefore(lessonNum);
+        if (first != null) {
+            Toast.makeText(this, "◀ Going to Lesson " + first.lesson, Toast.LENGTH_SHORT).show();
+            playTrack(first);
+        } else {
+            Toast.makeText(this, "This is the first lesson", Toast.LENGTH_SHORT).show();
         }
     }
     
-    private void loadLessonFiles() {
-        files.clear();
-        try {
-            String folder = "audio/lesson_" + lessonNum;
-            String[] assetFiles = getAssets().list(folder);
-            
-            if (assetFiles != null) {
-                for (String f : assetFiles) {
-                    if (f.endsWith(".mp3")) {
-                        files.add("lesson_" + lessonNum + "/" + f);
-                    }
-                }
-            }
-            
-            // Sort files: main first, then q1, q2, q3...
-            Collections.sort(files, (f1, f2) -> {
-                if (f1.contains("main")) return -1;
-                if (f2.contains("main")) return 1;
-                return f1.compareTo(f2);
-            });
-            
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void initControls() {
         btnPlay.setOnClickListener(v -> resumePlayback());
         btnPause.setOnClickListener(v -> pausePlayback());
@@ -186,27 +251,28 @@ public class PlayerActivity extends AppCompatActivity {
         findViewById(R.id.prev).setOnClickListener(v -> playPrevious());
         
         // Lesson navigation buttons
-        findViewById(R.id.nextLesson).setOnClickListener(v -> {
-            if (lessonNum < MAX_LESSON) {
-                goToNextLesson();
-            } else {
-                Toast.makeText(this, "This is the last lesson", Toast.LENGTH_SHORT).show();
-            }
-        });
-        
-        findViewById(R.id.prevLesson).setOnClickListener(v -> {
-            if (lessonNum > 1) {
-                goToPreviousLesson();
-            } else {
-                Toast.makeText(this, "This is the first lesson", Toast.LENGTH_SHORT).show();
-            }
-        });
+        findViewById(R.id.nextLesson).setOnClickListener(v -> goToNextLesson());
+        findViewById(R.id.prevLesson).setOnClickListener(v -> goToPreviousLesson());
+
+        btnLoop.setOnClickListener(v -> onLoopClicked());
+        btnShadowPause.setOnClickListener(v -> cycleShadowPause());
+        btnSpeed.setOnClickListener(v -> cycleSpeed());
+        btnClarity.setOnClickListener(v -> cycleClarity());
+        btnPrevSentence.setOnClickListener(v -> previousSentence());
+        btnNextSentence.setOnClickListener(v -> nextSentence());
+        btnSkipSilences.setOnClickListener(v -> toggleSkipSilences());
+        btnShadow.setOnClickListener(v -> onShadowClicked());
 
         seekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                if (fromUser && mediaPlayer != null) {
-                    mediaPlayer.seekTo(progress);
+                if (fromUser && service != null) {
+                    // The engine ends a loop on seek; marks made before it are void too
+                    clearLoopMarks();
+                    // Every drag event goes through; the engine only seeks to the latest
+                    service.seekTo(progress);
+                    progressRenderer.showPosition(progress);
+                    transcriptView.showPosition(progress);
                 }
             }
 
@@ -218,185 +284,375 @@ public class PlayerActivity extends AppCompatActivity {
         });
     }
 
+    // Only posts to the engine's worker: Metrics.TAP_TO_AUDIO times the request until
+    // onPlayerTrackStarted, and the list screens start it at their tap
     private void playCurrentTrack() {
-        if (files == null || files.isEmpty() || currentIndex < 0 || currentIndex >= files.size()) {
-            Toast.makeText(this, R.string.no_audio_files, Toast.LENGTH_SHORT).show();
-            return;
+        if (service != null) {
+            service.play(track, startPositionMs);
+            startPositionMs = 0;
+        }
+    }
+
+    // Points the screen at the target right away so repeated taps navigate from it,
+    // not from whatever the service has started so far
+    private void playTrack(Track target) {
+        // A new tap here: timed from now, not from a request it replaces
+        Metrics.start(Metrics.TAP_TO_AUDIO);
+        if (target.lesson != lessonNum) {
+            lessonNum = target.lesson;
+            updateLessonInfo();
+        }
+        track = target;
+        playCurrentTrack();
+    }
+
+    // Called both for tracks started here and for tracks the player handed off to gaplessly
+    private void onPlayerTrackStarted(Track track, int durationMs) {
+        if (track.lesson != lessonNum) {
+            lessonNum = track.lesson;
+            updateLessonInfo();
+            Toast.makeText(this, "▶ Starting Lesson " + lessonNum, Toast.LENGTH_SHORT).show();
+        }
+        this.track = track;
+        if (track != loopTrack) {
+            clearLoopMarks();
         }
         
-        try {
-            mediaPlayer.reset();
-            String file = files.get(currentIndex);
-            
-            // Update title display
-            updateTrackTitle(file);
-            
-            mediaPlayer.setDataSource(getAssets().openFd("audio/" + file));
-            mediaPlayer.prepare();
-            mediaPlayer.start();
-
-            seekBar.setMax(mediaPlayer.getDuration());
-            timeTotal.setText(formatTime(mediaPlayer.getDuration()));
-            
-            acquireWakeLock();
-            startProgressUpdates();
-            updatePlayPauseButtons(true);
-
-            // Save last played index
-            getSharedPreferences("player", MODE_PRIVATE)
-                    .edit()
-                    .putInt("last_index", currentIndex)
-                    .putInt("last_lesson", lessonNum)
-                    .apply();
-                    
-        } catch (Exception e) {
-            e.printStackTrace();
-            Toast.makeText(this, getString(R.string.error_loading) + ": " + e.getMessage(), Toast.LENGTH_LONG).show();
-        }
-    }
-
-    private void updateTrackTitle(String file) {
-        String displayName = file.substring(file.lastIndexOf("/") + 1).replace(".mp3", "");
+        // Update title display
+        titleView.setText(track.playerTitle);
+        boolean sentences = service.hasSentences();
+        btnPrevSentence.setEnabled(sentences);
+        btnNextSentence.setEnabled(sentences);
+        // Artwork until the transcript, if any, is read and takes its place
+        transcriptView.setTranscript(null);
+        artView.setVisibility(View.VISIBLE);
+        Transcripts.get(this).load(track, this::onTranscriptLoaded);
+
+        seekBar.setMax(durationMs);
+        timeTotal.setText(TimeFormat.format(durationMs));
+        progressRenderer.refresh();
         
-        // Format display name in Japanese style (Minna no Nihongo)
-        if (displayName.contains("main")) {
-            titleView.setText("会話 (Kaiwa)");  // Main Dialogue
-        } else if (displayName.contains("_q")) {
-            String qNum = displayName.replaceAll(".*_q", "");
-            titleView.setText("問題" + qNum + " (Mondai " + qNum + ")");  // Question
-        } else if (displayName.contains("renshu") || displayName.contains("practice")) {
-            titleView.setText("練習 (Renshuu)");  // Practice
-        } else if (displayName.contains("vocab") || displayName.contains("tango")) {
-            titleView.setText("単語 (Tango)");  // Vocabulary  
-        } else if (displayName.contains("bunpou") || displayName.contains("grammar")) {
-            titleView.setText("文法 (Bunpou)");  // Grammar
+        long handoffMs = service.getLastHandoffLatencyMs();
+        if (handoffMs >= 0) {
+            Log.d(TAG, "Last gapless handoff: " + handoffMs + " ms");
+        }
+    }
+
+    private void onTranscriptLoaded(Track loaded, Transcript transcript) {
+        if (loaded != track || isDestroyed()) {
+            // Another track started while this one was read
+            return;
+        }
+        transcriptView.setTranscript(transcript);
+        artView.setVisibility(transcriptView.hasTranscript() ? View.GONE : View.VISIBLE);
+    }
+
+    private void onPlayerPlayingChanged(boolean playing) {
+        progressRenderer.setPlaying(playing);
+        transcriptView.setPlaying(playing);
+        updatePlayPauseButtons(playing);
+    }
+
+    private void onLoopClicked() {
+        if (service == null || service.getCurrentTrack() == null) {
+            return;
+        }
+        if (loopEndMs != NO_MARK) {
+            service.clearLoop();
+            clearLoopMarks();
+            return;
+        }
+        int position = service.getCurrentPosition();
+        if (!service.canLoop()) {
+            // Loops need the PCM engine; it takes over right at this position, which becomes A
+            service.switchToPcmEngine();
+        }
+        if (loopStartMs == NO_MARK || position <= loopStartMs) {
+            loopTrack = service.getCurrentTrack();
+            loopStartMs = position;
+        } else if (position - loopStartMs > PcmPlayer.HISTORY_MS) {
+            Toast.makeText(this, "Sections can be at most " + PcmPlayer.HISTORY_MS / 1000 + " s long", Toast.LENGTH_SHORT).show();
+            loopStartMs = position;
         } else {
-            titleView.setText(displayName.toUpperCase(Locale.ROOT));
+            loopEndMs = position;
+            service.setLoop(loopStartMs, loopEndMs, shadowPauseMs());
         }
+        updateLoopButtons();
     }
 
-    private void resumePlayback() {
-        if (mediaPlayer != null && !mediaPlayer.isPlaying()) {
-            mediaPlayer.start();
-            acquireWakeLock();
-            startProgressUpdates();
-            updatePlayPauseButtons(true);
+    private void onPlayerLoopChanged(boolean looping) {
+        if (!looping && loopEndMs != NO_MARK && !this.looping) {
+            Toast.makeText(this, "This section can no longer be looped", Toast.LENGTH_SHORT).show();
+        }
+        this.looping = looping;
+        if (!looping) {
+            clearLoopMarks();
         }
+        updateLoopButtons();
     }
 
-    private void pausePlayback() {
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
-            releaseWakeLock();
-            stopProgressUpdates();
-            updatePlayPauseButtons(false);
+    private void cycleShadowPause() {
+        shadowPause = (shadowPause + 1) % SHADOW_PAUSES.length;
+        if (looping && service != null) {
+            service.setLoopGap(shadowPauseMs());
         }
+        updateLoopButtons();
     }
 
-    private void playNext() {
-        if (currentIndex < files.size() - 1) {
-            currentIndex++;
-            playCurrentTrack();
-        } else if (autoPlayEnabled && lessonNum < MAX_LESSON) {
-            // Go to next lesson
-            goToNextLesson();
+    private int shadowPauseMs() {
+        return loopEndMs == NO_MARK ? 0 : (int) (SHADOW_PAUSES[shadowPause] * (loopEndMs - loopStartMs));
+    }
+
+    private void clearLoopMarks() {
+        if (loopStartMs == NO_MARK) {
+            return;
         }
+        loopTrack = null;
+        loopStartMs = NO_MARK;
+        loopEndMs = NO_MARK;
+        updateLoopButtons();
     }
 
-    private void playPrevious() {
-        if (currentIndex > 0) {
-            currentIndex--;
-            playCurrentTrack();
-        } else if (lessonNum > 1) {
-            // Go to previous lesson (start from last track)
-            lessonNum--;
-            loadLessonFiles();
-            if (!files.isEmpty()) {
-                currentIndex = files.size() - 1;
-                updateLessonInfo();
-                playCurrentTrack();
+    private void updateLoopButtons() {
+        if (loopEndMs != NO_MARK) {
+            btnLoop.setText("Stop loop");
+        } else if (loopStartMs != NO_MARK) {
+            btnLoop.setText("A " + TimeFormat.format(loopStartMs) + " – mark B");
+        } else {
+            btnLoop.setText("A–B");
+        }
+        btnShadowPause.setText(SHADOW_PAUSE_LABELS[shadowPause]);
+    }
+
+    private void cycleSpeed() {
+        if (service == null) {
+            return;
+        }
+        // The speed after the current one, or normal speed if it is not one of ours
+        int index = speedIndex(service.getSpeed());
+        float speed = index < 0 ? 1f : SPEEDS[(index + 1) % SPEEDS.length];
+        service.setSpeed(speed);
+        updateSpeedButton();
+    }
+
+    private void updateSpeedButton() {
+        float speed = service.getSpeed();
+        int index = speedIndex(speed);
+        btnSpeed.setText(index >= 0 ? SPEED_LABELS[index] : "Speed ×" + speed);
+        transcriptView.setSpeed(speed);
+    }
+
+    private static int speedIndex(float speed) {
+        for (int i = 0; i < SPEEDS.length; i++) {
+            if (Math.abs(SPEEDS[i] - speed) < 0.01f) {
+                return i;
             }
         }
+        return -1;
     }
 
-    private void startProgressUpdates() {
-        handler.removeCallbacks(updateRunnable);
-        handler.post(updateRunnable);
+    private void cycleClarity() {
+        if (service == null) {
+            return;
+        }
+        // Heard within a chunk of audio, so the levels can be compared while listening
+        int index = clarityIndex(service.getVoiceClarity());
+        service.setVoiceClarity(CLARITIES[(index + 1) % CLARITIES.length]);
+        updateClarityButton();
     }
 
-    private void stopProgressUpdates() {
-        handler.removeCallbacks(updateRunnable);
+    private void updateClarityButton() {
+        int index = clarityIndex(service.getVoiceClarity());
+        btnClarity.setText(index >= 0 ? CLARITY_LABELS[index] : "Clarity: custom");
     }
 
-    private void updatePlayPauseButtons(boolean isPlaying) {
-        btnPlay.setVisibility(isPlaying ? View.GONE : View.VISIBLE);
-        btnPause.setVisibility(isPlaying ? View.VISIBLE : View.GONE);
+    private static int clarityIndex(VoiceClarity.Settings settings) {
+        for (int i = 0; i < CLARITIES.length; i++) {
+            if (CLARITIES[i].presenceDb == settings.presenceDb && CLARITIES[i].compression == settings.compression) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private void acquireWakeLock() {
-        if (wakeLock != null && !wakeLock.isHeld()) {
-            wakeLock.acquire(60 * 60 * 1000L); // 1 hour max
+    private void previousSentence() {
+        if (service != null) {
+            clearLoopMarks();
+            service.previousSentence();
         }
     }
 
-    private void releaseWakeLock() {
-        if (wakeLock != null && wakeLock.isHeld()) {
-            wakeLock.release();
+    private void nextSentence() {
+        if (service != null) {
+            clearLoopMarks();
+            service.nextSentence();
         }
     }
 
-    private String formatTime(int milliseconds) {
-        int seconds = milliseconds / 1000;
-        return String.format(Locale.ROOT, "%02d:%02d", seconds / 60, seconds % 60);
+    private void seekToLine(int startMs) {
+        if (service != null) {
+            clearLoopMarks();
+            service.seekTo(startMs);
+            progressRenderer.showPosition(startMs);
+            transcriptView.showPosition(startMs);
+        }
     }
 
-    private void updateProgress() {
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            seekBar.setProgress(mediaPlayer.getCurrentPosition());
-            timeCurrent.setText(formatTime(mediaPlayer.getCurrentPosition()));
+    private void toggleSkipSilences() {
+        if (service != null) {
+            service.setSkipSilences(!service.isSkippingSilences());
+            updateSkipSilencesButton();
         }
     }
 
-    // Static inner class to avoid memory leaks
-    private static class UpdateRunnable implements Runnable {
-        private final WeakReference<PlayerActivity> activityRef;
+    private void updateSkipSilencesButton() {
+        btnSkipSilences.setText(service.isSkippingSilences() ? "Skip pauses: on" : "Skip pauses: off");
+    }
+
+    private void onShadowClicked() {
+        if (service == null || scoring) {
+            return;
+        }
+        if (recorder.isRecording()) {
+            recorder.stop();
+        } else if (checkSelfPermission(Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[] {Manifest.permission.RECORD_AUDIO}, REQUEST_RECORD_AUDIO);
+        } else {
+            startShadowing();
+        }
+    }
 
-        UpdateRunnable(PlayerActivity activity) {
-            activityRef = new WeakReference<>(activity);
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_RECORD_AUDIO && grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED && service != null) {
+            startShadowing();
         }
+    }
 
-        @Override
-        public void run() {
-            PlayerActivity activity = activityRef.get();
-            if (activity != null && activity.mediaPlayer != null) {
-                activity.updateProgress();
-                activity.handler.postDelayed(this, 500);
+    /** Records the learner repeating the A–B loop, or else the sentence being played. */
+    private void startShadowing() {
+        Track current = service.getCurrentTrack();
+        if (current == null) {
+            return;
+        }
+        SegmentIndex sentences = service.getSentences();
+        if (looping && loopTrack == current) {
+            shadowStartMs = loopStartMs;
+            shadowEndMs = loopEndMs;
+        } else if (sentences != null && sentences.getSegmentCount() > 0) {
+            int sentence = Math.max(0, sentences.segmentAt(service.getCurrentPosition()));
+            shadowStartMs = sentences.getStartMs(sentence);
+            shadowEndMs = sentences.getEndMs(sentence);
+        } else {
+            Toast.makeText(this, "Mark a sentence with A–B to shadow it", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        shadowTrack = current;
+        // The microphone should hear the learner, not the lesson
+        service.pause();
+        recorder.start(2 * (shadowEndMs - shadowStartMs) + SHADOW_SLACK_MS, this::onShadowRecorded);
+        btnShadow.setText("■ Stop");
+    }
+
+    private void onShadowRecorded(short[] samples, int count) {
+        if (isDestroyed()) {
+            return;
+        }
+        if (count == 0) {
+            btnShadow.setText("🎤 Shadow");
+            Toast.makeText(this, "Could not use the microphone", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        scoring = true;
+        btnShadow.setText("Scoring…");
+        ShadowingScores.get(this).score(shadowTrack, shadowStartMs, shadowEndMs, samples, count,
+                ShadowingRecorder.SAMPLE_RATE, 1, this::onShadowScored);
+    }
+
+    private void onShadowScored(ShadowingScorer.Score score) {
+        scoring = false;
+        if (isDestroyed()) {
+            return;
+        }
+        if (score == null) {
+            btnShadow.setText("🎤 Shadow");
+            Toast.makeText(this, R.string.error_loading, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        btnShadow.setText("🎤 " + score.getSimilarity() + "%");
+        if (score.getSimilarity() > 0) {
+            float tempo = score.getTempo();
+            String pace = tempo > 1.15f ? "slower than" : tempo < 0.87f ? "faster than" : "as fast as";
+            Toast.makeText(this, "Similarity " + score.getSimilarity() + "%, spoken " + pace + " the recording",
+                    Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, "No speech heard", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void resumePlayback() {
+        if (service != null) {
+            service.resume();
+        }
+    }
+
+    private void pausePlayback() {
+        if (service != null) {
+            service.pause();
+        }
+    }
+
+    private void playNext() {
+        Track next = queue().after(track);
+        if (next != null) {
+            if (next.lesson != lessonNum) {
+                Toast.makeText(this, "▶ Starting Lesson " + next.lesson, Toast.LENGTH_SHORT).show();
             }
+            playTrack(next);
+        }
+    }
+
+    private void playPrevious() {
+        // Goes to the end of the previous lesson from a lesson's first track
+        Track previous = queue().before(track);
+        if (previous != null) {
+            playTrack(previous);
         }
     }
 
+    private void updatePlayPauseButtons(boolean isPlaying) {
+        btnPlay.setVisibility(isPlaying ? View.GONE : View.VISIBLE);
+        btnPause.setVisibility(isPlaying ? View.VISIBLE : View.GONE);
+    }
+
     @Override
-    protected void onPause() {
-        super.onPause();
-        stopProgressUpdates();
+    protected void onStart() {
+        super.onStart();
+        progressRenderer.setVisible(true);
+        transcriptView.setVisible(true);
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            startProgressUpdates();
-        }
+    protected void onStop() {
+        super.onStop();
+        progressRenderer.setVisible(false);
+        transcriptView.setVisible(false);
+        // Nothing is recorded once the screen is gone; what was is still scored
+        recorder.stop();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        stopProgressUpdates();
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
+        if (service != null) {
+            // Playback keeps going in the service
+            service.setListener(null);
+            service = null;
+        }
+        if (bound) {
+            unbindService(connection);
         }
-        releaseWakeLock();
     }
 }
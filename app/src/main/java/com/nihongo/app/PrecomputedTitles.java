@@ -0,0 +1,90 @@
+package com.nihongo.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.widget.TextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * List titles with their glyphs measured off the main thread. Measuring Japanese
+ * and emoji is what makes binding a row slow, and during a fling every new row is
+ * bound within the frame that shows it. Titles are measured for the style of one
+ * sample {@link TextView}, so each text view in a row layout needs its own instance;
+ * rows bound before a title is ready simply get the plain string. Titles are looked
+ * up by their index in the list given to {@link #precompute}, so binding formats,
+ * hashes and allocates nothing.
+ */
+final class PrecomputedTitles {
+
+    private static final Executor executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "PrecomputedTitles");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PrecomputedTextCompat.Params params;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Main thread only; ready[i] is titles[i] once measured
+    private String[] titles = new String[0];
+    private PrecomputedTextCompat[] ready = new PrecomputedTextCompat[0];
+
+    PrecomputedTitles(TextView sample) {
+        params = TextViewCompat.getTextMetricsParams(sample);
+    }
+
+    /**
+     * Replaces the titles, keeping those measured already at the same index, and
+     * measures the rest; a list of a few dozen takes milliseconds. The array is kept:
+     * leave it unchanged.
+     */
+    void precompute(String[] updated) {
+        PrecomputedTextCompat[] kept = new PrecomputedTextCompat[updated.length];
+        int[] missing = new int[updated.length];
+        int missingCount = 0;
+        for (int i = 0; i < updated.length; i++) {
+            if (i < titles.length && ready[i] != null && updated[i].equals(titles[i])) {
+                kept[i] = ready[i];
+            } else {
+                missing[missingCount++] = i;
+            }
+        }
+        titles = updated;
+        ready = kept;
+        if (missingCount == 0) {
+            return;
+        }
+        int count = missingCount;
+        executor.execute(() -> {
+            PrecomputedTextCompat[] texts = new PrecomputedTextCompat[count];
+            for (int i = 0; i < count; i++) {
+                texts[i] = PrecomputedTextCompat.create(updated[missing[i]], params);
+            }
+            mainHandler.post(() -> {
+                if (titles != updated) {
+                    // Replaced in the meantime; the next precompute measured these again
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    ready[missing[i]] = texts[i];
+                }
+            });
+        });
+    }
+
+    /** Shows title {@code index} of the last {@link #precompute}. */
+    void bind(TextView view, int index) {
+        PrecomputedTextCompat text = ready[index];
+        if (text != null) {
+            TextViewCompat.setPrecomputedText(view, text);
+        } else {
+            view.setText(titles[index]);
+        }
+    }
+}
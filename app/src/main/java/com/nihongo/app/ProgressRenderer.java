@@ -0,0 +1,100 @@
+package com.nihongo.app;
+
+import android.view.Choreographer;
+import android.widget.SeekBar;
+import android.widget.TextView;
+import com.nihongo.core.ProgressText;
+
+/**
+ * Keeps the player's position readout and SeekBar current, on Choreographer frames
+ * and only while the screen is visible and audio is playing.
+ *
+ * <p>Each frame reads the position once and touches the views only if the shown
+ * second changed; the next frame is then requested for just after the following
+ * second boundary, so a playing track costs about one frame callback per second.
+ * Formatting goes into a reused buffer and nothing is allocated per frame.
+ * Main thread only.
+ */
+final class ProgressRenderer implements Choreographer.FrameCallback {
+
+    interface PositionSource {
+        /** Current playback position in ms. */
+        int getPosition();
+    }
+
+    // Lands the callback safely past the boundary despite frame alignment
+    private static final int BOUNDARY_SLACK_MS = 5;
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final PositionSource source;
+    private final SeekBar seekBar;
+    private final TextView timeView;
+    private final ProgressText text = new ProgressText();
+
+    private boolean visible;
+    private boolean playing;
+    private boolean scheduled;
+
+    ProgressRenderer(PositionSource source, SeekBar seekBar, TextView timeView) {
+        this.source = source;
+        this.seekBar = seekBar;
+        this.timeView = timeView;
+    }
+
+    void setVisible(boolean visible) {
+        this.visible = visible;
+        update();
+    }
+
+    void setPlaying(boolean playing) {
+        this.playing = playing;
+        update();
+    }
+
+    /** Draws the position the source reports now, e.g. after attaching to a paused track. */
+    void refresh() {
+        text.invalidate();
+        render(source.getPosition());
+    }
+
+    /** Draws a position chosen by the user while dragging, ahead of the player reaching it. */
+    void showPosition(int positionMs) {
+        if (text.update(positionMs)) {
+            timeView.setText(text.chars(), 0, text.length());
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (!visible || !playing) {
+            return;
+        }
+        int position = source.getPosition();
+        render(position);
+        schedule(ProgressText.millisToNextSecond(position) + BOUNDARY_SLACK_MS);
+    }
+
+    private void update() {
+        if (visible && playing) {
+            if (!scheduled) {
+                schedule(0);
+            }
+        } else if (scheduled) {
+            choreographer.removeFrameCallback(this);
+            scheduled = false;
+        }
+    }
+
+    private void schedule(long delayMs) {
+        choreographer.postFrameCallbackDelayed(this, delayMs);
+        scheduled = true;
+    }
+
+    private void render(int positionMs) {
+        if (text.update(positionMs)) {
+            timeView.setText(text.chars(), 0, text.length());
+            seekBar.setProgress(positionMs);
+        }
+    }
+}
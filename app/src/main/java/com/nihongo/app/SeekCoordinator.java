@@ -0,0 +1,98 @@
+package com.nihongo.app;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coalesces seek requests for one player. Only one seek is in flight at a time;
+ * requests that arrive meanwhile just replace the pending target, and the latest one
+ * is issued when the player reports completion. Dragging a SeekBar therefore costs
+ * at most one outstanding seek however fast progress events arrive.
+ *
+ * <p>{@link #request} may be called from any thread; everything else runs on the
+ * worker that owns the player.
+ */
+final class SeekCoordinator {
+
+    static final int NONE = -1;
+
+    private final Executor worker;
+    private final AtomicInteger pending = new AtomicInteger(NONE);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger target = new AtomicInteger(NONE);
+
+    // Worker-confined
+    private AudioPlayer player;
+    private boolean inFlight;
+    private int issued = NONE;
+
+    SeekCoordinator(Executor worker) {
+        this.worker = worker;
+    }
+
+    void request(int positionMs) {
+        int position = Math.max(0, positionMs);
+        pending.set(position);
+        target.set(position);
+        if (scheduled.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    /** Position the user last asked for until the player has reached it, or {@link #NONE}. */
+    int getTargetPosition() {
+        return target.get();
+    }
+
+    /** Directs seeks at a newly started player, or at none while switching tracks. Drops pending seeks. */
+    void attach(AudioPlayer player) {
+        attach(player, 0);
+    }
+
+    /**
+     * Like {@link #attach(AudioPlayer)}, for a player the engine has already sent a
+     * seek to {@code seekingToMs} (if positive); further seeks wait for it.
+     */
+    void attach(AudioPlayer player, int seekingToMs) {
+        this.player = player;
+        pending.set(NONE);
+        boolean seeking = player != null && seekingToMs > 0;
+        inFlight = seeking;
+        issued = seeking ? seekingToMs : NONE;
+        target.set(seeking ? seekingToMs : NONE);
+    }
+
+    void onSeekComplete(AudioPlayer player) {
+        if (player != this.player || !inFlight) {
+            return;
+        }
+        inFlight = false;
+        if (!issueLatest()) {
+            // A request racing in after the check keeps its target for its own drain
+            target.compareAndSet(issued, NONE);
+        }
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        if (!inFlight) {
+            issueLatest();
+        }
+    }
+
+    private boolean issueLatest() {
+        int position = pending.getAndSet(NONE);
+        if (position == NONE) {
+            return false;
+        }
+        if (player == null) {
+            target.compareAndSet(position, NONE);
+            return false;
+        }
+        inFlight = true;
+        issued = position;
+        player.seekTo(position);
+        return true;
+    }
+}
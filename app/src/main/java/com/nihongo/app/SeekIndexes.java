@@ -0,0 +1,31 @@
+package com.nihongo.app;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.SeekIndex;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Loads the seek indexes that :app:generateSeekIndex bundles next to the audio. */
+final class SeekIndexes {
+
+    private static final String TAG = "SeekIndexes";
+
+    private SeekIndexes() {}
+
+    /** Reads the index for a track, or returns null so callers fall back to plain seeks. */
+    static SeekIndex open(AssetManager assets, Track track) {
+        if (!track.isBundled()) {
+            // Only bundled tracks are indexed at build time
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(assets.open(SeekIndex.assetPath(track.path)))) {
+            return SeekIndex.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "No seek index for " + track.path, e);
+            return null;
+        }
+    }
+}
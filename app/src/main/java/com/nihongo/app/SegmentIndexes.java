@@ -0,0 +1,30 @@
+package com.nihongo.app;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.SegmentIndex;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Loads the sentence indexes that :app:generateSegments bundles next to the audio. */
+final class SegmentIndexes {
+
+    private static final String TAG = "SegmentIndexes";
+
+    private SegmentIndexes() {}
+
+    /** Reads the index for a track, or returns null; sentence navigation is then unavailable. */
+    static SegmentIndex open(AssetManager assets, Track track) {
+        if (!track.isBundled()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(assets.open(SegmentIndex.assetPath(track.path)))) {
+            return SegmentIndex.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "No segment index for " + track.path, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.nihongo.app;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Records the learner's shadowing for {@link ShadowingScores}: 16 kHz mono from the
+ * microphone, which is all the scorer looks at, on a thread of its own. The buffer
+ * is kept between recordings. Needs the RECORD_AUDIO permission; create and drive it
+ * on the main thread.
+ */
+final class ShadowingRecorder {
+
+    interface Callback {
+        /** Called on the main thread; {@code count} is 0 if the microphone could not be used. */
+        void onRecorded(short[] samples, int count);
+    }
+
+    static final int SAMPLE_RATE = 16_000;
+
+    private static final String TAG = "ShadowingRecorder";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private short[] buffer = new short[0];
+    private Thread thread;
+    private volatile boolean stopping;
+
+    boolean isRecording() {
+        return thread != null;
+    }
+
+    /**
+     * Records until {@link #stop} or for {@code maxMs}. The samples passed to the
+     * callback are overwritten by the next recording.
+     */
+    void start(int maxMs, Callback callback) {
+        if (thread != null) {
+            throw new IllegalStateException("already recording");
+        }
+        int max = (int) ((long) SAMPLE_RATE * maxMs / 1000);
+        if (buffer.length < max) {
+            buffer = new short[max];
+        }
+        short[] samples = buffer;
+        stopping = false;
+        thread = new Thread(() -> {
+            int count = record(samples, max);
+            mainHandler.post(() -> {
+                thread = null;
+                callback.onRecorded(samples, count);
+            });
+        }, TAG);
+        thread.start();
+    }
+
+    /** Ends the recording early; the callback still comes. */
+    void stop() {
+        stopping = true;
+    }
+
+    private int record(short[] samples, int max) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record;
+        try {
+            record = new AudioRecord(MediaRecorder.AudioSource.MIC, SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO,
+                    AudioFormat.ENCODING_PCM_16BIT, Math.max(minBuffer, SAMPLE_RATE / 5 * 2));
+        } catch (IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "No microphone", e);
+            return 0;
+        }
+        try {
+            if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+                Log.w(TAG, "Microphone not available");
+                return 0;
+            }
+            record.startRecording();
+            int count = 0;
+            // Reads of a tenth of a second, so a stop is noticed quickly
+            while (count < max && !stopping) {
+                int read = record.read(samples, count, Math.min(SAMPLE_RATE / 10, max - count));
+                if (read < 0) {
+                    Log.w(TAG, "Recording failed: " + read);
+                    break;
+                }
+                count += read;
+            }
+            record.stop();
+            return count;
+        } finally {
+            record.release();
+        }
+    }
+}
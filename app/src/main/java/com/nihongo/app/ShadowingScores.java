@@ -0,0 +1,181 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.DecodeCursor;
+import com.nihongo.core.pcm.PcmClip;
+import com.nihongo.core.shadowing.ShadowingScorer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Scores recorded shadowing against the sentence it imitates, on a background
+ * thread. The sentence is decoded from its track, or read from {@link DecodedTracks}
+ * when the track is cached there, and measured once: further attempts at the same
+ * sentence only measure the recording. Buffers are kept between sentences.
+ */
+final class ShadowingScores {
+
+    interface Callback {
+        /** Called on the main thread; {@code score} is null if the sentence could not be decoded. */
+        void onScored(ShadowingScorer.Score score);
+    }
+
+    private static final String TAG = "ShadowingScores";
+    private static final long TIMEOUT_US = 10_000;
+
+    private static ShadowingScores instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Background thread only
+    private final ShadowingScorer scorer = new ShadowingScorer();
+    private short[] sentence = new short[0];
+    private short[] decoded = new short[0];
+    private Track referenceTrack;
+    private int referenceStartMs;
+    private int referenceEndMs;
+
+    static synchronized ShadowingScores get(Context context) {
+        if (instance == null) {
+            instance = new ShadowingScores(context);
+        }
+        return instance;
+    }
+
+    private ShadowingScores(Context context) {
+        this.context = context.getApplicationContext();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Scores {@code count} samples of mono or interleaved {@code attempt} against
+     * {@code startMs..endMs} of the track. The caller leaves {@code attempt} alone
+     * until the callback.
+     */
+    void score(Track track, int startMs, int endMs, short[] attempt, int count, int sampleRate, int channels,
+            Callback callback) {
+        handler.post(() -> {
+            ShadowingScorer.Score score = null;
+            if (loadReference(track, startMs, endMs)) {
+                long start = System.nanoTime();
+                score = scorer.score(attempt, 0, count, sampleRate, channels);
+                Log.d(TAG, "Scored " + count / channels * 1000L / sampleRate + " ms in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms: " + score.getSimilarity());
+            }
+            ShadowingScorer.Score result = score;
+            mainHandler.post(() -> callback.onScored(result));
+        });
+    }
+
+    private boolean loadReference(Track track, int startMs, int endMs) {
+        if (track == referenceTrack && startMs == referenceStartMs && endMs == referenceEndMs) {
+            return true;
+        }
+        referenceTrack = null;
+        try {
+            PcmClip clip = DecodedTracks.get(context).get(track);
+            if (clip != null) {
+                int count = readClip(clip, startMs, endMs);
+                scorer.setReference(sentence, 0, count, clip.sampleRate, clip.channels);
+            } else {
+                try (Mp3Asset asset = Mp3Asset.open(context, track)) {
+                    int count = decode(asset, track, startMs, endMs);
+                    scorer.setReference(sentence, 0, count, asset.sampleRate, asset.channels);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not decode the sentence of " + track.path, e);
+            return false;
+        }
+        referenceTrack = track;
+        referenceStartMs = startMs;
+        referenceEndMs = endMs;
+        return true;
+    }
+
+    private int readClip(PcmClip clip, int startMs, int endMs) {
+        long from = (long) startMs * clip.sampleRate / 1000;
+        int frames = (int) Math.max(0, Math.min(clip.getFrameCount() - from,
+                (long) (endMs - startMs) * clip.sampleRate / 1000));
+        ensureSentence(frames * clip.channels);
+        PcmClip.Reader reader = clip.reader();
+        reader.seek(from);
+        return reader.read(sentence, 0, frames * clip.channels);
+    }
+
+    /** Decodes the range into {@link #sentence}, starting at the exact sample; returns the samples. */
+    private int decode(Mp3Asset asset, Track track, int startMs, int endMs) throws IOException {
+        int channels = asset.channels;
+        long from = (long) startMs * asset.sampleRate / 1000;
+        int wanted = (int) ((long) (endMs - startMs) * asset.sampleRate / 1000) * channels;
+        ensureSentence(wanted);
+        DecodeCursor cursor = new DecodeCursor(asset.index);
+        cursor.seekToSample(from);
+        MediaCodec codec = asset.createDecoder();
+        try {
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            int length = 0;
+            boolean inputDone = false;
+            while (length < wanted) {
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(0);
+                    if (in >= 0 && cursor.hasNext()) {
+                        ByteBuffer buffer = codec.getInputBuffer(in);
+                        buffer.clear();
+                        buffer.limit(cursor.length());
+                        asset.readFully(buffer, cursor.offset());
+                        codec.queueInputBuffer(in, 0, cursor.length(), cursor.presentationTimeUs(), 0);
+                        cursor.advance();
+                    } else if (in >= 0) {
+                        codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    }
+                }
+                int out = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (out < 0) {
+                    continue;
+                }
+                ByteBuffer buffer = codec.getOutputBuffer(out);
+                buffer.position(info.offset);
+                buffer.limit(info.offset + info.size);
+                ShortBuffer samples = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                int count = samples.remaining();
+                if (decoded.length < count) {
+                    decoded = new short[count];
+                }
+                samples.get(decoded, 0, count);
+                codec.releaseOutputBuffer(out, false);
+                // Pre-roll from before the sentence is decoded only to be dropped
+                int pos = cursor.trim(count / channels) * channels;
+                int n = Math.min(count - pos, wanted - length);
+                System.arraycopy(decoded, pos, sentence, length, n);
+                length += n;
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+            }
+            return length;
+        } finally {
+            codec.release();
+        }
+    }
+
+    private void ensureSentence(int length) {
+        if (sentence.length < length) {
+            sentence = new short[length];
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.mp3.Mp3HeaderParser;
+import com.nihongo.core.mp3.Mp3Info;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of track durations. Missing entries are filled by reading only
+ * the MP3 headers of each track ({@link Mp3HeaderParser}) on a small background pool,
+ * so no MediaPlayer has to be prepared just to learn a track's length.
+ */
+final class TrackDurations {
+
+    private static final String TAG = "TrackDurations";
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static TrackDurations instance;
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ConcurrentHashMap<Track, Mp3Info> cache = new ConcurrentHashMap<>();
+
+    private TrackDurations(Context context) {
+        this.context = context.getApplicationContext();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "TrackDurations-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    static synchronized TrackDurations get(Context context) {
+        if (instance == null) {
+            instance = new TrackDurations(context);
+        }
+        return instance;
+    }
+
+    /** Cached header info for the track, or null if it has not been scanned yet. */
+    Mp3Info getCached(Track track) {
+        return cache.get(track);
+    }
+
+    /** Sum of the tracks' durations, or -1 while any of them is still unknown. */
+    int getTotalDurationMs(List<Track> tracks) {
+        int total = 0;
+        for (int i = 0; i < tracks.size(); i++) {
+            Mp3Info info = cache.get(tracks.get(i));
+            if (info == null) {
+                return -1;
+            }
+            total += info.durationMs;
+        }
+        return total;
+    }
+
+    /**
+     * Scans the tracks that are not cached yet, in parallel, and runs {@code onScanned}
+     * on the main thread once all of them are done. Nothing is run if all are cached.
+     */
+    void scan(List<Track> tracks, Runnable onScanned) {
+        int missing = 0;
+        for (int i = 0; i < tracks.size(); i++) {
+            if (!cache.containsKey(tracks.get(i))) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return;
+        }
+        AtomicInteger remaining = new AtomicInteger(missing);
+        for (int i = 0; i < tracks.size(); i++) {
+            Track track = tracks.get(i);
+            if (cache.containsKey(track)) {
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    cache.put(track, readHeader(track));
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not read " + track.path, e);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    mainHandler.post(onScanned);
+                }
+            });
+        }
+    }
+
+    private Mp3Info readHeader(Track track) throws IOException {
+        try (AssetFileDescriptor afd = TrackFiles.openFd(context, track);
+             InputStream in = afd.createInputStream()) {
+            return Mp3HeaderParser.parse(in, afd.getLength());
+        }
+    }
+}
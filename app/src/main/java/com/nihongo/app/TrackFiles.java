@@ -0,0 +1,43 @@
+package com.nihongo.app;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import com.nihongo.core.Track;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Opens a track's MP3 wherever it is: in its lesson's bundle, among the bundled
+ * assets, or in a folder the user added.
+ */
+final class TrackFiles {
+
+    private TrackFiles() {}
+
+    /** The whole MP3, with its length known, as AssetManager.openFd() gives bundled ones. */
+    static AssetFileDescriptor openFd(Context context, Track track) throws IOException {
+        if (track.isBundled()) {
+            AssetFileDescriptor bundled = LessonBundles.get(context).openFd(track);
+            return bundled != null ? bundled : context.getAssets().openFd(track.assetPath);
+        }
+        if (track.location.startsWith(ContentResolver.SCHEME_CONTENT + ":")) {
+            AssetFileDescriptor afd = context.getContentResolver()
+                    .openAssetFileDescriptor(Uri.parse(track.location), "r");
+            if (afd == null) {
+                throw new FileNotFoundException(track.location);
+            }
+            if (afd.getLength() != AssetFileDescriptor.UNKNOWN_LENGTH) {
+                return afd;
+            }
+            ParcelFileDescriptor pfd = afd.getParcelFileDescriptor();
+            return new AssetFileDescriptor(pfd, 0, pfd.getStatSize());
+        }
+        File file = new File(track.location);
+        ParcelFileDescriptor pfd = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        return new AssetFileDescriptor(pfd, 0, file.length());
+    }
+}
@@ -0,0 +1,44 @@
+package com.nihongo.app;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.GainTable;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The loudness {@link GainTable} that :app:generateLoudness bundles, read on first
+ * use. Players look a track's gain up as they are given the track.
+ */
+final class TrackGains {
+
+    private static final String TAG = "TrackGains";
+
+    private static GainTable table;
+
+    private TrackGains() {}
+
+    /** Gain in dB that brings the track to the common loudness; 0 without a table. */
+    static synchronized double gainDb(AssetManager assets, Track track) {
+        if (table == null) {
+            table = read(assets);
+        }
+        return table.getGainDb(track.path);
+    }
+
+    /** {@link #gainDb} as a factor for samples. */
+    static float gainFactor(AssetManager assets, Track track) {
+        return (float) Math.pow(10, gainDb(assets, track) / 20);
+    }
+
+    private static GainTable read(AssetManager assets) {
+        try (InputStream in = new BufferedInputStream(assets.open(GainTable.ASSET))) {
+            return GainTable.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "No gain table; tracks play at their recorded levels", e);
+            return new GainTable.Builder().build();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.nihongo.app;
+
+import android.view.Choreographer;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.nihongo.core.transcript.Transcript;
+import java.util.List;
+
+/**
+ * Shows the current track's {@link Transcript} in a list and highlights the line
+ * being spoken, on Choreographer frames and only while the screen is visible and
+ * audio is playing.
+ *
+ * <p>Each frame finds the line with one binary search and rebinds rows only when
+ * it changed; the next frame is requested for when the following line starts, at
+ * the current speed, or within a second so loops and skipped pauses are followed.
+ * Nothing is allocated per frame. Main thread only.
+ */
+final class TranscriptView implements Choreographer.FrameCallback {
+
+    interface LineListener {
+        /** The user tapped the line that starts at {@code startMs}. */
+        void onLineTapped(int startMs);
+    }
+
+    // Wakes up at least this often for position jumps the screen did not ask for
+    private static final int MAX_WAIT_MS = 1000;
+    // Lands the callback safely past the line start despite frame alignment
+    private static final int BOUNDARY_SLACK_MS = 5;
+    // Rebinds just the highlight of a row
+    private static final Object PAYLOAD_HIGHLIGHT = new Object();
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final ProgressRenderer.PositionSource source;
+    private final RecyclerView list;
+    private final LineAdapter adapter = new LineAdapter();
+    private final LineListener listener;
+    private final int currentColor;
+    private final int otherColor;
+    private final int currentBackground;
+
+    private Transcript transcript;
+    private int currentLine = -1;
+    private float speed = 1f;
+    private boolean visible;
+    private boolean playing;
+    private boolean scheduled;
+
+    TranscriptView(ProgressRenderer.PositionSource source, RecyclerView list, LineListener listener) {
+        this.source = source;
+        this.list = list;
+        this.listener = listener;
+        currentColor = ContextCompat.getColor(list.getContext(), R.color.playerText);
+        otherColor = ContextCompat.getColor(list.getContext(), R.color.playerTextDim);
+        currentBackground = ContextCompat.getColor(list.getContext(), R.color.playerHighlight);
+        list.setLayoutManager(new LinearLayoutManager(list.getContext()));
+        list.setAdapter(adapter);
+    }
+
+    /** Shows a track's transcript, or hides the list for a track without one. */
+    void setTranscript(Transcript transcript) {
+        if (transcript == this.transcript) {
+            return;
+        }
+        this.transcript = transcript;
+        currentLine = -1;
+        adapter.notifyDataSetChanged();
+        list.setVisibility(transcript != null ? View.VISIBLE : View.GONE);
+        if (transcript != null) {
+            list.scrollToPosition(0);
+            showPosition(source.getPosition());
+        }
+        update();
+    }
+
+    boolean hasTranscript() {
+        return transcript != null;
+    }
+
+    void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    void setVisible(boolean visible) {
+        this.visible = visible;
+        update();
+    }
+
+    void setPlaying(boolean playing) {
+        this.playing = playing;
+        update();
+    }
+
+    /** Highlights the line at a position the player was just sent to. */
+    void showPosition(int positionMs) {
+        if (transcript != null) {
+            highlight(transcript.lineAt(positionMs));
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (!visible || !playing || transcript == null) {
+            return;
+        }
+        int position = source.getPosition();
+        highlight(transcript.lineAt(position));
+        int next = transcript.nextChangeMs(position);
+        long delayMs = next < 0 ? MAX_WAIT_MS : Math.min(MAX_WAIT_MS, (long) ((next - position) / speed));
+        schedule(delayMs + BOUNDARY_SLACK_MS);
+    }
+
+    private void highlight(int line) {
+        if (line == currentLine) {
+            return;
+        }
+        int previous = currentLine;
+        currentLine = line;
+        if (previous >= 0) {
+            adapter.notifyItemChanged(previous, PAYLOAD_HIGHLIGHT);
+        }
+        if (line >= 0) {
+            adapter.notifyItemChanged(line, PAYLOAD_HIGHLIGHT);
+            list.smoothScrollToPosition(line);
+        }
+    }
+
+    private void update() {
+        if (visible && playing && transcript != null) {
+            if (!scheduled) {
+                schedule(0);
+            }
+        } else if (scheduled) {
+            choreographer.removeFrameCallback(this);
+            scheduled = false;
+        }
+    }
+
+    private void schedule(long delayMs) {
+        choreographer.postFrameCallbackDelayed(this, delayMs);
+        scheduled = true;
+    }
+
+    private class LineAdapter extends RecyclerView.Adapter<LineAdapter.LineViewHolder> {
+
+        @Override
+        public int getItemCount() {
+            return transcript != null ? transcript.getLineCount() : 0;
+        }
+
+        @NonNull
+        @Override
+        public LineViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_transcript_line, parent, false);
+            LineViewHolder holder = new LineViewHolder(view);
+            view.setOnClickListener(v -> {
+                int line = holder.getBindingAdapterPosition();
+                if (line != RecyclerView.NO_POSITION) {
+                    listener.onLineTapped(transcript.getStartMs(line));
+                }
+            });
+            return holder;
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull LineViewHolder holder, int position) {
+            String text = transcript.getText(position);
+            String reading = transcript.getReading(position);
+            String translation = transcript.getTranslation(position);
+            holder.textView.setText(text);
+            // Lines in kana only need no reading above them
+            holder.readingView.setText(reading);
+            holder.readingView.setVisibility(reading.equals(text) ? View.GONE : View.VISIBLE);
+            holder.translationView.setText(translation);
+            holder.translationView.setVisibility(translation != null ? View.VISIBLE : View.GONE);
+            bindHighlight(holder, position);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull LineViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
+            } else {
+                bindHighlight(holder, position);
+            }
+        }
+
+        private void bindHighlight(LineViewHolder holder, int position) {
+            boolean current = position == currentLine;
+            holder.textView.setTextColor(current ? currentColor : otherColor);
+            holder.itemView.setBackgroundColor(current ? currentBackground : 0);
+        }
+
+        class LineViewHolder extends RecyclerView.ViewHolder {
+            final TextView readingView;
+            final TextView textView;
+            final TextView translationView;
+
+            LineViewHolder(@NonNull View itemView) {
+                super(itemView);
+                readingView = itemView.findViewById(R.id.lineReading);
+                textView = itemView.findViewById(R.id.lineText);
+                translationView = itemView.findViewById(R.id.lineTranslation);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.Track;
+import com.nihongo.core.transcript.Transcript;
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the transcripts that :app:generateTranscripts bundles for transcribed tracks,
+ * on a background thread so a track change never waits for an asset.
+ */
+final class Transcripts {
+
+    interface Callback {
+        /** Called on the main thread; {@code transcript} is null if the track has none. */
+        void onLoaded(Track track, Transcript transcript);
+    }
+
+    private static final String TAG = "Transcripts";
+
+    private static Transcripts instance;
+
+    private final AssetManager assets;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static synchronized Transcripts get(Context context) {
+        if (instance == null) {
+            instance = new Transcripts(context);
+        }
+        return instance;
+    }
+
+    private Transcripts(Context context) {
+        assets = context.getApplicationContext().getAssets();
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /** Reads the transcript for a track and passes it to the callback. */
+    void load(Track track, Callback callback) {
+        handler.post(() -> {
+            Transcript transcript = open(track);
+            mainHandler.post(() -> callback.onLoaded(track, transcript));
+        });
+    }
+
+    private Transcript open(Track track) {
+        if (!track.isBundled()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(assets.open(Transcript.assetPath(track.path)))) {
+            return Transcript.readFrom(in);
+        } catch (FileNotFoundException e) {
+            // Not every track is transcribed
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read transcript for " + track.path, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.nihongo.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.Track;
+import com.nihongo.core.library.FileFolderSource;
+import com.nihongo.core.library.FolderSource;
+import com.nihongo.core.library.LibraryIndex;
+import com.nihongo.core.library.LibraryScanner;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lesson folders the user added, merged into {@link Lessons#catalog}. There is the
+ * app's own folder on external storage, Android/data/com.nihongo.app/files/lessons,
+ * for copying lessons over USB, and any folder picked in the system file picker;
+ * both are laid out like assets/audio. What was found is kept as one
+ * {@link LibraryIndex} per folder, so on launch the lessons are back as soon as
+ * those files are read, without listing anything. Each folder is then rescanned in
+ * the background, listing only lesson directories that changed, and the catalog is
+ * replaced only if a track did.
+ */
+final class UserLibrary {
+
+    private static final String TAG = "UserLibrary";
+    private static final String FILES_DIR = "lessons";
+    private static final String FILES_KEY = "files";
+    private static final String INDEX_DIR = "library";
+    private static final String PREFS = "library";
+    private static final String PREF_TREES = "trees";
+
+    private static UserLibrary instance;
+
+    private final Context context;
+    private final File indexDir;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshTask = this::refreshNow;
+
+    // Main thread only
+    private final List<Runnable> listeners = new ArrayList<>();
+
+    // Background thread only
+    private final Map<String, LibraryIndex> indexes = new LinkedHashMap<>();
+    // Published user tracks by path, so a rescan that finds a track again keeps its instance
+    private Map<String, Track> published = Collections.emptyMap();
+    private boolean loaded;
+
+    static synchronized UserLibrary get(Context context) {
+        if (instance == null) {
+            instance = new UserLibrary(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UserLibrary(Context context) {
+        this.context = context;
+        indexDir = new File(context.getFilesDir(), INDEX_DIR);
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /** Brings back the lessons found last time, then looks for changes; e.g. on every launch. */
+    void refresh() {
+        handler.removeCallbacks(refreshTask);
+        handler.post(refreshTask);
+    }
+
+    /** Adds a tree from ACTION_OPEN_DOCUMENT_TREE, keeping access to it across restarts, and scans it. */
+    void addTree(Uri tree) {
+        context.getContentResolver().takePersistableUriPermission(tree, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        Set<String> trees = new HashSet<>(prefs.getStringSet(PREF_TREES, Collections.<String>emptySet()));
+        trees.add(tree.toString());
+        prefs.edit().putStringSet(PREF_TREES, trees).apply();
+        refresh();
+    }
+
+    /** Runs {@code listener} on the main thread after each change to {@link Lessons#catalog}. */
+    void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // ---- Background thread ----
+
+    private List<FolderSource> sources() {
+        List<FolderSource> sources = new ArrayList<>();
+        // Null while external storage is unavailable
+        File files = context.getExternalFilesDir(FILES_DIR);
+        if (files != null) {
+            sources.add(new FileFolderSource(FILES_KEY, files));
+        }
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        List<String> trees = new ArrayList<>(prefs.getStringSet(PREF_TREES, Collections.<String>emptySet()));
+        Collections.sort(trees);
+        for (String tree : trees) {
+            sources.add(new DocumentTreeSource(context.getContentResolver(), Uri.parse(tree)));
+        }
+        return sources;
+    }
+
+    private void refreshNow() {
+        List<FolderSource> sources = sources();
+        if (!loaded) {
+            loaded = true;
+            for (FolderSource source : sources) {
+                indexes.put(source.getKey(), read(source.getKey()));
+            }
+            publish();
+        }
+
+        Set<String> keys = new HashSet<>();
+        for (FolderSource source : sources) {
+            keys.add(source.getKey());
+        }
+        boolean changed = indexes.keySet().retainAll(keys);
+        for (FolderSource source : sources) {
+            LibraryIndex previous = indexes.get(source.getKey());
+            if (previous == null) {
+                previous = LibraryIndex.empty(source.getKey());
+            }
+            LibraryIndex scanned;
+            try {
+                scanned = LibraryScanner.scan(source, previous);
+            } catch (IOException | RuntimeException e) {
+                // Unmounted or no longer accessible: keep what was there until it is back
+                Log.w(TAG, "Could not scan " + source.getKey(), e);
+                indexes.put(source.getKey(), previous);
+                continue;
+            }
+            indexes.put(source.getKey(), scanned);
+            if (!scanned.sameAs(previous)) {
+                write(scanned);
+                changed |= !scanned.sameFilesAs(previous);
+            }
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    private void publish() {
+        List<Track> tracks = new ArrayList<>();
+        Map<String, Track> byPath = new HashMap<>();
+        for (LibraryIndex index : indexes.values()) {
+            for (Track track : index.getTracks()) {
+                Track known = published.get(track.path);
+                if (known != null && known.location.equals(track.location)) {
+                    track = known;
+                }
+                tracks.add(track);
+                byPath.put(track.path, track);
+            }
+        }
+        if (tracks.isEmpty() && published.isEmpty()) {
+            return;
+        }
+        published = byPath;
+        LessonCatalog catalog = Lessons.bundled().withTracks(tracks);
+        Log.i(TAG, tracks.size() + " user tracks, " + catalog.getLessonCount() + " lessons");
+        mainHandler.post(() -> {
+            Lessons.setCatalog(catalog);
+            for (Runnable listener : new ArrayList<>(listeners)) {
+                listener.run();
+            }
+        });
+    }
+
+    private File indexFile(String key) {
+        return new File(indexDir, key + ".idx");
+    }
+
+    private LibraryIndex read(String key) {
+        File file = indexFile(key);
+        if (!file.exists()) {
+            return LibraryIndex.empty(key);
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return LibraryIndex.readFrom(in);
+        } catch (IOException e) {
+            // Rebuilt by the scan that follows
+            Log.w(TAG, "Could not read " + file, e);
+            return LibraryIndex.empty(key);
+        }
+    }
+
+    private void write(LibraryIndex index) {
+        File file = indexFile(index.getKey());
+        File temp = new File(indexDir, index.getKey() + ".tmp");
+        if (!indexDir.isDirectory() && !indexDir.mkdirs()) {
+            Log.w(TAG, "Could not create " + indexDir);
+            return;
+        }
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            OutputStream out = new BufferedOutputStream(stream);
+            index.writeTo(out);
+            out.flush();
+            // A rename can reach the disk before the data it points to
+            stream.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temp, e);
+            return;
+        }
+        // Replaced in one step, so a crash mid-write leaves the old index
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+        }
+    }
+}
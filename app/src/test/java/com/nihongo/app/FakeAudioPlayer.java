@@ -0,0 +1,213 @@
+package com.nihongo.app;
+
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.VoiceClarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scripted {@link AudioPlayer}. Platform callbacks are delivered only when the test
+ * calls {@link #finishPrepare()}, {@link #finishPlayback()} or {@link #finishSeek()},
+ * posted to the worker executor just like MediaPlayer posts them to the looper that
+ * created it.
+ */
+final class FakeAudioPlayer implements AudioPlayer, AudioPlayer.Looping, AudioPlayer.Stretching,
+        AudioPlayer.Clarifying {
+
+    private final Callback callback;
+    private final ManualExecutor worker;
+    private final ManualExecutor main;
+    private final List<Track> prepareLog;
+
+    Track dataSource;
+    FakeAudioPlayer next;
+    boolean preparing;
+    boolean prepared;
+    boolean playing;
+    boolean released;
+    int position;
+    boolean seeking;
+    final List<Integer> seeks = new ArrayList<>();
+    boolean acceptsLoops = true;
+    boolean looping;
+    int loopStart;
+    int loopEnd;
+    int loopGap;
+    // Like PcmPlayer, kept across reset
+    float speed = 1f;
+    VoiceClarity.Settings clarity = VoiceClarity.Settings.OFF;
+
+    FakeAudioPlayer(Callback callback, ManualExecutor worker, ManualExecutor main, List<Track> prepareLog) {
+        this.callback = callback;
+        this.worker = worker;
+        this.main = main;
+        this.prepareLog = prepareLog;
+        assertOffMainThread("create");
+    }
+
+    void finishPrepare() {
+        if (!preparing) {
+            throw new IllegalStateException("not preparing");
+        }
+        worker.execute(() -> {
+            // reset() in the meantime drops the pending event, like MediaPlayer does
+            if (preparing) {
+                preparing = false;
+                prepared = true;
+                callback.onPrepared(this);
+            }
+        });
+    }
+
+    void finishPlayback() {
+        if (!playing) {
+            throw new IllegalStateException("not playing");
+        }
+        playing = false;
+        FakeAudioPlayer chained = next;
+        if (chained != null) {
+            chained.playing = true;
+            worker.execute(() -> callback.onStartedAsNext(chained));
+        }
+        worker.execute(() -> callback.onCompletion(this));
+    }
+
+    void finishSeek() {
+        if (!seeking) {
+            throw new IllegalStateException("not seeking");
+        }
+        worker.execute(() -> {
+            seeking = false;
+            position = seeks.get(seeks.size() - 1);
+            callback.onSeekComplete(this);
+        });
+    }
+
+    private void assertOffMainThread(String call) {
+        if (main.isRunning() || !worker.isRunning()) {
+            throw new AssertionError(call + " called outside the worker thread");
+        }
+    }
+
+    @Override
+    public void setDataSource(Track track) {
+        assertOffMainThread("setDataSource");
+        dataSource = track;
+    }
+
+    @Override
+    public void prepareAsync() {
+        assertOffMainThread("prepareAsync");
+        if (dataSource == null) {
+            throw new IllegalStateException("no data source");
+        }
+        preparing = true;
+        prepareLog.add(dataSource);
+    }
+
+    @Override
+    public void start() {
+        assertOffMainThread("start");
+        if (!prepared) {
+            throw new IllegalStateException("not prepared");
+        }
+        playing = true;
+    }
+
+    @Override
+    public void pause() {
+        assertOffMainThread("pause");
+        playing = false;
+    }
+
+    @Override
+    public void seekTo(int positionMs) {
+        assertOffMainThread("seekTo");
+        if (seeking) {
+            throw new IllegalStateException("seek issued before the previous one completed");
+        }
+        seeking = true;
+        seeks.add(positionMs);
+    }
+
+    @Override
+    public boolean setLoop(int startMs, int endMs) {
+        assertOffMainThread("setLoop");
+        if (!prepared || !acceptsLoops) {
+            return false;
+        }
+        looping = true;
+        loopStart = startMs;
+        loopEnd = endMs;
+        return true;
+    }
+
+    @Override
+    public void setLoopGap(int gapMs) {
+        assertOffMainThread("setLoopGap");
+        loopGap = gapMs;
+    }
+
+    @Override
+    public void clearLoop() {
+        assertOffMainThread("clearLoop");
+        looping = false;
+    }
+
+    @Override
+    public void setSpeed(float speed) {
+        assertOffMainThread("setSpeed");
+        this.speed = speed;
+    }
+
+    @Override
+    public void setVoiceClarity(VoiceClarity.Settings settings) {
+        assertOffMainThread("setVoiceClarity");
+        clarity = settings;
+    }
+
+    @Override
+    public void setNext(AudioPlayer next) {
+        assertOffMainThread("setNext");
+        if (next != null && !((FakeAudioPlayer) next).prepared) {
+            throw new IllegalStateException("next player not prepared");
+        }
+        this.next = (FakeAudioPlayer) next;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return position;
+    }
+
+    @Override
+    public int getDuration() {
+        return dataSource != null ? 1000 * dataSource.lesson : 0;
+    }
+
+    @Override
+    public void reset() {
+        assertOffMainThread("reset");
+        dataSource = null;
+        next = null;
+        preparing = false;
+        prepared = false;
+        playing = false;
+        position = 0;
+        seeking = false;
+        looping = false;
+    }
+
+    @Override
+    public void release() {
+        assertOffMainThread("release");
+        reset();
+        released = true;
+    }
+}
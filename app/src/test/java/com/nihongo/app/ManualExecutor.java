@@ -0,0 +1,54 @@
+package com.nihongo.app;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that only runs tasks when the test asks it to, standing in for a Looper.
+ * {@link #isRunning()} tells fakes which "thread" they are being called on.
+ */
+final class ManualExecutor implements Executor {
+
+    private final String name;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    ManualExecutor(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+    }
+
+    /** Runs queued tasks, including ones they post, until the queue is empty. */
+    int runAll() {
+        int ran = 0;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            running = true;
+            try {
+                task.run();
+            } finally {
+                running = false;
+            }
+            ran++;
+        }
+        return ran;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    int pending() {
+        return tasks.size();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
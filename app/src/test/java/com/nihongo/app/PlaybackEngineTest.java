@@ -0,0 +1,500 @@
+package com.nihongo.app;
+
+import com.nihongo.core.Track;
+import com.nihongo.core.pcm.VoiceClarity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link PlaybackEngine} with manual executors and fake players, so every
+ * interleaving is deterministic. The fakes fail the test if they are touched from
+ * the main executor.
+ */
+public class PlaybackEngineTest {
+
+    private final Track l1Main = Track.create(1, "l1_main.mp3");
+    private final Track l1Q1 = Track.create(1, "l1_q1.mp3");
+    private final Track l1Q2 = Track.create(1, "l1_q2.mp3");
+    private final Track l2Main = Track.create(2, "l2_main.mp3");
+    private final Track[] sequence = {l1Main, l1Q1, l1Q2, l2Main};
+
+    private ManualExecutor worker;
+    private ManualExecutor main;
+    private List<FakeAudioPlayer> players;
+    private List<Track> prepared;
+    private List<String> events;
+    private PlaybackEngine engine;
+
+    @Before
+    public void setUp() {
+        worker = new ManualExecutor("worker");
+        main = new ManualExecutor("main");
+        players = new ArrayList<>();
+        prepared = new ArrayList<>();
+        events = new ArrayList<>();
+        engine = new PlaybackEngine(callback -> {
+            FakeAudioPlayer player = new FakeAudioPlayer(callback, worker, main, prepared);
+            players.add(player);
+            return player;
+        }, this::after, new RecordingListener(), worker, main, () -> events.add("released"));
+    }
+
+    private Track after(Track track) {
+        for (int i = 0; i < sequence.length - 1; i++) {
+            if (sequence[i] == track) {
+                return sequence[i + 1];
+            }
+        }
+        return null;
+    }
+
+    private FakeAudioPlayer playerFor(Track track) {
+        for (FakeAudioPlayer player : players) {
+            if (player.dataSource == track) {
+                return player;
+            }
+        }
+        throw new AssertionError("no player has " + track.path);
+    }
+
+    private void startAndSettle(Track track) {
+        engine.play(track);
+        worker.runAll();
+        playerFor(track).finishPrepare();
+        worker.runAll();
+        main.runAll();
+    }
+
+    @Test
+    public void play_preparesOnWorkerOnly() {
+        engine.play(l1Main);
+        assertTrue("nothing may be prepared before the worker runs", prepared.isEmpty());
+
+        main.runAll();
+        assertTrue(prepared.isEmpty());
+
+        worker.runAll();
+        assertEquals(1, prepared.size());
+        assertSame(l1Main, prepared.get(0));
+    }
+
+    @Test
+    public void rapidNext_onlyPreparesFinalTarget() {
+        engine.play(l1Main);
+        engine.play(l1Q1);
+        engine.play(l1Q2);
+        worker.runAll();
+
+        assertEquals(1, prepared.size());
+        assertSame(l1Q2, prepared.get(0));
+    }
+
+    @Test
+    public void requestDuringPrepare_dropsStalePrepare() {
+        engine.play(l1Main);
+        worker.runAll();
+        FakeAudioPlayer first = playerFor(l1Main);
+
+        first.finishPrepare();
+        engine.play(l1Q2);
+        worker.runAll();
+        main.runAll();
+
+        assertFalse("stale track must never start", events.contains("started " + l1Main.path));
+        playerFor(l1Q2).finishPrepare();
+        worker.runAll();
+        main.runAll();
+        assertEquals("started " + l1Q2.path, events.get(events.size() - 1));
+    }
+
+    @Test
+    public void listenerCallbacks_arePostedToMain() {
+        engine.play(l1Main);
+        worker.runAll();
+        playerFor(l1Main).finishPrepare();
+        worker.runAll();
+
+        assertTrue("listener must wait for the main executor", events.isEmpty());
+        main.runAll();
+        assertTrue(events.contains("started " + l1Main.path));
+        assertTrue(events.contains("playing true"));
+        assertTrue(engine.isPlaying());
+    }
+
+    @Test
+    public void pauseDuringPrepare_leavesTrackPausedUntilResume() {
+        engine.play(l1Main, 5_000);
+        worker.runAll();
+        engine.pause();
+        worker.runAll();
+        FakeAudioPlayer player = playerFor(l1Main);
+        player.finishPrepare();
+        worker.runAll();
+        main.runAll();
+
+        assertTrue(events.contains("started " + l1Main.path));
+        assertFalse("a paused track must not start when prepared", player.playing);
+        assertFalse(events.contains("playing true"));
+        assertFalse(engine.isPlaying());
+        assertEquals(5_000, engine.getCurrentPosition());
+
+        engine.resume();
+        worker.runAll();
+        main.runAll();
+        assertTrue(player.playing);
+        assertEquals("playing true", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void startedTrack_chainsPreparedSuccessor() {
+        startAndSettle(l1Main);
+
+        FakeAudioPlayer current = playerFor(l1Main);
+        FakeAudioPlayer next = playerFor(l1Q1);
+        assertTrue(next.preparing);
+        next.finishPrepare();
+        worker.runAll();
+
+        assertSame(next, current.next);
+    }
+
+    @Test
+    public void completion_handsOffGaplessly() {
+        startAndSettle(l1Main);
+        playerFor(l1Q1).finishPrepare();
+        worker.runAll();
+        int preparesBefore = prepared.size();
+
+        playerFor(l1Main).finishPlayback();
+        worker.runAll();
+        main.runAll();
+
+        assertTrue(playerFor(l1Q1).playing);
+        assertEquals("started " + l1Q1.path, lastStarted());
+        assertTrue(engine.getLastHandoffLatencyMs() >= 0);
+        // Only the new successor was prepared, the handed-off track was not re-prepared
+        assertEquals(preparesBefore + 1, prepared.size());
+        assertSame(l1Q2, prepared.get(prepared.size() - 1));
+    }
+
+    @Test
+    public void handoff_crossesIntoNextLesson() {
+        startAndSettle(l1Q2);
+        assertSame(l2Main, prepared.get(prepared.size() - 1));
+        playerFor(l2Main).finishPrepare();
+        worker.runAll();
+
+        playerFor(l1Q2).finishPlayback();
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("started " + l2Main.path, lastStarted());
+    }
+
+    @Test
+    public void skipToPreloadedTrack_doesNotPrepareAgain() {
+        startAndSettle(l1Main);
+        playerFor(l1Q1).finishPrepare();
+        worker.runAll();
+        int preparesBefore = prepared.size();
+
+        engine.play(l1Q1);
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("started " + l1Q1.path, lastStarted());
+        assertEquals(preparesBefore + 1, prepared.size());
+        assertSame(l1Q2, prepared.get(prepared.size() - 1));
+    }
+
+    @Test
+    public void completionWithoutPreload_fallsBackToPrepare() {
+        startAndSettle(l1Main);
+
+        playerFor(l1Main).finishPlayback();
+        worker.runAll();
+
+        FakeAudioPlayer q1 = playerFor(l1Q1);
+        assertTrue(q1.preparing);
+        q1.finishPrepare();
+        worker.runAll();
+        main.runAll();
+        assertEquals("started " + l1Q1.path, lastStarted());
+    }
+
+    @Test
+    public void refreshNext_preparesNewNextTrack() {
+        startAndSettle(l1Main);
+        playerFor(l1Q1).finishPrepare();
+        worker.runAll();
+
+        sequence[1] = l2Main;
+        engine.refreshNext();
+        worker.runAll();
+        FakeAudioPlayer next = playerFor(l2Main);
+        next.finishPrepare();
+        worker.runAll();
+
+        playerFor(l1Main).finishPlayback();
+        worker.runAll();
+        main.runAll();
+        assertEquals("started " + l2Main.path, lastStarted());
+    }
+
+    @Test
+    public void lastTrack_finishesSequence() {
+        sequence[3] = null;
+        startAndSettle(l1Q2);
+
+        playerFor(l1Q2).finishPlayback();
+        worker.runAll();
+        main.runAll();
+
+        assertEquals("finished " + l1Q2.path, events.get(events.size() - 1));
+        assertFalse(engine.isPlaying());
+    }
+
+    @Test
+    public void release_releasesPlayersOnWorker() {
+        startAndSettle(l1Main);
+        engine.release();
+        worker.runAll();
+        main.runAll();
+
+        for (FakeAudioPlayer player : players) {
+            assertTrue(player.released);
+        }
+        assertEquals("released", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void seekTo_coalescesDragToLatestPosition() {
+        startAndSettle(l1Main);
+        FakeAudioPlayer player = playerFor(l1Main);
+
+        engine.seekTo(1000);
+        worker.runAll();
+        // A drag delivers many positions while the first seek is still running
+        for (int position = 1100; position <= 5000; position += 100) {
+            engine.seekTo(position);
+        }
+        worker.runAll();
+        assertEquals(5000, engine.getCurrentPosition());
+
+        player.finishSeek();
+        worker.runAll();
+        player.finishSeek();
+        worker.runAll();
+
+        assertEquals(Arrays.asList(1000, 5000), player.seeks);
+        assertEquals(5000, engine.getCurrentPosition());
+        assertFalse(player.seeking);
+    }
+
+    @Test
+    public void seekTo_reportsTargetUntilPlayerArrives() {
+        startAndSettle(l1Main);
+        FakeAudioPlayer player = playerFor(l1Main);
+        player.position = 200;
+
+        engine.seekTo(3000);
+        assertEquals(3000, engine.getCurrentPosition());
+        worker.runAll();
+        player.finishSeek();
+        worker.runAll();
+        player.position = 3400;
+        assertEquals(3400, engine.getCurrentPosition());
+    }
+
+    @Test
+    public void seekTo_droppedWhileSwitchingTracks() {
+        startAndSettle(l1Main);
+        engine.play(l1Q2);
+        worker.runAll();
+        engine.seekTo(2000);
+        worker.runAll();
+
+        playerFor(l1Q2).finishPrepare();
+        worker.runAll();
+        main.runAll();
+        assertTrue(playerFor(l1Q2).seeks.isEmpty());
+        assertEquals(0, engine.getCurrentPosition());
+    }
+
+    @Test
+    public void playFromPosition_seeksBeforeStart() {
+        engine.play(l1Main, 4000);
+        worker.runAll();
+        FakeAudioPlayer player = playerFor(l1Main);
+        player.finishPrepare();
+        worker.runAll();
+        main.runAll();
+
+        assertEquals(Arrays.asList(4000), player.seeks);
+        assertTrue(player.playing);
+        assertEquals(4000, engine.getCurrentPosition());
+
+        // A drag right after the resume waits for the initial seek
+        engine.seekTo(6000);
+        worker.runAll();
+        player.finishSeek();
+        worker.runAll();
+        player.finishSeek();
+        worker.runAll();
+        assertEquals(Arrays.asList(4000, 6000), player.seeks);
+    }
+
+    @Test
+    public void completion_reportedBeforeHandoff() {
+        startAndSettle(l1Main);
+        playerFor(l1Q1).finishPrepare();
+        worker.runAll();
+
+        playerFor(l1Main).finishPlayback();
+        worker.runAll();
+        main.runAll();
+
+        int completed = events.indexOf("completed " + l1Main.path);
+        assertTrue(completed >= 0);
+        assertTrue(completed < events.lastIndexOf("started " + l1Q1.path));
+    }
+
+    @Test
+    public void setLoop_reachesPlayerAndEndsOnSeek() {
+        startAndSettle(l1Main);
+        FakeAudioPlayer player = playerFor(l1Main);
+
+        engine.setLoop(1000, 3000, 800);
+        worker.runAll();
+        main.runAll();
+        assertTrue(player.looping);
+        assertEquals(1000, player.loopStart);
+        assertEquals(3000, player.loopEnd);
+        assertEquals(800, player.loopGap);
+        assertEquals("loop true", events.get(events.size() - 1));
+
+        engine.seekTo(200);
+        worker.runAll();
+        main.runAll();
+        assertFalse(player.looping);
+        assertEquals(Arrays.asList(200), player.seeks);
+        assertEquals("loop false", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void setLoop_reportsRefusal() {
+        startAndSettle(l1Main);
+        playerFor(l1Main).acceptsLoops = false;
+
+        engine.setLoop(1000, 3000, 0);
+        worker.runAll();
+        main.runAll();
+        assertEquals("loop false", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void trackChange_endsLoop() {
+        startAndSettle(l1Main);
+        engine.setLoop(1000, 3000, 0);
+        worker.runAll();
+        main.runAll();
+
+        engine.play(l1Q2);
+        worker.runAll();
+        main.runAll();
+        assertEquals("loop false", events.get(events.size() - 1));
+    }
+
+    @Test
+    public void setSpeed_reachesBothPlayersAndCarriesOver() {
+        engine.setSpeed(0.75f);
+        startAndSettle(l1Main);
+        for (FakeAudioPlayer player : players) {
+            assertEquals(0.75f, player.speed, 0f);
+        }
+
+        engine.setSpeed(1.25f);
+        worker.runAll();
+        playerFor(l1Q1).finishPrepare();
+        worker.runAll();
+        playerFor(l1Main).finishPlayback();
+        worker.runAll();
+        main.runAll();
+        assertEquals("started " + l1Q1.path, lastStarted());
+        assertEquals(1.25f, playerFor(l1Q1).speed, 0f);
+        for (FakeAudioPlayer player : players) {
+            assertEquals(1.25f, player.speed, 0f);
+        }
+    }
+
+    @Test
+    public void setVoiceClarity_reachesBothPlayersWhilePlaying() {
+        VoiceClarity.Settings mild = new VoiceClarity.Settings(4f, 0.4f);
+        engine.setVoiceClarity(mild);
+        startAndSettle(l1Main);
+        for (FakeAudioPlayer player : players) {
+            assertSame(mild, player.clarity);
+        }
+
+        engine.setVoiceClarity(VoiceClarity.Settings.OFF);
+        worker.runAll();
+        assertTrue(playerFor(l1Main).playing);
+        for (FakeAudioPlayer player : players) {
+            assertSame(VoiceClarity.Settings.OFF, player.clarity);
+        }
+    }
+
+    private String lastStarted() {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (events.get(i).startsWith("started ")) {
+                return events.get(i);
+            }
+        }
+        return null;
+    }
+
+    private final class RecordingListener implements PlaybackEngine.Listener {
+
+        private void record(String event) {
+            assertTrue("listener called off the main executor", main.isRunning());
+            events.add(event);
+        }
+
+        @Override
+        public void onTrackStarted(Track track, int durationMs) {
+            record("started " + track.path);
+        }
+
+        @Override
+        public void onPlayingChanged(boolean playing) {
+            record("playing " + playing);
+        }
+
+        @Override
+        public void onTrackCompleted(Track track) {
+            record("completed " + track.path);
+        }
+
+        @Override
+        public void onSequenceFinished(Track lastTrack) {
+            record("finished " + lastTrack.path);
+        }
+
+        @Override
+        public void onLoopChanged(boolean looping) {
+            record("loop " + looping);
+        }
+
+        @Override
+        public void onError(Track track, Exception e) {
+            record("error " + track.path);
+        }
+    }
+}
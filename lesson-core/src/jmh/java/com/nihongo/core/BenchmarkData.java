@@ -0,0 +1,52 @@
+package com.nihongo.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** Loads the bundled lesson file names the same way the app's generated catalog lists them. */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static File audioDir() {
+        return new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+    }
+
+    static String[][] lessonFiles() {
+        List<String[]> lessons = new ArrayList<>();
+        for (int lesson = 1; ; lesson++) {
+            File dir = new File(audioDir(), "lesson_" + lesson);
+            if (!dir.isDirectory()) {
+                break;
+            }
+            String[] names = dir.list((d, name) -> name.endsWith(".mp3"));
+            // Same order as the build's catalog generator: main, then q1, q2, ... then the rest
+            Arrays.sort(names, Comparator.comparingInt(BenchmarkData::rank)
+                    .thenComparing(Comparator.naturalOrder()));
+            lessons.add(names);
+        }
+        if (lessons.isEmpty()) {
+            throw new IllegalStateException("No lessons under " + audioDir());
+        }
+        return lessons.toArray(new String[0][]);
+    }
+
+    private static int rank(String fileName) {
+        String base = fileName.substring(0, fileName.length() - ".mp3".length());
+        if (base.endsWith("_main")) {
+            return 0;
+        }
+        int q = base.lastIndexOf("_q");
+        if (q >= 0) {
+            try {
+                return 1 + Integer.parseInt(base.substring(q + 2));
+            } catch (NumberFormatException ignored) {
+                // Not a numbered question: sorts after them
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,54 @@
+package com.nihongo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cost of building the whole catalog, which the app pays once on first access. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogBenchmark {
+
+    private String[][] fileNames;
+    private LessonCatalog catalog;
+    private String[] paths;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fileNames = BenchmarkData.lessonFiles();
+        catalog = new LessonCatalog(fileNames);
+        int count = 0;
+        for (int lesson = 1; lesson <= catalog.getLessonCount(); lesson++) {
+            count += catalog.getFiles(lesson).size();
+        }
+        paths = new String[count];
+        int i = 0;
+        for (int lesson = 1; lesson <= catalog.getLessonCount(); lesson++) {
+            for (String path : catalog.getFiles(lesson)) {
+                paths[i++] = path;
+            }
+        }
+    }
+
+    @Benchmark
+    public LessonCatalog load() {
+        return new LessonCatalog(fileNames);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Track findTrack() {
+        if (++next == paths.length) {
+            next = 0;
+        }
+        return catalog.findTrack(paths[next]);
+    }
+}
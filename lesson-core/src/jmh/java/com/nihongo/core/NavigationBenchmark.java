@@ -0,0 +1,70 @@
+package com.nihongo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Next/previous and lesson jumps, walked across the whole catalog so every boundary is hit. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NavigationBenchmark {
+
+    private LessonCatalog catalog;
+    private PlaybackQueue shuffled;
+    private Track first;
+    private Track last;
+    private Track forward;
+    private Track backward;
+    private int lesson;
+
+    @Setup
+    public void setUp() {
+        catalog = new LessonCatalog(BenchmarkData.lessonFiles());
+        first = catalog.firstTrackAfterLesson(0);
+        last = first;
+        for (Track t = first; t != null; t = catalog.trackAfter(t, true)) {
+            last = t;
+        }
+        forward = first;
+        backward = last;
+        shuffled = PlaybackQueue.all(catalog).shuffled(1, first);
+    }
+
+    @Benchmark
+    public Track next() {
+        Track next = catalog.trackAfter(forward, true);
+        forward = next != null ? next : first;
+        return forward;
+    }
+
+    @Benchmark
+    public Track previous() {
+        Track previous = catalog.trackBefore(backward);
+        backward = previous != null ? previous : last;
+        return backward;
+    }
+
+    @Benchmark
+    public Track nextLesson() {
+        Track next = catalog.firstTrackAfterLesson(lesson);
+        if (next == null) {
+            next = first;
+        }
+        lesson = next.lesson;
+        return next;
+    }
+
+    @Benchmark
+    public Track shuffledNext() {
+        Track next = shuffled.after(forward);
+        forward = next != null ? next : shuffled.get(0);
+        return forward;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nihongo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** The player formats the position on every progress tick; the gc profiler shows which variants allocate. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimeFormatBenchmark {
+
+    private final char[] text = new char[TimeFormat.MAX_LENGTH];
+    private final ProgressText progress = new ProgressText();
+    private int positionMs;
+
+    @Benchmark
+    public String format() {
+        positionMs = (positionMs + 500) % 3_600_000;
+        return TimeFormat.format(positionMs);
+    }
+
+    @Benchmark
+    public int formatInto() {
+        positionMs = (positionMs + 500) % 3_600_000;
+        return TimeFormat.formatInto(positionMs, text, 0);
+    }
+
+    /** One render-loop frame: position advances by a 60 Hz frame, text changes once a second. */
+    @Benchmark
+    public boolean progressFrame() {
+        positionMs = (positionMs + 16) % 3_600_000;
+        return progress.update(positionMs);
+    }
+}
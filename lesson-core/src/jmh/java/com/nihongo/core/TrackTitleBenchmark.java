@@ -0,0 +1,66 @@
+package com.nihongo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title rendering per list bind: formatting from the file name, as the adapters
+ * used to, against reading the title the catalog already built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TrackTitleBenchmark {
+
+    private String[] fileNames;
+    private int[] lessons;
+    private Track[] tracks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        LessonCatalog catalog = new LessonCatalog(BenchmarkData.lessonFiles());
+        int count = 0;
+        for (int lesson = 1; lesson <= catalog.getLessonCount(); lesson++) {
+            count += catalog.getTracks(lesson).size();
+        }
+        fileNames = new String[count];
+        lessons = new int[count];
+        tracks = new Track[count];
+        int i = 0;
+        for (int lesson = 1; lesson <= catalog.getLessonCount(); lesson++) {
+            List<Track> lessonTracks = catalog.getTracks(lesson);
+            for (Track track : lessonTracks) {
+                fileNames[i] = track.path.substring(track.path.indexOf('/') + 1);
+                lessons[i] = lesson;
+                tracks[i++] = track;
+            }
+        }
+    }
+
+    @Benchmark
+    public String formatFromFileName() {
+        int i = advance();
+        return Track.create(lessons[i], fileNames[i]).listTitle;
+    }
+
+    @Benchmark
+    public String cachedTitle() {
+        return tracks[advance()].listTitle;
+    }
+
+    private int advance() {
+        if (++next == tracks.length) {
+            next = 0;
+        }
+        return next;
+    }
+}
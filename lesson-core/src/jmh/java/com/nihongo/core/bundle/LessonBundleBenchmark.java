@@ -0,0 +1,115 @@
+package com.nihongo.core.bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening lesson 1 and switching between its tracks, as separate MP3 files and as
+ * one {@link LessonBundle}. Each operation ends by reading the first bytes of the
+ * track, as a decoder would. On a device the per-file side also pays for the
+ * asset manager's lookup in the APK, so the gap there is wider than measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LessonBundleBenchmark {
+
+    private File lessonDir;
+    private String[] names;
+    private File bundleFile;
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+
+    // Kept open for the track switches
+    private FileChannel bundleChannel;
+    private LessonBundle bundle;
+    private MappedByteBuffer mapped;
+    private int track;
+
+    @Setup
+    public void setUp() throws IOException {
+        lessonDir = new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"), "lesson_1");
+        names = lessonDir.list((d, name) -> name.endsWith(".mp3"));
+        Arrays.sort(names);
+        int[] lengths = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            lengths[i] = (int) new File(lessonDir, names[i]).length();
+        }
+        bundleFile = File.createTempFile("lesson_1", ".bundle");
+        LessonBundle layout = LessonBundle.layout(names, lengths);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(bundleFile))) {
+            layout.writeTableTo(out);
+            for (int i = 0; i < names.length; i++) {
+                Files.copy(new File(lessonDir, names[i]).toPath(), out);
+                out.write(new byte[layout.paddingAfter(i)]);
+            }
+        }
+        bundleChannel = FileChannel.open(bundleFile.toPath(), StandardOpenOption.READ);
+        bundle = LessonBundle.readFrom(new BufferedInputStream(Channels.newInputStream(bundleChannel)));
+        mapped = bundleChannel.map(FileChannel.MapMode.READ_ONLY, 0, bundleChannel.size());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        bundleChannel.close();
+        Files.delete(bundleFile.toPath());
+    }
+
+    /** Opens the lesson's first track. */
+    @Benchmark
+    public int openLessonPerFile() throws IOException {
+        return readHeader(names[0]);
+    }
+
+    /** Opens the bundle, reads its table, and maps it. */
+    @Benchmark
+    public int openLessonBundle() throws IOException {
+        try (FileChannel channel = FileChannel.open(bundleFile.toPath(), StandardOpenOption.READ)) {
+            LessonBundle table = LessonBundle.readFrom(new BufferedInputStream(Channels.newInputStream(channel)));
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return map.getInt((int) table.getOffset(0));
+        }
+    }
+
+    /** Opens the next track's file. */
+    @Benchmark
+    public int switchTrackPerFile() throws IOException {
+        track = (track + 1) % names.length;
+        return readHeader(names[track]);
+    }
+
+    /** Looks the next track up in the open bundle. */
+    @Benchmark
+    public int switchTrackBundle() {
+        track = (track + 1) % names.length;
+        return mapped.getInt((int) bundle.getOffset(bundle.indexOf(names[track])));
+    }
+
+    private int readHeader(String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(lessonDir, name).toPath(), StandardOpenOption.READ)) {
+            header.clear();
+            channel.read(header, 0);
+            return header.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nihongo.core.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics are recorded on the main and player threads in release builds, so a
+ * span has to cost next to nothing, also when several threads record at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsRecorderBenchmark {
+
+    private final MetricsRecorder recorder = new MetricsRecorder(
+            new String[] {"cold_start", "lesson_open", "tap_to_audio", "track_transition"},
+            new String[] {"tracks_started", "track_errors"});
+
+    @Benchmark
+    public boolean span() {
+        long now = System.nanoTime();
+        recorder.start(2, now);
+        return recorder.stop(2, now + 85_000_000);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        recorder.record(3, System.nanoTime() & 0xFFFFF);
+    }
+}
@@ -0,0 +1,36 @@
+package com.nihongo.core.mp3;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/** Header-only duration of one bundled track, read from memory so disk speed does not count. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Mp3HeaderBenchmark {
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"),
+                "lesson_1/l1_main.mp3");
+        data = Files.readAllBytes(file.toPath());
+    }
+
+    @Benchmark
+    public Mp3Info parse() throws IOException {
+        return Mp3HeaderParser.parse(new ByteArrayInputStream(data), data.length);
+    }
+}
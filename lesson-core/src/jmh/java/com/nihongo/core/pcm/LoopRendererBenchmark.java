@@ -0,0 +1,59 @@
+package com.nihongo.core.pcm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One output chunk (1024 stereo frames, ~23 ms at 44.1 kHz) as the PCM player's
+ * output thread renders it: from the ring while streaming, from memory while
+ * looping. Both must stay far below the chunk's duration and must not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoopRendererBenchmark {
+
+    private static final int CHANNELS = 2;
+    private static final int CHUNK = 1024 * CHANNELS;
+
+    private final short[] decoded = new short[CHUNK];
+    private final short[] out = new short[CHUNK];
+    private PcmRingBuffer ring;
+    private LoopRenderer streaming;
+    private LoopRenderer looping;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < decoded.length; i++) {
+            decoded[i] = (short) (i * 31);
+        }
+        ring = new PcmRingBuffer(44_100 * CHANNELS);
+        streaming = new LoopRenderer(CHANNELS, 30 * 44_100);
+        looping = new LoopRenderer(CHANNELS, 30 * 44_100);
+        // Five seconds heard, then a three-second sentence looped with a pause
+        for (int i = 0; i < 5 * 44_100 / 1024; i++) {
+            ring.write(decoded, 0, CHUNK);
+            looping.render(ring, out, 0, CHUNK);
+        }
+        looping.setGapFrames(44_100);
+        looping.setLoop(44_100, 4 * 44_100);
+    }
+
+    @Benchmark
+    public int stream() {
+        ring.write(decoded, 0, CHUNK);
+        return streaming.render(ring, out, 0, CHUNK);
+    }
+
+    @Benchmark
+    public int loop() {
+        return looping.render(ring, out, 0, CHUNK);
+    }
+}
@@ -0,0 +1,68 @@
+package com.nihongo.core.pcm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to stretch one second of 44.1 kHz stereo audio, fed in the PCM player's
+ * 1024-frame chunks. Real time is 1000 ms per operation; a single core should
+ * need a small fraction of that at every speed the player offers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimeStretcherBenchmark {
+
+    private static final int RATE = 44_100;
+    private static final int CHANNELS = 2;
+    private static final int CHUNK = 1024 * CHANNELS;
+
+    @Param({"0.6", "1.0", "1.5"})
+    public float speed;
+
+    private final short[] voice = new short[RATE * CHANNELS];
+    private final short[] out = new short[4 * CHUNK];
+    private TimeStretcher stretcher;
+
+    @Setup
+    public void setUp() {
+        // Voice-like: a gliding 120-200 Hz fundamental with harmonics, plus some breath noise
+        Random random = new Random(3);
+        double phase = 0;
+        for (int f = 0; f < RATE; f++) {
+            double pitch = 160 + 40 * Math.sin(2 * Math.PI * 3 * f / RATE);
+            phase += 2 * Math.PI * pitch / RATE;
+            double sample = 0;
+            for (int h = 1; h <= 8; h++) {
+                sample += Math.sin(h * phase) / h;
+            }
+            short value = (short) (5000 * sample + 300 * random.nextGaussian());
+            voice[f * 2] = value;
+            voice[f * 2 + 1] = value;
+        }
+        stretcher = new TimeStretcher(RATE, CHANNELS);
+        stretcher.setSpeed(speed);
+    }
+
+    @Benchmark
+    public int oneSecond() {
+        int produced = 0;
+        for (int offset = 0; offset < voice.length; offset += CHUNK) {
+            stretcher.write(voice, offset, Math.min(CHUNK, voice.length - offset));
+            int n;
+            while ((n = stretcher.read(out, 0, out.length)) > 0) {
+                produced += n;
+            }
+        }
+        return produced;
+    }
+}
@@ -0,0 +1,62 @@
+package com.nihongo.core.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lesson search runs on every keystroke on the main thread; this types a few
+ * queries one character at a time over the real lesson titles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchIndexBenchmark {
+
+    private static final String[] QUERIES = {"shitsurei", "こうしえん", "apartment", "どうでしたか"};
+
+    private SearchIndex index;
+    private int[] results;
+    private final StringBuilder typed = new StringBuilder();
+    private int query;
+
+    @Setup
+    public void setUp() throws IOException {
+        // lesson-titles.tsv sits next to the assets directory
+        File audioDir = new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+        File titles = new File(audioDir, "../../lesson-titles.tsv");
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        for (String line : Files.readAllLines(titles.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("#") && !line.trim().isEmpty()) {
+                String[] columns = line.split("\t");
+                builder.add(Integer.parseInt(columns[0]), Arrays.copyOfRange(columns, 1, columns.length));
+            }
+        }
+        index = builder.build();
+        results = new int[index.size()];
+    }
+
+    /** Every prefix of one query, as typed. */
+    @Benchmark
+    public int typeQuery() {
+        String text = QUERIES[query++ % QUERIES.length];
+        int found = 0;
+        typed.setLength(0);
+        for (int i = 0; i < text.length(); i++) {
+            typed.append(text.charAt(i));
+            found += index.search(typed, results);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,76 @@
+package com.nihongo.core.shadowing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to score a ten-second sentence: measuring the 44.1 kHz stereo reference,
+ * which happens once per sentence, and scoring a 16 kHz mono attempt against it,
+ * which happens after every recording. Both should stay well under 100 ms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShadowingScorerBenchmark {
+
+    private static final int SECONDS = 10;
+
+    private short[] reference;
+    private short[] attempt;
+    private ShadowingScorer scorer;
+
+    @Setup
+    public void setUp() {
+        reference = sentence(44_100, 2, 1.0);
+        // A higher voice, as a phone records it
+        attempt = sentence(16_000, 1, 1.6);
+        scorer = new ShadowingScorer();
+        scorer.setReference(reference, 0, reference.length, 44_100, 2);
+    }
+
+    @Benchmark
+    public ShadowingScorer measureReference() {
+        scorer.setReference(reference, 0, reference.length, 44_100, 2);
+        return scorer;
+    }
+
+    @Benchmark
+    public ShadowingScorer.Score scoreAttempt() {
+        return scorer.score(attempt, 0, attempt.length, 16_000, 1);
+    }
+
+    // Syllables of 150-300 ms with a gliding pitch and harmonics, between short pauses
+    private static short[] sentence(int rate, int channels, double key) {
+        Random random = new Random(7);
+        short[] samples = new short[rate * SECONDS * channels];
+        int frame = 0;
+        double phase = 0;
+        while (frame < rate * SECONDS) {
+            int length = rate * (150 + random.nextInt(150)) / 1000;
+            double from = key * (100 + random.nextInt(100));
+            double to = key * (100 + random.nextInt(100));
+            for (int f = 0; f < length && frame < rate * SECONDS; f++, frame++) {
+                double t = f / (double) length;
+                phase += 2 * Math.PI * (from + (to - from) * t) / rate;
+                double value = 0;
+                for (int h = 1; h <= 8; h++) {
+                    value += Math.sin(h * phase) / h;
+                }
+                short sample = (short) (8000 * Math.sin(Math.PI * t) * value);
+                for (int c = 0; c < channels; c++) {
+                    samples[frame * channels + c] = sample;
+                }
+            }
+            frame += rate * 60 / 1000;
+        }
+        return samples;
+    }
+}
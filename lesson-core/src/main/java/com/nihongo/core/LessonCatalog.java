@@ -0,0 +1,174 @@
+package com.nihongo.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All lessons and their tracks, built once from per-lesson file names that are
+ * already in play order (main, q1, q2, ...). Every track also has an index in one
+ * flat table across all lessons, so navigation is index arithmetic and lessons
+ * without audio take no time to skip. Lookups and navigation never touch storage.
+ * Tracks from user folders are merged in with {@link #withTracks}, which makes a new
+ * catalog; its bundled tracks are the same instances as in this one.
+ */
+public final class LessonCatalog {
+
+    // tracks.get(lesson - 1) and files.get(lesson - 1) are parallel views of the same lesson
+    private final List<List<Track>> tracks;
+    private final List<List<String>> files;
+    // All tracks in play order; lesson L occupies [lessonStarts[L - 1], lessonStarts[L])
+    private final Track[] ordered;
+    private final int[] lessonStarts;
+    private final Map<String, Integer> indexesByPath = new HashMap<>();
+
+    /** @param fileNames {@code fileNames[lesson - 1]} lists that lesson's MP3 file names in play order */
+    public LessonCatalog(String[][] fileNames) {
+        this(createTracks(fileNames));
+    }
+
+    private LessonCatalog(Track[][] byLesson) {
+        tracks = new ArrayList<>(byLesson.length);
+        files = new ArrayList<>(byLesson.length);
+        lessonStarts = new int[byLesson.length + 1];
+        for (int i = 0; i < byLesson.length; i++) {
+            lessonStarts[i + 1] = lessonStarts[i] + byLesson[i].length;
+        }
+        ordered = new Track[lessonStarts[byLesson.length]];
+        for (int i = 0; i < byLesson.length; i++) {
+            Track[] lessonTracks = byLesson[i];
+            String[] paths = new String[lessonTracks.length];
+            for (int j = 0; j < lessonTracks.length; j++) {
+                paths[j] = lessonTracks[j].path;
+                ordered[lessonStarts[i] + j] = lessonTracks[j];
+                indexesByPath.put(paths[j], lessonStarts[i] + j);
+            }
+            tracks.add(Collections.unmodifiableList(Arrays.asList(lessonTracks)));
+            files.add(Collections.unmodifiableList(Arrays.asList(paths)));
+        }
+    }
+
+    private static Track[][] createTracks(String[][] fileNames) {
+        Track[][] byLesson = new Track[fileNames.length][];
+        for (int i = 0; i < fileNames.length; i++) {
+            byLesson[i] = new Track[fileNames[i].length];
+            for (int j = 0; j < fileNames[i].length; j++) {
+                byLesson[i][j] = Track.create(i + 1, fileNames[i][j]);
+            }
+        }
+        return byLesson;
+    }
+
+    /**
+     * This catalog plus {@code added}, each after the tracks its lesson already has,
+     * in the order given. Lessons beyond this catalog's last one are added as needed.
+     * Tracks whose path is taken already are left out.
+     */
+    public LessonCatalog withTracks(List<Track> added) {
+        int lessonCount = tracks.size();
+        for (Track track : added) {
+            lessonCount = Math.max(lessonCount, track.lesson);
+        }
+        List<List<Track>> byLesson = new ArrayList<>(lessonCount);
+        for (int i = 0; i < lessonCount; i++) {
+            byLesson.add(new ArrayList<>(getTracks(i + 1)));
+        }
+        Set<String> taken = new HashSet<>(indexesByPath.keySet());
+        for (Track track : added) {
+            if (track.lesson >= 1 && taken.add(track.path)) {
+                byLesson.get(track.lesson - 1).add(track);
+            }
+        }
+        Track[][] merged = new Track[lessonCount][];
+        for (int i = 0; i < lessonCount; i++) {
+            merged[i] = byLesson.get(i).toArray(new Track[0]);
+        }
+        return new LessonCatalog(merged);
+    }
+
+    public int getLessonCount() {
+        return files.size();
+    }
+
+    /** Tracks of the given lesson (1-based), or an empty list if it has none. */
+    public List<Track> getTracks(int lesson) {
+        if (lesson < 1 || lesson > tracks.size()) {
+            return Collections.emptyList();
+        }
+        return tracks.get(lesson - 1);
+    }
+
+    /** {@link Track#path}s of the given lesson's tracks, in play order. */
+    public List<String> getFiles(int lesson) {
+        if (lesson < 1 || lesson > files.size()) {
+            return Collections.emptyList();
+        }
+        return files.get(lesson - 1);
+    }
+
+    /** Number of tracks in all lessons together. */
+    public int getTrackCount() {
+        return ordered.length;
+    }
+
+    /** The track at {@code index} in play order across all lessons. */
+    public Track getTrack(int index) {
+        return ordered[index];
+    }
+
+    /** Index of the track in play order across all lessons, or -1 if it is not in this catalog. */
+    public int indexOf(Track track) {
+        Integer index = indexesByPath.get(track.path);
+        return index != null && ordered[index] == track ? index : -1;
+    }
+
+    /**
+     * Index of the lesson's first track; for a lesson without tracks, that of the first
+     * track after it. Lessons outside the catalog are clamped to its ends.
+     */
+    public int getLessonStart(int lesson) {
+        return lessonStarts[Math.max(0, Math.min(lesson - 1, tracks.size()))];
+    }
+
+    /** Looks up a track by its {@link Track#path}, or null if unknown. */
+    public Track findTrack(String path) {
+        Integer index = indexesByPath.get(path);
+        return index != null ? ordered[index] : null;
+    }
+
+    /**
+     * Track that follows the given one: the next track of its lesson, or the first
+     * track of the next lesson that has any when {@code crossLessons} is set. Null at the end.
+     */
+    public Track trackAfter(Track track, boolean crossLessons) {
+        int index = indexOf(track);
+        if (index < 0 || index + 1 == ordered.length) {
+            return null;
+        }
+        Track next = ordered[index + 1];
+        return crossLessons || next.lesson == track.lesson ? next : null;
+    }
+
+    /** Track before the given one, falling back to the last track of an earlier lesson. Null at the start. */
+    public Track trackBefore(Track track) {
+        int index = indexOf(track);
+        return index > 0 ? ordered[index - 1] : null;
+    }
+
+    /** First track of the nearest later lesson that has tracks, or null if there is none. */
+    public Track firstTrackAfterLesson(int lesson) {
+        int index = getLessonStart(Math.max(lesson + 1, 1));
+        return index < ordered.length ? ordered[index] : null;
+    }
+
+    /** First track of the nearest earlier lesson that has tracks, or null if there is none. */
+    public Track firstTrackBeforeLesson(int lesson) {
+        int before = getLessonStart(Math.min(lesson, tracks.size() + 1)) - 1;
+        return before >= 0 ? ordered[getLessonStart(ordered[before].lesson)] : null;
+    }
+}
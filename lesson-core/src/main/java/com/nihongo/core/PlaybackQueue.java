@@ -0,0 +1,159 @@
+package com.nihongo.core;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The tracks to play and their order: the whole catalog, or a range of lessons
+ * limited to some kinds of track, such as lessons 10 to 15, questions only. Tracks
+ * are held as {@link LessonCatalog} indexes in int arrays, so stepping, finding a
+ * track's place and jumping to another lesson take constant time and nothing is
+ * searched or copied. Queues are immutable and can be shared with any thread; a
+ * shuffled queue shares its tracks with the one it came from and adds only its order.
+ */
+public final class PlaybackQueue {
+
+    private final LessonCatalog catalog;
+    // Catalog indexes of the queued tracks, ascending
+    private final int[] entries;
+    // Entry of each catalog track, or -1 if it is not queued
+    private final int[] entryOf;
+    // Entry of the first queued track at or after each catalog index; entries.length if none
+    private final int[] entryFrom;
+    // Play order as entry numbers and each entry's place in it; null when in catalog order
+    private final int[] order;
+    private final int[] placeOf;
+
+    private PlaybackQueue(LessonCatalog catalog, int[] entries, int[] entryOf, int[] entryFrom,
+                          int[] order, int[] placeOf) {
+        this.catalog = catalog;
+        this.entries = entries;
+        this.entryOf = entryOf;
+        this.entryFrom = entryFrom;
+        this.order = order;
+        this.placeOf = placeOf;
+    }
+
+    /** Every track of every lesson, in catalog order. */
+    public static PlaybackQueue all(LessonCatalog catalog) {
+        return range(catalog, 1, catalog.getLessonCount(), null);
+    }
+
+    /**
+     * Tracks of lessons {@code fromLesson} to {@code toLesson}, both included, in
+     * catalog order; only those of the given kinds unless {@code kinds} is null.
+     */
+    public static PlaybackQueue range(LessonCatalog catalog, int fromLesson, int toLesson, Set<Track.Kind> kinds) {
+        int start = catalog.getLessonStart(fromLesson);
+        int end = catalog.getLessonStart(toLesson + 1);
+        int[] entries = new int[Math.max(0, end - start)];
+        int[] entryOf = new int[catalog.getTrackCount()];
+        int[] entryFrom = new int[catalog.getTrackCount() + 1];
+        Arrays.fill(entryOf, -1);
+        int count = 0;
+        for (int i = 0; i < catalog.getTrackCount(); i++) {
+            entryFrom[i] = count;
+            if (i >= start && i < end && (kinds == null || kinds.contains(catalog.getTrack(i).kind))) {
+                entryOf[i] = count;
+                entries[count++] = i;
+            }
+        }
+        entryFrom[catalog.getTrackCount()] = count;
+        return new PlaybackQueue(catalog, Arrays.copyOf(entries, count), entryOf, entryFrom, null, null);
+    }
+
+    /**
+     * The same tracks in a random order drawn from {@code seed}, starting with
+     * {@code first} if it is queued so that the playing track carries on.
+     */
+    public PlaybackQueue shuffled(long seed, Track first) {
+        int[] shuffledOrder = new int[entries.length];
+        for (int i = 0; i < shuffledOrder.length; i++) {
+            shuffledOrder[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = shuffledOrder.length - 1; i > 0; i--) {
+            swap(shuffledOrder, i, random.nextInt(i + 1));
+        }
+        int[] places = new int[entries.length];
+        for (int i = 0; i < shuffledOrder.length; i++) {
+            places[shuffledOrder[i]] = i;
+        }
+        int entry = entryOf(first);
+        if (entry >= 0) {
+            int place = places[entry];
+            swap(shuffledOrder, 0, place);
+            places[shuffledOrder[place]] = place;
+            places[entry] = 0;
+        }
+        return new PlaybackQueue(catalog, entries, entryOf, entryFrom, shuffledOrder, places);
+    }
+
+    /** The same tracks in catalog order. */
+    public PlaybackQueue inOrder() {
+        return order == null ? this : new PlaybackQueue(catalog, entries, entryOf, entryFrom, null, null);
+    }
+
+    public boolean isShuffled() {
+        return order != null;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /** The track at {@code position} in play order. */
+    public Track get(int position) {
+        return catalog.getTrack(entries[order == null ? position : order[position]]);
+    }
+
+    /** Place of the track in play order, or -1 if it is not queued. */
+    public int positionOf(Track track) {
+        int entry = entryOf(track);
+        return entry < 0 || order == null ? entry : placeOf[entry];
+    }
+
+    public boolean contains(Track track) {
+        return entryOf(track) >= 0;
+    }
+
+    /** Track played after the given one, or null at the end or if it is not queued. */
+    public Track after(Track track) {
+        int position = positionOf(track);
+        return position >= 0 && position + 1 < entries.length ? get(position + 1) : null;
+    }
+
+    /** Track played before the given one, or null at the start or if it is not queued. */
+    public Track before(Track track) {
+        int position = positionOf(track);
+        return position > 0 ? get(position - 1) : null;
+    }
+
+    /** First queued track, in catalog order, of the nearest later lesson that has any; or null. */
+    public Track firstOfLessonAfter(int lesson) {
+        int entry = entryFrom[catalog.getLessonStart(Math.max(lesson + 1, 1))];
+        return entry < entries.length ? catalog.getTrack(entries[entry]) : null;
+    }
+
+    /** First queued track, in catalog order, of the nearest earlier lesson that has any; or null. */
+    public Track firstOfLessonBefore(int lesson) {
+        int before = entryFrom[catalog.getLessonStart(lesson)] - 1;
+        if (before < 0) {
+            return null;
+        }
+        int first = entryFrom[catalog.getLessonStart(catalog.getTrack(entries[before]).lesson)];
+        return catalog.getTrack(entries[first]);
+    }
+
+    private int entryOf(Track track) {
+        int index = track != null ? catalog.indexOf(track) : -1;
+        return index >= 0 ? entryOf[index] : -1;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
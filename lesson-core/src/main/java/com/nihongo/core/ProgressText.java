@@ -0,0 +1,43 @@
+package com.nihongo.core;
+
+/**
+ * The position readout of the player, kept in one reused buffer. {@link #update}
+ * reformats only when the shown second changes and reports whether it did, so a
+ * render loop can skip touching views on every other frame.
+ */
+public final class ProgressText {
+
+    private final char[] chars = new char[TimeFormat.MAX_LENGTH];
+    private int length;
+    private int shownSecond = -1;
+
+    /** @return true if the text changed and needs to be drawn */
+    public boolean update(int positionMs) {
+        int second = Math.max(0, positionMs) / 1000;
+        if (second == shownSecond) {
+            return false;
+        }
+        shownSecond = second;
+        length = TimeFormat.formatInto(positionMs, chars, 0);
+        return true;
+    }
+
+    /** Forces the next {@link #update} to report a change, e.g. after the views were reset. */
+    public void invalidate() {
+        shownSecond = -1;
+    }
+
+    /** Current text; valid for {@link #length()} chars and overwritten by the next change. */
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /** Time until a position that keeps advancing reaches its next whole second. */
+    public static int millisToNextSecond(int positionMs) {
+        return 1000 - Math.max(0, positionMs) % 1000;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nihongo.core;
+
+/** mm:ss formatting shared by the track list and the player. */
+public final class TimeFormat {
+
+    /** Longest text {@link #formatInto} can produce: five minute digits for any int. */
+    public static final int MAX_LENGTH = 8;
+
+    private TimeFormat() {}
+
+    public static String format(int milliseconds) {
+        char[] text = new char[MAX_LENGTH];
+        return new String(text, 0, formatInto(milliseconds, text, 0));
+    }
+
+    /**
+     * Writes mm:ss (at least two minute digits) into {@code dest} without allocating,
+     * for readouts that refresh continuously. Negative times show as 00:00.
+     *
+     * @return number of chars written, at most {@link #MAX_LENGTH}
+     */
+    public static int formatInto(int milliseconds, char[] dest, int offset) {
+        int seconds = Math.max(0, milliseconds) / 1000;
+        int minutes = seconds / 60;
+        int digits = 2;
+        for (int m = minutes / 100; m > 0; m /= 10) {
+            digits++;
+        }
+        int pos = offset + digits;
+        for (int i = 0; i < digits; i++) {
+            dest[--pos] = (char) ('0' + minutes % 10);
+            minutes /= 10;
+        }
+        pos = offset + digits;
+        dest[pos++] = ':';
+        dest[pos++] = (char) ('0' + seconds % 60 / 10);
+        dest[pos++] = (char) ('0' + seconds % 10);
+        return pos - offset;
+    }
+}
@@ -0,0 +1,96 @@
+package com.nihongo.core;
+
+import java.util.Locale;
+
+/**
+ * One audio track, bundled or from a lesson folder the user added. Instances are
+ * created once by {@link LessonCatalog} and shared by every screen, so titles are
+ * formatted here instead of on each bind.
+ */
+public final class Track {
+
+    public enum Kind { MAIN, QUESTION, PRACTICE, VOCABULARY, GRAMMAR, OTHER }
+
+    public final int lesson;
+    public final Kind kind;
+    /** Question number for {@link Kind#QUESTION} tracks, 0 otherwise or if not numeric. */
+    public final int questionNumber;
+    /**
+     * Path relative to assets/audio, e.g. "lesson_1/l1_main.mp3"; user tracks are
+     * prefixed with the key of their folder, e.g. "files/lesson_26/l26_main.mp3".
+     */
+    public final String path;
+    /** Path relative to the assets root, ready for AssetManager.openFd(); null for user tracks. */
+    public final String assetPath;
+    /** Where a user track is stored: a file path or a document URI; null for bundled tracks. */
+    public final String location;
+    /** Title shown in the lesson's track list, with its emoji prefix. */
+    public final String listTitle;
+    /** Title shown on the player screen. */
+    public final String playerTitle;
+
+    private Track(int lesson, Kind kind, int questionNumber, String path, String location,
+                  String listTitle, String playerTitle) {
+        this.lesson = lesson;
+        this.kind = kind;
+        this.questionNumber = questionNumber;
+        this.path = path;
+        this.assetPath = location == null ? "audio/" + path : null;
+        this.location = location;
+        this.listTitle = listTitle;
+        this.playerTitle = playerTitle;
+    }
+
+    public static Track create(int lesson, String fileName) {
+        return create(lesson, fileName, "lesson_" + lesson + "/" + fileName, null);
+    }
+
+    /** A track in a lesson folder the user added; {@code sourceKey} tells folders apart. */
+    public static Track createUser(String sourceKey, int lesson, String fileName, String location) {
+        return create(lesson, fileName, sourceKey + "/lesson_" + lesson + "/" + fileName, location);
+    }
+
+    public boolean isBundled() {
+        return location == null;
+    }
+
+    private static Track create(int lesson, String fileName, String path, String location) {
+        String displayName = fileName.replace(".mp3", "");
+
+        // Format display name in Japanese style (Minna no Nihongo)
+        if (displayName.contains("main")) {
+            return new Track(lesson, Kind.MAIN, 0, path, location,
+                    "🎵 会話 (Kaiwa)", "会話 (Kaiwa)");  // Main Dialogue
+        } else if (displayName.contains("_q")) {
+            String qNum = displayName.substring(displayName.lastIndexOf("_q") + 2);
+            String title = "問題" + qNum + " (Mondai " + qNum + ")";  // Question
+            return new Track(lesson, Kind.QUESTION, parseNumber(qNum), path, location,
+                    "❓ " + title, title);
+        } else if (displayName.contains("renshu") || displayName.contains("practice")) {
+            return new Track(lesson, Kind.PRACTICE, 0, path, location,
+                    "📝 練習 (Renshuu)", "練習 (Renshuu)");  // Practice
+        } else if (displayName.contains("vocab") || displayName.contains("tango")) {
+            return new Track(lesson, Kind.VOCABULARY, 0, path, location,
+                    "📖 単語 (Tango)", "単語 (Tango)");  // Vocabulary
+        } else if (displayName.contains("bunpou") || displayName.contains("grammar")) {
+            return new Track(lesson, Kind.GRAMMAR, 0, path, location,
+                    "📚 文法 (Bunpou)", "文法 (Bunpou)");  // Grammar
+        } else {
+            return new Track(lesson, Kind.OTHER, 0, path, location,
+                    "🎶 " + displayName.toUpperCase(Locale.ROOT), displayName.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static int parseNumber(String digits) {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
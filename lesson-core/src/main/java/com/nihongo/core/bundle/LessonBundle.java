@@ -0,0 +1,147 @@
+package com.nihongo.core.bundle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The offset table of a lesson bundle: one file holding all of a lesson's MP3s
+ * back to back, so the player opens a lesson once and addresses each track as a
+ * byte range of it. The table comes first; every track starts on a
+ * {@link #PAGE_SIZE} boundary so a range can be memory-mapped or handed to a
+ * decoder as it is, and the gaps are zeros.
+ *
+ * <p>Lookups go by the track's file name within its lesson, e.g. "l1_main.mp3".
+ */
+public final class LessonBundle {
+
+    /** Assets directory the build writes bundles to, one per lesson. */
+    public static final String ASSET_DIR = "bundles";
+    /** Alignment of every track in the file. */
+    public static final int PAGE_SIZE = 4096;
+
+    private static final int MAGIC = 0x4c42444c; // "LBDL"
+    private static final int VERSION = 1;
+
+    private final String[] names;
+    // From the start of the bundle; each a multiple of PAGE_SIZE
+    private final long[] offsets;
+    private final int[] lengths;
+
+    private LessonBundle(String[] names, long[] offsets, int[] lengths) {
+        this.names = names;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /** Path under the assets root of the bundle for a lesson. */
+    public static String assetPath(int lesson) {
+        return ASSET_DIR + "/lesson_" + lesson + ".bundle";
+    }
+
+    /** Lays out files of the given names and lengths after the table, in this order. */
+    public static LessonBundle layout(String[] names, int[] lengths) throws IOException {
+        if (names.length != lengths.length) {
+            throw new IllegalArgumentException("One length per name");
+        }
+        LessonBundle bundle = new LessonBundle(names.clone(), new long[names.length], lengths.clone());
+        // Offsets are fixed-size fields, so the table's size does not depend on them
+        long position = align(bundle.tableBytes().length);
+        for (int i = 0; i < names.length; i++) {
+            bundle.offsets[i] = position;
+            position = align(position + lengths[i]);
+        }
+        return bundle;
+    }
+
+    public int getEntryCount() {
+        return names.length;
+    }
+
+    public String getName(int entry) {
+        return names[entry];
+    }
+
+    public long getOffset(int entry) {
+        return offsets[entry];
+    }
+
+    public int getLength(int entry) {
+        return lengths[entry];
+    }
+
+    /** The entry for a file name, or -1. A lesson has a handful, so this is a plain scan. */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Reads the table at the start of a bundle, leaving the stream at its end. */
+    public static LessonBundle readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a lesson bundle");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported lesson bundle version " + version);
+        }
+        int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt lesson bundle header");
+        }
+        String[] names = new String[count];
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = data.readUTF();
+            offsets[i] = data.readLong();
+            lengths[i] = data.readInt();
+            if (offsets[i] % PAGE_SIZE != 0 || lengths[i] < 0) {
+                throw new IOException("Corrupt lesson bundle entry " + names[i]);
+            }
+        }
+        return new LessonBundle(names, offsets, lengths);
+    }
+
+    /** Writes the table, padded with zeros up to where the first file starts. */
+    public void writeTableTo(OutputStream out) throws IOException {
+        byte[] table = tableBytes();
+        out.write(table);
+        out.write(new byte[(int) (align(table.length) - table.length)]);
+    }
+
+    /** Zeros needed after file {@code entry} to reach the next one; none after the last. */
+    public int paddingAfter(int entry) {
+        if (entry + 1 >= names.length) {
+            return 0;
+        }
+        return (int) (offsets[entry + 1] - offsets[entry] - lengths[entry]);
+    }
+
+    private byte[] tableBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            data.writeUTF(names[i]);
+            data.writeLong(offsets[i]);
+            data.writeInt(lengths[i]);
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long align(long position) {
+        return (position + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+}
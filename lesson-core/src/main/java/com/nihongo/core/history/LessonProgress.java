@@ -0,0 +1,218 @@
+package com.nihongo.core.history;
+
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.Track;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Which tracks of a {@link LessonCatalog} have been heard to the end, as one bit
+ * per track in play order, with a count per lesson and the total time listened
+ * kept up to date as tracks complete, so nothing is ever recounted. Not
+ * thread-safe; {@link #counts} hands an immutable copy of the counters to other
+ * threads.
+ *
+ * <p>Stored with the catalog's fingerprint: bits saved for a different catalog,
+ * e.g. after lesson folders were added, are rebuilt from the listening history.
+ */
+public final class LessonProgress {
+
+    private static final int MAGIC = 0x4c505247; // "LPRG"
+    private static final int VERSION = 1;
+
+    /** The counters at one moment, for binding lesson rows. Immutable. */
+    public static final class Counts {
+        private final int[] completed;
+        private final int[] tracks;
+        private final int totalCompleted;
+        private final long listenedMs;
+
+        Counts(int[] completed, int[] tracks, int totalCompleted, long listenedMs) {
+            this.completed = completed;
+            this.tracks = tracks;
+            this.totalCompleted = totalCompleted;
+            this.listenedMs = listenedMs;
+        }
+
+        /** Tracks of the lesson (1-based) heard to the end; 0 for lessons outside the catalog. */
+        public int getCompleted(int lesson) {
+            return lesson >= 1 && lesson <= completed.length ? completed[lesson - 1] : 0;
+        }
+
+        /** Tracks the lesson has; 0 for lessons outside the catalog. */
+        public int getTracks(int lesson) {
+            return lesson >= 1 && lesson <= tracks.length ? tracks[lesson - 1] : 0;
+        }
+
+        public int getTotalCompleted() {
+            return totalCompleted;
+        }
+
+        public long getListenedMs() {
+            return listenedMs;
+        }
+    }
+
+    private final LessonCatalog catalog;
+    private final long fingerprint;
+    // Bit i is catalog.getTrack(i)
+    private final long[] completed;
+    private final int[] completedByLesson;
+    private int totalCompleted;
+    private long listenedMs;
+
+    public LessonProgress(LessonCatalog catalog) {
+        this.catalog = catalog;
+        this.fingerprint = fingerprint(catalog);
+        this.completed = new long[(catalog.getTrackCount() + 63) / 64];
+        this.completedByLesson = new int[catalog.getLessonCount()];
+    }
+
+    /** Progress over {@code catalog} with the tracks the history has seen completed. */
+    public static LessonProgress fromHistory(LessonCatalog catalog, ListeningHistory history) {
+        LessonProgress progress = new LessonProgress(catalog);
+        for (String path : history.getCompletedPaths()) {
+            progress.complete(path, 0);
+        }
+        return progress;
+    }
+
+    public LessonCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Records that the track at {@code path} played to its end, adding its
+     * duration to the time listened. Returns whether it had not been completed
+     * before; tracks outside the catalog only count towards the time.
+     */
+    public boolean complete(String path, int durationMs) {
+        listenedMs += Math.max(0, durationMs);
+        Track track = catalog.findTrack(path);
+        if (track == null) {
+            return false;
+        }
+        int index = catalog.indexOf(track);
+        long bit = 1L << index;
+        if ((completed[index >>> 6] & bit) != 0) {
+            return false;
+        }
+        completed[index >>> 6] |= bit;
+        completedByLesson[track.lesson - 1]++;
+        totalCompleted++;
+        return true;
+    }
+
+    public boolean isCompleted(int trackIndex) {
+        return (completed[trackIndex >>> 6] & 1L << trackIndex) != 0;
+    }
+
+    public int getCompletedCount(int lesson) {
+        return completedByLesson[lesson - 1];
+    }
+
+    public long getListenedMs() {
+        return listenedMs;
+    }
+
+    /**
+     * This progress for another catalog. Completed tracks come from {@code history},
+     * which has every path ever completed, including ones this catalog lacked, and
+     * this progress's own tracks are carried over by path as well.
+     */
+    public LessonProgress forCatalog(LessonCatalog other, ListeningHistory history) {
+        LessonProgress progress = fromHistory(other, history);
+        for (int word = 0; word < completed.length; word++) {
+            for (long bits = completed[word]; bits != 0; bits &= bits - 1) {
+                int index = word * 64 + Long.numberOfTrailingZeros(bits);
+                progress.complete(catalog.getTrack(index).path, 0);
+            }
+        }
+        progress.listenedMs = listenedMs;
+        return progress;
+    }
+
+    public Counts counts() {
+        int[] tracks = new int[completedByLesson.length];
+        for (int lesson = 1; lesson <= tracks.length; lesson++) {
+            tracks[lesson - 1] = catalog.getLessonStart(lesson + 1) - catalog.getLessonStart(lesson);
+        }
+        return new Counts(completedByLesson.clone(), tracks, totalCompleted, listenedMs);
+    }
+
+    /**
+     * Reads progress saved for {@code catalog}. If it was saved for another catalog
+     * only the time listened carries over, and the completed tracks come from
+     * {@code history} instead.
+     */
+    public static LessonProgress readFrom(InputStream in, LessonCatalog catalog, ListeningHistory history)
+            throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a progress file");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported progress version " + version);
+        }
+        long listenedMs = data.readLong();
+        long savedFingerprint = data.readLong();
+        int words = data.readInt();
+        LessonProgress progress;
+        if (savedFingerprint == fingerprint(catalog) && words == (catalog.getTrackCount() + 63) / 64) {
+            progress = new LessonProgress(catalog);
+            for (int i = 0; i < words; i++) {
+                progress.completed[i] = data.readLong();
+            }
+            progress.recount();
+        } else {
+            progress = fromHistory(catalog, history);
+        }
+        progress.listenedMs = listenedMs;
+        return progress;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeLong(listenedMs);
+        data.writeLong(fingerprint);
+        data.writeInt(completed.length);
+        for (long word : completed) {
+            data.writeLong(word);
+        }
+        data.flush();
+    }
+
+    // Once after reading the bits; from then on the counters follow each completion
+    private void recount() {
+        for (int lesson = 1; lesson <= completedByLesson.length; lesson++) {
+            int count = 0;
+            for (int i = catalog.getLessonStart(lesson); i < catalog.getLessonStart(lesson + 1); i++) {
+                if (isCompleted(i)) {
+                    count++;
+                }
+            }
+            completedByLesson[lesson - 1] = count;
+            totalCompleted += count;
+        }
+    }
+
+    // FNV-1a over the paths in play order: any added, removed or moved track changes it
+    private static long fingerprint(LessonCatalog catalog) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < catalog.getTrackCount(); i++) {
+            String path = catalog.getTrack(i).path;
+            for (int c = 0; c < path.length(); c++) {
+                hash = (hash ^ path.charAt(c)) * 0x100000001b3L;
+            }
+            hash = (hash ^ '\n') * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
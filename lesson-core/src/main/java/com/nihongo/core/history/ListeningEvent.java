@@ -0,0 +1,49 @@
+package com.nihongo.core.history;
+
+/** One entry of the listening journal. Immutable. */
+public final class ListeningEvent {
+
+    public static final int STARTED = 1;
+    /** Position checkpoint in the most recently started track. */
+    public static final int POSITION = 2;
+    public static final int COMPLETED = 3;
+
+    public final int type;
+    /** Wall-clock time of the event, in ms since the epoch. */
+    public final long timeMs;
+    /** Track path relative to assets/audio; null for {@link #POSITION}. */
+    public final String path;
+    /** Position for {@link #POSITION}, 0 otherwise. */
+    public final int positionMs;
+
+    private ListeningEvent(int type, long timeMs, String path, int positionMs) {
+        this.type = type;
+        this.timeMs = timeMs;
+        this.path = path;
+        this.positionMs = positionMs;
+    }
+
+    public static ListeningEvent started(String path, long timeMs) {
+        return new ListeningEvent(STARTED, timeMs, path, 0);
+    }
+
+    public static ListeningEvent position(int positionMs, long timeMs) {
+        return new ListeningEvent(POSITION, timeMs, null, Math.max(0, positionMs));
+    }
+
+    public static ListeningEvent completed(String path, long timeMs) {
+        return new ListeningEvent(COMPLETED, timeMs, path, 0);
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case STARTED:
+                return "started " + path + " @" + timeMs;
+            case POSITION:
+                return "position " + positionMs + " @" + timeMs;
+            default:
+                return "completed " + path + " @" + timeMs;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.nihongo.core.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What the listening journal adds up to: where to resume, and which tracks have
+ * been heard to the end. Built by replaying events in order; not thread-safe.
+ */
+public final class ListeningHistory {
+
+    /** Where playback stopped. Immutable, so it can be handed to other threads. */
+    public static final class ResumePoint {
+        public final String path;
+        public final int positionMs;
+        /** True when the track played to its end after it was last started. */
+        public final boolean completed;
+        public final long timeMs;
+
+        ResumePoint(String path, int positionMs, boolean completed, long timeMs) {
+            this.path = path;
+            this.positionMs = positionMs;
+            this.completed = completed;
+            this.timeMs = timeMs;
+        }
+    }
+
+    private final Set<String> completedPaths = new LinkedHashSet<>();
+    private String lastPath;
+    private int lastPositionMs;
+    private boolean lastCompleted;
+    private long lastTimeMs;
+
+    public void apply(ListeningEvent event) {
+        switch (event.type) {
+            case ListeningEvent.STARTED:
+                lastPath = event.path;
+                lastPositionMs = 0;
+                lastCompleted = false;
+                break;
+            case ListeningEvent.POSITION:
+                if (lastPath == null) {
+                    return;
+                }
+                lastPositionMs = event.positionMs;
+                break;
+            case ListeningEvent.COMPLETED:
+                // Re-adding moves nothing in a LinkedHashSet; remove first to keep the order recent
+                completedPaths.remove(event.path);
+                completedPaths.add(event.path);
+                if (event.path.equals(lastPath)) {
+                    lastCompleted = true;
+                    lastPositionMs = 0;
+                }
+                break;
+            default:
+                return;
+        }
+        lastTimeMs = event.timeMs;
+    }
+
+    /** Last started track and position, or null if nothing was played yet. */
+    public ResumePoint getResumePoint() {
+        return lastPath == null ? null : new ResumePoint(lastPath, lastPositionMs, lastCompleted, lastTimeMs);
+    }
+
+    /** Tracks heard to the end, least recently completed first. */
+    public Set<String> getCompletedPaths() {
+        return Collections.unmodifiableSet(completedPaths);
+    }
+
+    /** The shortest event list that replays to this same state; what compaction writes. */
+    public List<ListeningEvent> toEvents() {
+        List<ListeningEvent> events = new ArrayList<>(completedPaths.size() + 3);
+        for (String path : completedPaths) {
+            if (!path.equals(lastPath) || !lastCompleted) {
+                events.add(ListeningEvent.completed(path, lastTimeMs));
+            }
+        }
+        if (lastPath != null) {
+            events.add(ListeningEvent.started(lastPath, lastTimeMs));
+            if (lastCompleted) {
+                events.add(ListeningEvent.completed(lastPath, lastTimeMs));
+            } else if (lastPositionMs > 0) {
+                events.add(ListeningEvent.position(lastPositionMs, lastTimeMs));
+            }
+        }
+        return events;
+    }
+}
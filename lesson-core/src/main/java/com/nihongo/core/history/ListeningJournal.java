@@ -0,0 +1,198 @@
+package com.nihongo.core.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of {@link ListeningEvent}s in a single file.
+ *
+ * <p>Every record carries a CRC32, so a write torn by a crash or power loss is
+ * detected on {@link #load()} and cut off; everything before it survives. Batches
+ * are appended with one write and synced. {@link #compact} rewrites the file as
+ * the minimal event list for the current state via a synced temporary file and an
+ * atomic rename, which keeps the file, and so the replay at startup, small.
+ *
+ * <p>Record layout: type (1 byte), time (8), then a UTF-8 path with a 2-byte length
+ * for STARTED/COMPLETED or a 4-byte position for POSITION, then the CRC (4) of all
+ * preceding bytes of the record. Not thread-safe; use from one thread.
+ */
+public final class ListeningJournal {
+
+    private static final int MAGIC = 0x4c4a4e4c; // "LJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_PATH_BYTES = 1024;
+
+    private final File file;
+    private long size;
+
+    public ListeningJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the journal. A torn or corrupt tail is truncated away and a file with
+     * a foreign header is started afresh, so later appends always follow valid data.
+     */
+    public ListeningHistory load() throws IOException {
+        ListeningHistory history = new ListeningHistory();
+        if (!file.exists()) {
+            size = 0;
+            return history;
+        }
+        byte[] data = readAll();
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            truncate(0);
+            return history;
+        }
+        CRC32 crc = new CRC32();
+        int valid = HEADER_SIZE;
+        while (true) {
+            ListeningEvent event = decode(buffer, data, crc);
+            if (event == null) {
+                break;
+            }
+            history.apply(event);
+            valid = buffer.position();
+        }
+        if (valid != data.length) {
+            truncate(valid);
+        } else {
+            size = valid;
+        }
+        return history;
+    }
+
+    public void append(List<ListeningEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        boolean fresh = size == 0;
+        byte[] bytes = encode(events, fresh);
+        try (FileOutputStream out = new FileOutputStream(file, !fresh)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        size += bytes.length;
+    }
+
+    /** Replaces the journal with the events that rebuild {@code history}. */
+    public void compact(ListeningHistory history) throws IOException {
+        byte[] bytes = encode(history.toEvents(), true);
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+        size = bytes.length;
+    }
+
+    /** Bytes in the journal as of the last load, append or compaction. */
+    public long size() {
+        return size;
+    }
+
+    private static byte[] encode(List<ListeningEvent> events, boolean withHeader) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 32 + HEADER_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (withHeader) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        CRC32 crc = new CRC32();
+        for (ListeningEvent event : events) {
+            recordBytes.reset();
+            record.writeByte(event.type);
+            record.writeLong(event.timeMs);
+            if (event.type == ListeningEvent.POSITION) {
+                record.writeInt(event.positionMs);
+            } else {
+                byte[] path = event.path.getBytes(StandardCharsets.UTF_8);
+                if (path.length > MAX_PATH_BYTES) {
+                    throw new IOException("Path too long: " + event.path);
+                }
+                record.writeShort(path.length);
+                record.write(path);
+            }
+            byte[] encoded = recordBytes.toByteArray();
+            crc.reset();
+            crc.update(encoded, 0, encoded.length);
+            out.write(encoded);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // Returns null at the end of the data or at the first record that is cut short or fails its CRC
+    private static ListeningEvent decode(ByteBuffer buffer, byte[] data, CRC32 crc) {
+        int start = buffer.position();
+        if (buffer.remaining() < 1 + 8) {
+            return null;
+        }
+        int type = buffer.get();
+        long timeMs = buffer.getLong();
+        ListeningEvent event;
+        if (type == ListeningEvent.POSITION) {
+            if (buffer.remaining() < 4) {
+                return null;
+            }
+            event = ListeningEvent.position(buffer.getInt(), timeMs);
+        } else if (type == ListeningEvent.STARTED || type == ListeningEvent.COMPLETED) {
+            if (buffer.remaining() < 2) {
+                return null;
+            }
+            int length = buffer.getShort() & 0xffff;
+            if (length > MAX_PATH_BYTES || buffer.remaining() < length) {
+                return null;
+            }
+            String path = new String(data, buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            event = type == ListeningEvent.STARTED
+                    ? ListeningEvent.started(path, timeMs)
+                    : ListeningEvent.completed(path, timeMs);
+        } else {
+            return null;
+        }
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        crc.reset();
+        crc.update(data, start, buffer.position() - start);
+        if (buffer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+        return event;
+    }
+
+    private byte[] readAll() throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            return data;
+        }
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+            out.getFD().sync();
+        }
+        size = length;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nihongo.core.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A {@link FolderSource} on a plain file system; ids are file paths. */
+public final class FileFolderSource implements FolderSource {
+
+    private final String key;
+    private final File root;
+
+    public FileFolderSource(String key, File root) {
+        this.key = key;
+        this.root = root;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String getRootId() {
+        return root.getPath();
+    }
+
+    @Override
+    public List<Entry> list(String directoryId) throws IOException {
+        File[] children = new File(directoryId).listFiles();
+        if (children == null) {
+            throw new IOException("Cannot list " + directoryId);
+        }
+        List<Entry> entries = new ArrayList<>(children.length);
+        for (File child : children) {
+            entries.add(new Entry(child.getPath(), child.getName(), child.isDirectory(),
+                    child.length(), child.lastModified()));
+        }
+        return entries;
+    }
+}
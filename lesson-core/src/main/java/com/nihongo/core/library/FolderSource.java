@@ -0,0 +1,39 @@
+package com.nihongo.core.library;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A folder of lessons laid out like assets/audio, lesson_N directories of MP3s,
+ * wherever it is stored. Files and directories are named by ids that only the
+ * source interprets, such as file paths or document URIs; a file's id is what the
+ * player opens.
+ */
+public interface FolderSource {
+
+    /** One child of a directory, with what the listing tells about it. */
+    final class Entry {
+        public final String id;
+        public final String name;
+        public final boolean directory;
+        public final long size;
+        /** Milliseconds since the epoch, or 0 if the source cannot tell. */
+        public final long lastModified;
+
+        public Entry(String id, String name, boolean directory, long size, long lastModified) {
+            this.id = id;
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /** Unique among sources and the same on every launch; the paths of its tracks start with it. */
+    String getKey();
+
+    String getRootId();
+
+    /** @throws IOException if the directory cannot be listed, e.g. it is gone or access was revoked */
+    List<Entry> list(String directoryId) throws IOException;
+}
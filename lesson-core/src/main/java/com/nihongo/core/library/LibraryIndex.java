@@ -0,0 +1,196 @@
+package com.nihongo.core.library;
+
+import com.nihongo.core.Track;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a {@link LibraryScanner} found in one {@link FolderSource}: its lesson
+ * directories, each with the modification time it had when listed, and their MP3s
+ * in play order with size and modification time. Kept between launches, so a
+ * library of thousands of tracks opens from here without listing anything.
+ * Immutable.
+ */
+public final class LibraryIndex {
+
+    private static final int MAGIC = 0x4c494258; // "LIBX"
+    private static final int VERSION = 1;
+
+    /** One lesson directory as it was listed. */
+    static final class Folder {
+        final int lesson;
+        final String id;
+        final String name;
+        final long lastModified;
+        // Parallel, in play order
+        final String[] fileNames;
+        final String[] fileIds;
+        final long[] sizes;
+        final long[] modified;
+
+        Folder(int lesson, String id, String name, long lastModified,
+               String[] fileNames, String[] fileIds, long[] sizes, long[] modified) {
+            this.lesson = lesson;
+            this.id = id;
+            this.name = name;
+            this.lastModified = lastModified;
+            this.fileNames = fileNames;
+            this.fileIds = fileIds;
+            this.sizes = sizes;
+            this.modified = modified;
+        }
+
+        boolean sameFilesAs(Folder other) {
+            return lesson == other.lesson && id.equals(other.id)
+                    && Arrays.equals(fileIds, other.fileIds)
+                    && Arrays.equals(sizes, other.sizes)
+                    && Arrays.equals(modified, other.modified);
+        }
+    }
+
+    private final String key;
+    // By lesson, then by directory name
+    private final Folder[] folders;
+
+    LibraryIndex(String key, Folder[] folders) {
+        this.key = key;
+        this.folders = folders;
+    }
+
+    /** The index of a source that has not been scanned yet. */
+    public static LibraryIndex empty(String key) {
+        return new LibraryIndex(key, new Folder[0]);
+    }
+
+    /** {@link FolderSource#getKey} of the source this index is of. */
+    public String getKey() {
+        return key;
+    }
+
+    public int getFileCount() {
+        int count = 0;
+        for (Folder folder : folders) {
+            count += folder.fileIds.length;
+        }
+        return count;
+    }
+
+    /** One track per file, by lesson and in play order within each. */
+    public List<Track> getTracks() {
+        List<Track> tracks = new ArrayList<>(getFileCount());
+        for (Folder folder : folders) {
+            for (int i = 0; i < folder.fileIds.length; i++) {
+                tracks.add(Track.createUser(key, folder.lesson, folder.fileNames[i], folder.fileIds[i]));
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * True if both indexes hold the same files with the same sizes and times, so that
+     * the tracks made from them are the same; directory times do not matter.
+     */
+    public boolean sameFilesAs(LibraryIndex other) {
+        return matches(other, false);
+    }
+
+    /** True if the indexes match in directory times too, so that there is nothing new to save. */
+    public boolean sameAs(LibraryIndex other) {
+        return matches(other, true);
+    }
+
+    private boolean matches(LibraryIndex other, boolean directoryTimes) {
+        if (!key.equals(other.key) || folders.length != other.folders.length) {
+            return false;
+        }
+        for (int i = 0; i < folders.length; i++) {
+            if (!folders[i].sameFilesAs(other.folders[i])
+                    || directoryTimes && folders[i].lastModified != other.folders[i].lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Map<String, Folder> foldersById() {
+        if (folders.length == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, Folder> byId = new HashMap<>(folders.length * 2);
+        for (Folder folder : folders) {
+            byId.put(folder.id, folder);
+        }
+        return byId;
+    }
+
+    public static LibraryIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a library index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported library index version " + version);
+        }
+        String key = data.readUTF();
+        int folderCount = data.readInt();
+        if (folderCount < 0) {
+            throw new IOException("Corrupt library index header");
+        }
+        Folder[] folders = new Folder[folderCount];
+        for (int f = 0; f < folderCount; f++) {
+            int lesson = data.readInt();
+            String id = data.readUTF();
+            String name = data.readUTF();
+            long lastModified = data.readLong();
+            int fileCount = data.readInt();
+            if (lesson < 1 || fileCount < 0) {
+                throw new IOException("Corrupt library index entry for " + id);
+            }
+            String[] fileNames = new String[fileCount];
+            String[] fileIds = new String[fileCount];
+            long[] sizes = new long[fileCount];
+            long[] modified = new long[fileCount];
+            for (int i = 0; i < fileCount; i++) {
+                fileNames[i] = data.readUTF();
+                fileIds[i] = data.readUTF();
+                sizes[i] = data.readLong();
+                modified[i] = data.readLong();
+            }
+            folders[f] = new Folder(lesson, id, name, lastModified, fileNames, fileIds, sizes, modified);
+        }
+        return new LibraryIndex(key, folders);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(key);
+        data.writeInt(folders.length);
+        for (Folder folder : folders) {
+            data.writeInt(folder.lesson);
+            data.writeUTF(folder.id);
+            data.writeUTF(folder.name);
+            data.writeLong(folder.lastModified);
+            data.writeInt(folder.fileIds.length);
+            for (int i = 0; i < folder.fileIds.length; i++) {
+                data.writeUTF(folder.fileNames[i]);
+                data.writeUTF(folder.fileIds[i]);
+                data.writeLong(folder.sizes[i]);
+                data.writeLong(folder.modified[i]);
+            }
+        }
+        data.flush();
+    }
+}
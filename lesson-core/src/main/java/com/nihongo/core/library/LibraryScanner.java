@@ -0,0 +1,102 @@
+package com.nihongo.core.library;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings a {@link LibraryIndex} up to date with its {@link FolderSource}. Only the
+ * root is listed every time, and its listing gives each lesson directory's
+ * modification time, which changes whenever a file is added, removed or renamed in
+ * it; directories whose time is what the index has keep their entries, and only the
+ * others are listed again. A source that cannot date directories has all of them
+ * listed.
+ */
+public final class LibraryScanner {
+
+    private static final Pattern LESSON_DIR = Pattern.compile("lesson_(\\d{1,4})");
+    private static final Pattern QUESTION = Pattern.compile(".*_q(\\d{1,6})");
+
+    /**
+     * Order of tracks within a lesson, the one :app:generateLessonCatalog gives bundled
+     * tracks: main first, then q1, q2, ... numerically, then anything else by name.
+     */
+    public static final Comparator<String> PLAY_ORDER = (a, b) -> {
+        int byRank = Integer.compare(rank(a), rank(b));
+        return byRank != 0 ? byRank : a.compareTo(b);
+    };
+
+    private static final Comparator<LibraryIndex.Folder> FOLDER_ORDER = (a, b) -> {
+        int byLesson = Integer.compare(a.lesson, b.lesson);
+        return byLesson != 0 ? byLesson : a.name.compareTo(b.name);
+    };
+
+    private LibraryScanner() {}
+
+    /**
+     * Scans the source, reusing what {@code previous} has for unchanged directories.
+     *
+     * @throws IOException if the root or a changed directory cannot be listed
+     */
+    public static LibraryIndex scan(FolderSource source, LibraryIndex previous) throws IOException {
+        Map<String, LibraryIndex.Folder> known = previous.getKey().equals(source.getKey())
+                ? previous.foldersById() : null;
+        List<LibraryIndex.Folder> folders = new ArrayList<>();
+        for (FolderSource.Entry child : source.list(source.getRootId())) {
+            Matcher matcher = LESSON_DIR.matcher(child.name);
+            if (!child.directory || !matcher.matches()) {
+                continue;
+            }
+            int lesson = Integer.parseInt(matcher.group(1));
+            if (lesson == 0) {
+                continue;
+            }
+            LibraryIndex.Folder folder = known != null ? known.get(child.id) : null;
+            if (folder == null || child.lastModified == 0 || folder.lastModified != child.lastModified) {
+                folder = listFolder(source, child, lesson);
+            }
+            folders.add(folder);
+        }
+        LibraryIndex.Folder[] sorted = folders.toArray(new LibraryIndex.Folder[0]);
+        Arrays.sort(sorted, FOLDER_ORDER);
+        return new LibraryIndex(source.getKey(), sorted);
+    }
+
+    private static LibraryIndex.Folder listFolder(FolderSource source, FolderSource.Entry dir, int lesson)
+            throws IOException {
+        List<FolderSource.Entry> files = new ArrayList<>();
+        for (FolderSource.Entry child : source.list(dir.id)) {
+            if (!child.directory && child.name.endsWith(".mp3")) {
+                files.add(child);
+            }
+        }
+        files.sort((a, b) -> PLAY_ORDER.compare(a.name, b.name));
+        int count = files.size();
+        String[] names = new String[count];
+        String[] ids = new String[count];
+        long[] sizes = new long[count];
+        long[] modified = new long[count];
+        for (int i = 0; i < count; i++) {
+            FolderSource.Entry file = files.get(i);
+            names[i] = file.name;
+            ids[i] = file.id;
+            sizes[i] = file.size;
+            modified[i] = file.lastModified;
+        }
+        return new LibraryIndex.Folder(lesson, dir.id, dir.name, dir.lastModified, names, ids, sizes, modified);
+    }
+
+    private static int rank(String name) {
+        String base = name.endsWith(".mp3") ? name.substring(0, name.length() - ".mp3".length()) : name;
+        if (base.endsWith("_main")) {
+            return 0;
+        }
+        Matcher question = QUESTION.matcher(base);
+        return question.matches() ? 1 + Integer.parseInt(question.group(1)) : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,100 @@
+package com.nihongo.core.metrics;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process latency histograms and counters, cheap enough to leave on in release
+ * builds. Metrics are fixed when the recorder is created and addressed by their
+ * index, so recording is a few atomic operations with no lookup, lock or allocation.
+ *
+ * <p>A span that starts in one place and ends in another, such as a tap in one
+ * screen and the first audio in another, is timed with {@link #start} and
+ * {@link #stop}; timestamps come from the caller so tests can supply their own.
+ */
+public final class MetricsRecorder {
+
+    private final String[] histogramNames;
+    private final LatencyHistogram[] histograms;
+    // Start of the open span per histogram in nanoseconds, 0 if none is open
+    private final AtomicLongArray spanStarts;
+    private final String[] counterNames;
+    private final AtomicLongArray counters;
+
+    public MetricsRecorder(String[] histogramNames, String[] counterNames) {
+        this.histogramNames = histogramNames.clone();
+        this.histograms = new LatencyHistogram[histogramNames.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.spanStarts = new AtomicLongArray(histogramNames.length);
+        this.counterNames = counterNames.clone();
+        this.counters = new AtomicLongArray(counterNames.length);
+    }
+
+    public void record(int histogram, long micros) {
+        histograms[histogram].record(micros);
+    }
+
+    /** Opens a span, replacing one that is still open. */
+    public void start(int histogram, long nowNanos) {
+        // 0 means no span, and a clock can read 0
+        spanStarts.set(histogram, nowNanos == 0 ? 1 : nowNanos);
+    }
+
+    /** Opens a span unless one is open already, so the earliest of several starts counts. */
+    public void startIfIdle(int histogram, long nowNanos) {
+        spanStarts.compareAndSet(histogram, 0, nowNanos == 0 ? 1 : nowNanos);
+    }
+
+    /** Closes the open span and records its length; returns false if none was open. */
+    public boolean stop(int histogram, long nowNanos) {
+        long started = spanStarts.getAndSet(histogram, 0);
+        if (started == 0) {
+            return false;
+        }
+        record(histogram, (nowNanos - started) / 1000);
+        return true;
+    }
+
+    /** Drops the open span without recording it, e.g. when the user backs out. */
+    public void cancel(int histogram) {
+        spanStarts.set(histogram, 0);
+    }
+
+    public void increment(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    public LatencyHistogram getHistogram(int histogram) {
+        return histograms[histogram];
+    }
+
+    public long getCounter(int counter) {
+        return counters.get(counter);
+    }
+
+    /** A tab-separated summary, one line per metric, latencies in milliseconds. */
+    public void writeReport(Appendable out) throws IOException {
+        out.append("# histogram\tcount\tmean_ms\tp50_ms\tp90_ms\tp99_ms\tmax_ms\n");
+        for (int i = 0; i < histograms.length; i++) {
+            LatencyHistogram h = histograms[i];
+            out.append(histogramNames[i]).append('\t').append(Long.toString(h.getCount()))
+                    .append('\t').append(millis(h.getMean()))
+                    .append('\t').append(millis(h.getPercentile(50)))
+                    .append('\t').append(millis(h.getPercentile(90)))
+                    .append('\t').append(millis(h.getPercentile(99)))
+                    .append('\t').append(millis(h.getMax()))
+                    .append('\n');
+        }
+        out.append("# counter\tvalue\n");
+        for (int i = 0; i < counterNames.length; i++) {
+            out.append(counterNames[i]).append('\t').append(Long.toString(counters.get(i))).append('\n');
+        }
+    }
+
+    private static String millis(double micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000);
+    }
+}
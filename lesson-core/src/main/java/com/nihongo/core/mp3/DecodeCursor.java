@@ -0,0 +1,93 @@
+package com.nihongo.core.mp3;
+
+/**
+ * Feeds a decoder the frames of one MP3 in order, starting anywhere with sample
+ * accuracy. Layer III frames are not independent: a frame's main data may begin up
+ * to 511 bytes back in earlier frames (the bit reservoir), and each granule
+ * overlaps the one before it. A seek therefore starts decoding a few frames early
+ * and drops their output, so the first sample kept is exactly the one asked for.
+ *
+ * <p>Not thread-safe.
+ */
+public final class DecodeCursor {
+
+    /** Furthest back main_data_begin can point. */
+    static final int MAX_RESERVOIR_BYTES = 511;
+
+    private final SeekIndex index;
+    private int frame;
+    private long skipSamples;
+
+    public DecodeCursor(SeekIndex index) {
+        this.index = index;
+    }
+
+    public SeekIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Repositions the cursor so that decoding from {@link #frame()} and dropping
+     * {@link #trim} output yields {@code sample} first. Samples count per channel
+     * from the start of the audio and are clamped to it.
+     */
+    public void seekToSample(long sample) {
+        int frameCount = index.getFrameCount();
+        if (frameCount == 0) {
+            frame = 0;
+            skipSamples = 0;
+            return;
+        }
+        long clamped = Math.max(0, Math.min(sample, (long) frameCount * index.getSamplesPerFrame() - 1));
+        int target = (int) (clamped / index.getSamplesPerFrame());
+        int first = target;
+        long reservoir = 0;
+        while (first > 0 && reservoir < MAX_RESERVOIR_BYTES) {
+            first--;
+            reservoir += index.getFrameOffset(first + 1) - index.getFrameOffset(first);
+        }
+        if (first > 0) {
+            // One more for the overlap-add with the previous granule
+            first--;
+        }
+        frame = first;
+        skipSamples = clamped - index.getFrameStartSample(first);
+    }
+
+    public boolean hasNext() {
+        return frame < index.getFrameCount();
+    }
+
+    /** Index of the next frame to feed. */
+    public int frame() {
+        return frame;
+    }
+
+    /** File offset of the next frame to feed. */
+    public long offset() {
+        return index.getFrameOffset(frame);
+    }
+
+    /** Size in bytes of the next frame to feed. */
+    public int length() {
+        return (int) (index.getFrameOffset(frame + 1) - index.getFrameOffset(frame));
+    }
+
+    public long presentationTimeUs() {
+        return index.getFrameStartSample(frame) * 1_000_000L / index.getSampleRate();
+    }
+
+    public void advance() {
+        frame++;
+    }
+
+    /**
+     * How many of the next {@code decodedSamples} (per channel) to drop. Call once
+     * for every decoded buffer, in order; returns 0 once the seek target is reached.
+     */
+    public int trim(int decodedSamples) {
+        int drop = (int) Math.min(skipSamples, decodedSamples);
+        skipSamples -= drop;
+        return drop;
+    }
+}
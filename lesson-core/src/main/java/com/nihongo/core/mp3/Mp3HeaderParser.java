@@ -0,0 +1,220 @@
+package com.nihongo.core.mp3;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads an MP3's duration and bitrate from its first few KB: the ID3v2 tag is
+ * skipped, the first frame header is located and, if present, its Xing/Info or
+ * VBRI header supplies the exact frame count. Without one the stream is treated
+ * as constant bitrate and timed from the file length.
+ *
+ * <p>Plain Java so it can be tested and benchmarked on the JVM.
+ */
+public final class Mp3HeaderParser {
+
+    /** Bytes read after the ID3v2 tag while looking for the first frame. */
+    public static final int SCAN_BYTES = 8 * 1024;
+
+    // [version][layer][index] in kbps; version 0 = MPEG-1, 1 = MPEG-2/2.5; layer 0 = I, 1 = II, 2 = III
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448, -1},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384, -1},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, -1},
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160, -1},
+            },
+    };
+
+    private static final int[] MPEG1_SAMPLE_RATES = {44100, 48000, 32000};
+
+    private Mp3HeaderParser() {}
+
+    /**
+     * Parses the stream, which must be positioned at the start of the file.
+     *
+     * @param length total file length in bytes, used for constant-bitrate files
+     * @throws IOException if the stream cannot be read or holds no MPEG audio frame
+     */
+    public static Mp3Info parse(InputStream in, long length) throws IOException {
+        byte[] buffer = new byte[SCAN_BYTES];
+        int read = readFully(in, buffer, 10);
+        long offset = 0;
+        if (read == 10 && buffer[0] == 'I' && buffer[1] == 'D' && buffer[2] == '3') {
+            long tagSize = 10 + (((buffer[6] & 0x7f) << 21) | ((buffer[7] & 0x7f) << 14)
+                    | ((buffer[8] & 0x7f) << 7) | (buffer[9] & 0x7f));
+            if ((buffer[5] & 0x10) != 0) {
+                tagSize += 10; // footer
+            }
+            skipFully(in, tagSize - 10);
+            offset = tagSize;
+            read = readFully(in, buffer, buffer.length);
+        } else {
+            read += readFully(in, buffer, read, buffer.length - read);
+        }
+        return parseFrames(buffer, read, offset, length);
+    }
+
+    /** Parses {@code count} bytes that start at file offset {@code bufferOffset}. */
+    public static Mp3Info parseFrames(byte[] buffer, int count, long bufferOffset, long length) throws IOException {
+        FrameHeader header = new FrameHeader();
+        int pos = findFirstFrame(buffer, count, header);
+        if (pos < 0) {
+            throw new IOException("No MPEG audio frame in the first " + count + " bytes");
+        }
+        long frameStart = bufferOffset + pos;
+
+        // Xing/Info sits right after the side information of the first frame
+        int xing = pos + 4 + header.sideInfoSize();
+        if (xing + 8 <= count && (matches(buffer, xing, "Xing") || matches(buffer, xing, "Info"))) {
+            int flags = readInt(buffer, xing + 4);
+            if ((flags & 1) != 0 && xing + 12 <= count) {
+                long frames = readInt(buffer, xing + 8) & 0xffffffffL;
+                long bytes = (flags & 2) != 0 && xing + 16 <= count
+                        ? readInt(buffer, xing + 12) & 0xffffffffL
+                        : length - frameStart - header.frameLength;
+                return fromFrameCount(header, frames, bytes, frameStart + header.frameLength,
+                        matches(buffer, xing, "Xing"));
+            }
+        }
+
+        // VBRI always sits 32 bytes after the frame header
+        int vbri = pos + 4 + 32;
+        if (vbri + 18 <= count && matches(buffer, vbri, "VBRI")) {
+            long bytes = readInt(buffer, vbri + 10) & 0xffffffffL;
+            long frames = readInt(buffer, vbri + 14) & 0xffffffffL;
+            return fromFrameCount(header, frames, bytes, frameStart + header.frameLength, true);
+        }
+
+        long audioBytes = Math.max(0, length - frameStart);
+        int durationMs = (int) (audioBytes * 8 / header.bitrateKbps);
+        return new Mp3Info(durationMs, header.bitrateKbps, header.sampleRate, header.channels, false, frameStart);
+    }
+
+    private static Mp3Info fromFrameCount(FrameHeader header, long frames, long bytes, long audioStart, boolean vbr) {
+        long durationMs = frames * header.samplesPerFrame * 1000L / header.sampleRate;
+        int bitrate = durationMs > 0 ? (int) (bytes * 8 / durationMs) : header.bitrateKbps;
+        return new Mp3Info((int) durationMs, bitrate, header.sampleRate, header.channels, vbr, audioStart);
+    }
+
+    /**
+     * Returns the offset of the first frame header whose successor also decodes as a
+     * header with the same version, layer and sample rate, filling {@code header}.
+     */
+    public static int findFirstFrame(byte[] buffer, int count, FrameHeader header) {
+        FrameHeader following = new FrameHeader();
+        for (int pos = 0; pos + 4 <= count; pos++) {
+            if (!header.decode(buffer, pos)) {
+                continue;
+            }
+            int nextPos = pos + header.frameLength;
+            if (nextPos + 4 > count) {
+                // Can't confirm against a second frame, accept what we found
+                return pos;
+            }
+            if (following.decode(buffer, nextPos)
+                    && following.version == header.version
+                    && following.layer == header.layer
+                    && following.sampleRate == header.sampleRate) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /** One decoded 4-byte MPEG audio frame header. Mutable so scans can reuse it. */
+    public static final class FrameHeader {
+        /** 1 = MPEG-1, 2 = MPEG-2, 25 = MPEG-2.5. */
+        public int version;
+        /** 1, 2 or 3. */
+        public int layer;
+        public int bitrateKbps;
+        public int sampleRate;
+        public int channels;
+        public int samplesPerFrame;
+        public int frameLength;
+
+        public boolean decode(byte[] b, int pos) {
+            int h = readInt(b, pos);
+            if ((h & 0xffe00000) != 0xffe00000) {
+                return false;
+            }
+            int versionBits = (h >>> 19) & 3;
+            int layerBits = (h >>> 17) & 3;
+            int bitrateIndex = (h >>> 12) & 15;
+            int rateIndex = (h >>> 10) & 3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) {
+                return false; // reserved, free-format or bad values
+            }
+            version = versionBits == 3 ? 1 : versionBits == 2 ? 2 : 25;
+            layer = 4 - layerBits;
+            bitrateKbps = BITRATES[version == 1 ? 0 : 1][layer - 1][bitrateIndex];
+            sampleRate = MPEG1_SAMPLE_RATES[rateIndex] / (version == 1 ? 1 : version == 2 ? 2 : 4);
+            channels = ((h >>> 6) & 3) == 3 ? 1 : 2;
+            int padding = (h >>> 9) & 1;
+            if (layer == 1) {
+                samplesPerFrame = 384;
+                frameLength = (12 * bitrateKbps * 1000 / sampleRate + padding) * 4;
+            } else {
+                samplesPerFrame = layer == 3 && version != 1 ? 576 : 1152;
+                frameLength = samplesPerFrame / 8 * bitrateKbps * 1000 / sampleRate + padding;
+            }
+            return true;
+        }
+
+        /** Size of the Layer III side information that precedes a Xing header. */
+        int sideInfoSize() {
+            if (version == 1) {
+                return channels == 1 ? 17 : 32;
+            }
+            return channels == 1 ? 9 : 17;
+        }
+    }
+
+    private static boolean matches(byte[] b, int pos, String tag) {
+        for (int i = 0; i < tag.length(); i++) {
+            if (b[pos + i] != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] b, int pos) {
+        return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int count) throws IOException {
+        return readFully(in, buffer, 0, count);
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int offset, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int n = in.read(buffer, offset + total, count - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("ID3 tag runs past end of file");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.nihongo.core.mp3;
+
+/** Stream properties of an MP3 file, as read by {@link Mp3HeaderParser}. */
+public final class Mp3Info {
+
+    public final int durationMs;
+    /** Average bitrate over the whole stream. */
+    public final int bitrateKbps;
+    public final int sampleRate;
+    public final int channels;
+    /** True when a Xing or VBRI header gave the exact frame count. */
+    public final boolean vbr;
+    /** Byte offset of the first audio frame, after any ID3v2 tag and VBR header frame. */
+    public final long audioStart;
+
+    public Mp3Info(int durationMs, int bitrateKbps, int sampleRate, int channels, boolean vbr, long audioStart) {
+        this.durationMs = durationMs;
+        this.bitrateKbps = bitrateKbps;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.vbr = vbr;
+        this.audioStart = audioStart;
+    }
+
+    @Override
+    public String toString() {
+        return durationMs + " ms, " + bitrateKbps + " kbps" + (vbr ? " VBR" : "") + ", "
+                + sampleRate + " Hz, " + channels + " ch";
+    }
+}
@@ -0,0 +1,174 @@
+package com.nihongo.core.mp3;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Byte offset and start time of every audio frame of one MP3, built ahead of time
+ * by walking all frame headers. A VBR file's Xing table of contents only gives 100
+ * coarse points, so players that rely on it land up to a second off; with this
+ * index a position resolves to the exact frame that contains it.
+ *
+ * <p>Stored as a small header followed by one unsigned 16-bit length per frame,
+ * about 40 bytes per second of audio.
+ */
+public final class SeekIndex {
+
+    /** Assets directory the build writes indexes to, mirroring assets/audio. */
+    public static final String ASSET_DIR = "seek";
+
+    private static final int MAGIC = 0x534b4958; // "SKIX"
+    private static final int VERSION = 1;
+
+    private final int sampleRate;
+    private final int samplesPerFrame;
+    // offsets[i] is where frame i starts; offsets[frameCount] is the end of the last frame
+    private final long[] offsets;
+
+    private SeekIndex(int sampleRate, int samplesPerFrame, long[] offsets) {
+        this.sampleRate = sampleRate;
+        this.samplesPerFrame = samplesPerFrame;
+        this.offsets = offsets;
+    }
+
+    /** Path under the assets root of the index for a track at {@code trackPath} under assets/audio. */
+    public static String assetPath(String trackPath) {
+        return ASSET_DIR + "/" + trackPath.substring(0, trackPath.length() - ".mp3".length()) + ".idx";
+    }
+
+    /**
+     * Walks every frame of a whole MP3 file. The ID3v2 tag and the Xing/VBRI header
+     * frame are not audio and are left out, so frame 0 is the first one decoders play.
+     *
+     * @throws IOException if the data holds no MPEG audio frame
+     */
+    public static SeekIndex scan(byte[] data) throws IOException {
+        Mp3Info info = Mp3HeaderParser.parse(new ByteArrayInputStream(data), data.length);
+        Mp3HeaderParser.FrameHeader first = new Mp3HeaderParser.FrameHeader();
+        Mp3HeaderParser.FrameHeader header = new Mp3HeaderParser.FrameHeader();
+
+        int pos = (int) info.audioStart;
+        if (!first.decode(data, pos)) {
+            throw new IOException("No audio frame at offset " + pos);
+        }
+        long[] offsets = new long[1024];
+        offsets[0] = pos;
+        int frames = 0;
+        while (pos + 4 <= data.length) {
+            // A header that changes sample rate is a false sync inside junk or a trailing tag
+            if (!header.decode(data, pos) || header.sampleRate != first.sampleRate
+                    || pos + header.frameLength > data.length) {
+                pos++;
+                continue;
+            }
+            if (frames + 1 == offsets.length) {
+                long[] grown = new long[offsets.length * 2];
+                System.arraycopy(offsets, 0, grown, 0, frames);
+                offsets = grown;
+            }
+            offsets[frames++] = pos;
+            pos += header.frameLength;
+            offsets[frames] = pos;
+        }
+        long[] exact = new long[frames + 1];
+        System.arraycopy(offsets, 0, exact, 0, frames + 1);
+        return new SeekIndex(first.sampleRate, first.samplesPerFrame, exact);
+    }
+
+    public static SeekIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a seek index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported seek index version " + version);
+        }
+        int sampleRate = data.readInt();
+        int samplesPerFrame = data.readInt();
+        long audioStart = data.readLong();
+        int frameCount = data.readInt();
+        if (sampleRate <= 0 || samplesPerFrame <= 0 || frameCount < 0) {
+            throw new IOException("Corrupt seek index header");
+        }
+        long[] offsets = new long[frameCount + 1];
+        offsets[0] = audioStart;
+        for (int i = 0; i < frameCount; i++) {
+            offsets[i + 1] = offsets[i] + data.readUnsignedShort();
+        }
+        return new SeekIndex(sampleRate, samplesPerFrame, offsets);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(sampleRate);
+        data.writeInt(samplesPerFrame);
+        data.writeLong(offsets[0]);
+        data.writeInt(getFrameCount());
+        for (int i = 0; i < getFrameCount(); i++) {
+            // Frames are at most 2881 bytes; only junk skipped between frames can overflow
+            long length = offsets[i + 1] - offsets[i];
+            if (length > 0xffff) {
+                throw new IOException("Frame " + i + " is followed by " + length + " bytes of non-audio data");
+            }
+            data.writeShort((int) length);
+        }
+        data.flush();
+    }
+
+    public int getFrameCount() {
+        return offsets.length - 1;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSamplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    /** Exact duration of all frames. */
+    public int getDurationMs() {
+        return (int) ((long) getFrameCount() * samplesPerFrame * 1000 / sampleRate);
+    }
+
+    /** File offset of the given frame's header; {@code getFrameCount()} gives the end of the audio. */
+    public long getFrameOffset(int frame) {
+        return offsets[frame];
+    }
+
+    /** First sample of the given frame, counted from the start of the audio. */
+    public long getFrameStartSample(int frame) {
+        return (long) frame * samplesPerFrame;
+    }
+
+    /** Frame that contains the given position, clamped to the audio. */
+    public int frameAt(long positionMs) {
+        if (positionMs <= 0 || getFrameCount() == 0) {
+            return 0;
+        }
+        long frame = positionMs * sampleRate / (1000L * samplesPerFrame);
+        return (int) Math.min(frame, getFrameCount() - 1);
+    }
+
+    /**
+     * Start of the given frame in whole milliseconds, rounded up so that it still
+     * falls inside that frame: {@code frameAt(getFrameStartMs(f)) == f}.
+     */
+    public int getFrameStartMs(int frame) {
+        long scaled = (long) frame * samplesPerFrame * 1000;
+        return (int) ((scaled + sampleRate - 1) / sampleRate);
+    }
+
+    /** Moves a position back to the start of the frame that contains it. */
+    public int snapMs(int positionMs) {
+        return getFrameStartMs(frameAt(positionMs));
+    }
+}
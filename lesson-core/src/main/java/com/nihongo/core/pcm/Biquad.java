@@ -0,0 +1,88 @@
+package com.nihongo.core.pcm;
+
+/**
+ * Second-order IIR section in transposed direct form II, with coefficients from the
+ * Audio EQ Cookbook (bilinear transform of the analog prototype). One instance
+ * filters one channel; it keeps the state between calls. The setters retune it in
+ * place, keeping the state, so parameters can change while audio runs through it.
+ */
+final class Biquad {
+
+    private double b0;
+    private double b1;
+    private double b2;
+    private double a1;
+    private double a2;
+    private double z1;
+    private double z2;
+
+    private Biquad() {}
+
+    static Biquad highShelf(int sampleRate, double frequency, double q, double gainDb) {
+        Biquad filter = new Biquad();
+        filter.setHighShelf(sampleRate, frequency, q, gainDb);
+        return filter;
+    }
+
+    static Biquad highPass(int sampleRate, double frequency, double q) {
+        Biquad filter = new Biquad();
+        filter.setHighPass(sampleRate, frequency, q);
+        return filter;
+    }
+
+    static Biquad peaking(int sampleRate, double frequency, double q, double gainDb) {
+        Biquad filter = new Biquad();
+        filter.setPeaking(sampleRate, frequency, q, gainDb);
+        return filter;
+    }
+
+    void setHighShelf(int sampleRate, double frequency, double q, double gainDb) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        double root = 2 * Math.sqrt(a) * alpha;
+        set(a * ((a + 1) + (a - 1) * cos + root),
+                -2 * a * ((a - 1) + (a + 1) * cos),
+                a * ((a + 1) + (a - 1) * cos - root),
+                (a + 1) - (a - 1) * cos + root,
+                2 * ((a - 1) - (a + 1) * cos),
+                (a + 1) - (a - 1) * cos - root);
+    }
+
+    void setHighPass(int sampleRate, double frequency, double q) {
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        set((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    /** A bell around {@code frequency}; 0 dB passes everything unchanged. */
+    void setPeaking(int sampleRate, double frequency, double q, double gainDb) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+        set(1 + alpha * a, -2 * cos, 1 - alpha * a, 1 + alpha / a, -2 * cos, 1 - alpha / a);
+    }
+
+    private void set(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = b0 / a0;
+        this.b1 = b1 / a0;
+        this.b2 = b2 / a0;
+        this.a1 = a1 / a0;
+        this.a2 = a2 / a0;
+    }
+
+    double process(double x) {
+        double y = b0 * x + z1;
+        z1 = b1 * x - a1 * y + z2;
+        z2 = b2 * x - a2 * y;
+        return y;
+    }
+
+    void reset() {
+        z1 = 0;
+        z2 = 0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.nihongo.core.pcm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-track playback gain that brings every track to the same loudness. Measured
+ * at build time with a {@link LoudnessMeter} and bundled as {@link #ASSET}, so the
+ * app only looks gains up. Gains are stored in hundredths of a decibel.
+ */
+public final class GainTable {
+
+    public static final String ASSET = "loudness/gains.bin";
+    /** Loudness every track is brought to; the usual level for speech on phones. */
+    public static final double TARGET_LUFS = -16;
+    /** Samples are kept at least this far below full scale. */
+    public static final double PEAK_CEILING_DB = -1;
+    /** Quiet recordings are raised by at most this much, lest their noise floor rises with them. */
+    public static final double MAX_BOOST_DB = 12;
+
+    private static final int MAGIC = 0x4741494e; // "GAIN"
+    private static final int VERSION = 1;
+
+    // Sorted, for binary search
+    private final String[] paths;
+    private final short[] centibels;
+
+    private GainTable(String[] paths, short[] centibels) {
+        this.paths = paths;
+        this.centibels = centibels;
+    }
+
+    /**
+     * Gain in dB that brings a track of the given loudness to {@link #TARGET_LUFS},
+     * limited so that its peak stays under {@link #PEAK_CEILING_DB}; 0 for silence.
+     */
+    public static double gainFor(double loudnessLufs, double samplePeak) {
+        if (Double.isInfinite(loudnessLufs) || samplePeak <= 0) {
+            return 0;
+        }
+        double headroom = PEAK_CEILING_DB - 20 * Math.log10(samplePeak);
+        return Math.min(TARGET_LUFS - loudnessLufs, Math.min(headroom, MAX_BOOST_DB));
+    }
+
+    /** Gain in dB for a track path relative to assets/audio; 0 for tracks not in the table. */
+    public double getGainDb(String path) {
+        int i = Arrays.binarySearch(paths, path);
+        return i >= 0 ? centibels[i] / 100.0 : 0;
+    }
+
+    public int size() {
+        return paths.length;
+    }
+
+    public static final class Builder {
+
+        private final Map<String, Short> gains = new TreeMap<>();
+
+        public Builder put(String path, double gainDb) {
+            long rounded = Math.round(gainDb * 100);
+            gains.put(path, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded)));
+            return this;
+        }
+
+        public GainTable build() {
+            String[] paths = gains.keySet().toArray(new String[0]);
+            short[] centibels = new short[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                centibels[i] = gains.get(paths[i]);
+            }
+            return new GainTable(paths, centibels);
+        }
+    }
+
+    public static GainTable readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gain table");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gain table version " + version);
+        }
+        int count = data.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt gain table header");
+        }
+        String[] paths = new String[count];
+        short[] centibels = new short[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = data.readUTF();
+            centibels[i] = data.readShort();
+            if (i > 0 && paths[i - 1].compareTo(paths[i]) >= 0) {
+                throw new IOException("Gain table is not sorted at " + paths[i]);
+            }
+        }
+        return new GainTable(paths, centibels);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(paths.length);
+        for (int i = 0; i < paths.length; i++) {
+            data.writeUTF(paths[i]);
+            data.writeShort(centibels[i]);
+        }
+        data.flush();
+    }
+}
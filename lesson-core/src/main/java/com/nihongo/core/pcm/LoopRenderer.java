@@ -0,0 +1,191 @@
+package com.nihongo.core.pcm;
+
+import java.util.Arrays;
+
+/**
+ * Produces the PCM an audio output should play next: the decoded stream as is, or
+ * an A/B loop of it. Everything taken from the stream is also kept in a history
+ * window of the last few seconds, so marking B while listening and looping back to
+ * an A heard earlier needs neither a seek nor a decode; the repetition is copied
+ * from memory and is exact to the sample. An optional silent gap after every
+ * repetition leaves time to shadow the sentence.
+ *
+ * <p>Positions are in frames (one sample per channel) on the track's timeline.
+ * Samples are interleaved, and sources must deliver whole frames. Not thread-safe.
+ */
+public final class LoopRenderer {
+
+    /** Where the decoded stream comes from. */
+    public interface Source {
+        /** Reads up to {@code length} samples; returns how many, 0 if none are ready. */
+        int read(short[] dst, int offset, int length);
+    }
+
+    private final int channels;
+    private final short[] history;
+
+    // Stream state: samples taken from the source since startFrame
+    private long startFrame;
+    private long streamSamples;
+
+    // Loop state; loopPos runs over the repetition, then the gap
+    private short[] loop = new short[0];
+    private int loopLength;
+    private long loopStartFrame;
+    private int gapFrames;
+    private int loopPos;
+    private boolean looping;
+
+    /** @param historyFrames how far back a loop may start, in frames */
+    public LoopRenderer(int channels, int historyFrames) {
+        this.channels = channels;
+        this.history = new short[historyFrames * channels];
+    }
+
+    /** Starts over at the given frame, as after a seek. Clears the history and any loop. */
+    public void reset(long frame) {
+        startFrame = frame;
+        streamSamples = 0;
+        looping = false;
+    }
+
+    /**
+     * Fills {@code out} with up to {@code length} samples. Returns fewer only when
+     * the stream runs dry; a loop never does.
+     */
+    public int render(Source source, short[] out, int offset, int length) {
+        length -= length % channels;
+        int done = 0;
+        while (done < length) {
+            int n;
+            if (looping) {
+                int cycle = loopLength + gapFrames * channels;
+                if (loopPos < loopLength) {
+                    n = Math.min(length - done, loopLength - loopPos);
+                    System.arraycopy(loop, loopPos, out, offset + done, n);
+                } else {
+                    n = Math.min(length - done, cycle - loopPos);
+                    Arrays.fill(out, offset + done, offset + done + n, (short) 0);
+                }
+                loopPos += n;
+                if (loopPos >= cycle) {
+                    loopPos = 0;
+                }
+            } else {
+                n = source.read(out, offset + done, length - done);
+                if (n <= 0) {
+                    break;
+                }
+                remember(out, offset + done, n);
+            }
+            done += n;
+        }
+        return done;
+    }
+
+    private void remember(short[] src, int offset, int n) {
+        if (history.length == 0) {
+            streamSamples += n;
+            return;
+        }
+        // Only the tail of a chunk larger than the whole window survives anyway
+        int skip = Math.max(0, n - history.length);
+        long pos = streamSamples + skip;
+        int remaining = n - skip;
+        int srcPos = offset + skip;
+        while (remaining > 0) {
+            int at = (int) (pos % history.length);
+            int count = Math.min(remaining, history.length - at);
+            System.arraycopy(src, srcPos, history, at, count);
+            pos += count;
+            srcPos += count;
+            remaining -= count;
+        }
+        streamSamples += n;
+    }
+
+    /**
+     * Repeats {@code [fromFrame, toFrame)} from now on, beginning with the gap. The
+     * section must already have been rendered and still be inside the history.
+     *
+     * @return false if it is not, leaving playback unchanged
+     */
+    public boolean setLoop(long fromFrame, long toFrame) {
+        long from = (fromFrame - startFrame) * channels;
+        long to = (toFrame - startFrame) * channels;
+        if (from < 0 || to <= from || to > streamSamples || streamSamples - from > history.length) {
+            return false;
+        }
+        loopLength = (int) (to - from);
+        if (loop.length < loopLength) {
+            loop = new short[loopLength];
+        }
+        int done = 0;
+        while (done < loopLength) {
+            int at = (int) ((from + done) % history.length);
+            int count = Math.min(loopLength - done, history.length - at);
+            System.arraycopy(history, at, loop, done, count);
+            done += count;
+        }
+        loopStartFrame = fromFrame;
+        // Start with the pause: the section has just been heard
+        loopPos = loopLength;
+        looping = true;
+        return true;
+    }
+
+    /** Leaves the loop; the stream continues where it was when the loop was set. */
+    public void clearLoop() {
+        looping = false;
+    }
+
+    /** Silence after each repetition, in frames. */
+    public void setGapFrames(int frames) {
+        int cycle = loopLength + gapFrames * channels;
+        gapFrames = Math.max(0, frames);
+        if (looping && loopPos >= loopLength + gapFrames * channels && loopPos < cycle) {
+            // Shortened a gap that is being played: go straight to the next repetition
+            loopPos = 0;
+        }
+    }
+
+    public boolean isLooping() {
+        return looping;
+    }
+
+    /** Oldest frame a loop may start at right now. */
+    public long getHistoryStartFrame() {
+        long kept = Math.min(streamSamples, history.length);
+        return startFrame + (streamSamples - kept) / channels;
+    }
+
+    /**
+     * Track position of the next frame {@link #render} produces. During a gap that is
+     * the end of the loop.
+     */
+    public long getPositionFrame() {
+        if (!looping) {
+            return startFrame + streamSamples / channels;
+        }
+        return loopStartFrame + Math.min(loopPos, loopLength) / channels;
+    }
+
+    /**
+     * Position of the frame {@code renderedFrames} before the next one, e.g. the one
+     * the output is playing while it still holds that many. Inside a loop this wraps
+     * around the repetition, which is off only for the moment just after the loop
+     * was entered.
+     */
+    public long positionBefore(int renderedFrames) {
+        if (!looping) {
+            return Math.max(startFrame, getPositionFrame() - renderedFrames);
+        }
+        int cycle = loopLength / channels + gapFrames;
+        int back = renderedFrames % cycle;
+        int pos = loopPos / channels - back;
+        if (pos < 0) {
+            pos += cycle;
+        }
+        return loopStartFrame + Math.min(pos, loopLength / channels);
+    }
+}
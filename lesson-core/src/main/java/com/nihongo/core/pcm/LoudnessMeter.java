@@ -0,0 +1,126 @@
+package com.nihongo.core.pcm;
+
+import java.util.Arrays;
+
+/**
+ * Integrated loudness of a whole track, as ITU-R BS.1770 / EBU R128 measure it:
+ * K-weighted mean square over 400 ms blocks that overlap by 75%, averaged over the
+ * blocks above an absolute gate of -70 LUFS and then above a gate 10 LU below that
+ * first average, so pauses between sentences do not make speech read quieter.
+ * Also keeps the sample peak, which limits how far a track can be turned up.
+ *
+ * <p>Takes interleaved 16-bit PCM of one or two channels, in pieces of any size.
+ * Not thread-safe.
+ */
+public final class LoudnessMeter {
+
+    private static final double ABSOLUTE_GATE_LUFS = -70;
+    private static final double RELATIVE_GATE_LU = -10;
+    // Blocks are four steps of 100 ms
+    private static final int STEPS_PER_BLOCK = 4;
+
+    private final int channels;
+    private final Biquad[] shelves;
+    private final Biquad[] highPasses;
+    private final int stepFrames;
+
+    private final double[] recentSteps = new double[STEPS_PER_BLOCK];
+    private int stepCount;
+    private int stepFill;
+    private double stepSum;
+    private double[] blockPowers = new double[64];
+    private int blockCount;
+    private int peak;
+
+    public LoudnessMeter(int sampleRate, int channels) {
+        if (channels < 1 || channels > 2) {
+            throw new IllegalArgumentException("Unsupported channel count " + channels);
+        }
+        this.channels = channels;
+        shelves = new Biquad[channels];
+        highPasses = new Biquad[channels];
+        for (int c = 0; c < channels; c++) {
+            // The two stages of the K-weighting filter, redesigned for any sample rate
+            shelves[c] = Biquad.highShelf(sampleRate, 1500, 1 / Math.sqrt(2), 4);
+            highPasses[c] = Biquad.highPass(sampleRate, 38, 0.5);
+        }
+        stepFrames = sampleRate / 10;
+    }
+
+    /** Adds {@code length} samples, whole frames only. */
+    public void write(short[] samples, int offset, int length) {
+        int end = offset + length - length % channels;
+        for (int i = offset; i < end; i += channels) {
+            for (int c = 0; c < channels; c++) {
+                short sample = samples[i + c];
+                peak = Math.max(peak, Math.abs((int) sample));
+                double y = highPasses[c].process(shelves[c].process(sample / 32768.0));
+                stepSum += y * y;
+            }
+            if (++stepFill == stepFrames) {
+                endStep();
+            }
+        }
+    }
+
+    private void endStep() {
+        recentSteps[stepCount % STEPS_PER_BLOCK] = stepSum;
+        stepCount++;
+        stepSum = 0;
+        stepFill = 0;
+        if (stepCount >= STEPS_PER_BLOCK) {
+            double sum = 0;
+            for (double step : recentSteps) {
+                sum += step;
+            }
+            if (blockCount == blockPowers.length) {
+                blockPowers = Arrays.copyOf(blockPowers, blockCount * 2);
+            }
+            blockPowers[blockCount++] = sum / (STEPS_PER_BLOCK * stepFrames);
+        }
+    }
+
+    /** Gated loudness in LUFS, or negative infinity for silence or less than 400 ms of audio. */
+    public double getIntegratedLoudness() {
+        double absoluteGate = power(ABSOLUTE_GATE_LUFS);
+        double relativeGate = power(loudness(meanAbove(absoluteGate)) + RELATIVE_GATE_LU);
+        return loudness(meanAbove(Math.max(absoluteGate, relativeGate)));
+    }
+
+    /** Largest absolute sample value, from 0 to 1. */
+    public double getSamplePeak() {
+        return peak / 32768.0;
+    }
+
+    public void reset() {
+        for (int c = 0; c < channels; c++) {
+            shelves[c].reset();
+            highPasses[c].reset();
+        }
+        stepCount = 0;
+        stepFill = 0;
+        stepSum = 0;
+        blockCount = 0;
+        peak = 0;
+    }
+
+    private double meanAbove(double gate) {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blockPowers[i] > gate) {
+                sum += blockPowers[i];
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : 0;
+    }
+
+    private static double loudness(double power) {
+        return power > 0 ? -0.691 + 10 * Math.log10(power) : Double.NEGATIVE_INFINITY;
+    }
+
+    private static double power(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+}
@@ -0,0 +1,100 @@
+package com.nihongo.core.pcm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded tracks kept for instant replay, bounded by the memory they hold. The
+ * least recently used clip is evicted first. Hits, misses and evictions are counted
+ * so the budget can be tuned against real listening. Thread-safe.
+ */
+public final class PcmCache {
+
+    private final long budgetBytes;
+    // Access order: iteration starts at the least recently used clip
+    private final LinkedHashMap<String, PcmClip> clips = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PcmCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** The clip for {@code key}, now the most recently used, or null; counted as a hit or miss. */
+    public synchronized PcmClip get(String key) {
+        PcmClip clip = clips.get(key);
+        if (clip != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return clip;
+    }
+
+    /** Whether {@code key} is cached, without counting or touching its recency. */
+    public synchronized boolean contains(String key) {
+        return clips.containsKey(key);
+    }
+
+    /**
+     * Adds or replaces a clip, evicting least recently used ones until it fits.
+     * Returns false, changing nothing, if it would take more than the whole budget.
+     */
+    public synchronized boolean put(String key, PcmClip clip) {
+        long size = clip.getSizeBytes();
+        if (size > budgetBytes) {
+            return false;
+        }
+        PcmClip replaced = clips.remove(key);
+        if (replaced != null) {
+            sizeBytes -= replaced.getSizeBytes();
+        }
+        Iterator<Map.Entry<String, PcmClip>> eldest = clips.entrySet().iterator();
+        while (sizeBytes + size > budgetBytes) {
+            sizeBytes -= eldest.next().getValue().getSizeBytes();
+            eldest.remove();
+            evictions++;
+        }
+        clips.put(key, clip);
+        sizeBytes += size;
+        return true;
+    }
+
+    public synchronized void clear() {
+        clips.clear();
+        sizeBytes = 0;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int getCount() {
+        return clips.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return clips.size() + " clips, " + sizeBytes / 1024 + "/" + budgetBytes / 1024 + " KB, "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
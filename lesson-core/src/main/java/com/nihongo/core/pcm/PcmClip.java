@@ -0,0 +1,92 @@
+package com.nihongo.core.pcm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * A whole track decoded to interleaved 16-bit PCM, as kept by {@link PcmCache}.
+ * Filled by one thread with {@link #append}, then only read, through any number of
+ * {@link Reader}s. With {@code direct} the samples live outside the Java heap, so a
+ * few megabytes per track neither count against the app's heap limit nor get
+ * copied around by the garbage collector.
+ */
+public final class PcmClip {
+
+    public final int sampleRate;
+    public final int channels;
+
+    private final ShortBuffer samples;
+    private int length;
+
+    /** @param capacityFrames the most frames {@link #append} will take */
+    public PcmClip(int sampleRate, int channels, int capacityFrames, boolean direct) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        int capacity = capacityFrames * channels;
+        samples = direct
+                ? ByteBuffer.allocateDirect(capacity * 2).order(ByteOrder.nativeOrder()).asShortBuffer()
+                : ShortBuffer.allocate(capacity);
+    }
+
+    /** Adds samples at the end; returns false, adding nothing, if they do not fit. */
+    public boolean append(short[] src, int offset, int count) {
+        if (count > samples.capacity() - length) {
+            return false;
+        }
+        samples.position(length);
+        samples.put(src, offset, count);
+        length += count;
+        return true;
+    }
+
+    public int getFrameCount() {
+        return length / channels;
+    }
+
+    public int getDurationMs() {
+        return (int) ((long) getFrameCount() * 1000 / sampleRate);
+    }
+
+    /** Memory held, which is the capacity rather than what was appended. */
+    public long getSizeBytes() {
+        return samples.capacity() * 2L;
+    }
+
+    /** A new read position at the start; readers are independent of each other. */
+    public Reader reader() {
+        ShortBuffer view = samples.duplicate();
+        view.limit(length);
+        view.position(0);
+        return new Reader(view, channels);
+    }
+
+    /** Reads a clip as the stream behind a {@link LoopRenderer}. Not thread-safe. */
+    public static final class Reader implements LoopRenderer.Source {
+
+        private final ShortBuffer view;
+        private final int channels;
+
+        Reader(ShortBuffer view, int channels) {
+            this.view = view;
+            this.channels = channels;
+        }
+
+        /** Moves to a frame, clamped to the clip. */
+        public void seek(long frame) {
+            long sample = Math.max(0, Math.min(view.limit(), frame * channels));
+            view.position((int) sample);
+        }
+
+        public int available() {
+            return view.remaining();
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            int n = Math.min(length, view.remaining());
+            view.get(dst, offset, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.nihongo.core.pcm;
+
+/**
+ * Fixed-size circular buffer of 16-bit PCM samples between a decoder and the audio
+ * output. Writes that would overrun the reader are cut short rather than blocking,
+ * so the producer decides whether to wait. Not thread-safe: callers hold one lock
+ * around every call, which costs little next to the copies themselves.
+ */
+public final class PcmRingBuffer implements LoopRenderer.Source {
+
+    private final short[] data;
+    private final int mask;
+    private long written;
+    private long read;
+
+    /** @param capacity in samples, rounded up to a power of two */
+    public PcmRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        data = new short[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    public int available() {
+        return (int) (written - read);
+    }
+
+    public int free() {
+        return data.length - available();
+    }
+
+    /** Copies up to {@code length} samples in; returns how many fit. */
+    public int write(short[] src, int offset, int length) {
+        int n = Math.min(length, free());
+        int start = (int) (written & mask);
+        int first = Math.min(n, data.length - start);
+        System.arraycopy(src, offset, data, start, first);
+        System.arraycopy(src, offset + first, data, 0, n - first);
+        written += n;
+        return n;
+    }
+
+    @Override
+    public int read(short[] dst, int offset, int length) {
+        int n = Math.min(length, available());
+        int start = (int) (read & mask);
+        int first = Math.min(n, data.length - start);
+        System.arraycopy(data, start, dst, offset, first);
+        System.arraycopy(data, 0, dst, offset + first, n - first);
+        read += n;
+        return n;
+    }
+
+    /** Drops everything buffered, e.g. after a seek. */
+    public void clear() {
+        read = written;
+    }
+}
@@ -0,0 +1,152 @@
+package com.nihongo.core.pcm;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Where speech starts and ends in one track, found ahead of time by a
+ * {@link SilenceDetector}: roughly one segment per sentence, with the pauses between
+ * them. Lookups are binary searches over two int arrays and allocate nothing, so
+ * they can run on every position update.
+ *
+ * <p>Stored as a small header followed by the pause before and the length of each
+ * segment, in units of {@link SilenceDetector#FRAME_MS}, about 4 bytes per sentence.
+ */
+public final class SegmentIndex {
+
+    /** Assets directory the build writes indexes to, mirroring assets/audio. */
+    public static final String ASSET_DIR = "segments";
+
+    private static final int MAGIC = 0x53474958; // "SGIX"
+    private static final int VERSION = 1;
+    private static final int UNIT_MS = SilenceDetector.FRAME_MS;
+
+    private final int durationMs;
+    // Sorted and not overlapping: startsMs[i] < endsMs[i] <= startsMs[i + 1]
+    private final int[] startsMs;
+    private final int[] endsMs;
+
+    SegmentIndex(int durationMs, int[] startsMs, int[] endsMs) {
+        this.durationMs = durationMs;
+        this.startsMs = startsMs;
+        this.endsMs = endsMs;
+    }
+
+    /** Path under the assets root of the index for a track at {@code trackPath} under assets/audio. */
+    public static String assetPath(String trackPath) {
+        return ASSET_DIR + "/" + trackPath.substring(0, trackPath.length() - ".mp3".length()) + ".seg";
+    }
+
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    public int getSegmentCount() {
+        return startsMs.length;
+    }
+
+    public int getStartMs(int segment) {
+        return startsMs[segment];
+    }
+
+    public int getEndMs(int segment) {
+        return endsMs[segment];
+    }
+
+    /** The last segment that starts at or before the position, or -1 before the first one. */
+    public int segmentAt(int positionMs) {
+        int i = Arrays.binarySearch(startsMs, positionMs);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Where "previous sentence" goes from the position: the start of the sentence
+     * being played, or of the one before if that start is less than {@code graceMs}
+     * back, so repeated taps keep going back. 0 before the second sentence.
+     */
+    public int previousStartMs(int positionMs, int graceMs) {
+        int i = segmentAt(positionMs);
+        if (i >= 0 && positionMs - startsMs[i] > graceMs) {
+            return startsMs[i];
+        }
+        return i >= 1 ? startsMs[i - 1] : 0;
+    }
+
+    /** Start of the first sentence after the position, or -1 if none follows. */
+    public int nextStartMs(int positionMs) {
+        int i = segmentAt(positionMs) + 1;
+        return i < startsMs.length ? startsMs[i] : -1;
+    }
+
+    /**
+     * Where to skip to from a position inside a pause of at least {@code minSilenceMs}
+     * once {@code keepMs} of it have played: the start of the next sentence. -1 while
+     * speech plays, in shorter pauses, and in the silence after the last sentence,
+     * which the track's end takes care of.
+     */
+    public int skipTargetMs(int positionMs, int minSilenceMs, int keepMs) {
+        int i = segmentAt(positionMs);
+        if (i + 1 >= startsMs.length) {
+            return -1;
+        }
+        int silenceStart = i >= 0 ? endsMs[i] : 0;
+        int silenceEnd = startsMs[i + 1];
+        if (silenceEnd - silenceStart < minSilenceMs || positionMs < silenceStart + keepMs) {
+            return -1;
+        }
+        return silenceEnd;
+    }
+
+    public static SegmentIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a segment index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment index version " + version);
+        }
+        int durationMs = data.readInt();
+        int count = data.readInt();
+        if (durationMs < 0 || count < 0) {
+            throw new IOException("Corrupt segment index header");
+        }
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            starts[i] = position + data.readUnsignedShort() * UNIT_MS;
+            ends[i] = starts[i] + data.readUnsignedShort() * UNIT_MS;
+            position = ends[i];
+        }
+        return new SegmentIndex(durationMs, starts, ends);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(durationMs);
+        data.writeInt(startsMs.length);
+        int position = 0;
+        for (int i = 0; i < startsMs.length; i++) {
+            writeUnits(data, startsMs[i] - position);
+            writeUnits(data, endsMs[i] - startsMs[i]);
+            position = endsMs[i];
+        }
+        data.flush();
+    }
+
+    private static void writeUnits(DataOutputStream data, int ms) throws IOException {
+        int units = ms / UNIT_MS;
+        // Over ten minutes without a sentence, or without a pause, is not a lesson track
+        if (units > 0xffff || ms % UNIT_MS != 0) {
+            throw new IOException("Cannot store a span of " + ms + " ms");
+        }
+        data.writeShort(units);
+    }
+}
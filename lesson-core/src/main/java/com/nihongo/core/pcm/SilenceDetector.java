@@ -0,0 +1,129 @@
+package com.nihongo.core.pcm;
+
+import java.util.Arrays;
+
+/**
+ * Splits a track into speech and silence for a {@link SegmentIndex}. The level of
+ * every {@link #FRAME_MS} ms frame is kept; at the end, frames well above the
+ * track's own noise floor count as speech. Pauses shorter than a sentence break are
+ * bridged, bursts too short to be a word are dropped, and each segment is widened a
+ * little so seeking to its start does not clip the first consonant.
+ *
+ * <p>Takes interleaved 16-bit PCM in pieces of any size. Not thread-safe.
+ */
+public final class SilenceDetector {
+
+    /** Resolution of segment boundaries. */
+    public static final int FRAME_MS = 10;
+
+    // The quietest tenth of a track is taken as its noise floor
+    private static final double FLOOR_PERCENTILE = 0.1;
+    private static final double THRESHOLD_ABOVE_FLOOR_DB = 15;
+    // Bounds for the threshold: digital silence has no useful floor, and hiss must not hide speech
+    private static final double MIN_THRESHOLD_DB = -60;
+    private static final double MAX_THRESHOLD_DB = -35;
+    private static final int MIN_SILENCE_MS = 400;
+    private static final int MIN_SPEECH_MS = 120;
+    private static final int PAD_MS = 100;
+
+    private final int sampleRate;
+    private final int channels;
+    private final int frameLength;
+
+    private float[] levels = new float[1024];
+    private int levelCount;
+    private double frameSum;
+    private int frameFill;
+    private long totalFrames;
+
+    public SilenceDetector(int sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        frameLength = sampleRate * FRAME_MS / 1000;
+    }
+
+    /** Adds {@code length} samples, whole frames only. */
+    public void write(short[] samples, int offset, int length) {
+        int end = offset + length - length % channels;
+        for (int i = offset; i < end; i += channels) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += samples[i + c];
+            }
+            double mono = sum / (32768.0 * channels);
+            frameSum += mono * mono;
+            totalFrames++;
+            if (++frameFill == frameLength) {
+                if (levelCount == levels.length) {
+                    levels = Arrays.copyOf(levels, levelCount * 2);
+                }
+                levels[levelCount++] = (float) (10 * Math.log10(frameSum / frameLength + 1e-12));
+                frameSum = 0;
+                frameFill = 0;
+            }
+        }
+    }
+
+    /** The segments of everything written so far. */
+    public SegmentIndex finish() {
+        int durationMs = (int) (totalFrames * 1000 / sampleRate);
+        if (levelCount == 0) {
+            return new SegmentIndex(durationMs, new int[0], new int[0]);
+        }
+        float threshold = threshold();
+        int minSilence = MIN_SILENCE_MS / FRAME_MS;
+        int minSpeech = MIN_SPEECH_MS / FRAME_MS;
+        int pad = PAD_MS / FRAME_MS;
+
+        // Speech runs in frames, bridging short pauses as they are found
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        int i = 0;
+        while (i < levelCount) {
+            if (levels[i] <= threshold) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < levelCount && levels[i] > threshold) {
+                i++;
+            }
+            if (count > 0 && start - ends[count - 1] < minSilence) {
+                ends[count - 1] = i;
+            } else {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+            }
+        }
+
+        int kept = 0;
+        for (int s = 0; s < count; s++) {
+            if (ends[s] - starts[s] >= minSpeech) {
+                starts[kept] = starts[s];
+                ends[kept] = ends[s];
+                kept++;
+            }
+        }
+        int[] startsMs = new int[kept];
+        int[] endsMs = new int[kept];
+        for (int s = 0; s < kept; s++) {
+            // Pauses are at least minSilence, so padding both sides cannot make segments overlap
+            startsMs[s] = Math.max(0, starts[s] - pad) * FRAME_MS;
+            endsMs[s] = Math.min(levelCount, ends[s] + pad) * FRAME_MS;
+        }
+        return new SegmentIndex(durationMs, startsMs, endsMs);
+    }
+
+    private float threshold() {
+        float[] sorted = Arrays.copyOf(levels, levelCount);
+        Arrays.sort(sorted);
+        double floor = sorted[(int) (FLOOR_PERCENTILE * (levelCount - 1))];
+        return (float) Math.max(MIN_THRESHOLD_DB, Math.min(MAX_THRESHOLD_DB, floor + THRESHOLD_ABOVE_FLOOR_DB));
+    }
+}
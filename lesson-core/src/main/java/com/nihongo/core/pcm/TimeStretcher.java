@@ -0,0 +1,243 @@
+package com.nihongo.core.pcm;
+
+import java.util.Arrays;
+
+/**
+ * Changes playback speed without changing pitch, by WSOLA (waveform similarity
+ * overlap-add). Output is built from Hann-windowed input segments overlapping by
+ * half; the input advances by {@code speed} times the output hop, and each segment
+ * is shifted by up to a few milliseconds to where it best continues the waveform of
+ * the one before, which keeps voices free of the phasing that plain overlap-add
+ * produces. At speed 1 segments follow each other exactly and the input comes out
+ * unchanged, only delayed by one window.
+ *
+ * <p>Samples are interleaved 16-bit PCM; speed can change at any time and applies
+ * from the next segment. All buffers are allocated up front. Not thread-safe.
+ */
+public final class TimeStretcher {
+
+    public static final float MIN_SPEED = 0.5f;
+    public static final float MAX_SPEED = 2.0f;
+
+    private static final int WINDOW_MS = 24;
+    private static final int TOLERANCE_MS = 8;
+    // Coarse search step in frames; the best coarse match is then refined frame by frame
+    private static final int COARSE_STEP = 4;
+
+    private final int channels;
+    private final int window;
+    private final int hop;
+    private final int tolerance;
+    private final float[] fade;
+
+    // Input not yet consumed, interleaved and as a mono mix for the similarity search
+    private final short[] input;
+    private final float[] mono;
+    private final int capacity;
+    private int inputFrames;
+
+    // Second half of the previous segment, already windowed, waiting for its overlap
+    private final float[] tail;
+    private final short[] pending;
+    private int pendingPos;
+    private int pendingLength;
+
+    private float speed = 1f;
+    private boolean primed;
+    private int previousStart;
+    private double nextPosition;
+
+    public TimeStretcher(int sampleRate, int channels) {
+        this.channels = channels;
+        this.hop = sampleRate * WINDOW_MS / 2000;
+        this.window = 2 * hop;
+        this.tolerance = sampleRate * TOLERANCE_MS / 1000;
+        fade = new float[window];
+        for (int i = 0; i < window; i++) {
+            // Periodic Hann: fade[i] + fade[i + hop] == 1, so exact continuations add back to the input
+            fade[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / window));
+        }
+        // Room for a segment at full speed and search range, plus a block of new input
+        capacity = 4 * window + 2 * tolerance + 2048;
+        input = new short[capacity * channels];
+        mono = new float[capacity];
+        tail = new float[hop * channels];
+        pending = new short[hop * channels];
+    }
+
+    /** Clamped to {@link #MIN_SPEED}..{@link #MAX_SPEED}. */
+    public void setSpeed(float speed) {
+        this.speed = Math.max(MIN_SPEED, Math.min(MAX_SPEED, speed));
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    /** How many more input samples {@link #write} accepts right now. */
+    public int inputRoom() {
+        return (capacity - inputFrames) * channels;
+    }
+
+    /** Takes up to {@code length} input samples, whole frames only; returns how many. */
+    public int write(short[] src, int offset, int length) {
+        int frames = Math.min(length, inputRoom()) / channels;
+        System.arraycopy(src, offset, input, inputFrames * channels, frames * channels);
+        for (int f = 0; f < frames; f++) {
+            int s = offset + f * channels;
+            float sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += src[s + c];
+            }
+            mono[inputFrames + f] = sum;
+        }
+        inputFrames += frames;
+        return frames * channels;
+    }
+
+    /**
+     * Pads the input with silence so that everything written so far comes out,
+     * followed by a few tens of milliseconds of that silence.
+     */
+    public void endOfInput() {
+        int frames = Math.min(capacity - inputFrames, window + 2 * tolerance + 2 * hop);
+        Arrays.fill(input, inputFrames * channels, (inputFrames + frames) * channels, (short) 0);
+        Arrays.fill(mono, inputFrames, inputFrames + frames, 0f);
+        inputFrames += frames;
+    }
+
+    /** Produces up to {@code length} output samples from the input available; returns how many. */
+    public int read(short[] dst, int offset, int length) {
+        length -= length % channels;
+        int done = 0;
+        while (done < length) {
+            if (pendingPos == pendingLength) {
+                if (!canSynthesize()) {
+                    break;
+                }
+                synthesize();
+            }
+            int n = Math.min(length - done, pendingLength - pendingPos);
+            System.arraycopy(pending, pendingPos, dst, offset + done, n);
+            pendingPos += n;
+            done += n;
+        }
+        return done;
+    }
+
+    /** Input frames written but not yet heard in the output read so far, for position reporting. */
+    public int getLatencyFrames() {
+        int consumed = primed ? previousStart + hop : 0;
+        int unread = (pendingLength - pendingPos) / channels;
+        return Math.max(0, inputFrames - consumed) + Math.round(unread * speed);
+    }
+
+    /** Drops all input and output, as after a seek. */
+    public void reset() {
+        inputFrames = 0;
+        pendingPos = 0;
+        pendingLength = 0;
+        primed = false;
+        previousStart = 0;
+        nextPosition = 0;
+    }
+
+    private boolean canSynthesize() {
+        if (!primed) {
+            return inputFrames >= window;
+        }
+        int natural = previousStart + hop;
+        int furthest = speed == 1f ? natural : Math.max(natural, (int) Math.round(nextPosition) + tolerance);
+        return furthest + window <= inputFrames;
+    }
+
+    private void synthesize() {
+        int start;
+        if (!primed) {
+            // Act as if a segment ended exactly here, so the first hop is not faded in
+            for (int i = 0; i < hop; i++) {
+                for (int c = 0; c < channels; c++) {
+                    tail[i * channels + c] = input[i * channels + c] * fade[hop + i];
+                }
+            }
+            start = 0;
+            primed = true;
+        } else if (speed == 1f) {
+            start = previousStart + hop;
+        } else {
+            start = bestMatch(previousStart + hop, (int) Math.round(nextPosition));
+        }
+
+        for (int i = 0; i < hop; i++) {
+            float in = fade[i];
+            float out = fade[hop + i];
+            int s = (start + i) * channels;
+            int t = (start + hop + i) * channels;
+            for (int c = 0; c < channels; c++) {
+                int k = i * channels + c;
+                float value = tail[k] + input[s + c] * in;
+                pending[k] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+                tail[k] = input[t + c] * out;
+            }
+        }
+        pendingPos = 0;
+        pendingLength = hop * channels;
+
+        previousStart = start;
+        // At speed 1 the ideal position follows the segments, so a later change starts from here
+        nextPosition = speed == 1f ? start + hop : nextPosition + hop * (double) speed;
+        compact();
+    }
+
+    /** Start within the tolerance of {@code ideal} whose first half best matches the natural continuation. */
+    private int bestMatch(int natural, int ideal) {
+        int low = Math.max(0, ideal - tolerance);
+        int high = ideal + tolerance;
+        int best = Math.max(low, Math.min(high, natural));
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int candidate = low; candidate <= high; candidate += COARSE_STEP) {
+            float score = similarity(natural, candidate, 2);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        int coarse = best;
+        for (int candidate = Math.max(low, coarse - COARSE_STEP + 1);
+                candidate <= Math.min(high, coarse + COARSE_STEP - 1); candidate++) {
+            if (candidate != coarse) {
+                float score = similarity(natural, candidate, 1);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Cross-correlation over one hop, normalised by the candidate's energy
+    private float similarity(int reference, int candidate, int step) {
+        float correlation = 0;
+        float energy = 1e-3f;
+        for (int i = 0; i < hop; i += step) {
+            float x = mono[candidate + i];
+            correlation += mono[reference + i] * x;
+            energy += x * x;
+        }
+        return correlation / (float) Math.sqrt(energy);
+    }
+
+    private void compact() {
+        int keep = Math.min(previousStart + hop, (int) nextPosition - tolerance);
+        if (keep < window) {
+            return;
+        }
+        int remaining = inputFrames - keep;
+        System.arraycopy(input, keep * channels, input, 0, remaining * channels);
+        System.arraycopy(mono, keep, mono, 0, remaining);
+        inputFrames = remaining;
+        previousStart -= keep;
+        nextPosition -= keep;
+    }
+}
@@ -0,0 +1,158 @@
+package com.nihongo.core.pcm;
+
+/**
+ * Makes recorded speech easier to follow on a phone speaker in a noisy place: a
+ * low cut takes out rumble the speaker cannot play anyway, a bell boosts the
+ * presence band where consonants are, and a compressor brings quiet lines up
+ * towards loud ones.
+ *
+ * <p>All state is allocated up front and {@link #process} works on 16-bit PCM in
+ * place, allocating nothing. {@link #setSettings} may be called from any thread;
+ * the processing thread picks the new settings up at its next block and retunes
+ * the filters in place. The compressor's gain is computed every
+ * {@link #CONTROL_FRAMES} frames and ramped in between.
+ */
+public final class VoiceClarity {
+
+    /** What the chain does; immutable, so it can be handed between threads. */
+    public static final class Settings {
+
+        public static final Settings OFF = new Settings(0, 0);
+
+        /** Boost of the presence band in dB, 0 to {@link #MAX_PRESENCE_DB}. */
+        public final float presenceDb;
+        /** How hard quiet and loud passages are evened out, 0 (not at all) to 1. */
+        public final float compression;
+
+        public Settings(float presenceDb, float compression) {
+            this.presenceDb = Math.max(0, Math.min(MAX_PRESENCE_DB, presenceDb));
+            this.compression = Math.max(0, Math.min(1, compression));
+        }
+
+        public boolean isOff() {
+            return presenceDb == 0 && compression == 0;
+        }
+    }
+
+    public static final float MAX_PRESENCE_DB = 12;
+
+    private static final double LOW_CUT_HZ = 150;
+    private static final double LOW_CUT_Q = 0.707;
+    private static final double PRESENCE_HZ = 2500;
+    private static final double PRESENCE_Q = 0.9;
+    private static final double ATTACK_MS = 5;
+    private static final double RELEASE_MS = 150;
+    // At full compression: everything above -30 dBFS is squeezed 6:1
+    private static final double MAX_THRESHOLD_DROP_DB = 18;
+    private static final double BASE_THRESHOLD_DB = -12;
+    private static final double MAX_RATIO = 6;
+    static final int CONTROL_FRAMES = 32;
+
+    private final int sampleRate;
+    private final int channels;
+    private final Biquad[] lowCuts;
+    private final Biquad[] presences;
+    private final double[] frame;
+    private final double attack;
+    private final double release;
+
+    private volatile Settings settings = Settings.OFF;
+
+    // Processing thread only
+    private Settings applied;
+    private double threshold;
+    private double exponent;
+    private double makeup;
+    private double envelope;
+    private double gain = 1;
+    private double gainStep;
+    private int untilControl;
+
+    public VoiceClarity(int sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        lowCuts = new Biquad[channels];
+        presences = new Biquad[channels];
+        for (int c = 0; c < channels; c++) {
+            lowCuts[c] = Biquad.highPass(sampleRate, LOW_CUT_HZ, LOW_CUT_Q);
+            presences[c] = Biquad.peaking(sampleRate, PRESENCE_HZ, PRESENCE_Q, 0);
+        }
+        frame = new double[channels];
+        attack = Math.exp(-1000 / (ATTACK_MS * sampleRate));
+        release = Math.exp(-1000 / (RELEASE_MS * sampleRate));
+    }
+
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /** Processes {@code count} interleaved samples, whole frames, in place. */
+    public void process(short[] samples, int offset, int count) {
+        Settings current = settings;
+        if (current != applied) {
+            apply(current);
+        }
+        if (current.isOff()) {
+            return;
+        }
+        int end = offset + count;
+        for (int i = offset; i < end; i += channels) {
+            double peak = 0;
+            for (int c = 0; c < channels; c++) {
+                double x = presences[c].process(lowCuts[c].process(samples[i + c] * (1.0 / 32768)));
+                frame[c] = x;
+                peak = Math.max(peak, Math.abs(x));
+            }
+            // Peak follower, linked across channels so the stereo image stays put
+            envelope = peak > envelope ? peak + attack * (envelope - peak) : peak + release * (envelope - peak);
+            if (--untilControl <= 0) {
+                gainStep = (targetGain() - gain) / CONTROL_FRAMES;
+                untilControl = CONTROL_FRAMES;
+            }
+            gain += gainStep;
+            double scale = gain * makeup * 32768;
+            for (int c = 0; c < channels; c++) {
+                long value = Math.round(frame[c] * scale);
+                samples[i + c] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+    }
+
+    /** Forgets the audio before, e.g. after a seek, keeping the settings. */
+    public void reset() {
+        for (int c = 0; c < channels; c++) {
+            lowCuts[c].reset();
+            presences[c].reset();
+        }
+        envelope = 0;
+        gain = 1;
+        gainStep = 0;
+        untilControl = 0;
+    }
+
+    private void apply(Settings next) {
+        if (applied == null || applied.isOff() != next.isOff()) {
+            // Filter state from before a bypass would click
+            reset();
+        }
+        applied = next;
+        for (int c = 0; c < channels; c++) {
+            presences[c].setPeaking(sampleRate, PRESENCE_HZ, PRESENCE_Q, next.presenceDb);
+        }
+        double thresholdDb = BASE_THRESHOLD_DB - MAX_THRESHOLD_DROP_DB * next.compression;
+        double ratio = 1 + (MAX_RATIO - 1) * next.compression;
+        threshold = Math.pow(10, thresholdDb / 20);
+        exponent = 1 / ratio - 1;
+        // Half of what the compressor takes off a full-scale peak comes back as makeup
+        makeup = Math.pow(10, -thresholdDb * (1 - 1 / ratio) / 2 / 20);
+    }
+
+    // Gain that brings the envelope down to the compressor's curve
+    private double targetGain() {
+        return envelope > threshold ? Math.pow(envelope / threshold, exponent) : 1;
+    }
+}
@@ -0,0 +1,250 @@
+package com.nihongo.core.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Substring search over a few hundred short documents, such as lesson titles with
+ * their readings and glosses, fast enough to run on every keystroke. Every document
+ * field is stored {@link SearchText#fold folded}; for each character and each pair
+ * of adjacent characters the index holds a bitset of the documents that contain it.
+ * A query intersects the bitsets of its own pairs and then confirms the few
+ * remaining candidates by direct comparison.
+ *
+ * <p>Built ahead of time and stored with {@link #writeTo}. Queries reuse scratch
+ * arrays and allocate nothing, so an instance must only be queried from one thread.
+ */
+public final class SearchIndex {
+
+    /** Assets path the build writes the lesson index to. */
+    public static final String LESSONS_ASSET = "search/lessons.idx";
+
+    private static final int MAGIC = 0x53524348; // "SRCH"
+    private static final int VERSION = 1;
+    // Longer queries are cut; 32 folded characters single out any title
+    private static final int MAX_QUERY = 32;
+    // Marks field ends in text, so no match spans two fields
+    private static final char SEPARATOR = 0;
+
+    private final int[] keys;
+    // Folded fields of document i are text[starts[i]..starts[i + 1]), each followed by SEPARATOR
+    private final char[] text;
+    private final int[] starts;
+    // Sorted: a single character c as c, a pair (a, b) as a << 16 | b; a is never 0
+    private final int[] grams;
+    // Bitset of the documents containing grams[g], words long from g * words
+    private final long[] postings;
+    private final int words;
+
+    private final char[] query = new char[MAX_QUERY];
+    private final long[] candidates;
+
+    private SearchIndex(int[] keys, char[] text, int[] starts, int[] grams, long[] postings) {
+        this.keys = keys;
+        this.text = text;
+        this.starts = starts;
+        this.grams = grams;
+        this.postings = postings;
+        this.words = (keys.length + 63) / 64;
+        this.candidates = new long[words];
+    }
+
+    /** Collects documents for {@link #build}. */
+    public static final class Builder {
+        private final List<Integer> keys = new ArrayList<>();
+        private final List<String[]> fields = new ArrayList<>();
+
+        /** Adds a document, found as {@code key}, that matches any substring of its fields. */
+        public Builder add(int key, String... documentFields) {
+            keys.add(key);
+            fields.add(documentFields.clone());
+            return this;
+        }
+
+        public SearchIndex build() {
+            int count = keys.size();
+            int words = (count + 63) / 64;
+            StringBuilder text = new StringBuilder();
+            int[] starts = new int[count + 1];
+            int[] keyArray = new int[count];
+            TreeMap<Integer, long[]> postings = new TreeMap<>();
+            char[] scratch = new char[256];
+            for (int doc = 0; doc < count; doc++) {
+                keyArray[doc] = keys.get(doc);
+                starts[doc] = text.length();
+                for (String field : fields.get(doc)) {
+                    if (scratch.length < field.length() * 2) {
+                        scratch = new char[field.length() * 2];
+                    }
+                    int length = SearchText.fold(field, scratch, 0, false);
+                    for (int i = 0; i < length; i++) {
+                        addGram(postings, scratch[i], doc, words);
+                        if (i > 0) {
+                            addGram(postings, pair(scratch[i - 1], scratch[i]), doc, words);
+                        }
+                    }
+                    text.append(scratch, 0, length).append(SEPARATOR);
+                }
+            }
+            starts[count] = text.length();
+
+            int[] grams = new int[postings.size()];
+            long[] bits = new long[postings.size() * words];
+            int g = 0;
+            for (Map.Entry<Integer, long[]> entry : postings.entrySet()) {
+                grams[g] = entry.getKey();
+                System.arraycopy(entry.getValue(), 0, bits, g * words, words);
+                g++;
+            }
+            char[] chars = new char[text.length()];
+            text.getChars(0, chars.length, chars, 0);
+            return new SearchIndex(keyArray, chars, starts, grams, bits);
+        }
+
+        private static void addGram(TreeMap<Integer, long[]> postings, int gram, int doc, int words) {
+            long[] bits = postings.get(gram);
+            if (bits == null) {
+                bits = new long[words];
+                postings.put(gram, bits);
+            }
+            bits[doc >> 6] |= 1L << doc;
+        }
+    }
+
+    public static SearchIndex readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a search index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported search index version " + version);
+        }
+        int count = data.readInt();
+        int textLength = data.readInt();
+        int gramCount = data.readInt();
+        if (count < 0 || textLength < 0 || gramCount < 0) {
+            throw new IOException("Corrupt search index header");
+        }
+        int[] keys = new int[count];
+        int[] starts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            keys[i] = data.readInt();
+            starts[i] = data.readInt();
+        }
+        starts[count] = textLength;
+        char[] text = new char[textLength];
+        for (int i = 0; i < textLength; i++) {
+            text[i] = data.readChar();
+        }
+        int words = (count + 63) / 64;
+        int[] grams = new int[gramCount];
+        long[] postings = new long[gramCount * words];
+        for (int g = 0; g < gramCount; g++) {
+            grams[g] = data.readInt();
+            for (int w = 0; w < words; w++) {
+                postings[g * words + w] = data.readLong();
+            }
+        }
+        return new SearchIndex(keys, text, starts, grams, postings);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(keys.length);
+        data.writeInt(text.length);
+        data.writeInt(grams.length);
+        for (int i = 0; i < keys.length; i++) {
+            data.writeInt(keys[i]);
+            data.writeInt(starts[i]);
+        }
+        for (char c : text) {
+            data.writeChar(c);
+        }
+        for (int g = 0; g < grams.length; g++) {
+            data.writeInt(grams[g]);
+            for (int w = 0; w < words; w++) {
+                data.writeLong(postings[g * words + w]);
+            }
+        }
+        data.flush();
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Writes the keys of the documents that contain {@code text}, in the order they
+     * were added, to {@code results} and returns how many there are. An empty query
+     * matches everything.
+     *
+     * @param results at least {@link #size()} long
+     */
+    public int search(CharSequence text, int[] results) {
+        int length = SearchText.fold(text, query, 0, true);
+        if (length == 0) {
+            System.arraycopy(keys, 0, results, 0, keys.length);
+            return keys.length;
+        }
+        Arrays.fill(candidates, -1L);
+        if (length == 1) {
+            intersect(query[0]);
+        }
+        for (int i = 1; i < length; i++) {
+            intersect(pair(query[i - 1], query[i]));
+        }
+        int found = 0;
+        for (int w = 0; w < words; w++) {
+            long bits = candidates[w];
+            while (bits != 0) {
+                int doc = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (doc < keys.length && contains(doc, length)) {
+                    results[found++] = keys[doc];
+                }
+            }
+        }
+        return found;
+    }
+
+    private void intersect(int gram) {
+        int g = Arrays.binarySearch(grams, gram);
+        if (g < 0) {
+            Arrays.fill(candidates, 0L);
+            return;
+        }
+        for (int w = 0; w < words; w++) {
+            candidates[w] &= postings[g * words + w];
+        }
+    }
+
+    // The pairs only say every pair occurs somewhere in the document, not in order
+    private boolean contains(int doc, int length) {
+        int last = starts[doc + 1] - length;
+        for (int i = starts[doc]; i <= last; i++) {
+            int j = 0;
+            while (j < length && text[i + j] == query[j]) {
+                j++;
+            }
+            if (j == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int pair(char a, char b) {
+        return a << 16 | b;
+    }
+}
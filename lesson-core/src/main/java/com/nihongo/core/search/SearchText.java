@@ -0,0 +1,120 @@
+package com.nihongo.core.search;
+
+/**
+ * The form text is compared in by {@link SearchIndex}: lower case, katakana as
+ * hiragana, full-width letters as ASCII, without spaces or punctuation. Romaji is
+ * folded to a spelling-neutral form, so "shi" finds "si", "chou" finds "cho" and
+ * "Kōshien" finds "koushien": sh/ch/j/ts/f become s(y)/t(y)/z(y)/t/h, and long
+ * vowels, whether doubled, "ou" or with a macron, become short ones.
+ *
+ * <p>Works on caller-supplied arrays, so per-keystroke queries do not allocate.
+ */
+public final class SearchText {
+
+    private SearchText() {}
+
+    /**
+     * Appends the folded form of {@code text} to {@code dst} from {@code pos} and
+     * returns the new end; output beyond {@code dst.length} is dropped.
+     *
+     * @param prefix true for what is being typed: an unfinished romaji syllable at the
+     *               end is folded so that it matches the syllables it can still become
+     */
+    public static int fold(CharSequence text, char[] dst, int pos, boolean prefix) {
+        int start = pos;
+        int length = text.length();
+        for (int i = 0; i < length && pos < dst.length; i++) {
+            char c = simplify(text.charAt(i));
+            if (c == 0) {
+                continue;
+            }
+            if (c < 'a' || c > 'z') {
+                dst[pos++] = c;
+                continue;
+            }
+            // Romaji: look at the raw letters that follow, skipping nothing
+            char next = i + 1 < length ? simplify(text.charAt(i + 1)) : 0;
+            char after = i + 2 < length ? simplify(text.charAt(i + 2)) : 0;
+            boolean atEnd = prefix && i + 1 == length;
+            if ((c == 's' || c == 'c') && next == 'h') {
+                // shi -> si, sha -> sya; chi -> ti, cha -> tya
+                char base = c == 's' ? 's' : 't';
+                pos = put(dst, pos, start, base);
+                if (after != 'i' && !(prefix && i + 2 == length) && pos < dst.length) {
+                    dst[pos++] = 'y';
+                }
+                i++;
+            } else if (c == 'c' && atEnd) {
+                // A lone c can only be the start of ch
+            } else if (c == 't' && next == 's') {
+                pos = put(dst, pos, start, 't');
+                i++;
+            } else if (c == 'j') {
+                pos = put(dst, pos, start, 'z');
+                if (next != 'i' && !atEnd && pos < dst.length) {
+                    dst[pos++] = 'y';
+                }
+            } else if (c == 'f') {
+                pos = put(dst, pos, start, 'h');
+            } else {
+                pos = put(dst, pos, start, c);
+            }
+        }
+        return pos;
+    }
+
+    /** Appends a romaji letter, dropping the second half of a long vowel. */
+    private static int put(char[] dst, int pos, int start, char c) {
+        if (isVowel(c) && pos > start) {
+            char previous = dst[pos - 1];
+            if (previous == c || (previous == 'o' && c == 'u')) {
+                return pos;
+            }
+        }
+        if (pos < dst.length) {
+            dst[pos++] = c;
+        }
+        return pos;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'i' || c == 'u' || c == 'e' || c == 'o';
+    }
+
+    /** The character to compare, or 0 for one to leave out. */
+    static char simplify(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c >= '！' && c <= '～') {
+            // Full-width ASCII
+            return simplify((char) (c - 0xfee0));
+        }
+        if (c >= 'ァ' && c <= 'ヶ') {
+            // Katakana to hiragana
+            return (char) (c - 0x60);
+        }
+        switch (c) {
+            case 'ā':
+            case 'â':
+                return 'a';
+            case 'ī':
+            case 'î':
+                return 'i';
+            case 'ū':
+            case 'û':
+                return 'u';
+            case 'ē':
+            case 'ê':
+                return 'e';
+            case 'ō':
+            case 'ô':
+                return 'o';
+            case 'ー':
+                // The long vowel mark counts, so "でぱーと" is not "でぱと"
+                return c;
+            default:
+                return Character.isLetterOrDigit(c) ? c : 0;
+        }
+    }
+}
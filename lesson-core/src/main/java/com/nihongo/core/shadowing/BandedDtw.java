@@ -0,0 +1,84 @@
+package com.nihongo.core.shadowing;
+
+/**
+ * Dynamic time warping of two sequences of feature vectors, restricted to a
+ * Sakoe-Chiba band: frame {@code i} of one sequence may only be matched to frames
+ * of the other within a radius of the diagonal, stretched to their lengths. That
+ * keeps the work linear in the length for a fixed band, and stops the alignment
+ * from matching a whole sentence to a single frame.
+ *
+ * <p>Vectors are stored one after another in a float array. Steps use the symmetric
+ * weights (1 across, 1 down, 2 diagonally), so every path weighs {@code n + m} and
+ * costs are comparable between lengths. Only two rows of the cost matrix are kept,
+ * reused between calls. Not thread-safe.
+ */
+public final class BandedDtw {
+
+    private double[] previous = new double[0];
+    private double[] current = new double[0];
+
+    /**
+     * Mean Euclidean distance between matched vectors on the cheapest path from the
+     * first vectors of {@code a} and {@code b} to their last ones.
+     *
+     * @param a {@code n} vectors of {@code dims} floats
+     * @param b {@code m} vectors of {@code dims} floats
+     * @param band radius of the band as a fraction of the longer sequence; it is
+     *     widened where needed to leave a path through the band
+     */
+    public double align(float[] a, int n, float[] b, int m, int dims, float band) {
+        if (n == 0 || m == 0) {
+            throw new IllegalArgumentException("empty sequence");
+        }
+        if (previous.length < m) {
+            previous = new double[Math.max(m, previous.length * 2)];
+            current = new double[previous.length];
+        }
+        double slope = n > 1 ? (m - 1) / (double) (n - 1) : 0;
+        // A single frame of a is matched to all of b
+        int radius = n > 1 ? (int) Math.max(Math.ceil(band * Math.max(n, m)), Math.ceil(slope)) : m;
+        double[] above = previous;
+        double[] row = current;
+        int aboveFrom = 0;
+        int aboveTo = -1;
+        for (int i = 0; i < n; i++) {
+            double center = i * slope;
+            int from = Math.max(0, (int) Math.floor(center) - radius);
+            int to = Math.min(m - 1, (int) Math.ceil(center) + radius);
+            for (int j = from; j <= to; j++) {
+                double d = distance(a, i * dims, b, j * dims, dims);
+                double best;
+                if (i == 0 && j == 0) {
+                    best = 2 * d;
+                } else {
+                    best = Double.POSITIVE_INFINITY;
+                    if (j > from) {
+                        best = row[j - 1] + d;
+                    }
+                    if (j >= aboveFrom && j <= aboveTo) {
+                        best = Math.min(best, above[j] + d);
+                    }
+                    if (j - 1 >= aboveFrom && j - 1 <= aboveTo) {
+                        best = Math.min(best, above[j - 1] + 2 * d);
+                    }
+                }
+                row[j] = best;
+            }
+            double[] swap = above;
+            above = row;
+            row = swap;
+            aboveFrom = from;
+            aboveTo = to;
+        }
+        return above[m - 1] / (n + m);
+    }
+
+    private static double distance(float[] a, int ai, float[] b, int bi, int dims) {
+        float sum = 0;
+        for (int k = 0; k < dims; k++) {
+            float delta = a[ai + k] - b[bi + k];
+            sum += delta * delta;
+        }
+        return Math.sqrt(sum);
+    }
+}
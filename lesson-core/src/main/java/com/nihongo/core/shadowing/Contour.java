@@ -0,0 +1,44 @@
+package com.nihongo.core.shadowing;
+
+import java.util.Arrays;
+
+/**
+ * Loudness and pitch of a recording every {@link #FRAME_MS} ms, as measured by a
+ * {@link ContourExtractor}. Meant to be reused: extracting into it again overwrites
+ * it, and its arrays only ever grow.
+ */
+public final class Contour {
+
+    public static final int FRAME_MS = 10;
+
+    float[] energyDb = new float[0];
+    float[] pitchHz = new float[0];
+    int length;
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getDurationMs() {
+        return length * FRAME_MS;
+    }
+
+    /** Mean power of the frame relative to full scale. */
+    public float getEnergyDb(int frame) {
+        return energyDb[frame];
+    }
+
+    /** Fundamental frequency of the frame, or 0 if it is unvoiced. */
+    public float getPitchHz(int frame) {
+        return pitchHz[frame];
+    }
+
+    void reset(int frames) {
+        if (energyDb.length < frames) {
+            int capacity = Math.max(frames, energyDb.length * 2);
+            energyDb = Arrays.copyOf(energyDb, capacity);
+            pitchHz = Arrays.copyOf(pitchHz, capacity);
+        }
+        length = frames;
+    }
+}
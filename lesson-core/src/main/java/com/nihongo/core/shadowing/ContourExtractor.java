@@ -0,0 +1,110 @@
+package com.nihongo.core.shadowing;
+
+/**
+ * Measures a {@link Contour}: the level of every frame, and its pitch by YIN
+ * (de Cheveigné and Kawahara, 2002). The audio is mixed to mono and decimated to
+ * about {@link #ANALYSIS_RATE} Hz first, which keeps every speech fundamental: the
+ * windows and lags searched shrink with the rate, so at 44.1 kHz the pitch search
+ * does a 25th of the work.
+ *
+ * <p>Buffers are kept between calls and only grow. Not thread-safe.
+ */
+public final class ContourExtractor {
+
+    // From low male voices to high female ones
+    static final float MIN_PITCH_HZ = 70;
+    static final float MAX_PITCH_HZ = 400;
+    private static final int ANALYSIS_RATE = 8000;
+    // Two periods of the lowest pitch and a little more
+    private static final int WINDOW_MS = 30;
+    // On the cumulative mean normalised difference: below this a period counts as found
+    private static final float YIN_THRESHOLD = 0.15f;
+    // Frames quieter than this, or this far below the loudest frame, are not searched for pitch
+    private static final float SILENCE_DB = -60;
+    private static final float VOICED_RANGE_DB = 35;
+    private static final float FLOOR_DB = -100;
+
+    private float[] mono = new float[0];
+    private float[] difference = new float[0];
+
+    /** Measures {@code count} interleaved samples, whole frames, into {@code into}. */
+    public void extract(short[] samples, int offset, int count, int sampleRate, int channels, Contour into) {
+        int factor = Math.max(1, sampleRate / ANALYSIS_RATE);
+        float rate = (float) sampleRate / factor;
+        int length = count / channels / factor;
+        if (mono.length < length) {
+            mono = new float[Math.max(length, mono.length * 2)];
+        }
+        // Averaging each group of samples is the decimation's (crude) low-pass filter
+        float scale = 1f / (32768f * factor * channels);
+        for (int k = 0, i = offset; k < length; k++) {
+            int sum = 0;
+            for (int end = i + factor * channels; i < end; i++) {
+                sum += samples[i];
+            }
+            mono[k] = sum * scale;
+        }
+
+        int hop = Math.round(rate * Contour.FRAME_MS / 1000);
+        int window = Math.round(rate * WINDOW_MS / 1000);
+        int minLag = (int) (rate / MAX_PITCH_HZ);
+        int maxLag = (int) Math.ceil(rate / MIN_PITCH_HZ);
+        if (difference.length <= maxLag) {
+            difference = new float[maxLag + 1];
+        }
+        int frames = length / hop;
+        into.reset(frames);
+        float loudest = FLOOR_DB;
+        for (int f = 0; f < frames; f++) {
+            float energy = energyDb(f * hop, Math.min(window, length - f * hop));
+            into.energyDb[f] = energy;
+            loudest = Math.max(loudest, energy);
+        }
+        float voicedFloor = Math.max(SILENCE_DB, loudest - VOICED_RANGE_DB);
+        for (int f = 0; f < frames; f++) {
+            int start = f * hop;
+            boolean audible = into.energyDb[f] >= voicedFloor && start + window + maxLag <= length;
+            into.pitchHz[f] = audible ? pitch(start, window, minLag, maxLag, rate) : 0;
+        }
+    }
+
+    private float energyDb(int start, int window) {
+        double sum = 0;
+        for (int i = start; i < start + window; i++) {
+            sum += mono[i] * mono[i];
+        }
+        return sum > 0 ? Math.max(FLOOR_DB, (float) (10 * Math.log10(sum / window))) : FLOOR_DB;
+    }
+
+    /** YIN's estimate for the window at {@code start}, or 0 if no period stands out. */
+    private float pitch(int start, int window, int minLag, int maxLag, float rate) {
+        float[] x = mono;
+        float[] d = difference;
+        // Difference function, turned into the cumulative mean normalised one as it goes
+        d[0] = 1;
+        double running = 0;
+        for (int lag = 1; lag <= maxLag; lag++) {
+            float sum = 0;
+            for (int i = start, end = start + window; i < end; i++) {
+                float delta = x[i] - x[i + lag];
+                sum += delta * delta;
+            }
+            running += sum;
+            d[lag] = running > 0 ? (float) (sum * lag / running) : 1;
+        }
+        for (int lag = minLag; lag < maxLag; lag++) {
+            if (d[lag] < YIN_THRESHOLD) {
+                // Down to the bottom of this dip, then between samples by a parabola
+                while (lag + 1 < maxLag && d[lag + 1] < d[lag]) {
+                    lag++;
+                }
+                float left = d[lag - 1];
+                float right = d[lag + 1];
+                float curve = left + right - 2 * d[lag];
+                float shift = curve > 0 ? (left - right) / (2 * curve) : 0;
+                return rate / (lag + shift);
+            }
+        }
+        return 0;
+    }
+}
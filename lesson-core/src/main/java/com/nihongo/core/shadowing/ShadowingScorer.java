@@ -0,0 +1,159 @@
+package com.nihongo.core.shadowing;
+
+import java.util.Arrays;
+
+/**
+ * Compares a learner's shadowing of a sentence with the recording they imitated.
+ * Both are measured as a {@link Contour} and trimmed to where the speech is. Each is
+ * then normalised against itself, so that another voice, microphone level or key
+ * does not count against the learner: loudness is taken relative to the speaker's
+ * mean, and pitch in semitones from their median. {@link BandedDtw} aligns the two,
+ * so speaking a little faster or slower costs nothing, and what distance remains
+ * becomes a similarity from 0 to 100.
+ *
+ * <p>The reference is measured once by {@link #setReference} and kept for any
+ * number of attempts. All buffers are reused. Not thread-safe: use one per thread.
+ */
+public final class ShadowingScorer {
+
+    /** How close an attempt came. */
+    public static final class Score {
+
+        private final int similarity;
+        private final double distance;
+        private final float tempo;
+
+        Score(int similarity, double distance, float tempo) {
+            this.similarity = similarity;
+            this.distance = distance;
+            this.tempo = tempo;
+        }
+
+        /** 0 for nothing alike, or no speech at all, to 100 for the same contour. */
+        public int getSimilarity() {
+            return similarity;
+        }
+
+        /** Mean distance between aligned frames; infinite without speech. */
+        public double getDistance() {
+            return distance;
+        }
+
+        /** Length of the attempt's speech over the reference's: above 1 is slower. */
+        public float getTempo() {
+            return tempo;
+        }
+    }
+
+    // Loudness, pitch and voicing per frame
+    private static final int DIMS = 3;
+    // Speech is where frames come within this much of the loudest one, and above silence
+    private static final float SPEECH_RANGE_DB = 30;
+    private static final float SILENCE_DB = -60;
+    // Quieter frames count as this much below the loudest one, whatever the noise floor
+    private static final float ENERGY_RANGE_DB = 45;
+    // Differences that weigh 1 in a frame's distance
+    private static final float ENERGY_UNIT_DB = 10;
+    private static final float PITCH_UNIT_SEMITONES = 3;
+    private static final float VOICING_WEIGHT = 1;
+    // Speech shorter than this is not scored
+    private static final int MIN_SPEECH_FRAMES = 10;
+    private static final float BAND = 0.1f;
+    // Distance at which the similarity has fallen to 1/e, about 37. A good attempt
+    // comes to about 0.1, another sentence to 0.8
+    private static final double DISTANCE_SCALE = 0.5;
+
+    private final ContourExtractor extractor = new ContourExtractor();
+    private final BandedDtw dtw = new BandedDtw();
+    private final Contour contour = new Contour();
+    private float[] reference = new float[0];
+    private int referenceFrames = -1;
+    private float[] attempt = new float[0];
+    private float[] scratch = new float[0];
+
+    /**
+     * Measures the sentence to compare against, interleaved 16-bit PCM. The result
+     * replaces the previous reference.
+     */
+    public void setReference(short[] samples, int offset, int count, int sampleRate, int channels) {
+        extractor.extract(samples, offset, count, sampleRate, channels, contour);
+        reference = ensureCapacity(reference, contour.length * DIMS);
+        referenceFrames = features(contour, reference);
+    }
+
+    public boolean hasReference() {
+        return referenceFrames >= 0;
+    }
+
+    /** Scores one attempt at the reference, interleaved 16-bit PCM at any rate. */
+    public Score score(short[] samples, int offset, int count, int sampleRate, int channels) {
+        if (!hasReference()) {
+            throw new IllegalStateException("no reference");
+        }
+        extractor.extract(samples, offset, count, sampleRate, channels, contour);
+        attempt = ensureCapacity(attempt, contour.length * DIMS);
+        int attemptFrames = features(contour, attempt);
+        if (referenceFrames < MIN_SPEECH_FRAMES || attemptFrames < MIN_SPEECH_FRAMES) {
+            return new Score(0, Double.POSITIVE_INFINITY, 0);
+        }
+        double distance = dtw.align(reference, referenceFrames, attempt, attemptFrames, DIMS, BAND);
+        int similarity = (int) Math.round(100 * Math.exp(-distance / DISTANCE_SCALE));
+        return new Score(similarity, distance, attemptFrames / (float) referenceFrames);
+    }
+
+    /** Writes the normalised features of the contour's speech; returns how many frames. */
+    private int features(Contour c, float[] out) {
+        int first = -1;
+        int last = -1;
+        float loudest = Float.NEGATIVE_INFINITY;
+        for (int f = 0; f < c.length; f++) {
+            loudest = Math.max(loudest, c.energyDb[f]);
+        }
+        for (int f = 0; f < c.length; f++) {
+            if (c.energyDb[f] >= Math.max(SILENCE_DB, loudest - SPEECH_RANGE_DB)) {
+                if (first < 0) {
+                    first = f;
+                }
+                last = f;
+            }
+        }
+        if (first < 0) {
+            return 0;
+        }
+        int frames = last - first + 1;
+
+        float floor = loudest - ENERGY_RANGE_DB;
+        double energySum = 0;
+        int voiced = 0;
+        scratch = ensureCapacity(scratch, frames);
+        for (int f = first; f <= last; f++) {
+            energySum += Math.max(floor, c.energyDb[f]);
+            if (c.pitchHz[f] > 0) {
+                scratch[voiced++] = c.pitchHz[f];
+            }
+        }
+        float meanEnergy = (float) (energySum / frames);
+        float median = 0;
+        if (voiced > 0) {
+            Arrays.sort(scratch, 0, voiced);
+            median = scratch[voiced / 2];
+        }
+
+        for (int f = first, o = 0; f <= last; f++, o += DIMS) {
+            out[o] = (Math.max(floor, c.energyDb[f]) - meanEnergy) / ENERGY_UNIT_DB;
+            float pitch = c.pitchHz[f];
+            if (pitch > 0) {
+                out[o + 1] = (float) (12 * Math.log(pitch / median) / Math.log(2)) / PITCH_UNIT_SEMITONES;
+                out[o + 2] = VOICING_WEIGHT;
+            } else {
+                out[o + 1] = 0;
+                out[o + 2] = 0;
+            }
+        }
+        return frames;
+    }
+
+    private static float[] ensureCapacity(float[] array, int length) {
+        return array.length >= length ? array : new float[Math.max(length, array.length * 2)];
+    }
+}
@@ -0,0 +1,196 @@
+package com.nihongo.core.transcript;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The timed lines of one track: when each is spoken, its Japanese text, the text's
+ * reading in kana, and an optional translation. Cue times are two sorted int arrays
+ * and all strings share one pool, so a transcript is a handful of objects however
+ * long the dialogue. {@link #lineAt} is a binary search that allocates nothing and
+ * can run on every position update.
+ *
+ * <p>Built ahead of time from the transcript sources and stored with {@link #writeTo}.
+ */
+public final class Transcript {
+
+    /** Assets directory the build writes transcripts to, mirroring assets/audio. */
+    public static final String ASSET_DIR = "transcripts";
+
+    private static final int MAGIC = 0x54525343; // "TRSC"
+    private static final int VERSION = 1;
+    // Text, reading and translation, in this order
+    private static final int FIELDS = 3;
+
+    // Sorted and not overlapping: startsMs[i] < endsMs[i] <= startsMs[i + 1]
+    private final int[] startsMs;
+    private final int[] endsMs;
+    // Field f of line i is pool[fieldStarts[i * FIELDS + f]..fieldStarts[i * FIELDS + f + 1])
+    private final String pool;
+    private final int[] fieldStarts;
+
+    private Transcript(int[] startsMs, int[] endsMs, String pool, int[] fieldStarts) {
+        this.startsMs = startsMs;
+        this.endsMs = endsMs;
+        this.pool = pool;
+        this.fieldStarts = fieldStarts;
+    }
+
+    /** Path under the assets root of the transcript for a track at {@code trackPath} under assets/audio. */
+    public static String assetPath(String trackPath) {
+        return ASSET_DIR + "/" + trackPath.substring(0, trackPath.length() - ".mp3".length()) + ".cue";
+    }
+
+    /** Collects lines, in the order they are spoken, for {@link #build}. */
+    public static final class Builder {
+        private final List<int[]> times = new ArrayList<>();
+        private final List<String[]> fields = new ArrayList<>();
+
+        /**
+         * Adds the line spoken from {@code startMs} to {@code endMs}. It must start at
+         * or after the end of the line before; {@code translation} may be null.
+         */
+        public Builder add(int startMs, int endMs, String text, String reading, String translation) {
+            if (startMs < 0 || endMs <= startMs) {
+                throw new IllegalArgumentException("Bad cue " + startMs + "-" + endMs + " ms");
+            }
+            if (!times.isEmpty() && startMs < times.get(times.size() - 1)[1]) {
+                throw new IllegalArgumentException("Cue at " + startMs + " ms overlaps the line before");
+            }
+            times.add(new int[] {startMs, endMs});
+            fields.add(new String[] {text, reading, translation != null ? translation : ""});
+            return this;
+        }
+
+        public Transcript build() {
+            int count = times.size();
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            int[] fieldStarts = new int[count * FIELDS + 1];
+            StringBuilder pool = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                starts[i] = times.get(i)[0];
+                ends[i] = times.get(i)[1];
+                for (int f = 0; f < FIELDS; f++) {
+                    fieldStarts[i * FIELDS + f] = pool.length();
+                    pool.append(fields.get(i)[f]);
+                }
+            }
+            fieldStarts[count * FIELDS] = pool.length();
+            return new Transcript(starts, ends, pool.toString(), fieldStarts);
+        }
+    }
+
+    public int getLineCount() {
+        return startsMs.length;
+    }
+
+    public int getStartMs(int line) {
+        return startsMs[line];
+    }
+
+    public int getEndMs(int line) {
+        return endsMs[line];
+    }
+
+    public String getText(int line) {
+        return field(line, 0);
+    }
+
+    public String getReading(int line) {
+        return field(line, 1);
+    }
+
+    /** The line's translation, or null if it has none. */
+    public String getTranslation(int line) {
+        String translation = field(line, 2);
+        return translation.isEmpty() ? null : translation;
+    }
+
+    /**
+     * The line being spoken at the position: the last one that starts at or before
+     * it, which stays current through the pause that follows. -1 before the first.
+     */
+    public int lineAt(int positionMs) {
+        int i = Arrays.binarySearch(startsMs, positionMs);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /** When {@link #lineAt} next changes after the position, or -1 after the last line starts. */
+    public int nextChangeMs(int positionMs) {
+        int i = lineAt(positionMs) + 1;
+        return i < startsMs.length ? startsMs[i] : -1;
+    }
+
+    private String field(int line, int field) {
+        int index = line * FIELDS + field;
+        return pool.substring(fieldStarts[index], fieldStarts[index + 1]);
+    }
+
+    public static Transcript readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a transcript");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported transcript version " + version);
+        }
+        int count = data.readInt();
+        int poolBytes = data.readInt();
+        if (count < 0 || poolBytes < 0) {
+            throw new IOException("Corrupt transcript header");
+        }
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            starts[i] = position + data.readInt();
+            ends[i] = starts[i] + data.readInt();
+            position = ends[i];
+        }
+        int[] fieldStarts = new int[count * FIELDS + 1];
+        for (int i = 0; i < count * FIELDS; i++) {
+            fieldStarts[i + 1] = fieldStarts[i] + data.readUnsignedShort();
+        }
+        byte[] bytes = new byte[poolBytes];
+        data.readFully(bytes);
+        String pool = new String(bytes, StandardCharsets.UTF_8);
+        if (pool.length() != fieldStarts[count * FIELDS]) {
+            throw new IOException("Corrupt transcript text");
+        }
+        return new Transcript(starts, ends, pool, fieldStarts);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] bytes = pool.getBytes(StandardCharsets.UTF_8);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(startsMs.length);
+        data.writeInt(bytes.length);
+        // Gap before and length of each line, like the sentence indexes
+        int position = 0;
+        for (int i = 0; i < startsMs.length; i++) {
+            data.writeInt(startsMs[i] - position);
+            data.writeInt(endsMs[i] - startsMs[i]);
+            position = endsMs[i];
+        }
+        for (int i = 0; i < startsMs.length * FIELDS; i++) {
+            int length = fieldStarts[i + 1] - fieldStarts[i];
+            if (length > 0xffff) {
+                throw new IOException("Transcript line too long");
+            }
+            data.writeShort(length);
+        }
+        data.write(bytes);
+        data.flush();
+    }
+}
@@ -0,0 +1,75 @@
+package com.nihongo.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LessonCatalogTest {
+
+    // Lesson 2 has no audio
+    private final LessonCatalog catalog = new LessonCatalog(new String[][] {
+            {"l1_main.mp3", "l1_q1.mp3", "l1_q2.mp3"},
+            {},
+            {"l3_main.mp3", "l3_q1.mp3"},
+    });
+
+    @Test
+    public void lookups_useLessonRelativePaths() {
+        assertEquals(3, catalog.getLessonCount());
+        assertEquals("lesson_3/l3_q1.mp3", catalog.getFiles(3).get(1));
+        Track track = catalog.findTrack("lesson_1/l1_q2.mp3");
+        assertSame(catalog.getTracks(1).get(2), track);
+        assertEquals(Track.Kind.QUESTION, track.kind);
+        assertEquals(2, track.questionNumber);
+        assertEquals("audio/lesson_1/l1_q2.mp3", track.assetPath);
+        assertNull(catalog.findTrack("lesson_9/l9_main.mp3"));
+        assertTrue(catalog.getTracks(0).isEmpty());
+        assertTrue(catalog.getFiles(4).isEmpty());
+    }
+
+    @Test
+    public void trackAfter_crossesLessonsOnlyWhenAsked() {
+        Track lastOfFirst = catalog.getTracks(1).get(2);
+        assertSame(catalog.getTracks(1).get(1), catalog.trackAfter(catalog.getTracks(1).get(0), false));
+        assertNull(catalog.trackAfter(lastOfFirst, false));
+        assertSame(catalog.getTracks(3).get(0), catalog.trackAfter(lastOfFirst, true));
+        assertNull(catalog.trackAfter(catalog.getTracks(3).get(1), true));
+    }
+
+    @Test
+    public void trackBefore_goesToLastTrackOfEarlierLesson() {
+        assertSame(catalog.getTracks(3).get(0), catalog.trackBefore(catalog.getTracks(3).get(1)));
+        assertSame(catalog.getTracks(1).get(2), catalog.trackBefore(catalog.getTracks(3).get(0)));
+        assertNull(catalog.trackBefore(catalog.getTracks(1).get(0)));
+    }
+
+    @Test
+    public void lessonNavigation_skipsEmptyLessons() {
+        assertSame(catalog.getTracks(3).get(0), catalog.firstTrackAfterLesson(1));
+        assertSame(catalog.getTracks(3).get(0), catalog.firstTrackAfterLesson(2));
+        assertNull(catalog.firstTrackAfterLesson(3));
+        assertSame(catalog.getTracks(1).get(0), catalog.firstTrackBeforeLesson(3));
+        assertNull(catalog.firstTrackBeforeLesson(1));
+    }
+
+    @Test
+    public void withTracks_appendsToLessonsAndKeepsBundledTracks() {
+        Track extra = Track.createUser("files", 2, "l2_main.mp3", "/sdcard/lessons/lesson_2/l2_main.mp3");
+        Track later = Track.createUser("files", 5, "l5_q1.mp3", "/sdcard/lessons/lesson_5/l5_q1.mp3");
+        Track duplicate = Track.createUser("files", 5, "l5_q1.mp3", "/elsewhere/l5_q1.mp3");
+        LessonCatalog merged = catalog.withTracks(Arrays.asList(extra, later, duplicate));
+
+        assertEquals(5, merged.getLessonCount());
+        assertEquals(7, merged.getTrackCount());
+        assertSame(catalog.getTracks(1).get(0), merged.getTracks(1).get(0));
+        assertEquals(0, merged.indexOf(catalog.getTracks(1).get(0)));
+        assertSame(extra, merged.getTracks(2).get(0));
+        assertSame(later, merged.findTrack("files/lesson_5/l5_q1.mp3"));
+        assertNull(later.assetPath);
+        assertFalse(later.isBundled());
+        assertSame(extra, merged.firstTrackAfterLesson(1));
+        assertTrue(merged.getTracks(4).isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+package com.nihongo.core;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PlaybackQueueTest {
+
+    // Lesson 2 has no audio
+    private final LessonCatalog catalog = new LessonCatalog(new String[][] {
+            {"l1_main.mp3", "l1_q1.mp3", "l1_q2.mp3"},
+            {},
+            {"l3_main.mp3", "l3_q1.mp3"},
+            {"l4_main.mp3", "l4_q1.mp3", "l4_q2.mp3"},
+    });
+
+    private Track track(int lesson, int index) {
+        return catalog.getTracks(lesson).get(index);
+    }
+
+    @Test
+    public void all_stepsAcrossLessons() {
+        PlaybackQueue queue = PlaybackQueue.all(catalog);
+        assertEquals(8, queue.size());
+        assertSame(track(3, 0), queue.after(track(1, 2)));
+        assertSame(track(1, 2), queue.before(track(3, 0)));
+        assertNull(queue.before(track(1, 0)));
+        assertNull(queue.after(track(4, 2)));
+        assertEquals(5, queue.positionOf(track(4, 0)));
+        assertSame(track(4, 0), queue.get(5));
+    }
+
+    @Test
+    public void range_keepsOnlyChosenLessonsAndKinds() {
+        PlaybackQueue queue = PlaybackQueue.range(catalog, 2, 4, EnumSet.of(Track.Kind.QUESTION));
+        assertEquals(3, queue.size());
+        assertSame(track(3, 1), queue.get(0));
+        assertSame(track(4, 1), queue.after(track(3, 1)));
+        assertFalse(queue.contains(track(4, 0)));
+        assertFalse(queue.contains(track(1, 1)));
+        assertEquals(-1, queue.positionOf(track(1, 1)));
+        assertNull(queue.after(track(4, 0)));
+    }
+
+    @Test
+    public void lessonJumps_skipLessonsWithNothingQueued() {
+        PlaybackQueue queue = PlaybackQueue.range(catalog, 1, 4, EnumSet.of(Track.Kind.QUESTION));
+        assertSame(track(3, 1), queue.firstOfLessonAfter(1));
+        assertSame(track(3, 1), queue.firstOfLessonAfter(2));
+        assertSame(track(4, 1), queue.firstOfLessonAfter(3));
+        assertNull(queue.firstOfLessonAfter(4));
+        assertSame(track(3, 1), queue.firstOfLessonBefore(4));
+        assertSame(track(1, 1), queue.firstOfLessonBefore(3));
+        assertNull(queue.firstOfLessonBefore(1));
+        assertSame(track(1, 1), queue.firstOfLessonAfter(0));
+    }
+
+    @Test
+    public void shuffled_startsWithGivenTrackAndVisitsEveryTrackOnce() {
+        PlaybackQueue inOrder = PlaybackQueue.all(catalog);
+        Track first = track(3, 1);
+        PlaybackQueue shuffled = inOrder.shuffled(42, first);
+        assertTrue(shuffled.isShuffled());
+        assertSame(first, shuffled.get(0));
+        Set<Track> seen = new HashSet<>();
+        Track track = first;
+        for (int position = 0; track != null; position++) {
+            assertEquals(position, shuffled.positionOf(track));
+            assertTrue(seen.add(track));
+            track = shuffled.after(track);
+        }
+        assertEquals(inOrder.size(), seen.size());
+        assertSame(inOrder.get(3), shuffled.inOrder().get(3));
+        assertFalse(inOrder.isShuffled());
+    }
+
+    @Test
+    public void catalogNavigation_matchesQueueOfAll() {
+        PlaybackQueue queue = PlaybackQueue.all(catalog);
+        for (int i = 0; i < catalog.getTrackCount(); i++) {
+            Track track = catalog.getTrack(i);
+            assertEquals(i, catalog.indexOf(track));
+            assertSame(catalog.trackAfter(track, true), queue.after(track));
+            assertSame(catalog.trackBefore(track), queue.before(track));
+        }
+        assertEquals(-1, catalog.indexOf(Track.create(1, "l1_main.mp3")));
+    }
+}
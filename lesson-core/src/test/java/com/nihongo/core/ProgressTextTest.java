@@ -0,0 +1,67 @@
+package com.nihongo.core;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ProgressTextTest {
+
+    @Test
+    public void update_reportsOnlySecondChanges() {
+        ProgressText text = new ProgressText();
+        assertTrue(text.update(0));
+        assertEquals("00:00", new String(text.chars(), 0, text.length()));
+        assertFalse(text.update(400));
+        assertFalse(text.update(999));
+        assertTrue(text.update(1000));
+        assertEquals("00:01", new String(text.chars(), 0, text.length()));
+        assertTrue(text.update(61_500));
+        assertEquals("01:01", new String(text.chars(), 0, text.length()));
+
+        text.invalidate();
+        assertTrue(text.update(61_700));
+    }
+
+    @Test
+    public void millisToNextSecond_landsOnBoundary() {
+        assertEquals(1000, ProgressText.millisToNextSecond(0));
+        assertEquals(1, ProgressText.millisToNextSecond(4_999));
+        assertEquals(750, ProgressText.millisToNextSecond(12_250));
+    }
+
+    @Test
+    public void tick_allocatesNothingInSteadyState() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        ProgressText text = new ProgressText();
+
+        // Let the JIT settle and any lazy class initialisation happen first
+        long sink = runTicks(text, 200_000);
+        long before = threads.getThreadAllocatedBytes(thread);
+        sink += runTicks(text, 1_000_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(sink != 42);
+        // Reading the counter itself may cost a few bytes; a single String per tick would be megabytes
+        assertTrue("allocated " + allocated + " bytes over 1M ticks", allocated < 1024);
+    }
+
+    // One tick per 16 ms frame, like the render loop reading a playing position
+    private static long runTicks(ProgressText text, int ticks) {
+        long sink = 0;
+        for (int i = 0; i < ticks; i++) {
+            int positionMs = i * 16;
+            if (text.update(positionMs)) {
+                sink += text.chars()[text.length() - 1];
+            }
+            sink += ProgressText.millisToNextSecond(positionMs);
+        }
+        return sink;
+    }
+}
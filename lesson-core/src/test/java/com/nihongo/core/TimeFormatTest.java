@@ -0,0 +1,31 @@
+package com.nihongo.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TimeFormatTest {
+
+    @Test
+    public void format_padsMinutesAndSeconds() {
+        assertEquals("00:00", TimeFormat.format(0));
+        assertEquals("00:00", TimeFormat.format(999));
+        assertEquals("01:05", TimeFormat.format(65_000));
+        assertEquals("120:00", TimeFormat.format(7_200_000));
+        assertEquals("00:00", TimeFormat.format(-1500));
+    }
+
+    @Test
+    public void formatInto_matchesStringFormat() {
+        char[] text = new char[2 + TimeFormat.MAX_LENGTH];
+        for (int ms = 0; ms < 200 * 60_000; ms += 997) {
+            int seconds = ms / 1000;
+            String expected = String.format(Locale.ROOT, "%02d:%02d", seconds / 60, seconds % 60);
+            int length = TimeFormat.formatInto(ms, text, 2);
+            assertEquals(expected, new String(text, 2, length));
+        }
+        assertEquals(TimeFormat.MAX_LENGTH, TimeFormat.formatInto(Integer.MAX_VALUE, text, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package com.nihongo.core;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the precomputed {@link Track} titles match what the activities
+ * used to derive on every bind, for every bundled asset.
+ */
+public class TrackTest {
+
+    private static final File AUDIO_DIR =
+            new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+
+    @Test
+    public void titles_matchLegacyFormatting_forEveryAsset() {
+        File[] lessonDirs = AUDIO_DIR.listFiles(f -> f.isDirectory() && f.getName().matches("lesson_\\d+"));
+        assertNotNull("assets not found from " + new File("").getAbsolutePath(), lessonDirs);
+
+        int checked = 0;
+        for (File dir : lessonDirs) {
+            String[] names = dir.list((d, name) -> name.endsWith(".mp3"));
+            assertNotNull(names);
+            for (String name : names) {
+                String path = dir.getName() + "/" + name;
+                Track track = Track.create(Integer.parseInt(dir.getName().substring("lesson_".length())), name);
+                assertEquals(path, track.path);
+                assertEquals(path, legacyListTitle(path), track.listTitle);
+                assertEquals(path, legacyPlayerTitle(path), track.playerTitle);
+                assertEquals("audio/" + path, track.assetPath);
+                checked++;
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void create_classifiesKinds() {
+        Track main = Track.create(3, "l3_main.mp3");
+        assertEquals(Track.Kind.MAIN, main.kind);
+        assertEquals(3, main.lesson);
+        assertEquals("lesson_3/l3_main.mp3", main.path);
+
+        Track question = Track.create(12, "l12_q2.mp3");
+        assertEquals(Track.Kind.QUESTION, question.kind);
+        assertEquals(2, question.questionNumber);
+        assertEquals("❓ 問題2 (Mondai 2)", question.listTitle);
+
+        assertEquals(Track.Kind.PRACTICE, Track.create(1, "l1_renshu.mp3").kind);
+        assertEquals(Track.Kind.VOCABULARY, Track.create(1, "l1_tango.mp3").kind);
+        assertEquals(Track.Kind.GRAMMAR, Track.create(1, "l1_grammar.mp3").kind);
+
+        Track other = Track.create(1, "l1_extra.mp3");
+        assertEquals(Track.Kind.OTHER, other.kind);
+        assertEquals("🎶 L1_EXTRA", other.listTitle);
+        assertEquals("L1_EXTRA", other.playerTitle);
+    }
+
+    @Test
+    public void create_upperCasesTitlesWhateverTheDefaultLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            Track other = Track.create(1, "l1_kaiwa_list.mp3");
+            assertEquals("🎶 L1_KAIWA_LIST", other.listTitle);
+            assertEquals("L1_KAIWA_LIST", other.playerTitle);
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    // Title logic as it was in AudioListActivity.AudioAdapter.onBindViewHolder
+    private static String legacyListTitle(String item) {
+        String displayName = item.substring(item.lastIndexOf("/") + 1).replace(".mp3", "");
+        if (displayName.contains("main")) {
+            return "🎵 会話 (Kaiwa)";
+        } else if (displayName.contains("_q")) {
+            String qNum = displayName.replaceAll(".*_q", "");
+            return "❓ 問題" + qNum + " (Mondai " + qNum + ")";
+        } else if (displayName.contains("renshu") || displayName.contains("practice")) {
+            return "📝 練習 (Renshuu)";
+        } else if (displayName.contains("vocab") || displayName.contains("tango")) {
+            return "📖 単語 (Tango)";
+        } else if (displayName.contains("bunpou") || displayName.contains("grammar")) {
+            return "📚 文法 (Bunpou)";
+        } else {
+            return "🎶 " + displayName.toUpperCase(Locale.ROOT);
+        }
+    }
+
+    // Title logic as it was in PlayerActivity.updateTrackTitle
+    private static String legacyPlayerTitle(String file) {
+        String displayName = file.substring(file.lastIndexOf("/") + 1).replace(".mp3", "");
+        if (displayName.contains("main")) {
+            return "会話 (Kaiwa)";
+        } else if (displayName.contains("_q")) {
+            String qNum = displayName.replaceAll(".*_q", "");
+            return "問題" + qNum + " (Mondai " + qNum + ")";
+        } else if (displayName.contains("renshu") || displayName.contains("practice")) {
+            return "練習 (Renshuu)";
+        } else if (displayName.contains("vocab") || displayName.contains("tango")) {
+            return "単語 (Tango)";
+        } else if (displayName.contains("bunpou") || displayName.contains("grammar")) {
+            return "文法 (Bunpou)";
+        } else {
+            return displayName.toUpperCase(Locale.ROOT);
+        }
+    }
+}
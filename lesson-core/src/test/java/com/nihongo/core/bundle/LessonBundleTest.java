@@ -0,0 +1,50 @@
+package com.nihongo.core.bundle;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class LessonBundleTest {
+
+    @Test
+    public void layout_startsEveryFileOnAPage() throws IOException {
+        LessonBundle bundle = LessonBundle.layout(
+                new String[] {"l1_main.mp3", "l1_q1.mp3", "l1_q2.mp3"}, new int[] {5000, 4096, 10});
+
+        assertEquals(LessonBundle.PAGE_SIZE, bundle.getOffset(0));
+        assertEquals(3 * LessonBundle.PAGE_SIZE, bundle.getOffset(1));
+        assertEquals(4 * LessonBundle.PAGE_SIZE, bundle.getOffset(2));
+        assertEquals(2 * LessonBundle.PAGE_SIZE - 5000, bundle.paddingAfter(0));
+        assertEquals(0, bundle.paddingAfter(1));
+        assertEquals(0, bundle.paddingAfter(2));
+    }
+
+    @Test
+    public void table_roundTripsAndFillsFirstPage() throws IOException {
+        LessonBundle bundle = LessonBundle.layout(new String[] {"l2_main.mp3", "l2_q1.mp3"}, new int[] {100, 200});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bundle.writeTableTo(out);
+        assertEquals(bundle.getOffset(0), out.size());
+
+        LessonBundle read = LessonBundle.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, read.getEntryCount());
+        assertEquals(1, read.indexOf("l2_q1.mp3"));
+        assertEquals(-1, read.indexOf("l2_q2.mp3"));
+        assertEquals(bundle.getOffset(1), read.getOffset(1));
+        assertEquals(200, read.getLength(1));
+    }
+
+    @Test
+    public void assetPath_namesLesson() {
+        assertEquals("bundles/lesson_12.bundle", LessonBundle.assetPath(12));
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        LessonBundle.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+}
@@ -0,0 +1,128 @@
+package com.nihongo.core.history;
+
+import com.nihongo.core.LessonCatalog;
+import com.nihongo.core.Track;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class LessonProgressTest {
+
+    // Lesson 2 has no audio
+    private final LessonCatalog catalog = new LessonCatalog(new String[][] {
+            {"l1_main.mp3", "l1_q1.mp3", "l1_q2.mp3"},
+            {},
+            {"l3_main.mp3", "l3_q1.mp3"},
+    });
+
+    @Test
+    public void complete_countsEachTrackOnceButAllListening() {
+        LessonProgress progress = new LessonProgress(catalog);
+        assertTrue(progress.complete("lesson_1/l1_q1.mp3", 60000));
+        assertFalse(progress.complete("lesson_1/l1_q1.mp3", 60000));
+        assertTrue(progress.complete("lesson_3/l3_main.mp3", 90000));
+        assertFalse(progress.complete("lesson_9/l9_main.mp3", 1000));
+
+        assertEquals(1, progress.getCompletedCount(1));
+        assertEquals(0, progress.getCompletedCount(2));
+        assertTrue(progress.isCompleted(1));
+        assertTrue(progress.isCompleted(3));
+        assertFalse(progress.isCompleted(0));
+        assertEquals(211000, progress.getListenedMs());
+    }
+
+    @Test
+    public void counts_areACopyWithLessonSizes() {
+        LessonProgress progress = new LessonProgress(catalog);
+        progress.complete("lesson_3/l3_q1.mp3", 0);
+        LessonProgress.Counts counts = progress.counts();
+        progress.complete("lesson_3/l3_main.mp3", 0);
+
+        assertEquals(1, counts.getCompleted(3));
+        assertEquals(2, counts.getTracks(3));
+        assertEquals(3, counts.getTracks(1));
+        assertEquals(0, counts.getTracks(2));
+        assertEquals(0, counts.getTracks(4));
+        assertEquals(1, counts.getTotalCompleted());
+    }
+
+    @Test
+    public void writeTo_roundTripsForTheSameCatalog() throws IOException {
+        LessonProgress progress = new LessonProgress(catalog);
+        progress.complete("lesson_1/l1_main.mp3", 5000);
+        progress.complete("lesson_1/l1_q2.mp3", 7000);
+
+        LessonProgress read = LessonProgress.readFrom(new ByteArrayInputStream(bytes(progress)),
+                catalog, new ListeningHistory());
+
+        assertEquals(2, read.getCompletedCount(1));
+        assertTrue(read.isCompleted(2));
+        assertEquals(12000, read.getListenedMs());
+        assertEquals(2, read.counts().getTotalCompleted());
+    }
+
+    @Test
+    public void readFrom_rebuildsFromHistoryForAnotherCatalog() throws IOException {
+        LessonProgress progress = new LessonProgress(catalog);
+        progress.complete("lesson_1/l1_main.mp3", 5000);
+        LessonCatalog grown = catalog.withTracks(Collections.singletonList(
+                Track.createUser("files", 2, "l2_main.mp3", "/sdcard/lessons/lesson_2/l2_main.mp3")));
+        ListeningHistory history = new ListeningHistory();
+        history.apply(ListeningEvent.completed("lesson_3/l3_q1.mp3", 1));
+
+        LessonProgress read = LessonProgress.readFrom(new ByteArrayInputStream(bytes(progress)), grown, history);
+
+        assertEquals(0, read.getCompletedCount(1));
+        assertEquals(1, read.getCompletedCount(3));
+        assertEquals(5000, read.getListenedMs());
+    }
+
+    @Test
+    public void forCatalog_carriesTracksOverByPath() {
+        LessonProgress progress = new LessonProgress(catalog);
+        progress.complete("lesson_3/l3_q1.mp3", 4000);
+        LessonCatalog grown = catalog.withTracks(Collections.singletonList(
+                Track.createUser("files", 1, "l1_q3.mp3", "/sdcard/lessons/lesson_1/l1_q3.mp3")));
+
+        LessonProgress moved = progress.forCatalog(grown, new ListeningHistory());
+
+        assertEquals(1, moved.getCompletedCount(3));
+        assertTrue(moved.isCompleted(grown.indexOf(grown.findTrack("lesson_3/l3_q1.mp3"))));
+        assertEquals(4, moved.counts().getTracks(1));
+        assertEquals(4000, moved.getListenedMs());
+    }
+
+    @Test
+    public void forCatalog_keepsUserTracksLoadedBeforeTheirFolderWasPublished() throws IOException {
+        // Saved with the user's lesson folder merged in
+        LessonCatalog merged = catalog.withTracks(Collections.singletonList(
+                Track.createUser("files", 2, "l2_main.mp3", "/sdcard/lessons/lesson_2/l2_main.mp3")));
+        String userPath = merged.getTrack(merged.getLessonStart(2)).path;
+        LessonProgress saved = new LessonProgress(merged);
+        saved.complete(userPath, 30000);
+        saved.complete("lesson_1/l1_main.mp3", 5000);
+        ListeningHistory history = new ListeningHistory();
+        history.apply(ListeningEvent.completed(userPath, 1));
+        history.apply(ListeningEvent.completed("lesson_1/l1_main.mp3", 2));
+
+        // A cold start loads against the bundled catalog, then the folder is published again
+        LessonProgress loaded = LessonProgress.readFrom(new ByteArrayInputStream(bytes(saved)), catalog, history);
+        LessonProgress moved = loaded.forCatalog(merged, history);
+
+        assertEquals(1, moved.getCompletedCount(2));
+        assertTrue(moved.isCompleted(merged.getLessonStart(2)));
+        assertEquals(1, moved.getCompletedCount(1));
+        assertEquals(35000, moved.getListenedMs());
+    }
+
+    private static byte[] bytes(LessonProgress progress) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        progress.writeTo(out);
+        return out.toByteArray();
+    }
+}
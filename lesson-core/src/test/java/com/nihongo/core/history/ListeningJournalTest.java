@@ -0,0 +1,157 @@
+package com.nihongo.core.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ListeningJournalTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal").toFile();
+        file = new File(dir, "listening.journal");
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void load_replaysAppendedBatches() throws IOException {
+        ListeningJournal journal = new ListeningJournal(file);
+        assertNull(journal.load().getResumePoint());
+
+        journal.append(Arrays.asList(
+                ListeningEvent.started("lesson_1/l1_main.mp3", 1),
+                ListeningEvent.position(5_000, 2)));
+        journal.append(Arrays.asList(
+                ListeningEvent.completed("lesson_1/l1_main.mp3", 3),
+                ListeningEvent.started("lesson_1/l1_q1.mp3", 4),
+                ListeningEvent.position(12_345, 5)));
+
+        ListeningHistory history = new ListeningJournal(file).load();
+        ListeningHistory.ResumePoint resume = history.getResumePoint();
+        assertEquals("lesson_1/l1_q1.mp3", resume.path);
+        assertEquals(12_345, resume.positionMs);
+        assertFalse(resume.completed);
+        assertEquals(5, resume.timeMs);
+        assertEquals(Collections.singleton("lesson_1/l1_main.mp3"), history.getCompletedPaths());
+    }
+
+    @Test
+    public void load_dropsTornTailAndKeepsAppending() throws IOException {
+        ListeningJournal journal = new ListeningJournal(file);
+        journal.load();
+        journal.append(Arrays.asList(
+                ListeningEvent.started("lesson_2/l2_main.mp3", 1),
+                ListeningEvent.position(7_000, 2)));
+        long good = file.length();
+        journal.append(Collections.singletonList(ListeningEvent.position(9_000, 3)));
+        // Crash halfway through the last record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 6);
+        }
+
+        ListeningJournal reopened = new ListeningJournal(file);
+        assertEquals(7_000, reopened.load().getResumePoint().positionMs);
+        assertEquals(good, file.length());
+
+        reopened.append(Collections.singletonList(ListeningEvent.position(8_000, 4)));
+        assertEquals(8_000, new ListeningJournal(file).load().getResumePoint().positionMs);
+    }
+
+    @Test
+    public void load_stopsAtCorruptRecord() throws IOException {
+        ListeningJournal journal = new ListeningJournal(file);
+        journal.load();
+        journal.append(Collections.singletonList(ListeningEvent.started("lesson_3/l3_main.mp3", 1)));
+        long good = file.length();
+        journal.append(Collections.singletonList(ListeningEvent.position(1_000, 2)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(good + 10);
+            raf.write(0x55);
+        }
+
+        ListeningHistory.ResumePoint resume = new ListeningJournal(file).load().getResumePoint();
+        assertEquals("lesson_3/l3_main.mp3", resume.path);
+        assertEquals(0, resume.positionMs);
+        assertEquals(good, file.length());
+    }
+
+    @Test
+    public void load_restartsForeignFile() throws IOException {
+        Files.write(file.toPath(), "<map><int name=\"last_index\"/></map>".getBytes("UTF-8"));
+        ListeningJournal journal = new ListeningJournal(file);
+        assertNull(journal.load().getResumePoint());
+        journal.append(Collections.singletonList(ListeningEvent.started("lesson_4/l4_main.mp3", 1)));
+        assertEquals("lesson_4/l4_main.mp3", new ListeningJournal(file).load().getResumePoint().path);
+    }
+
+    @Test
+    public void compact_keepsStateInFewRecords() throws IOException {
+        ListeningJournal journal = new ListeningJournal(file);
+        ListeningHistory history = journal.load();
+        for (int i = 0; i < 500; i++) {
+            ListeningEvent event = ListeningEvent.position(i * 5_000, i);
+            journal.append(Collections.singletonList(event));
+            history.apply(event);
+        }
+        ListeningEvent[] tail = {
+                ListeningEvent.started("lesson_5/l5_q1.mp3", 600),
+                ListeningEvent.completed("lesson_5/l5_q1.mp3", 601),
+                ListeningEvent.started("lesson_5/l5_q2.mp3", 602),
+                ListeningEvent.position(3_210, 603)};
+        journal.append(Arrays.asList(tail));
+        for (ListeningEvent event : tail) {
+            history.apply(event);
+        }
+        long before = journal.size();
+
+        journal.compact(history);
+        assertTrue(journal.size() < before / 10);
+        assertEquals(journal.size(), file.length());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        ListeningHistory replayed = new ListeningJournal(file).load();
+        assertEquals("lesson_5/l5_q2.mp3", replayed.getResumePoint().path);
+        assertEquals(3_210, replayed.getResumePoint().positionMs);
+        assertEquals(history.getCompletedPaths(), replayed.getCompletedPaths());
+    }
+
+    @Test
+    public void history_completionResetsResumePosition() {
+        ListeningHistory history = new ListeningHistory();
+        history.apply(ListeningEvent.position(1_000, 1));
+        assertNull("position without a started track is ignored", history.getResumePoint());
+
+        history.apply(ListeningEvent.started("lesson_6/l6_main.mp3", 2));
+        history.apply(ListeningEvent.position(40_000, 3));
+        history.apply(ListeningEvent.completed("lesson_6/l6_main.mp3", 4));
+        ListeningHistory.ResumePoint resume = history.getResumePoint();
+        assertTrue(resume.completed);
+        assertEquals(0, resume.positionMs);
+
+        ListeningHistory replayed = new ListeningHistory();
+        for (ListeningEvent event : history.toEvents()) {
+            replayed.apply(event);
+        }
+        assertTrue(replayed.getResumePoint().completed);
+        assertEquals(history.getCompletedPaths(), replayed.getCompletedPaths());
+    }
+}
@@ -0,0 +1,149 @@
+package com.nihongo.core.library;
+
+import com.nihongo.core.Track;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LibraryScannerTest {
+
+    /** Directories in memory; counts the listings it is asked for. */
+    private static final class FakeSource implements FolderSource {
+        final Map<String, List<Entry>> children = new HashMap<>();
+        final List<String> listed = new ArrayList<>();
+
+        FakeSource() {
+            children.put("root", new ArrayList<>());
+        }
+
+        void addDir(String name, long lastModified, String... files) {
+            String id = "root/" + name;
+            children.get("root").removeIf(entry -> entry.id.equals(id));
+            children.get("root").add(new Entry(id, name, true, 0, lastModified));
+            List<Entry> entries = new ArrayList<>();
+            for (String file : files) {
+                entries.add(new Entry(id + "/" + file, file, false, file.length() * 1000L, 50));
+            }
+            children.put(id, entries);
+        }
+
+        @Override
+        public String getKey() {
+            return "fake";
+        }
+
+        @Override
+        public String getRootId() {
+            return "root";
+        }
+
+        @Override
+        public List<Entry> list(String directoryId) throws IOException {
+            listed.add(directoryId);
+            List<Entry> entries = children.get(directoryId);
+            if (entries == null) {
+                throw new IOException("No such directory " + directoryId);
+            }
+            return entries;
+        }
+    }
+
+    private static List<String> paths(LibraryIndex index) {
+        List<String> paths = new ArrayList<>();
+        for (Track track : index.getTracks()) {
+            paths.add(track.path);
+        }
+        return paths;
+    }
+
+    @Test
+    public void scan_findsLessonDirectoriesInPlayOrder() throws IOException {
+        FakeSource source = new FakeSource();
+        source.addDir("lesson_27", 100, "l27_q10.mp3", "notes.txt", "l27_q2.mp3", "l27_main.mp3");
+        source.addDir("lesson_26", 100, "extra.mp3", "l26_main.mp3");
+        source.addDir("scans", 100, "cover.mp3");
+
+        LibraryIndex index = LibraryScanner.scan(source, LibraryIndex.empty("fake"));
+
+        assertEquals(Arrays.asList(
+                "fake/lesson_26/l26_main.mp3", "fake/lesson_26/extra.mp3",
+                "fake/lesson_27/l27_main.mp3", "fake/lesson_27/l27_q2.mp3", "fake/lesson_27/l27_q10.mp3"),
+                paths(index));
+        Track first = index.getTracks().get(0);
+        assertEquals(26, first.lesson);
+        assertEquals(Track.Kind.MAIN, first.kind);
+        assertEquals("root/lesson_26/l26_main.mp3", first.location);
+    }
+
+    @Test
+    public void rescan_listsOnlyChangedDirectories() throws IOException {
+        FakeSource source = new FakeSource();
+        source.addDir("lesson_1", 100, "l1_main.mp3");
+        source.addDir("lesson_2", 100, "l2_main.mp3");
+        LibraryIndex first = LibraryScanner.scan(source, LibraryIndex.empty("fake"));
+
+        source.listed.clear();
+        LibraryIndex unchanged = LibraryScanner.scan(source, first);
+        assertEquals(Arrays.asList("root"), source.listed);
+        assertTrue(unchanged.sameAs(first));
+
+        source.listed.clear();
+        source.addDir("lesson_2", 200, "l2_main.mp3", "l2_q1.mp3");
+        LibraryIndex changed = LibraryScanner.scan(source, unchanged);
+        assertEquals(Arrays.asList("root", "root/lesson_2"), source.listed);
+        assertFalse(changed.sameFilesAs(unchanged));
+        assertEquals(3, changed.getFileCount());
+
+        // A file that is not a track changes the directory's time but no track
+        source.listed.clear();
+        source.addDir("lesson_2", 300, "l2_main.mp3", "l2_q1.mp3");
+        LibraryIndex touched = LibraryScanner.scan(source, changed);
+        assertEquals(Arrays.asList("root", "root/lesson_2"), source.listed);
+        assertTrue(touched.sameFilesAs(changed));
+        assertFalse(touched.sameAs(changed));
+    }
+
+    @Test
+    public void rescan_listsUndatedDirectoriesEveryTime() throws IOException {
+        FakeSource source = new FakeSource();
+        source.addDir("lesson_1", 0, "l1_main.mp3");
+        LibraryIndex first = LibraryScanner.scan(source, LibraryIndex.empty("fake"));
+
+        source.listed.clear();
+        LibraryScanner.scan(source, first);
+        assertEquals(Arrays.asList("root", "root/lesson_1"), source.listed);
+    }
+
+    @Test
+    public void roundTrip_keepsFilesAndDirectoryTimes() throws IOException {
+        FakeSource source = new FakeSource();
+        source.addDir("lesson_3", 300, "l3_main.mp3", "l3_q1.mp3");
+        LibraryIndex index = LibraryScanner.scan(source, LibraryIndex.empty("fake"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        LibraryIndex read = LibraryIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(read.sameFilesAs(index));
+        assertEquals(paths(index), paths(read));
+
+        // The read index is as good as the scanned one for skipping unchanged directories
+        source.listed.clear();
+        LibraryScanner.scan(source, read);
+        assertEquals(Arrays.asList("root"), source.listed);
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        LibraryIndex.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+}
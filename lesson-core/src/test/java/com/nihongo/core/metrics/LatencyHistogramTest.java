@@ -0,0 +1,78 @@
+package com.nihongo.core.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucket_boundsEveryValueWithinOneSixteenth() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123_456, 1L << 40, Long.MAX_VALUE};
+        for (long value : values) {
+            long high = LatencyHistogram.highestInBucket(LatencyHistogram.bucket(value));
+            assertTrue(value + " -> " + high, high >= value);
+            assertTrue(value + " -> " + high, high - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void bucket_isMonotonic() {
+        int previous = 0;
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket >= previous);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void percentiles_matchUniformDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 1e-9);
+        assertWithin(5000, histogram.getPercentile(50));
+        assertWithin(9000, histogram.getPercentile(90));
+        assertWithin(9900, histogram.getPercentile(99));
+        assertEquals(10_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void empty_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void record_concurrentlyLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(i % 1000 + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(1002, histogram.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(expected + " vs " + actual, actual >= expected && actual <= expected + expected / 16);
+    }
+}
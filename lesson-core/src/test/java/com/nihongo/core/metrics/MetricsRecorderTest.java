@@ -0,0 +1,59 @@
+package com.nihongo.core.metrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MetricsRecorderTest {
+
+    private static final int OPEN = 0;
+    private static final int PLAY = 1;
+    private static final int STARTED = 0;
+
+    private static MetricsRecorder recorder() {
+        return new MetricsRecorder(new String[] {"lesson_open", "tap_to_audio"}, new String[] {"tracks_started"});
+    }
+
+    @Test
+    public void span_recordsTimeBetweenStartAndStop() {
+        MetricsRecorder metrics = recorder();
+        metrics.start(OPEN, 1_000_000);
+        assertTrue(metrics.stop(OPEN, 251_000_000));
+        assertEquals(1, metrics.getHistogram(OPEN).getCount());
+        assertEquals(250_000, metrics.getHistogram(OPEN).getMax());
+
+        // Closed already: a second stop records nothing
+        assertFalse(metrics.stop(OPEN, 400_000_000));
+        assertEquals(1, metrics.getHistogram(OPEN).getCount());
+        assertEquals(0, metrics.getHistogram(PLAY).getCount());
+    }
+
+    @Test
+    public void startIfIdle_keepsEarliestStart() {
+        MetricsRecorder metrics = recorder();
+        metrics.startIfIdle(PLAY, 1_000_000);
+        metrics.startIfIdle(PLAY, 5_000_000);
+        metrics.stop(PLAY, 11_000_000);
+        assertEquals(10_000, metrics.getHistogram(PLAY).getMax());
+
+        metrics.start(PLAY, 1_000_000);
+        metrics.cancel(PLAY);
+        assertFalse(metrics.stop(PLAY, 2_000_000));
+    }
+
+    @Test
+    public void writeReport_listsEveryMetric() throws IOException {
+        MetricsRecorder metrics = recorder();
+        metrics.record(OPEN, 12_000);
+        metrics.increment(STARTED);
+        metrics.increment(STARTED);
+        StringBuilder report = new StringBuilder();
+        metrics.writeReport(report);
+        String text = report.toString();
+        assertTrue(text, text.contains("lesson_open\t1\t12.0\t12.0\t12.0\t12.0\t12.0\n"));
+        assertTrue(text, text.contains("tap_to_audio\t0\t"));
+        assertTrue(text, text.contains("tracks_started\t2\n"));
+    }
+}
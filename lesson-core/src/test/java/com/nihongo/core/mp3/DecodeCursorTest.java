@@ -0,0 +1,105 @@
+package com.nihongo.core.mp3;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Walks {@link DecodeCursor} over a bundled MP3, standing in for the decoder. */
+public class DecodeCursorTest {
+
+    private static final File AUDIO_DIR =
+            new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+
+    private byte[] data;
+    private SeekIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        data = Files.readAllBytes(new File(AUDIO_DIR, "lesson_1/l1_main.mp3").toPath());
+        index = SeekIndex.scan(data);
+    }
+
+    @Test
+    public void fromStart_feedsEveryFrameInOrder() {
+        DecodeCursor cursor = new DecodeCursor(index);
+        cursor.seekToSample(0);
+        Mp3HeaderParser.FrameHeader header = new Mp3HeaderParser.FrameHeader();
+
+        int frames = 0;
+        long lastPts = -1;
+        while (cursor.hasNext()) {
+            assertEquals(frames, cursor.frame());
+            assertTrue("no frame at " + cursor.offset(), header.decode(data, (int) cursor.offset()));
+            assertEquals(header.frameLength, cursor.length());
+            assertTrue(cursor.presentationTimeUs() > lastPts);
+            lastPts = cursor.presentationTimeUs();
+            cursor.advance();
+            frames++;
+        }
+        assertEquals(index.getFrameCount(), frames);
+        assertEquals(0, cursor.trim(index.getSamplesPerFrame()));
+    }
+
+    @Test
+    public void seek_prerollCoversBitReservoir() {
+        DecodeCursor cursor = new DecodeCursor(index);
+        for (int target = 0; target < index.getFrameCount(); target += 37) {
+            cursor.seekToSample(index.getFrameStartSample(target));
+            int first = cursor.frame();
+            assertTrue(first <= target);
+            if (first > 0) {
+                // Reservoir bytes plus a whole frame for the granule overlap
+                long preroll = index.getFrameOffset(target) - index.getFrameOffset(first + 1);
+                assertTrue("frame " + target + " starts at " + first, preroll >= DecodeCursor.MAX_RESERVOIR_BYTES);
+            }
+        }
+    }
+
+    @Test
+    public void seek_firstKeptSampleIsTarget() {
+        DecodeCursor cursor = new DecodeCursor(index);
+        int samplesPerFrame = index.getSamplesPerFrame();
+        long total = (long) index.getFrameCount() * samplesPerFrame;
+        Random random = new Random(11);
+        long[] targets = new long[40];
+        targets[0] = 0;
+        targets[1] = 1;
+        targets[2] = samplesPerFrame;
+        targets[3] = total - 1;
+        for (int i = 4; i < targets.length; i++) {
+            targets[i] = (long) (random.nextDouble() * total);
+        }
+        for (long target : targets) {
+            cursor.seekToSample(target);
+            // The "decoder" outputs one buffer per frame, each sample holding its own number
+            long kept = -1;
+            while (kept < 0 && cursor.hasNext()) {
+                long frameStart = index.getFrameStartSample(cursor.frame());
+                int drop = cursor.trim(samplesPerFrame);
+                if (drop < samplesPerFrame) {
+                    kept = frameStart + drop;
+                }
+                cursor.advance();
+            }
+            assertEquals(target, kept);
+        }
+    }
+
+    @Test
+    public void seek_clampsToAudio() {
+        DecodeCursor cursor = new DecodeCursor(index);
+        cursor.seekToSample(-500);
+        assertEquals(0, cursor.frame());
+        assertEquals(0, cursor.trim(10));
+
+        cursor.seekToSample(Long.MAX_VALUE);
+        assertTrue(cursor.hasNext());
+        assertTrue(cursor.frame() < index.getFrameCount() - 1);
+    }
+}
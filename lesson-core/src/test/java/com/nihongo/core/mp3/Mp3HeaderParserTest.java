@@ -0,0 +1,150 @@
+package com.nihongo.core.mp3;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the header-only durations with a walk over every frame of every bundled
+ * MP3, and covers the tag and VBR header variants with hand-built streams.
+ */
+public class Mp3HeaderParserTest {
+
+    private static final File AUDIO_DIR =
+            new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+
+    @Test
+    public void parse_matchesFullFrameWalk_forEveryAsset() throws IOException {
+        File[] lessonDirs = AUDIO_DIR.listFiles(File::isDirectory);
+        assertNotNull(lessonDirs);
+
+        int checked = 0;
+        for (File dir : lessonDirs) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".mp3"));
+            assertNotNull(files);
+            for (File file : files) {
+                Mp3Info info;
+                try (InputStream in = new FileInputStream(file)) {
+                    info = Mp3HeaderParser.parse(in, file.length());
+                }
+                long walkedMs = walkAllFrames(Files.readAllBytes(file.toPath()), info.audioStart);
+                long tolerance = Math.max(100, walkedMs / 100);
+                assertEquals(file.getName() + " " + info, walkedMs, info.durationMs, tolerance);
+                assertTrue(file.getName(), info.bitrateKbps > 0);
+                checked++;
+            }
+        }
+        assertTrue(checked > 150);
+    }
+
+    @Test
+    public void parse_constantBitrateWithoutTag() throws IOException {
+        // 128 kbps, 44.1 kHz, stereo, MPEG-1 Layer III: 417 bytes per frame
+        byte[] stream = frames(0xfffb9000, 417, 100);
+        Mp3Info info = Mp3HeaderParser.parse(new ByteArrayInputStream(stream), stream.length);
+
+        assertFalse(info.vbr);
+        assertEquals(128, info.bitrateKbps);
+        assertEquals(44100, info.sampleRate);
+        assertEquals(2, info.channels);
+        assertEquals(0, info.audioStart);
+        assertEquals(stream.length * 8L / 128, info.durationMs);
+    }
+
+    @Test
+    public void parse_skipsId3v2Tag() throws IOException {
+        byte[] audio = frames(0xfffb9000, 417, 10);
+        byte[] stream = new byte[300 + 10 + audio.length];
+        stream[0] = 'I';
+        stream[1] = 'D';
+        stream[2] = '3';
+        stream[3] = 3;
+        // synchsafe 300 = 2 * 128 + 44
+        stream[8] = 2;
+        stream[9] = 44;
+        System.arraycopy(audio, 0, stream, 310, audio.length);
+
+        Mp3Info info = Mp3HeaderParser.parse(new ByteArrayInputStream(stream), stream.length);
+        assertEquals(310, info.audioStart);
+    }
+
+    @Test
+    public void parse_usesXingFrameCount() throws IOException {
+        byte[] stream = frames(0xfffb9000, 417, 20);
+        int xing = 4 + 32;
+        put(stream, xing, 'X', 'i', 'n', 'g');
+        putInt(stream, xing + 4, 3);          // frames + bytes present
+        putInt(stream, xing + 8, 1000);       // 1000 frames * 1152 samples
+        putInt(stream, xing + 12, 1000 * 300);
+
+        Mp3Info info = Mp3HeaderParser.parse(new ByteArrayInputStream(stream), stream.length);
+        assertTrue(info.vbr);
+        assertEquals(1000L * 1152 * 1000 / 44100, info.durationMs);
+        assertEquals(417, info.audioStart);
+    }
+
+    @Test
+    public void parse_usesVbriFrameCount() throws IOException {
+        byte[] stream = frames(0xfffb9000, 417, 20);
+        int vbri = 4 + 32;
+        put(stream, vbri, 'V', 'B', 'R', 'I');
+        putInt(stream, vbri + 10, 500 * 300);
+        putInt(stream, vbri + 14, 500);
+
+        Mp3Info info = Mp3HeaderParser.parse(new ByteArrayInputStream(stream), stream.length);
+        assertTrue(info.vbr);
+        assertEquals(500L * 1152 * 1000 / 44100, info.durationMs);
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsNonMpegData() throws IOException {
+        byte[] junk = new byte[4096];
+        Mp3HeaderParser.parse(new ByteArrayInputStream(junk), junk.length);
+    }
+
+    // Duration from decoding every frame header in the file, the slow but exact way
+    private static long walkAllFrames(byte[] data, long audioStart) {
+        Mp3HeaderParser.FrameHeader header = new Mp3HeaderParser.FrameHeader();
+        long samples = 0;
+        int sampleRate = 0;
+        int pos = (int) audioStart;
+        while (pos + 4 <= data.length) {
+            if (!header.decode(data, pos)) {
+                pos++;
+                continue;
+            }
+            samples += header.samplesPerFrame;
+            sampleRate = header.sampleRate;
+            pos += header.frameLength;
+        }
+        return sampleRate == 0 ? 0 : samples * 1000 / sampleRate;
+    }
+
+    private static byte[] frames(int header, int frameLength, int count) {
+        byte[] stream = new byte[frameLength * count];
+        for (int i = 0; i < count; i++) {
+            putInt(stream, i * frameLength, header);
+        }
+        return stream;
+    }
+
+    private static void put(byte[] b, int pos, char... chars) {
+        for (int i = 0; i < chars.length; i++) {
+            b[pos + i] = (byte) chars[i];
+        }
+    }
+
+    private static void putInt(byte[] b, int pos, int value) {
+        b[pos] = (byte) (value >>> 24);
+        b[pos + 1] = (byte) (value >>> 16);
+        b[pos + 2] = (byte) (value >>> 8);
+        b[pos + 3] = (byte) value;
+    }
+}
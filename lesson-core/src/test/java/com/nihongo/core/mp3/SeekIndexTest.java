@@ -0,0 +1,126 @@
+package com.nihongo.core.mp3;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class SeekIndexTest {
+
+    private static final File AUDIO_DIR =
+            new File(System.getProperty("nihongo.audioDir", "../app/src/main/assets/audio"));
+
+    @Test
+    public void scan_indexesEveryFrameOfConstantBitrateStream() throws IOException {
+        // 128 kbps, 44.1 kHz, stereo, MPEG-1 Layer III: 417 bytes per frame
+        byte[] stream = frames(0xfffb9000, 417, 100);
+        SeekIndex index = SeekIndex.scan(stream);
+
+        assertEquals(100, index.getFrameCount());
+        assertEquals(44100, index.getSampleRate());
+        assertEquals(1152, index.getSamplesPerFrame());
+        assertEquals(0, index.getFrameOffset(0));
+        assertEquals(417 * 57, index.getFrameOffset(57));
+        assertEquals(stream.length, index.getFrameOffset(100));
+        assertEquals(100L * 1152 * 1000 / 44100, index.getDurationMs());
+    }
+
+    @Test
+    public void scan_skipsXingHeaderFrame() throws IOException {
+        byte[] stream = frames(0xfffb9000, 417, 20);
+        int xing = 4 + 32;
+        stream[xing] = 'X';
+        stream[xing + 1] = 'i';
+        stream[xing + 2] = 'n';
+        stream[xing + 3] = 'g';
+        putInt(stream, xing + 4, 1);
+        putInt(stream, xing + 8, 19);
+
+        SeekIndex index = SeekIndex.scan(stream);
+        assertEquals(19, index.getFrameCount());
+        assertEquals(417, index.getFrameOffset(0));
+    }
+
+    @Test
+    public void frameStartMs_mapsBackToSameFrame() throws IOException {
+        SeekIndex index = SeekIndex.scan(frames(0xfffb9000, 417, 500));
+        for (int frame = 0; frame < index.getFrameCount(); frame++) {
+            int startMs = index.getFrameStartMs(frame);
+            assertEquals(frame, index.frameAt(startMs));
+            assertEquals(startMs, index.snapMs(startMs));
+            // Rounded up by less than a millisecond
+            assertTrue(startMs * 44100L - frame * 1152L * 1000 < 44100);
+        }
+        assertEquals(0, index.frameAt(-5));
+        assertEquals(499, index.frameAt(Integer.MAX_VALUE));
+        assertEquals(index.getFrameStartMs(3), index.snapMs(index.getFrameStartMs(4) - 1));
+    }
+
+    @Test
+    public void writeTo_roundTrips() throws IOException {
+        byte[] stream = new byte[123 + 417 * 30];
+        System.arraycopy(frames(0xfffb9000, 417, 30), 0, stream, 123, 417 * 30);
+        SeekIndex index = SeekIndex.scan(stream);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        SeekIndex read = SeekIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.getFrameCount(), read.getFrameCount());
+        assertEquals(index.getSampleRate(), read.getSampleRate());
+        for (int i = 0; i <= index.getFrameCount(); i++) {
+            assertEquals(index.getFrameOffset(i), read.getFrameOffset(i));
+        }
+        assertEquals(28 + 2 * 30, out.size());
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        SeekIndex.readFrom(new ByteArrayInputStream(new byte[64]));
+    }
+
+    @Test
+    public void scan_agreesWithXingFrameCount_forEveryAsset() throws IOException {
+        File[] lessonDirs = AUDIO_DIR.listFiles(File::isDirectory);
+        assertNotNull(lessonDirs);
+        int checked = 0;
+        for (File dir : lessonDirs) {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".mp3"));
+            assertNotNull(files);
+            for (File file : files) {
+                Mp3Info info;
+                try (InputStream in = new FileInputStream(file)) {
+                    info = Mp3HeaderParser.parse(in, file.length());
+                }
+                SeekIndex index = SeekIndex.scan(Files.readAllBytes(file.toPath()));
+                assertEquals(file.getName(), info.audioStart, index.getFrameOffset(0));
+                // One frame of slack for encoders that count the header frame
+                assertEquals(file.getName(), info.durationMs, index.getDurationMs(), 27);
+                checked++;
+            }
+        }
+        assertTrue(checked > 150);
+    }
+
+    private static byte[] frames(int header, int frameLength, int count) {
+        byte[] stream = new byte[frameLength * count];
+        for (int i = 0; i < count; i++) {
+            putInt(stream, i * frameLength, header);
+        }
+        return stream;
+    }
+
+    private static void putInt(byte[] b, int pos, int value) {
+        b[pos] = (byte) (value >>> 24);
+        b[pos + 1] = (byte) (value >>> 16);
+        b[pos + 2] = (byte) (value >>> 8);
+        b[pos + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,43 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class GainTableTest {
+
+    @Test
+    public void gainFor_reachesTargetWithinPeakAndBoostLimits() {
+        assertEquals(-4, GainTable.gainFor(-12, 1.0), 1e-9);
+        assertEquals(4, GainTable.gainFor(-20, 0.1), 1e-9);
+        // Peak at -3 dBFS leaves 2 dB of headroom below the -1 dBFS ceiling
+        assertEquals(2, GainTable.gainFor(-20, Math.pow(10, -3 / 20.0)), 1e-9);
+        assertEquals(GainTable.MAX_BOOST_DB, GainTable.gainFor(-40, 0.01), 1e-9);
+        assertEquals(0, GainTable.gainFor(Double.NEGATIVE_INFINITY, 0), 0);
+    }
+
+    @Test
+    public void roundTrip_keepsGainsToHundredthOfDecibel() throws IOException {
+        GainTable table = new GainTable.Builder()
+                .put("lesson_2/l2_main.mp3", -3.456)
+                .put("lesson_1/l1_q1.mp3", 5.5)
+                .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        table.writeTo(out);
+        GainTable read = GainTable.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, read.size());
+        assertEquals(-3.46, read.getGainDb("lesson_2/l2_main.mp3"), 1e-9);
+        assertEquals(5.5, read.getGainDb("lesson_1/l1_q1.mp3"), 1e-9);
+        assertEquals(0, read.getGainDb("lesson_9/l9_main.mp3"), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        GainTable.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+}
@@ -0,0 +1,163 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link LoopRenderer} over a stereo stream whose samples encode their own
+ * position (left = frame, right = -frame), so any dropped, repeated or misaligned
+ * sample shows up in the values.
+ */
+public class LoopRendererTest {
+
+    private static final int CHANNELS = 2;
+
+    /** Endless stream of position-coded stereo frames, optionally starting late. */
+    private static final class CountingSource implements LoopRenderer.Source {
+        long frame;
+        int maxPerRead = Integer.MAX_VALUE;
+
+        CountingSource(long frame) {
+            this.frame = frame;
+        }
+
+        @Override
+        public int read(short[] dst, int offset, int length) {
+            int frames = Math.min(length, maxPerRead) / CHANNELS;
+            for (int i = 0; i < frames; i++) {
+                dst[offset + i * 2] = (short) frame;
+                dst[offset + i * 2 + 1] = (short) -frame;
+                frame++;
+            }
+            return frames * CHANNELS;
+        }
+    }
+
+    @Test
+    public void render_passesStreamThrough() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        source.maxPerRead = 6;
+        short[] out = new short[40];
+
+        assertEquals(40, renderer.render(source, out, 0, 40));
+        assertFrames(out, 0, 20, 0);
+        assertEquals(20, renderer.getPositionFrame());
+    }
+
+    @Test
+    public void render_stopsWhenSourceIsDry() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        assertEquals(0, renderer.render((dst, offset, length) -> 0, new short[8], 0, 8));
+    }
+
+    @Test
+    public void loop_repeatsSectionExactly() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        short[] out = new short[2 * 300];
+        renderer.render(source, out, 0, out.length);
+
+        assertTrue(renderer.setLoop(100, 250));
+        for (int repetition = 0; repetition < 3; repetition++) {
+            short[] cycle = new short[2 * 150];
+            assertEquals(cycle.length, renderer.render(source, cycle, 0, cycle.length));
+            assertFrames(cycle, 0, 150, 100);
+        }
+        // Nothing more was pulled from the stream while looping
+        assertEquals(300, source.frame);
+    }
+
+    @Test
+    public void loop_insertsGapAfterEachRepetition() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        renderer.render(source, new short[2 * 100], 0, 2 * 100);
+        renderer.setGapFrames(30);
+        assertTrue(renderer.setLoop(40, 90));
+
+        short[] out = new short[2 * (30 + 50 + 30 + 50)];
+        renderer.render(source, out, 0, out.length);
+        assertSilent(out, 0, 30);
+        assertFrames(out, 30, 50, 40);
+        assertSilent(out, 80, 30);
+        assertFrames(out, 110, 50, 40);
+    }
+
+    @Test
+    public void clearLoop_continuesStreamWithoutLoss() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        renderer.render(source, new short[2 * 100], 0, 2 * 100);
+        assertTrue(renderer.setLoop(10, 60));
+        renderer.render(source, new short[2 * 77], 0, 2 * 77);
+
+        renderer.clearLoop();
+        short[] out = new short[2 * 10];
+        renderer.render(source, out, 0, out.length);
+        assertFrames(out, 0, 10, 100);
+    }
+
+    @Test
+    public void setLoop_rejectsSectionsOutsideHistory() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 100);
+        CountingSource source = new CountingSource(5000);
+        renderer.reset(5000);
+        renderer.render(source, new short[2 * 250], 0, 2 * 250);
+
+        assertEquals(5150, renderer.getHistoryStartFrame());
+        assertFalse("already dropped from history", renderer.setLoop(5100, 5200));
+        assertFalse("not rendered yet", renderer.setLoop(5200, 5300));
+        assertFalse(renderer.setLoop(5200, 5200));
+        assertFalse(renderer.isLooping());
+
+        // The window wrapped twice; the copy must still come out in order
+        assertTrue(renderer.setLoop(5150, 5250));
+        short[] out = new short[2 * 100];
+        renderer.render(source, out, 0, out.length);
+        assertFrames(out, 0, 100, 5150);
+    }
+
+    @Test
+    public void reset_dropsLoopAndHistory() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        renderer.render(source, new short[2 * 100], 0, 2 * 100);
+        renderer.setLoop(0, 50);
+
+        renderer.reset(2000);
+        source.frame = 2000;
+        assertFalse(renderer.isLooping());
+        assertFalse(renderer.setLoop(0, 50));
+        assertEquals(2000, renderer.getPositionFrame());
+    }
+
+    @Test
+    public void positionBefore_followsTheLoop() {
+        LoopRenderer renderer = new LoopRenderer(CHANNELS, 1000);
+        CountingSource source = new CountingSource(0);
+        renderer.render(source, new short[2 * 100], 0, 2 * 100);
+        assertEquals(80, renderer.positionBefore(20));
+
+        renderer.setLoop(20, 70);
+        renderer.render(source, new short[2 * 60], 0, 2 * 60);
+        // 10 frames into the second repetition
+        assertEquals(30, renderer.getPositionFrame());
+        assertEquals(60, renderer.positionBefore(20));
+    }
+
+    private static void assertFrames(short[] out, int atFrame, int frames, long firstFrame) {
+        for (int i = 0; i < frames; i++) {
+            short expected = (short) (firstFrame + i);
+            assertEquals("left of frame " + (atFrame + i), expected, out[(atFrame + i) * 2]);
+            assertEquals("right of frame " + (atFrame + i), (short) -expected, out[(atFrame + i) * 2 + 1]);
+        }
+    }
+
+    private static void assertSilent(short[] out, int atFrame, int frames) {
+        for (int i = atFrame * 2; i < (atFrame + frames) * 2; i++) {
+            assertEquals("sample " + i, 0, out[i]);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LoudnessMeterTest {
+
+    private static final int RATE = 44100;
+
+    /** {@code seconds} of a sine at {@code dbfs}, the same in every channel. */
+    private static short[] tone(double frequency, double dbfs, double seconds, int channels) {
+        int frames = (int) (seconds * RATE);
+        short[] samples = new short[frames * channels];
+        double amplitude = 32767 * Math.pow(10, dbfs / 20);
+        for (int f = 0; f < frames; f++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * f / RATE));
+            for (int c = 0; c < channels; c++) {
+                samples[f * channels + c] = value;
+            }
+        }
+        return samples;
+    }
+
+    private static double measure(int channels, short[]... parts) {
+        LoudnessMeter meter = new LoudnessMeter(RATE, channels);
+        for (short[] part : parts) {
+            // Odd piece sizes, as decoders deliver them
+            for (int pos = 0; pos < part.length; pos += 1000 * channels) {
+                meter.write(part, pos, Math.min(1000 * channels, part.length - pos));
+            }
+        }
+        return meter.getIntegratedLoudness();
+    }
+
+    @Test
+    public void fullScaleSine_readsMinusThreeLufsPerChannel() {
+        // The reference point of BS.1770: a 0 dBFS 997 Hz sine in one channel is -3.01 LKFS
+        assertEquals(-3.01, measure(1, tone(997, 0, 5, 1)), 0.1);
+        assertEquals(0.0, measure(2, tone(997, 0, 5, 2)), 0.1);
+        assertEquals(-23.01, measure(1, tone(997, -20, 5, 1)), 0.1);
+    }
+
+    @Test
+    public void lowFrequencies_areWeightedDown() {
+        assertTrue(measure(1, tone(30, -20, 5, 1)) < -23.01 - 3);
+    }
+
+    @Test
+    public void gates_ignoreSilenceAndQuietPassages() {
+        short[] speech = tone(997, -20, 5, 1);
+        // Only the few blocks that straddle a change in level still count
+        assertEquals(-23.01, measure(1, speech, new short[5 * RATE], speech), 0.3);
+        // 20 dB down is below the relative gate
+        assertEquals(-23.01, measure(1, speech, tone(997, -40, 5, 1)), 0.3);
+    }
+
+    @Test
+    public void silenceAndShortInput_haveNoLoudness() {
+        assertEquals(Double.NEGATIVE_INFINITY, measure(2, new short[2 * RATE * 2]), 0);
+        assertEquals(Double.NEGATIVE_INFINITY, measure(1, tone(997, 0, 0.3, 1)), 0);
+    }
+
+    @Test
+    public void samplePeak_isTracked() {
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+        short[] samples = tone(997, -6, 1, 2);
+        meter.write(samples, 0, samples.length);
+        assertEquals(0.5, meter.getSamplePeak(), 0.01);
+        meter.reset();
+        assertEquals(0, meter.getSamplePeak(), 0);
+    }
+}
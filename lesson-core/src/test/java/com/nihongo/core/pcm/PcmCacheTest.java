@@ -0,0 +1,103 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PcmCacheTest {
+
+    // 100 stereo frames: 400 bytes
+    private static PcmClip clip() {
+        return new PcmClip(1000, 2, 100, false);
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedUntilItFits() {
+        PcmCache cache = new PcmCache(1200);
+        PcmClip a = clip();
+        assertTrue(cache.put("a", a));
+        assertTrue(cache.put("b", clip()));
+        assertTrue(cache.put("c", clip()));
+        assertSame(a, cache.get("a"));
+
+        // b is now the least recently used
+        assertTrue(cache.put("d", clip()));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("a"));
+        assertEquals(3, cache.getCount());
+        assertEquals(1200, cache.getSizeBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void put_refusesClipsLargerThanBudget() {
+        PcmCache cache = new PcmCache(1000);
+        cache.put("a", clip());
+        assertFalse(cache.put("big", new PcmClip(1000, 2, 1000, false)));
+        assertTrue(cache.contains("a"));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void put_replacingKeepsSizeExact() {
+        PcmCache cache = new PcmCache(800);
+        cache.put("a", clip());
+        cache.put("a", clip());
+        cache.put("b", clip());
+        assertEquals(800, cache.getSizeBytes());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        PcmCache cache = new PcmCache(1000);
+        cache.put("a", clip());
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.contains("b");
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void clip_appendStopsAtCapacity() {
+        PcmClip clip = new PcmClip(1000, 2, 4, true);
+        assertTrue(clip.append(ramp(0, 6), 0, 6));
+        assertFalse(clip.append(ramp(6, 4), 0, 4));
+        assertTrue(clip.append(ramp(6, 2), 0, 2));
+        assertEquals(4, clip.getFrameCount());
+        assertEquals(16, clip.getSizeBytes());
+    }
+
+    @Test
+    public void reader_seeksAndReadsIndependently() {
+        PcmClip clip = new PcmClip(1000, 2, 50, true);
+        clip.append(ramp(0, 100), 0, 100);
+        PcmClip.Reader first = clip.reader();
+        PcmClip.Reader second = clip.reader();
+        first.seek(10);
+
+        short[] out = new short[8];
+        assertEquals(8, first.read(out, 0, 8));
+        assertEquals(20, out[0]);
+        assertEquals(27, out[7]);
+        assertEquals(8, second.read(out, 0, 8));
+        assertEquals(0, out[0]);
+
+        first.seek(48);
+        assertEquals(4, first.read(out, 0, 8));
+        assertEquals(99, out[3]);
+        assertEquals(0, first.available());
+        first.seek(1000);
+        assertEquals(0, first.read(out, 0, 8));
+    }
+
+    private static short[] ramp(int from, int count) {
+        short[] samples = new short[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) (from + i);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,67 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PcmRingBufferTest {
+
+    @Test
+    public void capacity_roundsUpToPowerOfTwo() {
+        assertEquals(8, new PcmRingBuffer(8).capacity());
+        assertEquals(16, new PcmRingBuffer(9).capacity());
+    }
+
+    @Test
+    public void write_stopsAtCapacity() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        assertEquals(8, ring.write(ramp(0, 12), 0, 12));
+        assertEquals(0, ring.free());
+        assertEquals(0, ring.write(ramp(0, 1), 0, 1));
+    }
+
+    @Test
+    public void readWrite_wrapAroundInOrder() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        short[] out = new short[8];
+        short next = 0;
+        short expected = 0;
+        for (int round = 0; round < 20; round++) {
+            // Odd sizes so the ends wrap at every possible index
+            next += ring.write(ramp(next, 5), 0, 5);
+            int n = ring.read(out, 0, 3);
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected++, out[i]);
+            }
+            if (ring.free() < 5) {
+                n = ring.read(out, 0, out.length);
+                for (int i = 0; i < n; i++) {
+                    assertEquals(expected++, out[i]);
+                }
+            }
+        }
+        assertEquals(next, expected + ring.available());
+    }
+
+    @Test
+    public void clear_dropsBufferedSamples() {
+        PcmRingBuffer ring = new PcmRingBuffer(8);
+        ring.write(ramp(0, 6), 0, 6);
+        ring.clear();
+        assertEquals(0, ring.available());
+        assertEquals(0, ring.read(new short[4], 0, 4));
+
+        ring.write(ramp(100, 4), 0, 4);
+        short[] out = new short[4];
+        assertEquals(4, ring.read(out, 0, 4));
+        assertEquals(100, out[0]);
+    }
+
+    static short[] ramp(int from, int count) {
+        short[] samples = new short[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) (from + i);
+        }
+        return samples;
+    }
+}
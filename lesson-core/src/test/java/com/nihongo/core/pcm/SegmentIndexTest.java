@@ -0,0 +1,74 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SegmentIndexTest {
+
+    // Sentences at 1.0-3.0 s, 3.5-5.0 s and 8.0-9.0 s of a 12 s track
+    private final SegmentIndex index = new SegmentIndex(12000,
+            new int[] {1000, 3500, 8000}, new int[] {3000, 5000, 9000});
+
+    @Test
+    public void segmentAt_findsLastStartAtOrBefore() {
+        assertEquals(-1, index.segmentAt(0));
+        assertEquals(0, index.segmentAt(1000));
+        assertEquals(0, index.segmentAt(3200));
+        assertEquals(1, index.segmentAt(7999));
+        assertEquals(2, index.segmentAt(12000));
+    }
+
+    @Test
+    public void previousStart_goesBackFurtherNearAStart() {
+        assertEquals(3500, index.previousStartMs(4500, 500));
+        assertEquals(1000, index.previousStartMs(3800, 500));
+        assertEquals(0, index.previousStartMs(1200, 500));
+        assertEquals(0, index.previousStartMs(500, 500));
+    }
+
+    @Test
+    public void nextStart_isMinusOneAfterLastSentence() {
+        assertEquals(1000, index.nextStartMs(0));
+        assertEquals(3500, index.nextStartMs(1000));
+        assertEquals(8000, index.nextStartMs(5500));
+        assertEquals(-1, index.nextStartMs(8500));
+    }
+
+    @Test
+    public void skipTarget_onlyInLongPausesAfterKeptPart() {
+        // The 3 s pause from 5.0 s; the first 0.5 s of it is kept
+        assertEquals(-1, index.skipTargetMs(4900, 1000, 500));
+        assertEquals(-1, index.skipTargetMs(5400, 1000, 500));
+        assertEquals(8000, index.skipTargetMs(5500, 1000, 500));
+        // The 0.5 s pause from 3.0 s is too short
+        assertEquals(-1, index.skipTargetMs(3400, 1000, 0));
+        // Leading silence counts, trailing silence does not
+        assertEquals(1000, index.skipTargetMs(0, 1000, 0));
+        assertEquals(-1, index.skipTargetMs(10000, 1000, 0));
+    }
+
+    @Test
+    public void roundTrip_keepsSegments() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        SegmentIndex read = SegmentIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(12000, read.getDurationMs());
+        assertEquals(3, read.getSegmentCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(index.getStartMs(i), read.getStartMs(i));
+            assertEquals(index.getEndMs(i), read.getEndMs(i));
+        }
+        assertEquals("segments/lesson_1/l1_main.seg", SegmentIndex.assetPath("lesson_1/l1_main.mp3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        SegmentIndex.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+}
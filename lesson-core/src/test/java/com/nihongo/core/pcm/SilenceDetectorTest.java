@@ -0,0 +1,67 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SilenceDetectorTest {
+
+    private static final int RATE = 16000;
+
+    /** Writes speech-loud tone for each {@code true} span and low hiss for each {@code false} one. */
+    private static SegmentIndex detect(Object... spans) {
+        SilenceDetector detector = new SilenceDetector(RATE, 2);
+        Random random = new Random(1);
+        for (int s = 0; s < spans.length; s += 2) {
+            boolean speech = (Boolean) spans[s];
+            int frames = (Integer) spans[s + 1] * RATE / 1000;
+            short[] samples = new short[frames * 2];
+            for (int f = 0; f < frames; f++) {
+                double value = speech
+                        ? 8000 * Math.sin(2 * Math.PI * 220 * f / RATE)
+                        : 30 * random.nextGaussian();
+                samples[2 * f] = (short) value;
+                samples[2 * f + 1] = (short) value;
+            }
+            // Odd piece sizes, as decoders deliver them
+            for (int pos = 0; pos < samples.length; pos += 1152 * 2) {
+                detector.write(samples, pos, Math.min(1152 * 2, samples.length - pos));
+            }
+        }
+        return detector.finish();
+    }
+
+    @Test
+    public void sentences_areSplitAtLongPausesOnly() {
+        SegmentIndex index = detect(
+                false, 1000,
+                true, 1200, false, 200, true, 800,   // one sentence with a pause inside
+                false, 1500,
+                true, 1000,
+                false, 2000);
+
+        assertEquals(2, index.getSegmentCount());
+        assertEquals(7700, index.getDurationMs());
+        // Widened by 100 ms on each side
+        assertEquals(900, index.getStartMs(0), 20);
+        assertEquals(3300, index.getEndMs(0), 20);
+        assertEquals(4600, index.getStartMs(1), 20);
+        assertEquals(5800, index.getEndMs(1), 20);
+    }
+
+    @Test
+    public void clicks_areNotSpeech() {
+        SegmentIndex index = detect(false, 1000, true, 50, false, 1000, true, 600, false, 1000);
+
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(1950, index.getStartMs(0), 20);
+    }
+
+    @Test
+    public void silence_hasNoSegments() {
+        assertEquals(0, detect(false, 3000).getSegmentCount());
+        assertEquals(0, new SilenceDetector(RATE, 1).finish().getSegmentCount());
+    }
+}
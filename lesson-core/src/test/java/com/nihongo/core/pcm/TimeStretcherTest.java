@@ -0,0 +1,166 @@
+package com.nihongo.core.pcm;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class TimeStretcherTest {
+
+    private static final int RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int BLOCK = 1024 * CHANNELS;
+
+    @Test
+    public void normalSpeed_passesInputThrough() {
+        short[] in = tone(440, RATE);
+        short[] out = stretch(new TimeStretcher(RATE, CHANNELS), in, in.length);
+
+        assertTrue(out.length > in.length - 2 * RATE / 10);
+        for (int i = 0; i < out.length; i++) {
+            assertEquals("sample " + i, in[i], out[i], 1);
+        }
+    }
+
+    @Test
+    public void slowDown_lengthensByInverseSpeed() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        stretcher.setSpeed(0.6f);
+        short[] in = tone(440, 2 * RATE);
+        short[] out = stretch(stretcher, in, 4 * in.length);
+
+        double expected = in.length / 0.6;
+        assertEquals(expected, out.length, expected * 0.03);
+    }
+
+    @Test
+    public void speedUp_shortensByInverseSpeed() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        stretcher.setSpeed(1.5f);
+        short[] in = tone(440, 2 * RATE);
+        short[] out = stretch(stretcher, in, in.length);
+
+        double expected = in.length / 1.5;
+        assertEquals(expected, out.length, expected * 0.03);
+    }
+
+    @Test
+    public void changedSpeed_keepsPitch() {
+        for (float speed : new float[] {0.6f, 0.8f, 1.25f, 1.5f}) {
+            TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+            stretcher.setSpeed(speed);
+            short[] out = stretch(stretcher, tone(440, 2 * RATE), 8 * RATE * CHANNELS);
+            assertEquals("at " + speed + "x", 440, frequency(out), 440 * 0.02);
+        }
+    }
+
+    @Test
+    public void setSpeed_appliesMidStream() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        short[] in = tone(220, 4 * RATE);
+        short[] out = new short[4 * in.length];
+        int written = 0;
+        int produced = 0;
+        while (written < in.length) {
+            if (written >= in.length / 2) {
+                stretcher.setSpeed(0.5f);
+            }
+            written += stretcher.write(in, written, Math.min(BLOCK, in.length - written));
+            produced += stretcher.read(out, produced, out.length - produced);
+        }
+        // First half at 1x, second half at 0.5x
+        double expected = in.length / 2 + in.length;
+        assertEquals(expected, produced, expected * 0.03);
+    }
+
+    @Test
+    public void setSpeed_isClamped() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        stretcher.setSpeed(0.1f);
+        assertEquals(TimeStretcher.MIN_SPEED, stretcher.getSpeed(), 0);
+        stretcher.setSpeed(9f);
+        assertEquals(TimeStretcher.MAX_SPEED, stretcher.getSpeed(), 0);
+    }
+
+    @Test
+    public void endOfInput_flushesEverything() {
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        short[] in = tone(440, RATE / 10);
+        stretcher.write(in, 0, in.length);
+        stretcher.endOfInput();
+        short[] out = new short[2 * in.length + RATE];
+        int produced = stretcher.read(out, 0, out.length);
+
+        assertTrue(produced >= in.length);
+        for (int i = 0; i < in.length; i++) {
+            assertEquals("sample " + i, in[i], out[i], 1);
+        }
+    }
+
+    @Test
+    public void steadyState_doesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        TimeStretcher stretcher = new TimeStretcher(RATE, CHANNELS);
+        stretcher.setSpeed(0.75f);
+        short[] in = tone(440, 1024);
+        short[] out = new short[BLOCK * 2];
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 2000; i++) {
+            stretcher.write(in, 0, in.length);
+            stretcher.read(out, 0, out.length);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /** Writes all of {@code in} block by block and collects what comes out, up to {@code max} samples. */
+    private static short[] stretch(TimeStretcher stretcher, short[] in, int max) {
+        short[] out = new short[max];
+        int written = 0;
+        int produced = 0;
+        while (written < in.length && produced < max) {
+            written += stretcher.write(in, written, Math.min(BLOCK, in.length - written));
+            produced += stretcher.read(out, produced, max - produced);
+        }
+        short[] result = new short[produced];
+        System.arraycopy(out, 0, result, 0, produced);
+        return result;
+    }
+
+    private static short[] tone(double hz, int frames) {
+        short[] samples = new short[frames * CHANNELS];
+        for (int f = 0; f < frames; f++) {
+            short value = (short) (12000 * Math.sin(2 * Math.PI * hz * f / RATE));
+            for (int c = 0; c < CHANNELS; c++) {
+                samples[f * CHANNELS + c] = value;
+            }
+        }
+        return samples;
+    }
+
+    // From rising zero crossings of the left channel, skipping the start-up window
+    private static double frequency(short[] samples) {
+        int frames = samples.length / CHANNELS;
+        int first = -1;
+        int last = -1;
+        int crossings = 0;
+        for (int f = RATE / 20; f < frames; f++) {
+            if (samples[(f - 1) * CHANNELS] < 0 && samples[f * CHANNELS] >= 0) {
+                if (first < 0) {
+                    first = f;
+                } else {
+                    crossings++;
+                }
+                last = f;
+            }
+        }
+        return crossings * (double) RATE / (last - first);
+    }
+}
@@ -0,0 +1,102 @@
+package com.nihongo.core.pcm;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class VoiceClarityTest {
+
+    private static final int RATE = 44100;
+
+    /** One second of a stereo sine at {@code dbfs}. */
+    private static short[] tone(double frequency, double dbfs) {
+        short[] samples = new short[RATE * 2];
+        double amplitude = 32767 * Math.pow(10, dbfs / 20);
+        for (int f = 0; f < RATE; f++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * f / RATE));
+            samples[f * 2] = value;
+            samples[f * 2 + 1] = value;
+        }
+        return samples;
+    }
+
+    private static short[] process(VoiceClarity.Settings settings, short[] input) {
+        VoiceClarity clarity = new VoiceClarity(RATE, 2);
+        clarity.setSettings(settings);
+        short[] samples = input.clone();
+        // In the PCM player's chunk size
+        for (int pos = 0; pos < samples.length; pos += 2048) {
+            clarity.process(samples, pos, Math.min(2048, samples.length - pos));
+        }
+        return samples;
+    }
+
+    /** Level of the second half, once filters and envelope have settled, in dB. */
+    private static double levelDb(short[] samples) {
+        double sum = 0;
+        for (int i = samples.length / 2; i < samples.length; i++) {
+            sum += (double) samples[i] * samples[i];
+        }
+        return 10 * Math.log10(sum / (samples.length / 2) / (32768.0 * 32768.0));
+    }
+
+    @Test
+    public void off_leavesSamplesAlone() {
+        short[] input = tone(440, -20);
+        assertArrayEquals(input, process(VoiceClarity.Settings.OFF, input));
+    }
+
+    @Test
+    public void presence_boostsConsonantBandOnly() {
+        VoiceClarity.Settings boost = new VoiceClarity.Settings(8, 0);
+        short[] presence = tone(2500, -30);
+        short[] voice = tone(700, -30);
+        assertEquals(8, levelDb(process(boost, presence)) - levelDb(presence), 0.5);
+        assertEquals(0, levelDb(process(boost, voice)) - levelDb(voice), 1.5);
+    }
+
+    @Test
+    public void lowCut_removesRumble() {
+        short[] rumble = tone(40, -20);
+        assertTrue(levelDb(process(new VoiceClarity.Settings(0, 0.01f), rumble)) < levelDb(rumble) - 15);
+    }
+
+    @Test
+    public void compression_narrowsQuietToLoudGap() {
+        VoiceClarity.Settings strong = new VoiceClarity.Settings(0, 1);
+        short[] quiet = tone(1000, -36);
+        short[] loud = tone(1000, -6);
+        double gap = levelDb(process(strong, loud)) - levelDb(process(strong, quiet));
+        assertTrue("gap " + gap, gap < 15);
+        // Quiet lines come up, and once the attack has caught up nothing clips
+        assertTrue(levelDb(process(strong, quiet)) > levelDb(quiet));
+        short[] out = process(strong, loud);
+        for (int i = RATE / 10; i < out.length; i++) {
+            assertTrue(out[i] > Short.MIN_VALUE && out[i] < Short.MAX_VALUE);
+        }
+    }
+
+    @Test
+    public void settings_changeBetweenBlocks() {
+        VoiceClarity clarity = new VoiceClarity(RATE, 2);
+        short[] input = tone(2500, -30);
+        short[] first = Arrays.copyOf(input, input.length);
+        clarity.process(first, 0, first.length);
+        assertArrayEquals(input, first);
+
+        clarity.setSettings(new VoiceClarity.Settings(6, 0));
+        short[] second = input.clone();
+        clarity.process(second, 0, second.length);
+        assertEquals(6, levelDb(second) - levelDb(input), 0.5);
+    }
+
+    @Test
+    public void settings_areClamped() {
+        VoiceClarity.Settings settings = new VoiceClarity.Settings(40, 3);
+        assertEquals(VoiceClarity.MAX_PRESENCE_DB, settings.presenceDb, 0);
+        assertEquals(1, settings.compression, 0);
+        assertTrue(new VoiceClarity.Settings(-1, -1).isOff());
+    }
+}
@@ -0,0 +1,97 @@
+package com.nihongo.core.search;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SearchIndexTest {
+
+    private static SearchIndex lessons() {
+        return new SearchIndex.Builder()
+                .add(1, "はじめまして", "はじめまして", "hajimemashite", "Nice to meet you")
+                .add(2, "これは何ですか", "これはなんですか", "kore wa nan desu ka", "What is this?")
+                .add(5, "甲子園へ行きますか", "こうしえんへいきますか", "koushien e ikimasu ka", "Do you go to Koshien?")
+                .add(8, "そろそろ失礼します", "そろそろしつれいします", "sorosoro shitsurei shimasu", "I should be leaving")
+                .build();
+    }
+
+    private static int[] search(SearchIndex index, String query) {
+        int[] results = new int[index.size()];
+        return Arrays.copyOf(results, index.search(query, results));
+    }
+
+    @Test
+    public void search_emptyMatchesAllInOrder() {
+        assertArrayEquals(new int[] {1, 2, 5, 8}, search(lessons(), " "));
+    }
+
+    @Test
+    public void search_findsByTitleReadingRomajiAndGloss() {
+        SearchIndex index = lessons();
+        assertArrayEquals(new int[] {5}, search(index, "甲子"));
+        assertArrayEquals(new int[] {5}, search(index, "コウシ"));
+        assertArrayEquals(new int[] {5}, search(index, "kosh"));
+        assertArrayEquals(new int[] {8}, search(index, "sitsu"));
+        assertArrayEquals(new int[] {8}, search(index, "LEAVING"));
+        assertArrayEquals(new int[] {2, 5}, search(index, "ka"));
+        assertArrayEquals(new int[] {1, 5, 8}, search(index, "し"));
+    }
+
+    @Test
+    public void search_needsCharactersInOrder() {
+        // Every pair of "asu" and "usa" occurs in document 1, but neither string does
+        SearchIndex index = new SearchIndex.Builder().add(1, "as su us").add(2, "asu").build();
+        assertArrayEquals(new int[] {2}, search(index, "asu"));
+        assertArrayEquals(new int[0], search(index, "usa"));
+    }
+
+    @Test
+    public void search_doesNotMatchAcrossFields() {
+        SearchIndex index = new SearchIndex.Builder().add(1, "abc", "def").build();
+        assertArrayEquals(new int[0], search(index, "cd"));
+        assertArrayEquals(new int[] {1}, search(index, "de"));
+    }
+
+    @Test
+    public void search_manyDocumentsSpanBitsetWords() {
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        for (int i = 0; i < 150; i++) {
+            builder.add(i, i % 70 == 0 ? "target" : "other " + i);
+        }
+        assertArrayEquals(new int[] {0, 70, 140}, search(builder.build(), "targ"));
+    }
+
+    @Test
+    public void writeTo_readsBackTheSameIndex() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        lessons().writeTo(out);
+        SearchIndex read = SearchIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(4, read.size());
+        assertArrayEquals(new int[] {5}, search(read, "kosh"));
+        assertArrayEquals(new int[] {1}, search(read, "はじ"));
+    }
+
+    @Test
+    public void search_doesNotAllocate() {
+        SearchIndex index = lessons();
+        int[] results = new int[index.size()];
+        String[] keystrokes = {"s", "so", "sor", "soro", "し", "しつ", "kosh", ""};
+        for (int i = 0; i < 10_000; i++) {
+            index.search(keystrokes[i % keystrokes.length], results);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10_000; i++) {
+            index.search(keystrokes[i % keystrokes.length], results);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nihongo.core.search;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchTextTest {
+
+    private static String fold(String text, boolean prefix) {
+        char[] out = new char[64];
+        return new String(out, 0, SearchText.fold(text, out, 0, prefix));
+    }
+
+    @Test
+    public void fold_dropsSpacesPunctuationAndCase() {
+        assertEquals("korewanandesuka", fold("Kore wa nan desu ka?", false));
+        assertEquals("これは何ですか", fold("これは 何ですか？", false));
+    }
+
+    @Test
+    public void fold_katakanaAsHiragana() {
+        assertEquals("でぱーと", fold("デパート", false));
+        assertEquals("abc12", fold("ＡＢＣ１２", false));
+    }
+
+    @Test
+    public void fold_romajiSpellingsAgree() {
+        assertEquals(fold("shitsurei", false), fold("siturei", false));
+        assertEquals(fold("issho", false), fold("issyo", false));
+        assertEquals(fold("jishin", false), fold("zisin", false));
+        assertEquals(fold("Kōshien", false), fold("koushien", false));
+        assertEquals(fold("depaato", false), fold("depāto", false));
+        assertEquals(fold("fuku", false), fold("huku", false));
+        assertEquals(fold("chotto", false), fold("tyotto", false));
+    }
+
+    @Test
+    public void fold_prefixKeepsUnfinishedSyllablesOpen() {
+        String indexed = fold("shitsurei shimasu", false);
+        // Every prefix of what the user types must stay a prefix of the indexed text
+        String typed = "shitsurei shimasu";
+        for (int i = 1; i <= typed.length(); i++) {
+            String query = fold(typed.substring(0, i), true);
+            assertTrue(query + " vs " + indexed, indexed.startsWith(query));
+        }
+        String chotto = fold("chotto", false);
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(chotto.startsWith(fold("chotto".substring(0, i), true)));
+        }
+        String jishin = fold("jishin", false);
+        for (int i = 1; i <= 6; i++) {
+            assertTrue(jishin.startsWith(fold("jishin".substring(0, i), true)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.nihongo.core.shadowing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BandedDtwTest {
+
+    @Test
+    public void align_isZeroForTheSameSequence() {
+        float[] a = ramp(50, 1);
+        assertEquals(0, new BandedDtw().align(a, 50, a, 50, 1, 0.1f), 0);
+    }
+
+    @Test
+    public void align_absorbsStretching() {
+        // The same ramp at half the pace costs only the steps between its samples
+        float[] a = ramp(40, 1);
+        float[] slow = ramp(80, 0.5f);
+        BandedDtw dtw = new BandedDtw();
+        double stretched = dtw.align(a, 40, slow, 80, 1, 0.1f);
+        assertTrue("cost " + stretched, stretched < 0.2);
+
+        float[] reversed = new float[80];
+        for (int i = 0; i < 80; i++) {
+            reversed[i] = slow[79 - i];
+        }
+        assertTrue(dtw.align(a, 40, reversed, 80, 1, 0.1f) > 10 * stretched);
+    }
+
+    @Test
+    public void align_staysWithinTheBand() {
+        // A step early in one and late in the other: matching them needs a wide detour
+        float[] early = new float[100];
+        float[] late = new float[100];
+        for (int i = 0; i < 100; i++) {
+            early[i] = i >= 20 ? 1 : 0;
+            late[i] = i >= 60 ? 1 : 0;
+        }
+        BandedDtw dtw = new BandedDtw();
+        assertEquals(0, dtw.align(early, 100, late, 100, 1, 0.5f), 0);
+        assertTrue(dtw.align(early, 100, late, 100, 1, 0.1f) > 0.2);
+    }
+
+    @Test
+    public void align_measuresEuclideanDistanceAcrossDimensions() {
+        float[] a = {0, 0, 0, 0};
+        float[] b = {3, 4, 3, 4};
+        // Two diagonal steps of distance 5, each weighing 2, over n + m = 4
+        assertEquals(5, new BandedDtw().align(a, 2, b, 2, 2, 0.1f), 1e-9);
+    }
+
+    @Test
+    public void align_handlesSingleFramesAndReusedRows() {
+        BandedDtw dtw = new BandedDtw();
+        dtw.align(ramp(300, 1), 300, ramp(200, 1.5f), 200, 1, 0.1f);
+        assertEquals(0.25, dtw.align(new float[] {1}, 1, new float[] {1, 1, 2}, 3, 1, 0.1f), 1e-9);
+    }
+
+    private static float[] ramp(int length, float step) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = i * step;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,75 @@
+package com.nihongo.core.shadowing;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContourExtractorTest {
+
+    @Test
+    public void extract_findsPitchOfVoiceAtAnyRate() {
+        ContourExtractor extractor = new ContourExtractor();
+        Contour contour = new Contour();
+        for (int rate : new int[] {8000, 16000, 44100, 48000}) {
+            for (double hz : new double[] {90, 150, 240, 380}) {
+                short[] voice = voice(hz, rate, 2);
+                extractor.extract(voice, 0, voice.length, rate, 2, contour);
+
+                assertEquals(100, contour.getLength(), 1);
+                assertEquals(1000, contour.getDurationMs(), 10);
+                int frame = contour.getLength() / 2;
+                assertEquals(rate + " Hz", hz, contour.getPitchHz(frame), hz * 0.02);
+            }
+        }
+    }
+
+    @Test
+    public void extract_leavesNoiseAndSilenceUnvoiced() {
+        short[] samples = new short[16000];
+        Random random = new Random(5);
+        for (int i = 0; i < samples.length / 2; i++) {
+            samples[i] = (short) (4000 * random.nextGaussian());
+        }
+        Contour contour = new Contour();
+        new ContourExtractor().extract(samples, 0, samples.length, 16000, 1, contour);
+
+        int voiced = 0;
+        for (int f = 0; f < contour.getLength(); f++) {
+            voiced += contour.getPitchHz(f) > 0 ? 1 : 0;
+        }
+        assertTrue("voiced frames " + voiced, voiced < contour.getLength() / 20);
+        // -18.3 dBFS of white noise, half of it above the 8 kHz analysis rate's band
+        assertEquals(-21.3, contour.getEnergyDb(10), 1);
+        assertEquals(-100, contour.getEnergyDb(contour.getLength() - 1), 0);
+    }
+
+    @Test
+    public void extract_reusesContourForShorterInput() {
+        ContourExtractor extractor = new ContourExtractor();
+        Contour contour = new Contour();
+        short[] longer = voice(200, 16000, 1);
+        extractor.extract(longer, 0, longer.length, 16000, 1, contour);
+        short[] shorter = voice(120, 16000, 1);
+        extractor.extract(shorter, 0, shorter.length / 2, 16000, 1, contour);
+
+        assertEquals(50, contour.getLength());
+        assertEquals(120, contour.getPitchHz(25), 120 * 0.02);
+    }
+
+    /** One second of a steady vowel, harmonics falling off like a voice's. */
+    private static short[] voice(double hz, int rate, int channels) {
+        short[] samples = new short[rate * channels];
+        for (int f = 0; f < rate; f++) {
+            double value = 0;
+            for (int h = 1; h <= 8 && h * hz < rate / 2.0; h++) {
+                value += Math.sin(2 * Math.PI * h * hz * f / rate) / h;
+            }
+            for (int c = 0; c < channels; c++) {
+                samples[f * channels + c] = (short) (8000 * value);
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,98 @@
+package com.nihongo.core.shadowing;
+
+import com.nihongo.core.pcm.TimeStretcher;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ShadowingScorerTest {
+
+    private static final int RATE = 44100;
+    // What a phone microphone records in
+    private static final int MIC_RATE = 16000;
+
+    private final short[] reference = SyntheticSpeech.say(SyntheticSpeech.SENTENCE_A, RATE, 2, 1, 1);
+
+    @Test
+    public void score_isFullForTheReferenceItself() {
+        ShadowingScorer.Score score = scorer().score(reference, 0, reference.length, RATE, 2);
+        assertEquals(100, score.getSimilarity());
+        assertEquals(1, score.getTempo(), 0);
+    }
+
+    @Test
+    public void score_forgivesTempo() {
+        ShadowingScorer scorer = scorer();
+        for (float speed : new float[] {0.7f, 0.85f, 1.25f, 1.4f}) {
+            short[] stretched = stretch(reference, speed);
+            ShadowingScorer.Score score = scorer.score(stretched, 0, stretched.length, RATE, 2);
+            assertTrue(speed + "x: " + score.getSimilarity(), score.getSimilarity() >= 70);
+            assertEquals(1 / speed, score.getTempo(), 0.05);
+        }
+    }
+
+    @Test
+    public void score_forgivesVoiceLevelAndRate() {
+        short[] learner = SyntheticSpeech.say(SyntheticSpeech.SENTENCE_A, MIC_RATE, 1, 1.7, 0.2);
+        ShadowingScorer.Score score = scorer().score(learner, 0, learner.length, MIC_RATE, 1);
+        assertTrue("similarity " + score.getSimilarity(), score.getSimilarity() >= 70);
+    }
+
+    @Test
+    public void score_isLowForAnotherSentence() {
+        ShadowingScorer scorer = scorer();
+        short[] learner = SyntheticSpeech.say(SyntheticSpeech.SENTENCE_A, MIC_RATE, 1, 1.7, 0.2);
+        short[] other = SyntheticSpeech.say(SyntheticSpeech.SENTENCE_B, MIC_RATE, 1, 1.7, 0.2);
+        int same = scorer.score(learner, 0, learner.length, MIC_RATE, 1).getSimilarity();
+        int different = scorer.score(other, 0, other.length, MIC_RATE, 1).getSimilarity();
+        assertTrue(same + " vs " + different, different < 40 && different < same - 30);
+    }
+
+    @Test
+    public void score_isZeroWithoutSpeech() {
+        short[] silence = new short[MIC_RATE * 2];
+        ShadowingScorer.Score score = scorer().score(silence, 0, silence.length, MIC_RATE, 1);
+        assertEquals(0, score.getSimilarity());
+        assertTrue(Double.isInfinite(score.getDistance()));
+    }
+
+    @Test
+    public void score_onlyReadsTheGivenRange() {
+        // An attempt recorded into a longer, reused buffer
+        short[] buffer = new short[reference.length + 2 * RATE];
+        Arrays.fill(buffer, (short) 20000);
+        System.arraycopy(reference, 0, buffer, RATE, reference.length);
+        assertEquals(100, scorer().score(buffer, RATE, reference.length, RATE, 2).getSimilarity());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void score_needsAReference() {
+        new ShadowingScorer().score(reference, 0, reference.length, RATE, 2);
+    }
+
+    private ShadowingScorer scorer() {
+        ShadowingScorer scorer = new ShadowingScorer();
+        scorer.setReference(reference, 0, reference.length, RATE, 2);
+        assertTrue(scorer.hasReference());
+        return scorer;
+    }
+
+    private static short[] stretch(short[] in, float speed) {
+        TimeStretcher stretcher = new TimeStretcher(RATE, 2);
+        stretcher.setSpeed(speed);
+        short[] out = new short[in.length * 2];
+        int written = 0;
+        int produced = 0;
+        while (written < in.length) {
+            written += stretcher.write(in, written, Math.min(2048, in.length - written));
+            produced += stretcher.read(out, produced, out.length - produced);
+        }
+        stretcher.endOfInput();
+        for (int n; (n = stretcher.read(out, produced, out.length - produced)) > 0; ) {
+            produced += n;
+        }
+        return Arrays.copyOf(out, produced);
+    }
+}
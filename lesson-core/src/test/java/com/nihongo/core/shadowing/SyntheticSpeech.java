@@ -0,0 +1,65 @@
+package com.nihongo.core.shadowing;
+
+import java.util.Random;
+
+/**
+ * Sentences of voiced syllables for the shadowing tests: each has a consonant burst,
+ * then a vowel whose pitch glides between two values, with harmonics falling off
+ * like a voice's. A speaker can be higher or lower, louder or quieter.
+ */
+final class SyntheticSpeech {
+
+    /** Per syllable: length in ms, pitch at the start and at the end in Hz, level 0 to 1. */
+    static final double[][] SENTENCE_A = {
+            {180, 140, 160, 0.8}, {220, 170, 150, 1.0}, {160, 150, 120, 0.6},
+            {260, 130, 180, 0.9}, {200, 190, 140, 0.7}, {300, 140, 100, 0.8},
+    };
+    static final double[][] SENTENCE_B = {
+            {300, 110, 110, 0.5}, {120, 200, 220, 1.0}, {350, 100, 160, 0.9},
+            {120, 220, 120, 0.4}, {250, 160, 200, 1.0}, {120, 120, 110, 0.6},
+    };
+
+    private static final int GAP_MS = 60;
+    private static final int BURST_MS = 30;
+    private static final int SILENCE_MS = 300;
+
+    private SyntheticSpeech() {}
+
+    static short[] say(double[][] syllables, int rate, int channels, double key, double gain) {
+        int totalMs = 2 * SILENCE_MS;
+        for (double[] syllable : syllables) {
+            totalMs += (int) syllable[0] + BURST_MS + GAP_MS;
+        }
+        short[] samples = new short[rate * totalMs / 1000 * channels];
+        Random random = new Random(11);
+        int frame = rate * SILENCE_MS / 1000;
+        double phase = 0;
+        for (double[] syllable : syllables) {
+            int burst = rate * BURST_MS / 1000;
+            for (int f = 0; f < burst; f++, frame++) {
+                put(samples, frame, channels, gain * 2000 * random.nextGaussian());
+            }
+            int vowel = (int) (rate * syllable[0] / 1000);
+            for (int f = 0; f < vowel; f++, frame++) {
+                double t = f / (double) vowel;
+                double pitch = key * (syllable[1] + (syllable[2] - syllable[1]) * t);
+                phase += 2 * Math.PI * pitch / rate;
+                double value = 0;
+                for (int h = 1; h <= 10 && h * pitch < rate / 2.0; h++) {
+                    value += Math.sin(h * phase) / h;
+                }
+                double envelope = Math.sin(Math.PI * t) * syllable[3];
+                put(samples, frame, channels, gain * 9000 * envelope * value + 30 * random.nextGaussian());
+            }
+            frame += rate * GAP_MS / 1000;
+        }
+        return samples;
+    }
+
+    private static void put(short[] samples, int frame, int channels, double value) {
+        short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+        for (int c = 0; c < channels; c++) {
+            samples[frame * channels + c] = sample;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.nihongo.core.transcript;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TranscriptTest {
+
+    private final Transcript transcript = new Transcript.Builder()
+            .add(1000, 2500, "おはようございます。", "おはようございます。", "Good morning.")
+            .add(3000, 4800, "田中さんは学生です。", "たなかさんはがくせいです。", null)
+            .add(6000, 7000, "はい。", "はい。", "Yes.")
+            .build();
+
+    @Test
+    public void lineAt_findsLastStartAtOrBefore() {
+        assertEquals(-1, transcript.lineAt(0));
+        assertEquals(0, transcript.lineAt(1000));
+        assertEquals(0, transcript.lineAt(2800));
+        assertEquals(1, transcript.lineAt(5999));
+        assertEquals(2, transcript.lineAt(60000));
+    }
+
+    @Test
+    public void nextChange_isNextStartOrMinusOne() {
+        assertEquals(1000, transcript.nextChangeMs(0));
+        assertEquals(3000, transcript.nextChangeMs(1000));
+        assertEquals(6000, transcript.nextChangeMs(4900));
+        assertEquals(-1, transcript.nextChangeMs(6500));
+    }
+
+    @Test
+    public void fields_comeBackPerLine() {
+        assertEquals("田中さんは学生です。", transcript.getText(1));
+        assertEquals("たなかさんはがくせいです。", transcript.getReading(1));
+        assertNull(transcript.getTranslation(1));
+        assertEquals("Yes.", transcript.getTranslation(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsOverlappingLines() {
+        new Transcript.Builder().add(1000, 3000, "a", "a", null).add(2000, 4000, "b", "b", null);
+    }
+
+    @Test
+    public void writeTo_roundTrips() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transcript.writeTo(out);
+        Transcript read = Transcript.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(3, read.getLineCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(transcript.getStartMs(i), read.getStartMs(i));
+            assertEquals(transcript.getEndMs(i), read.getEndMs(i));
+            assertEquals(transcript.getText(i), read.getText(i));
+            assertEquals(transcript.getReading(i), read.getReading(i));
+            assertEquals(transcript.getTranslation(i), read.getTranslation(i));
+        }
+    }
+
+    @Test
+    public void assetPath_mirrorsAudioPath() {
+        assertEquals("transcripts/lesson_3/l3_q1.cue", Transcript.assetPath("lesson_3/l3_q1.mp3"));
+    }
+
+    @Test(expected = IOException.class)
+    public void readFrom_rejectsOtherData() throws IOException {
+        Transcript.readFrom(new ByteArrayInputStream(new byte[16]));
+    }
+}
@@ -0,0 +1,77 @@
+package com.nihongo.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Finds the bundled tracks the generators work on, and works through them. */
+final class AudioAssets {
+
+    interface TrackTask<T> {
+        T run(File file) throws IOException;
+    }
+
+    private AudioAssets() {}
+
+    /**
+     * Paths relative to {@code audioDir} ("lesson_N/file.mp3") of every MP3 in a
+     * lesson directory, sorted so that output does not depend on file system order.
+     */
+    static List<String> trackPaths(File audioDir) throws IOException {
+        File[] lessonDirs = audioDir.listFiles(f -> f.isDirectory() && f.getName().matches("lesson_\\d+"));
+        if (lessonDirs == null) {
+            throw new IOException("Not a directory: " + audioDir);
+        }
+        Arrays.sort(lessonDirs);
+        List<String> paths = new ArrayList<>();
+        for (File dir : lessonDirs) {
+            String[] names = dir.list((d, name) -> name.endsWith(".mp3"));
+            if (names == null) {
+                continue;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                paths.add(dir.getName() + "/" + name);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Runs {@code task} on each of {@code paths}, on a thread per core: decoding is
+     * most of a generator's time, and tracks decode independently. Results are in
+     * the order of {@code paths}. The first failure in that order is thrown, as
+     * {@code failure} followed by the path.
+     */
+    static <T> List<T> processAll(File audioDir, List<String> paths, String failure, TrackTask<T> task)
+            throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<T>> futures = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            futures.add(pool.submit(() -> task.run(new File(audioDir, path))));
+        }
+        pool.shutdown();
+        List<T> results = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                pool.shutdownNow();
+                throw new IOException(failure + " " + paths.get(i), e.getCause());
+            }
+        }
+        return results;
+    }
+
+    static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+    }
+}
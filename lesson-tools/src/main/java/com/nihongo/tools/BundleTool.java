@@ -0,0 +1,74 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.bundle.LessonBundle;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Packs the MP3s of each lesson directory under an audio directory laid out like
+ * assets/audio into one {@link LessonBundle}, {@code <outputDir>/bundles/lesson_N.bundle}.
+ *
+ * <p>Usage: {@code BundleTool <audioDir> <outputDir>}
+ */
+public final class BundleTool {
+
+    private BundleTool() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BundleTool <audioDir> <outputDir>");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        Map<Integer, List<String>> lessons = new TreeMap<>();
+        for (String path : AudioAssets.trackPaths(audioDir)) {
+            int slash = path.indexOf('/');
+            int lesson = Integer.parseInt(path.substring("lesson_".length(), slash));
+            lessons.computeIfAbsent(lesson, l -> new ArrayList<>()).add(path.substring(slash + 1));
+        }
+
+        long total = 0;
+        for (Map.Entry<Integer, List<String>> lesson : lessons.entrySet()) {
+            File dir = new File(audioDir, "lesson_" + lesson.getKey());
+            File target = new File(outputDir, LessonBundle.assetPath(lesson.getKey()));
+            AudioAssets.mkdirs(target.getParentFile());
+            total += write(dir, lesson.getValue(), target);
+        }
+        System.out.println("Packed " + lessons.size() + " lessons into " + total + " bytes");
+    }
+
+    private static long write(File dir, List<String> names, File target) throws IOException {
+        int[] lengths = new int[names.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            long length = new File(dir, names.get(i)).length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Track too large to bundle: " + names.get(i));
+            }
+            lengths[i] = (int) length;
+        }
+        LessonBundle bundle = LessonBundle.layout(names.toArray(new String[0]), lengths);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+            bundle.writeTableTo(out);
+            for (int i = 0; i < lengths.length; i++) {
+                File file = new File(dir, names.get(i));
+                // A file that changed since it was measured would shift every later one
+                if (Files.copy(file.toPath(), out) != lengths[i]) {
+                    throw new IOException("Changed while bundling: " + file);
+                }
+                out.write(new byte[bundle.paddingAfter(i)]);
+            }
+        }
+        return target.length();
+    }
+}
@@ -0,0 +1,76 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.pcm.GainTable;
+import com.nihongo.core.pcm.LoudnessMeter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the integrated loudness of every MP3 under an audio directory laid out
+ * like assets/audio, and writes one {@link GainTable} for all of them to
+ * {@code <outputDir>/loudness/gains.bin}. Each gain brings its track to the common
+ * target, held back where that would push the sample peak into clipping.
+ *
+ * <p>Usage: {@code LoudnessTool <audioDir> <outputDir>}
+ */
+public final class LoudnessTool {
+
+    private LoudnessTool() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2) {
+            System.err.println("Usage: LoudnessTool <audioDir> <outputDir>");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        List<String> paths = AudioAssets.trackPaths(audioDir);
+        List<LoudnessMeter> measured = AudioAssets.processAll(audioDir, paths, "Could not measure",
+                LoudnessTool::measure);
+
+        GainTable.Builder builder = new GainTable.Builder();
+        double quietest = Double.POSITIVE_INFINITY;
+        double loudest = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < paths.size(); i++) {
+            LoudnessMeter meter = measured.get(i);
+            double loudness = meter.getIntegratedLoudness();
+            builder.put(paths.get(i), GainTable.gainFor(loudness, meter.getSamplePeak()));
+            if (!Double.isInfinite(loudness)) {
+                quietest = Math.min(quietest, loudness);
+                loudest = Math.max(loudest, loudness);
+            }
+        }
+        GainTable table = builder.build();
+
+        File target = new File(outputDir, GainTable.ASSET);
+        AudioAssets.mkdirs(target.getParentFile());
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+            table.writeTo(out);
+        }
+        System.out.println(String.format(Locale.ROOT, "Measured %d tracks from %.1f to %.1f LUFS",
+                table.size(), quietest, loudest));
+    }
+
+    private static LoudnessMeter measure(File file) throws IOException {
+        try (TrackDecoder decoder = new TrackDecoder(file)) {
+            LoudnessMeter meter = null;
+            while (decoder.next()) {
+                if (meter == null) {
+                    meter = new LoudnessMeter(decoder.sampleRate(), decoder.channels());
+                }
+                meter.write(decoder.samples(), 0, decoder.length());
+            }
+            if (meter == null) {
+                throw new IOException("No audio frames in " + file);
+            }
+            return meter;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.Track;
+import com.nihongo.core.search.SearchIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes the lesson {@link SearchIndex} to {@code <outputDir>/search/lessons.idx}.
+ * Each lesson is found by its title, the title's reading in hiragana and romaji,
+ * its English gloss, its number, and the kinds of track it has.
+ *
+ * <p>Usage: {@code SearchIndexTool <audioDir> <outputDir> <titlesFile>}, where each
+ * line of the titles file is {@code lesson<TAB>title<TAB>reading<TAB>romaji<TAB>English}
+ * and lines starting with # are comments.
+ */
+public final class SearchIndexTool {
+
+    private static final Map<Track.Kind, String[]> KIND_TERMS = new EnumMap<>(Track.Kind.class);
+
+    static {
+        KIND_TERMS.put(Track.Kind.MAIN, new String[] {"会話", "kaiwa", "conversation"});
+        KIND_TERMS.put(Track.Kind.QUESTION, new String[] {"問題", "mondai", "questions"});
+        KIND_TERMS.put(Track.Kind.PRACTICE, new String[] {"練習", "renshuu", "practice"});
+        KIND_TERMS.put(Track.Kind.VOCABULARY, new String[] {"単語", "tango", "vocabulary"});
+        KIND_TERMS.put(Track.Kind.GRAMMAR, new String[] {"文法", "bunpou", "grammar"});
+        KIND_TERMS.put(Track.Kind.OTHER, new String[0]);
+    }
+
+    private SearchIndexTool() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SearchIndexTool <audioDir> <outputDir> <titlesFile>");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+        File titlesFile = new File(args[2]);
+
+        TreeMap<Integer, String[]> titles = readTitles(titlesFile);
+        TreeMap<Integer, Set<Track.Kind>> kinds = new TreeMap<>();
+        for (String path : AudioAssets.trackPaths(audioDir)) {
+            int slash = path.indexOf('/');
+            int lesson = Integer.parseInt(path.substring("lesson_".length(), slash));
+            Track track = Track.create(lesson, path.substring(slash + 1));
+            kinds.computeIfAbsent(lesson, l -> EnumSet.noneOf(Track.Kind.class)).add(track.kind);
+        }
+
+        int lessonCount = Math.max(titles.isEmpty() ? 0 : titles.lastKey(), kinds.isEmpty() ? 0 : kinds.lastKey());
+        SearchIndex.Builder builder = new SearchIndex.Builder();
+        for (int lesson = 1; lesson <= lessonCount; lesson++) {
+            List<String> fields = new ArrayList<>();
+            fields.add("Lesson " + lesson);
+            fields.add("第" + lesson + "課");
+            String[] title = titles.get(lesson);
+            if (title != null) {
+                for (int column = 1; column < title.length; column++) {
+                    fields.add(title[column]);
+                }
+            }
+            for (Track.Kind kind : kinds.getOrDefault(lesson, EnumSet.noneOf(Track.Kind.class))) {
+                for (String term : KIND_TERMS.get(kind)) {
+                    fields.add(term);
+                }
+            }
+            builder.add(lesson, fields.toArray(new String[0]));
+        }
+        SearchIndex index = builder.build();
+
+        File target = new File(outputDir, SearchIndex.LESSONS_ASSET);
+        AudioAssets.mkdirs(target.getParentFile());
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+            index.writeTo(out);
+        }
+        System.out.println("Indexed " + index.size() + " lessons in " + target.length() + " bytes");
+    }
+
+    private static TreeMap<Integer, String[]> readTitles(File file) throws IOException {
+        TreeMap<Integer, String[]> titles = new TreeMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            try {
+                titles.put(Integer.parseInt(columns[0]), columns);
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad lesson number in " + file + ": " + line, e);
+            }
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,49 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.mp3.SeekIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Writes a {@link SeekIndex} for every MP3 under an audio directory laid out like
+ * assets/audio, to the matching path under {@code <outputDir>/seek}.
+ *
+ * <p>Usage: {@code SeekIndexTool <audioDir> <outputDir>}
+ */
+public final class SeekIndexTool {
+
+    private SeekIndexTool() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SeekIndexTool <audioDir> <outputDir>");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        int written = 0;
+        long frames = 0;
+        for (String path : AudioAssets.trackPaths(audioDir)) {
+            SeekIndex index;
+            try {
+                index = SeekIndex.scan(Files.readAllBytes(new File(audioDir, path).toPath()));
+            } catch (IOException e) {
+                throw new IOException("Could not index " + path, e);
+            }
+            File target = new File(outputDir, SeekIndex.assetPath(path));
+            AudioAssets.mkdirs(target.getParentFile());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+                index.writeTo(out);
+            }
+            written++;
+            frames += index.getFrameCount();
+        }
+        System.out.println("Indexed " + frames + " frames in " + written + " tracks");
+    }
+}
@@ -0,0 +1,65 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.pcm.SegmentIndex;
+import com.nihongo.core.pcm.SilenceDetector;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Splits every MP3 under an audio directory laid out like assets/audio into
+ * sentences at its pauses, found by a {@link SilenceDetector}, and writes one
+ * {@link SegmentIndex} per track to the matching path under
+ * {@code <outputDir>/segments}, for sentence navigation and pause skipping.
+ *
+ * <p>Usage: {@code SegmentTool <audioDir> <outputDir>}
+ */
+public final class SegmentTool {
+
+    private SegmentTool() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2) {
+            System.err.println("Usage: SegmentTool <audioDir> <outputDir>");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        List<String> paths = AudioAssets.trackPaths(audioDir);
+        List<SegmentIndex> detected = AudioAssets.processAll(audioDir, paths, "Could not segment",
+                SegmentTool::detect);
+
+        int segments = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            SegmentIndex index = detected.get(i);
+            File target = new File(outputDir, SegmentIndex.assetPath(paths.get(i)));
+            AudioAssets.mkdirs(target.getParentFile());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+                index.writeTo(out);
+            }
+            segments += index.getSegmentCount();
+        }
+        System.out.println("Found " + segments + " sentences in " + paths.size() + " tracks");
+    }
+
+    private static SegmentIndex detect(File file) throws IOException {
+        try (TrackDecoder decoder = new TrackDecoder(file)) {
+            SilenceDetector detector = null;
+            while (decoder.next()) {
+                if (detector == null) {
+                    detector = new SilenceDetector(decoder.sampleRate(), decoder.channels());
+                }
+                detector.write(decoder.samples(), 0, decoder.length());
+            }
+            if (detector == null) {
+                throw new IOException("No audio frames in " + file);
+            }
+            return detector.finish();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nihongo.tools;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Decodes a bundled MP3 to interleaved 16-bit PCM, one MPEG frame per
+ * {@link #next}, for generators that analyse the audio itself. Not thread-safe;
+ * decode tracks in parallel with one decoder each.
+ */
+final class TrackDecoder implements Closeable {
+
+    private final File file;
+    private final Bitstream bitstream;
+    private final Decoder decoder = new Decoder();
+    private SampleBuffer output;
+
+    TrackDecoder(File file) throws IOException {
+        this.file = file;
+        bitstream = new Bitstream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /** Decodes the next frame; false at the end of the track. */
+    boolean next() throws IOException {
+        try {
+            Header header = bitstream.readFrame();
+            if (header == null) {
+                return false;
+            }
+            output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+            bitstream.closeFrame();
+            return true;
+        } catch (JavaLayerException e) {
+            throw new IOException("Could not decode " + file, e);
+        }
+    }
+
+    /** Samples of the last frame decoded; valid until the next call to {@link #next}. */
+    short[] samples() {
+        return output.getBuffer();
+    }
+
+    int length() {
+        return output.getBufferLength();
+    }
+
+    int sampleRate() {
+        return output.getSampleFrequency();
+    }
+
+    int channels() {
+        return output.getChannelCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            bitstream.close();
+        } catch (JavaLayerException e) {
+            throw new IOException("Could not close " + file, e);
+        }
+    }
+}
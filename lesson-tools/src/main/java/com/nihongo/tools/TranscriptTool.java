@@ -0,0 +1,100 @@
+package com.nihongo.tools;
+
+import com.nihongo.core.transcript.Transcript;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles transcript sources into {@link Transcript}s at the matching paths under
+ * {@code <outputDir>/transcripts}. The source for assets/audio/lesson_N/file.mp3 is
+ * a file lesson_N/file.tsv; each of its lines is
+ * {@code start<TAB>end<TAB>text<TAB>reading[<TAB>translation]}, with times as
+ * {@code m:ss.fff} and lines starting with # as comments.
+ *
+ * <p>Usage: {@code TranscriptTool <audioDir> <outputDir> [<transcript.tsv>...]}
+ */
+public final class TranscriptTool {
+
+    private TranscriptTool() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TranscriptTool <audioDir> <outputDir> [<transcript.tsv>...]");
+            System.exit(2);
+        }
+        File audioDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+
+        Set<String> tracks = new HashSet<>(AudioAssets.trackPaths(audioDir));
+        int lines = 0;
+        for (int i = 2; i < args.length; i++) {
+            File source = new File(args[i]);
+            String name = source.getName();
+            String path = source.getParentFile().getName() + "/"
+                    + name.substring(0, name.length() - ".tsv".length()) + ".mp3";
+            if (!tracks.contains(path)) {
+                throw new IOException("No track " + path + " for transcript " + source);
+            }
+            Transcript transcript = read(source);
+            File target = new File(outputDir, Transcript.assetPath(path));
+            AudioAssets.mkdirs(target.getParentFile());
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+                transcript.writeTo(out);
+            }
+            lines += transcript.getLineCount();
+        }
+        System.out.println("Compiled " + lines + " lines in " + (args.length - 2) + " transcripts");
+    }
+
+    private static Transcript read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Transcript.Builder builder = new Transcript.Builder();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            try {
+                if (columns.length < 4) {
+                    throw new IllegalArgumentException("Expected start, end, text and reading");
+                }
+                builder.add(parseTime(columns[0]), parseTime(columns[1]),
+                        columns[2], columns[3], columns.length > 4 ? columns[4] : null);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    // m:ss.fff, where the fraction may have one to three digits or be left out
+    static int parseTime(String time) {
+        String trimmed = time.trim();
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Bad time " + time);
+        }
+        int dot = trimmed.indexOf('.', colon);
+        String fraction = dot < 0 ? "" : trimmed.substring(dot + 1);
+        if (fraction.length() > 3) {
+            throw new IllegalArgumentException("Bad time " + time);
+        }
+        int minutes = Integer.parseInt(trimmed.substring(0, colon));
+        int seconds = Integer.parseInt(trimmed.substring(colon + 1, dot < 0 ? trimmed.length() : dot));
+        int millis = fraction.isEmpty() ? 0 : Integer.parseInt((fraction + "00").substring(0, 3));
+        if (minutes < 0 || seconds < 0 || seconds >= 60) {
+            throw new IllegalArgumentException("Bad time " + time);
+        }
+        return (minutes * 60 + seconds) * 1000 + millis;
+    }
+}